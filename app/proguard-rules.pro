@@ -18,4 +18,14 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Debug and info logging is compiled out of release builds, arguments included
+-assumenosideeffects class com.taskshabitstracker.utils.AppLog {
+    public static void d(...);
+    public static void i(...);
+}
+-assumenosideeffects class android.util.Log {
+    public static int v(...);
+    public static int d(...);
+}
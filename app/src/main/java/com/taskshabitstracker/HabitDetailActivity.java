@@ -0,0 +1,83 @@
+package com.taskshabitstracker;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.taskshabitstracker.databinding.ActivityHabitDetailBinding;
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.repository.HabitsRepository;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
+import com.taskshabitstracker.views.HabitHeatmapView;
+
+import java.util.Locale;
+
+/**
+ * One habit with its streak figures and a heatmap of its whole history
+ * Reads the cached habit, so it opens offline and reflects toggles that are still queued
+ */
+public class HabitDetailActivity extends AppCompatActivity {
+    private static final String TAG = "HabitDetailActivity";
+    private static final String EXTRA_HABIT_ID = "habit_id";
+
+    private ActivityHabitDetailBinding binding;
+    private HabitsRepository repository;
+    private String habitId;
+
+    public static Intent newIntent(Context context, String habitId) {
+        return new Intent(context, HabitDetailActivity.class).putExtra(EXTRA_HABIT_ID, habitId);
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityHabitDetailBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        repository = HabitsRepository.getInstance(this);
+        habitId = getIntent().getStringExtra(EXTRA_HABIT_ID);
+        if (habitId == null) {
+            finish();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (habitId == null) return;
+        repository.getHabit(habitId, this::showHabit, error -> {
+            AppLog.e(TAG, "Error loading habit", "id", habitId);
+            Toast.makeText(this, error, Toast.LENGTH_SHORT).show();
+            finish();
+        });
+    }
+
+    private void showHabit(Habit habit) {
+        HabitHistory history = habit.getHistory();
+        int today = DateUtils.today();
+
+        binding.tvHabitName.setText(habit.getName());
+        binding.tvHabitDescription.setText(habit.getDescription());
+        binding.tvHabitDescription.setVisibility(habit.getDescription().isEmpty() ? View.GONE : View.VISIBLE);
+        binding.tvHabitStats.setText(String.format(Locale.getDefault(),
+                "Current streak: %d\nLongest streak: %d\nLast 30 days: %.0f%% (%d missed)\nLast 365 days: %.0f%%",
+                history.currentStreak(today),
+                history.longestStreak(),
+                history.completionRate(today - 29, today) * 100,
+                history.missedBetween(today - 29, today),
+                history.completionRate(today - 364, today) * 100));
+
+        // At least a year, and far enough back to include the first recorded day
+        int weeks = HabitHeatmapView.WEEKS_PER_YEAR;
+        if (!history.isEmpty()) {
+            weeks = Math.max(weeks, (today - history.getStartDay()) / 7 + 2);
+        }
+        binding.habitHeatmap.setWeeks(weeks);
+        binding.habitHeatmap.setHistory(history, today);
+    }
+}
@@ -2,7 +2,6 @@ package com.taskshabitstracker;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.util.Log;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
@@ -14,6 +13,7 @@ import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.JsonObjectRequest;
 import com.taskshabitstracker.network.VolleySingleton;
+import com.taskshabitstracker.utils.AppLog;
 import com.taskshabitstracker.utils.SessionManager;
 
 import org.json.JSONObject;
@@ -35,7 +35,7 @@ public class LoginActivity extends AppCompatActivity {
         setContentView(R.layout.activity_login);
 
         // Use SessionManager instead of direct SharedPreferences
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
 
         // Check if user is already logged in
         if (sessionManager.isUserLoggedIn()) {
@@ -84,12 +84,11 @@ public class LoginActivity extends AppCompatActivity {
                                 // Use SessionManager to save session consistently
                                 sessionManager.saveSession(email, sessionId);
 
-                                Log.d(TAG, "Login success: " + message);
-                                Log.d(TAG, "Session saved for email: " + email);
+                                AppLog.d(TAG, "Login success", "message", message);
                                 Toast.makeText(LoginActivity.this, message, Toast.LENGTH_SHORT).show();
                                 redirectToMain();
                             } else {
-                                Log.e(TAG, "No session ID received from server");
+                                AppLog.e(TAG, "No session ID received from server");
                                 Toast.makeText(LoginActivity.this, "Login failed: No session received", Toast.LENGTH_LONG).show();
                             }
                         },
@@ -104,11 +103,11 @@ public class LoginActivity extends AppCompatActivity {
                                     JSONObject errorJson = new JSONObject(responseBody);
                                     errorMessage = errorJson.optString("message", errorMessage);
                                 } catch (Exception e) {
-                                    Log.e(TAG, "Error parsing error response: " + e.getMessage());
+                                    AppLog.e(TAG, "Error parsing error response", e);
                                 }
                             }
-                            Log.e(TAG, "Login error: " + errorMessage + ", Status Code: " +
-                                    (error.networkResponse != null ? error.networkResponse.statusCode : "N/A"));
+                            AppLog.e(TAG, "Login error", "error", errorMessage,
+                                    "status", error.networkResponse != null ? error.networkResponse.statusCode : "N/A");
                             Toast.makeText(LoginActivity.this, errorMessage, Toast.LENGTH_LONG).show();
                         }
                 ) {
@@ -125,7 +124,7 @@ public class LoginActivity extends AppCompatActivity {
                 loginButton.setEnabled(true);
                 loginButton.setText("Login");
 
-                Log.e(TAG, "Exception: " + e.getMessage());
+                AppLog.e(TAG, "Login request failed", e);
                 Toast.makeText(LoginActivity.this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             }
         });
@@ -3,7 +3,6 @@ package com.taskshabitstracker;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import androidx.annotation.NonNull;
@@ -15,7 +14,9 @@ import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.NavigationUI;
 import com.taskshabitstracker.databinding.ActivityMainBinding;
+import com.taskshabitstracker.repository.NavigationPrefetcher;
 import com.taskshabitstracker.viewmodel.MainViewModel;
+import com.taskshabitstracker.utils.AppLog;
 import com.taskshabitstracker.utils.SessionManager;
 import android.content.pm.PackageManager;
 
@@ -57,13 +58,13 @@ public class MainActivity extends AppCompatActivity {
 
         // Enhanced session validation
         if (!sessionManager.isUserLoggedIn() || !sessionManager.validateSession()) {
-            Log.w(TAG, "Session validation failed, redirecting to login");
+            AppLog.w(TAG, "Session validation failed, redirecting to login");
             sessionManager.logSessionState(); // Debug logging
             redirectToLogin();
             return;
         }
 
-        Log.d(TAG, "Session validation successful for user: " + sessionManager.getUserEmail());
+        AppLog.d(TAG, "Session validation successful");
 
         // Request notification permissions for API 33+ (required for WorkManager notifications)
         requestNotificationPermission();
@@ -74,24 +75,12 @@ public class MainActivity extends AppCompatActivity {
         setupObservers();
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-
-        // Recheck session validity when activity resumes
-        if (!sessionManager.isUserLoggedIn() || !sessionManager.validateSession()) {
-            Log.w(TAG, "Session invalid on resume, redirecting to login");
-            redirectToLogin();
-            return;
-        }
-    }
-
     /**
      * Initialize all dependencies using proper dependency injection pattern
      * In a real app, you'd use Dagger/Hilt for this
      */
     private void initializeDependencies() {
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
 
         // ViewModelProvider ensures ViewModel survives configuration changes
         viewModel = new ViewModelProvider(this).get(MainViewModel.class);
@@ -138,15 +127,10 @@ public class MainActivity extends AppCompatActivity {
             // Connect bottom navigation with NavController
             NavigationUI.setupWithNavController(binding.bottomNav, navController);
 
-            // Listen for destination changes to update toolbar title
+            // Listen for destination changes to update toolbar title and warm the likely next tabs
             navController.addOnDestinationChangedListener((controller, destination, arguments) -> {
                 updateToolbarTitle(destination.getId());
-
-                // Additional session check on navigation
-                if (!sessionManager.isUserLoggedIn()) {
-                    Log.w(TAG, "Session lost during navigation, redirecting to login");
-                    redirectToLogin();
-                }
+                NavigationPrefetcher.getInstance(this).onDestinationChanged(prefetchName(destination.getId()));
             });
         }
     }
@@ -156,6 +140,14 @@ public class MainActivity extends AppCompatActivity {
      * Follows MVVM pattern for reactive UI updates
      */
     private void setupObservers() {
+        // Leave as soon as the session is cleared anywhere in the app (expired, logged out)
+        sessionManager.getSession().observe(this, session -> {
+            if (session != null && !session.isLoggedIn() && !isFinishing()) {
+                AppLog.w(TAG, "Session lost, redirecting to login");
+                redirectToLogin();
+            }
+        });
+
         // Observe logout state
         viewModel.getLogoutState().observe(this, isLoggingOut -> {
             if (isLoggingOut != null && isLoggingOut) {
@@ -170,7 +162,7 @@ public class MainActivity extends AppCompatActivity {
                 if (errorMessage.toLowerCase().contains("session") ||
                         errorMessage.toLowerCase().contains("unauthorized") ||
                         errorMessage.toLowerCase().contains("expired")) {
-                    Log.w(TAG, "Session-related error detected: " + errorMessage);
+                    AppLog.w(TAG, "Session-related error detected", "error", errorMessage);
                     performLogout();
                 } else {
                     // Show error to user (consider using Snackbar for better UX)
@@ -203,6 +195,23 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Name of a destination for NavigationPrefetcher
+     */
+    private static String prefetchName(int destinationId) {
+        if (destinationId == R.id.dashboardFragment) return NavigationPrefetcher.DASHBOARD;
+        if (destinationId == R.id.tasksFragment) return NavigationPrefetcher.TASKS;
+        if (destinationId == R.id.habitsFragment) return NavigationPrefetcher.HABITS;
+        return "other";
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Prefetching is for the next tab switch, not for a backgrounded app
+        NavigationPrefetcher.getInstance(this).cancel();
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.top_app_bar_menu, menu);
@@ -224,7 +233,7 @@ public class MainActivity extends AppCompatActivity {
      * Perform logout operations
      */
     private void performLogout() {
-        Log.d(TAG, "Performing logout");
+        AppLog.d(TAG, "Performing logout");
         sessionManager.clearSession();
         redirectToLogin();
     }
@@ -233,7 +242,7 @@ public class MainActivity extends AppCompatActivity {
      * Redirect to login activity and clear current activity stack
      */
     private void redirectToLogin() {
-        Log.d(TAG, "Redirecting to login");
+        AppLog.d(TAG, "Redirecting to login");
         Intent intent = new Intent(this, LoginActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
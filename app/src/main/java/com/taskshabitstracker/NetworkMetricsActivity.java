@@ -0,0 +1,69 @@
+package com.taskshabitstracker;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.taskshabitstracker.databinding.ActivityNetworkMetricsBinding;
+import com.taskshabitstracker.network.NetworkMetrics;
+import com.taskshabitstracker.network.RequestCoalescer;
+import com.taskshabitstracker.utils.AppLog;
+
+import org.json.JSONException;
+
+/**
+ * Debug screen listing per-endpoint latency, sizes and outcomes from NetworkMetrics
+ * Export shares the raw figures as JSON so runs can be compared for regressions
+ */
+public class NetworkMetricsActivity extends AppCompatActivity {
+    private static final String TAG = "NetworkMetricsActivity";
+
+    private ActivityNetworkMetricsBinding binding;
+    private NetworkMetrics metrics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityNetworkMetricsBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+        metrics = NetworkMetrics.getInstance();
+
+        binding.btnRefreshMetrics.setOnClickListener(v -> showMetrics());
+        binding.btnExportMetrics.setOnClickListener(v -> exportMetrics());
+        binding.btnResetMetrics.setOnClickListener(v -> {
+            metrics.reset();
+            showMetrics();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    private void showMetrics() {
+        RequestCoalescer coalescer = RequestCoalescer.getInstance(this);
+        binding.tvMetrics.setText("Coalesced GETs: " + coalescer.getCoalescedCount()
+                + " of " + (coalescer.getIssuedCount() + coalescer.getCoalescedCount()) + "\n\n"
+                + metrics.summary());
+    }
+
+    private void exportMetrics() {
+        String json;
+        try {
+            json = metrics.toJson(RequestCoalescer.getInstance(this)).toString(2);
+        } catch (JSONException e) {
+            AppLog.e(TAG, "Error exporting metrics", e);
+            Toast.makeText(this, "Failed to export metrics", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent share = new Intent(Intent.ACTION_SEND)
+                .setType("application/json")
+                .putExtra(Intent.EXTRA_SUBJECT, "Network metrics")
+                .putExtra(Intent.EXTRA_TEXT, json);
+        startActivity(Intent.createChooser(share, "Export metrics"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.taskshabitstracker;
+
+import android.app.Application;
+import com.taskshabitstracker.utils.SessionManager;
+import com.taskshabitstracker.workers.OutboxWorker;
+
+/**
+ * TasksHabitsApplication - Process start-up hook
+ * Starts reading the stored session in the background before the first activity asks for it,
+ * and flushes the outbox whenever a session starts: a flush that stopped on 401/403 is not
+ * retried by WorkManager, and entries left from before a restart need a run too
+ */
+public class TasksHabitsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        SessionManager.getInstance(this).getSession().observeForever(session -> {
+            if (session.isLoggedIn()) OutboxWorker.schedule(this);
+        });
+    }
+}
@@ -1,21 +1,47 @@
 package com.taskshabitstracker.adapters;
 
-import android.util.Log;
+import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.taskshabitstracker.databinding.ItemHabitBinding;
+import com.taskshabitstracker.domain.HabitHistory;
 import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
-public class HabitsAdapter extends RecyclerView.Adapter<HabitsAdapter.HabitViewHolder> {
+/**
+ * HabitsAdapter - ListAdapter backed by AsyncListDiffer
+ * Diffs run on a background thread; a completion toggle is delivered as a
+ * payload so only the checkbox, streak and heatmap of that one row are rebound.
+ * A long press starts selecting rows for a bulk edit; while selecting, a tap
+ * adds or removes a row instead of opening it and the per-row buttons are disabled
+ */
+public class HabitsAdapter extends ListAdapter<Habit, HabitsAdapter.HabitViewHolder> {
     private static final String TAG = "HabitsAdapter";
-    private List<Habit> habits = new ArrayList<>();
+    private static final Object PAYLOAD_COMPLETION = new Object();
+    private static final Object PAYLOAD_PENDING = new Object();
+    private static final Object PAYLOAD_SELECTION = new Object();
+    private static final float PENDING_ALPHA = 0.6f;
+
     private final OnHabitClickListener onHabitClickListener;
     private final OnHabitDeleteListener onHabitDeleteListener;
+    private final OnHabitOpenListener onHabitOpenListener;
+    private Set<String> pendingIds = Collections.emptySet();
+    private final Set<String> selectedIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener selectionListener;
 
     public interface OnHabitClickListener {
         void onHabitClick(Habit habit);
@@ -25,15 +51,120 @@ public class HabitsAdapter extends RecyclerView.Adapter<HabitsAdapter.HabitViewH
         void onHabitDelete(Habit habit);
     }
 
-    public HabitsAdapter(OnHabitClickListener onHabitClickListener, OnHabitDeleteListener onHabitDeleteListener) {
+    public interface OnHabitOpenListener {
+        void onHabitOpen(Habit habit);
+    }
+
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int count);
+    }
+
+    private static final DiffUtil.ItemCallback<Habit> DIFF_CALLBACK = new DiffUtil.ItemCallback<Habit>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Habit oldItem, @NonNull Habit newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Habit oldItem, @NonNull Habit newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Habit oldItem, @NonNull Habit newItem) {
+            if (Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())) {
+                return PAYLOAD_COMPLETION;
+            }
+            return null;
+        }
+    };
+
+    public HabitsAdapter(OnHabitClickListener onHabitClickListener, OnHabitDeleteListener onHabitDeleteListener,
+                         OnHabitOpenListener onHabitOpenListener) {
+        super(DIFF_CALLBACK);
         this.onHabitClickListener = onHabitClickListener;
         this.onHabitDeleteListener = onHabitDeleteListener;
+        this.onHabitOpenListener = onHabitOpenListener;
     }
 
     public void updateHabits(List<Habit> newHabits) {
-        this.habits = newHabits != null ? new ArrayList<>(newHabits) : new ArrayList<>();
-        notifyDataSetChanged();
-        Log.d(TAG, "Adapter updated with " + habits.size() + " habits");
+        submitList(newHabits, this::pruneSelection);
+    }
+
+    /**
+     * Mark rows whose changes are still queued for the server
+     * Only rows whose pending state flipped are rebound
+     */
+    public void setPendingIds(Set<String> ids) {
+        Set<String> previous = pendingIds;
+        pendingIds = ids;
+        List<Habit> items = getCurrentList();
+        for (int i = 0; i < items.size(); i++) {
+            String id = items.get(i).getId();
+            if (previous.contains(id) != ids.contains(id)) {
+                notifyItemChanged(i, PAYLOAD_PENDING);
+            }
+        }
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        selectionListener = listener;
+    }
+
+    public boolean isSelecting() {
+        return !selectedIds.isEmpty();
+    }
+
+    /**
+     * The selected habits, in list order
+     */
+    public List<Habit> getSelectedHabits() {
+        List<Habit> selected = new ArrayList<>(selectedIds.size());
+        for (Habit habit : getCurrentList()) {
+            if (selectedIds.contains(habit.getId())) {
+                selected.add(habit);
+            }
+        }
+        return selected;
+    }
+
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) return;
+        selectedIds.clear();
+        notifySelectionChanged(true);
+    }
+
+    private void toggleSelection(Habit habit) {
+        boolean wasSelecting = isSelecting();
+        if (!selectedIds.remove(habit.getId())) {
+            selectedIds.add(habit.getId());
+        }
+        if (wasSelecting != isSelecting()) {
+            // Entering or leaving selection changes the buttons of every row
+            notifySelectionChanged(true);
+            return;
+        }
+        int position = getCurrentList().indexOf(habit);
+        if (position >= 0) notifyItemChanged(position, PAYLOAD_SELECTION);
+        notifySelectionChanged(false);
+    }
+
+    // Rows that left the list, e.g. deleted elsewhere, are no longer selected
+    private void pruneSelection() {
+        if (selectedIds.isEmpty()) return;
+        Set<String> present = new HashSet<>(selectedIds.size() * 2);
+        for (Habit habit : getCurrentList()) {
+            if (selectedIds.contains(habit.getId())) present.add(habit.getId());
+        }
+        if (present.size() == selectedIds.size()) return;
+        selectedIds.retainAll(present);
+        notifySelectionChanged(selectedIds.isEmpty());
+    }
+
+    private void notifySelectionChanged(boolean rebindAll) {
+        if (rebindAll) notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        if (selectionListener != null) selectionListener.onSelectionChanged(selectedIds.size());
     }
 
     @NonNull
@@ -46,45 +177,98 @@ public class HabitsAdapter extends RecyclerView.Adapter<HabitsAdapter.HabitViewH
 
     @Override
     public void onBindViewHolder(@NonNull HabitViewHolder holder, int position) {
-        holder.bind(habits.get(position));
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return habits.size();
+    public void onBindViewHolder(@NonNull HabitViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && onlyCompletionChanged(payloads)) {
+            holder.bindCompletion(getItem(position));
+            holder.bindSelection(getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private static boolean onlyCompletionChanged(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_COMPLETION && payload != PAYLOAD_PENDING && payload != PAYLOAD_SELECTION) return false;
+        }
+        return true;
     }
 
     class HabitViewHolder extends RecyclerView.ViewHolder {
         private final ItemHabitBinding binding;
+        private final int selectedColor;
 
         HabitViewHolder(ItemHabitBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
-        }
+            selectedColor = ContextCompat.getColor(binding.getRoot().getContext(), android.R.color.holo_blue_light);
 
-        void bind(Habit habit) {
-            binding.habitTitle.setText(habit.getTitle());
-            binding.habitDescription.setText(habit.getDescription());
-            binding.habitDescription.setVisibility(habit.getDescription().isEmpty() ? View.GONE : View.VISIBLE);
-            binding.cbHabitCompleted.setChecked(habit.isCompletedToday());
-            binding.tvHabitStreak.setText("Streak: " + habit.getStreak());
-
-            // Click listener for checkbox to toggle completion
+            // Listeners resolve the row at click time so partial rebinds never leave a stale habit behind
             binding.cbHabitCompleted.setOnClickListener(v -> {
-                Log.d(TAG, "Toggling habit ID: " + habit.getId());
-                if (onHabitClickListener != null) {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && onHabitClickListener != null) {
+                    Habit habit = getItem(position);
+                    AppLog.d(TAG, "Toggling habit", "id", habit.getId());
                     onHabitClickListener.onHabitClick(habit);
                 }
             });
 
-            // Click listener for delete button
+            binding.getRoot().setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                if (isSelecting()) {
+                    toggleSelection(getItem(position));
+                } else if (onHabitOpenListener != null) {
+                    onHabitOpenListener.onHabitOpen(getItem(position));
+                }
+            });
+
+            binding.getRoot().setOnLongClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return false;
+                toggleSelection(getItem(position));
+                return true;
+            });
+
             binding.btnDeleteHabit.setOnClickListener(v -> {
-                int position = getAdapterPosition();
+                int position = getBindingAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && onHabitDeleteListener != null) {
-                    Log.d(TAG, "Deleting habit ID: " + habit.getId() + " at position: " + position);
-                    onHabitDeleteListener.onHabitDelete(habits.get(position));
+                    Habit habit = getItem(position);
+                    AppLog.d(TAG, "Deleting habit", "id", habit.getId(), "position", position);
+                    onHabitDeleteListener.onHabitDelete(habit);
                 }
             });
         }
+
+        void bind(Habit habit) {
+            binding.habitTitle.setText(habit.getTitle());
+            binding.habitDescription.setText(habit.getDescription());
+            binding.habitDescription.setVisibility(habit.getDescription().isEmpty() ? View.GONE : View.VISIBLE);
+            bindCompletion(habit);
+            bindSelection(habit);
+        }
+
+        void bindSelection(Habit habit) {
+            boolean selecting = isSelecting();
+            itemView.setBackgroundColor(selectedIds.contains(habit.getId()) ? selectedColor : Color.TRANSPARENT);
+            binding.cbHabitCompleted.setEnabled(!selecting);
+            binding.btnDeleteHabit.setEnabled(!selecting);
+        }
+
+        void bindCompletion(Habit habit) {
+            int today = DateUtils.today();
+            HabitHistory history = habit.getHistory();
+            binding.cbHabitCompleted.setChecked(history.isCompleted(today));
+            int streak = history.currentStreak(today);
+            int longest = history.longestStreak();
+            binding.tvHabitStreak.setText(longest > streak
+                    ? "Streak: " + streak + " (best " + longest + ")"
+                    : "Streak: " + streak);
+            binding.habitHeatmap.setHistory(history, today);
+            itemView.setAlpha(pendingIds.contains(habit.getId()) ? PENDING_ALPHA : 1f);
+        }
     }
-}
\ No newline at end of file
+}
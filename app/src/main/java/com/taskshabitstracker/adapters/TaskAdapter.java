@@ -1,25 +1,54 @@
 package com.taskshabitstracker.adapters;
 
-import android.util.Log;
+import android.graphics.Color;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.taskshabitstracker.databinding.ItemTaskBinding;
+import com.taskshabitstracker.domain.SortedTaskList;
 import com.taskshabitstracker.model.Task;
-import java.text.SimpleDateFormat;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
-public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
+/**
+ * TaskAdapter - ListAdapter backed by AsyncListDiffer
+ * Diffs run on a background thread and only changed rows are rebound;
+ * a completion toggle is delivered as a payload so just the checkbox
+ * and due-date color of that one row are updated.
+ * Null items are placeholders for tasks the paged window has not loaded yet.
+ * In a grouped list the first task of each section carries the section header.
+ * A long press starts selecting rows for a bulk edit; while selecting, a tap
+ * adds or removes a row and the per-row buttons are disabled
+ */
+public class TaskAdapter extends ListAdapter<Task, TaskAdapter.TaskViewHolder> {
     private static final String TAG = "TaskAdapter";
-    private List<Task> tasks = new ArrayList<>();
+    private static final Object PAYLOAD_COMPLETED = new Object();
+    private static final Object PAYLOAD_PENDING = new Object();
+    private static final Object PAYLOAD_HEADER = new Object();
+    private static final Object PAYLOAD_SELECTION = new Object();
+    private static final float PENDING_ALPHA = 0.6f;
+
     private final OnTaskToggleListener toggleListener;
     private final OnTaskDeleteListener deleteListener;
+    private Set<String> pendingIds = Collections.emptySet();
+    // Header text by the id of the task that starts a section
+    private Map<String, String> headers = Collections.emptyMap();
+    private final Set<String> selectedIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener selectionListener;
 
     public interface OnTaskToggleListener {
         void onToggle(Task task);
@@ -29,15 +58,141 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
         void onDelete(Task task);
     }
 
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int count);
+    }
+
+    private static final DiffUtil.ItemCallback<Task> DIFF_CALLBACK = new DiffUtil.ItemCallback<Task>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Task oldItem, @NonNull Task newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Task oldItem, @NonNull Task newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Task oldItem, @NonNull Task newItem) {
+            if (oldItem.withCompleted(newItem.isCompleted()).equals(newItem)) {
+                return PAYLOAD_COMPLETED;
+            }
+            return null;
+        }
+    };
+
     public TaskAdapter(OnTaskToggleListener toggleListener, OnTaskDeleteListener deleteListener) {
+        super(DIFF_CALLBACK);
         this.toggleListener = toggleListener;
         this.deleteListener = deleteListener;
     }
 
     public void updateTasks(List<Task> newTasks) {
-        this.tasks = newTasks != null ? new ArrayList<>(newTasks) : new ArrayList<>();
-        notifyDataSetChanged();
-        Log.d(TAG, "Adapter updated with " + tasks.size() + " tasks");
+        updateTasks(newTasks, Collections.emptyList());
+    }
+
+    /**
+     * Show a list with section headers at the given positions
+     * The diff only compares tasks, so once it is applied the rows that gained or
+     * lost a header are rebound
+     */
+    public void updateTasks(List<Task> newTasks, List<SortedTaskList.Section> sections) {
+        Map<String, String> newHeaders = new HashMap<>(sections.size() * 2);
+        for (SortedTaskList.Section section : sections) {
+            newHeaders.put(newTasks.get(section.start).getId(), section.getTitle() + " (" + section.size + ")");
+        }
+        submitList(newTasks, () -> {
+            pruneSelection();
+            Map<String, String> previous = headers;
+            headers = newHeaders;
+            if (previous.isEmpty() && newHeaders.isEmpty()) return;
+            List<Task> items = getCurrentList();
+            for (int i = 0; i < items.size(); i++) {
+                Task task = items.get(i);
+                if (task == null) continue; // placeholder
+                if (!Objects.equals(previous.get(task.getId()), newHeaders.get(task.getId()))) {
+                    notifyItemChanged(i, PAYLOAD_HEADER);
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark rows whose changes are still queued for the server
+     * Only rows whose pending state flipped are rebound
+     */
+    public void setPendingIds(Set<String> ids) {
+        Set<String> previous = pendingIds;
+        pendingIds = ids;
+        List<Task> items = getCurrentList();
+        for (int i = 0; i < items.size(); i++) {
+            Task task = items.get(i);
+            if (task == null) continue; // placeholder
+            String id = task.getId();
+            if (previous.contains(id) != ids.contains(id)) {
+                notifyItemChanged(i, PAYLOAD_PENDING);
+            }
+        }
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        selectionListener = listener;
+    }
+
+    public boolean isSelecting() {
+        return !selectedIds.isEmpty();
+    }
+
+    /**
+     * The selected tasks, in list order
+     */
+    public List<Task> getSelectedTasks() {
+        List<Task> selected = new ArrayList<>(selectedIds.size());
+        for (Task task : getCurrentList()) {
+            if (task != null && selectedIds.contains(task.getId())) {
+                selected.add(task);
+            }
+        }
+        return selected;
+    }
+
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) return;
+        selectedIds.clear();
+        notifySelectionChanged(true);
+    }
+
+    private void toggleSelection(Task task) {
+        boolean wasSelecting = isSelecting();
+        if (!selectedIds.remove(task.getId())) {
+            selectedIds.add(task.getId());
+        }
+        if (wasSelecting != isSelecting()) {
+            // Entering or leaving selection changes the buttons of every row
+            notifySelectionChanged(true);
+            return;
+        }
+        int position = getCurrentList().indexOf(task);
+        if (position >= 0) notifyItemChanged(position, PAYLOAD_SELECTION);
+        notifySelectionChanged(false);
+    }
+
+    // Rows that left the list, e.g. deleted elsewhere, are no longer selected
+    private void pruneSelection() {
+        if (selectedIds.isEmpty()) return;
+        Set<String> present = new HashSet<>(selectedIds.size() * 2);
+        for (Task task : getCurrentList()) {
+            if (task != null && selectedIds.contains(task.getId())) present.add(task.getId());
+        }
+        if (present.size() == selectedIds.size()) return;
+        selectedIds.retainAll(present);
+        notifySelectionChanged(selectedIds.isEmpty());
+    }
+
+    private void notifySelectionChanged(boolean rebindAll) {
+        if (rebindAll) notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        if (selectionListener != null) selectionListener.onSelectionChanged(selectedIds.size());
     }
 
     @NonNull
@@ -50,77 +205,133 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
-        holder.bind(tasks.get(position));
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return tasks.size();
+    public void onBindViewHolder(@NonNull TaskViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && onlyCompletionChanged(payloads)) {
+            Task task = getItem(position);
+            if (task == null) return; // placeholder
+            holder.bindHeader(task);
+            holder.bindCompletion(task);
+            holder.bindSelection(task);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    private static boolean onlyCompletionChanged(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_COMPLETED && payload != PAYLOAD_PENDING && payload != PAYLOAD_HEADER
+                    && payload != PAYLOAD_SELECTION) return false;
+        }
+        return true;
     }
 
     class TaskViewHolder extends RecyclerView.ViewHolder {
         private final ItemTaskBinding binding;
+        private final int overdueColor;
+        private final int normalColor;
+        private final int selectedColor;
 
         TaskViewHolder(ItemTaskBinding binding) {
             super(binding.getRoot());
             this.binding = binding;
+            overdueColor = ContextCompat.getColor(binding.getRoot().getContext(), android.R.color.holo_red_dark);
+            normalColor = ContextCompat.getColor(binding.getRoot().getContext(), android.R.color.black);
+            selectedColor = ContextCompat.getColor(binding.getRoot().getContext(), android.R.color.holo_blue_light);
+
+            // Listeners resolve the row at click time so partial rebinds never leave a stale task behind
+            binding.cbTaskCompleted.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                Task task = position != RecyclerView.NO_POSITION ? getItem(position) : null;
+                if (task != null && toggleListener != null) {
+                    AppLog.d(TAG, "Toggling task", "id", task.getId());
+                    toggleListener.onToggle(task);
+                }
+            });
+
+            binding.btnDeleteTask.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                Task task = position != RecyclerView.NO_POSITION ? getItem(position) : null;
+                if (task != null && deleteListener != null) {
+                    AppLog.d(TAG, "Deleting task", "id", task.getId(), "position", position);
+                    deleteListener.onDelete(task);
+                }
+            });
+
+            itemView.setOnLongClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                Task task = position != RecyclerView.NO_POSITION ? getItem(position) : null;
+                if (task == null) return false;
+                toggleSelection(task);
+                return true;
+            });
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                Task task = position != RecyclerView.NO_POSITION ? getItem(position) : null;
+                if (task != null && isSelecting()) toggleSelection(task);
+            });
         }
 
         void bind(Task task) {
+            if (task == null) {
+                bindPlaceholder();
+                return;
+            }
+            binding.cbTaskCompleted.setVisibility(View.VISIBLE);
+            binding.btnDeleteTask.setVisibility(View.VISIBLE);
             binding.tvTaskTitle.setText(task.getTitle());
             binding.tvTaskDescription.setText(task.getDescription());
             binding.tvTaskDescription.setVisibility(task.getDescription().isEmpty() ? View.GONE : View.VISIBLE);
+            bindHeader(task);
+            bindCompletion(task);
+            bindSelection(task);
+        }
+
+        void bindSelection(Task task) {
+            boolean selecting = isSelecting();
+            itemView.setBackgroundColor(selectedIds.contains(task.getId()) ? selectedColor : Color.TRANSPARENT);
+            binding.cbTaskCompleted.setEnabled(!selecting);
+            binding.btnDeleteTask.setEnabled(!selecting);
+        }
+
+        void bindHeader(Task task) {
+            String header = headers.get(task.getId());
+            binding.tvSectionHeader.setText(header);
+            binding.tvSectionHeader.setVisibility(header != null ? View.VISIBLE : View.GONE);
+        }
+
+        // Row for a task that is not loaded yet
+        void bindPlaceholder() {
+            itemView.setAlpha(1f);
+            itemView.setBackgroundColor(Color.TRANSPARENT);
+            binding.tvSectionHeader.setVisibility(View.GONE);
+            binding.tvTaskTitle.setText("Loading…");
+            binding.tvTaskDescription.setVisibility(View.GONE);
+            binding.tvDueDate.setVisibility(View.GONE);
+            binding.cbTaskCompleted.setVisibility(View.INVISIBLE);
+            binding.btnDeleteTask.setVisibility(View.INVISIBLE);
+        }
+
+        void bindCompletion(Task task) {
             binding.cbTaskCompleted.setChecked(task.isCompleted());
+            itemView.setAlpha(pendingIds.contains(task.getId()) ? PENDING_ALPHA : 1f);
 
-            // Display due date
+            // Display due date; the date was parsed once when the task was built
             String dueDateStr = task.getDueDate();
-            if (dueDateStr != null && !dueDateStr.isEmpty()) {
+            if (task.hasDueDate()) {
                 binding.tvDueDate.setText("Due: " + dueDateStr);
                 binding.tvDueDate.setVisibility(View.VISIBLE);
-
-                // Check if task is overdue
-                try {
-                    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-                    Calendar dueCalendar = Calendar.getInstance();
-                    dueCalendar.setTime(sdf.parse(dueDateStr));
-                    dueCalendar.set(Calendar.HOUR_OF_DAY, 0);
-                    dueCalendar.set(Calendar.MINUTE, 0);
-                    dueCalendar.set(Calendar.SECOND, 0);
-                    dueCalendar.set(Calendar.MILLISECOND, 0);
-
-                    Calendar today = Calendar.getInstance();
-                    today.set(Calendar.HOUR_OF_DAY, 0);
-                    today.set(Calendar.MINUTE, 0);
-                    today.set(Calendar.SECOND, 0);
-                    today.set(Calendar.MILLISECOND, 0);
-
-                    if (!task.isCompleted() && dueCalendar.before(today)) {
-                        binding.tvDueDate.setTextColor(ContextCompat.getColor(binding.getRoot().getContext(), android.R.color.holo_red_dark));
-                    } else {
-                        binding.tvDueDate.setTextColor(ContextCompat.getColor(binding.getRoot().getContext(), android.R.color.black));
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error parsing due date for task ID: " + task.getId(), e);
-                    binding.tvDueDate.setVisibility(View.GONE);
-                }
+                binding.tvDueDate.setTextColor(task.isOverdue(DateUtils.today()) ? overdueColor : normalColor);
             } else {
+                if (dueDateStr != null && !dueDateStr.isEmpty()) {
+                    AppLog.e(TAG, "Error parsing due date", "id", task.getId());
+                }
                 binding.tvDueDate.setVisibility(View.GONE);
             }
-
-            binding.cbTaskCompleted.setOnClickListener(v -> {
-                Log.d(TAG, "Toggling task ID: " + task.getId());
-                if (toggleListener != null) {
-                    toggleListener.onToggle(task);
-                }
-            });
-
-            binding.btnDeleteTask.setOnClickListener(v -> {
-                int position = getBindingAdapterPosition();
-                if (position != RecyclerView.NO_POSITION && deleteListener != null) {
-                    Log.d(TAG, "Deleting task ID: " + task.getId() + " at position: " + position);
-                    deleteListener.onDelete(tasks.get(position));
-                }
-            });
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+// AppDatabase.java - Local SQLite store for offline-first tasks and habits
+package com.taskshabitstracker.database;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * AppDatabase - Single SQLite database shared by the repositories
+ * Repositories read from it first and write network results back into it,
+ * so screens can render from disk before the server answers
+ */
+public class AppDatabase extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "tasks_habits.db";
+    private static final int DATABASE_VERSION = 6;
+
+    static final String TABLE_TASKS = "tasks";
+    static final String TABLE_HABITS = "habits";
+    static final String TABLE_SYNC_STATE = "sync_state";
+    static final String TABLE_OUTBOX = "outbox";
+    static final String TABLE_OUTBOX_ID_MAP = "outbox_id_map";
+
+    private static AppDatabase instance;
+
+    private TaskDao taskDao;
+    private HabitDao habitDao;
+    private SyncStateDao syncStateDao;
+    private OutboxDao outboxDao;
+
+    private AppDatabase(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL lets the UI read the cache while a refresh is being written
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    public static synchronized AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppDatabase(context);
+        }
+        return instance;
+    }
+
+    public synchronized TaskDao taskDao() {
+        if (taskDao == null) {
+            taskDao = new TaskDao(this);
+        }
+        return taskDao;
+    }
+
+    public synchronized HabitDao habitDao() {
+        if (habitDao == null) {
+            habitDao = new HabitDao(this);
+        }
+        return habitDao;
+    }
+
+    public synchronized SyncStateDao syncStateDao() {
+        if (syncStateDao == null) {
+            syncStateDao = new SyncStateDao(this);
+        }
+        return syncStateDao;
+    }
+
+    public synchronized OutboxDao outboxDao() {
+        if (outboxDao == null) {
+            outboxDao = new OutboxDao(this);
+        }
+        return outboxDao;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_TASKS + " ("
+                + "id TEXT PRIMARY KEY NOT NULL, "
+                + "user_id TEXT, "
+                + "title TEXT NOT NULL, "
+                + "description TEXT, "
+                + "completed INTEGER NOT NULL DEFAULT 0, "
+                + "due_date TEXT, "
+                + "due_notifications INTEGER NOT NULL DEFAULT 1, "
+                + "pre_due_notifications INTEGER NOT NULL DEFAULT 1, "
+                + "position INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_tasks_position ON " + TABLE_TASKS + " (position)");
+
+        db.execSQL("CREATE TABLE " + TABLE_HABITS + " ("
+                + "id TEXT PRIMARY KEY NOT NULL, "
+                + "name TEXT NOT NULL, "
+                + "description TEXT, "
+                + "streak INTEGER NOT NULL DEFAULT 0, "
+                + "completed_today INTEGER NOT NULL DEFAULT 0, "
+                + "history_start INTEGER, "
+                + "history BLOB, "
+                + "position INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_habits_position ON " + TABLE_HABITS + " (position)");
+
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + "resource TEXT PRIMARY KEY NOT NULL, "
+                + "etag TEXT, "
+                + "cursor TEXT, "
+                + "next_page TEXT, "
+                + "fill_complete INTEGER NOT NULL DEFAULT 0)");
+
+        createOutboxTables(db);
+    }
+
+    private void createOutboxTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + "seq INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "entity_type TEXT NOT NULL, "
+                + "entity_id TEXT NOT NULL, "
+                + "op TEXT NOT NULL, "
+                + "payload TEXT, "
+                + "in_flight INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_outbox_entity ON " + TABLE_OUTBOX + " (entity_type, entity_id)");
+
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX_ID_MAP + " ("
+                + "entity_type TEXT NOT NULL, "
+                + "local_id TEXT NOT NULL, "
+                + "server_id TEXT NOT NULL, "
+                + "PRIMARY KEY (entity_type, local_id))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Version 1 only cached server data, so dropping it is safe
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_TASKS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_HABITS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_SYNC_STATE);
+            onCreate(db);
+            return;
+        }
+        if (oldVersion < 3) {
+            // The outbox holds unsent user changes and must survive later upgrades
+            createOutboxTables(db);
+        }
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + TABLE_SYNC_STATE + " ADD COLUMN next_page TEXT");
+            // Same default as a fresh install, so rows inserted later never claim a full cache;
+            // caches filled before paging existed hold the full collection
+            db.execSQL("ALTER TABLE " + TABLE_SYNC_STATE
+                    + " ADD COLUMN fill_complete INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE " + TABLE_SYNC_STATE + " SET fill_complete = 1");
+        }
+        if (oldVersion < 5) {
+            // Rows without a history are read back from their streak (see HabitDao)
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN history_start INTEGER");
+            db.execSQL("ALTER TABLE " + TABLE_HABITS + " ADD COLUMN history BLOB");
+        }
+        if (oldVersion >= 4 && oldVersion < 6) {
+            // Version 4 and 5 gave rows inserted after a logout wipe fill_complete = 1,
+            // so an empty task store was never paged in
+            db.execSQL("UPDATE " + TABLE_SYNC_STATE + " SET fill_complete = 0 WHERE resource = ?"
+                    + " AND NOT EXISTS (SELECT 1 FROM " + TABLE_TASKS + ")",
+                    new Object[]{SyncStateDao.RESOURCE_TASKS});
+        }
+    }
+
+    /**
+     * Run several DAO writes as one transaction; the DAOs' own transactions nest inside it
+     * Must be called off the main thread
+     */
+    public void runInTransaction(Runnable writes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            writes.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove all cached user data (called on logout)
+     */
+    public void clearAllTables() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_TASKS, null, null);
+            db.delete(TABLE_HABITS, null, null);
+            db.delete(TABLE_SYNC_STATE, null, null);
+            db.delete(TABLE_OUTBOX, null, null);
+            db.delete(TABLE_OUTBOX_ID_MAP, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
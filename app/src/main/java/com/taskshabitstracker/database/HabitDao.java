@@ -0,0 +1,254 @@
+// HabitDao.java - SQLite access for cached habits
+package com.taskshabitstracker.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import androidx.annotation.Nullable;
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.model.Habit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * HabitDao - Reads and writes the local habit table
+ * All methods do disk I/O and must be called off the main thread.
+ * The completion history is stored as its packed words (HabitHistory.toBytes)
+ * next to the epoch day of the first bit
+ */
+public class HabitDao {
+    private static final String TABLE = AppDatabase.TABLE_HABITS;
+    private static final String[] COLUMNS = {"id", "name", "description", "streak", "completed_today",
+            "history_start", "history"};
+
+    private final AppDatabase database;
+
+    HabitDao(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Load every cached habit in server order
+     */
+    public List<Habit> getAll() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE, COLUMNS, null, null, null, null, "position")) {
+            List<Habit> habits = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                habits.add(fromCursor(cursor));
+            }
+            return habits;
+        }
+    }
+
+    /**
+     * Load the cached habits with the given ids (at most 999) in server order
+     */
+    public List<Habit> getByIds(List<String> ids) {
+        List<Habit> habits = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) return habits;
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE, COLUMNS, "id IN (" + TaskDao.placeholders(ids.size()) + ")",
+                ids.toArray(new String[0]), null, null, "position")) {
+            while (cursor.moveToNext()) {
+                habits.add(fromCursor(cursor));
+            }
+        }
+        return habits;
+    }
+
+    /**
+     * @return the cached habit, or null if it is not cached
+     */
+    @Nullable
+    public Habit get(String habitId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE, COLUMNS, "id = ?", new String[]{habitId}, null, null, null)) {
+            return cursor.moveToFirst() ? fromCursor(cursor) : null;
+        }
+    }
+
+    private static Habit fromCursor(Cursor cursor) {
+        String id = cursor.getString(0);
+        String name = cursor.getString(1);
+        String description = cursor.isNull(2) ? "" : cursor.getString(2);
+        if (cursor.isNull(6)) {
+            // Cached before histories were stored
+            return new Habit(id, name, description, cursor.getInt(3), cursor.getInt(4) != 0);
+        }
+        return new Habit(id, name, description, HabitHistory.fromBytes(cursor.getInt(5), cursor.getBlob(6)));
+    }
+
+    public int count() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /**
+     * Habits completed on the given day, read from their histories; the stored
+     * completed_today flag only holds for the day the row was written
+     */
+    public int countCompletedOn(int day) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        int count = 0;
+        try (Cursor cursor = db.query(TABLE, new String[]{"completed_today", "history_start", "history"},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                // Rows cached before histories were stored read as of today, as in fromCursor
+                boolean completed = cursor.isNull(2) ? cursor.getInt(0) != 0
+                        : HabitHistory.fromBytes(cursor.getInt(1), cursor.getBlob(2)).isCompleted(day);
+                if (completed) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replace the cached list with a fresh server snapshot in a single transaction
+     * Pinned ids have unsent local mutations: their cached row is kept as is (moved
+     * to its snapshot position), and pinned rows missing from the snapshot are kept
+     * after it
+     */
+    public void replaceAll(List<Habit> habits, Set<String> pinnedIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            deleteAllExcept(db, pinnedIds);
+            SQLiteStatement move = db.compileStatement("UPDATE " + TABLE + " SET position = ? WHERE id = ?");
+            if (!pinnedIds.isEmpty()) {
+                db.execSQL("UPDATE " + TABLE + " SET position = position + ?", new Object[]{habits.size()});
+            }
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+                    + " (id, name, description, streak, completed_today, history_start, history, position)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            int position = 0;
+            for (Habit habit : habits) {
+                if (pinnedIds.contains(habit.getId())) {
+                    move.bindLong(1, position++);
+                    move.bindString(2, habit.getId());
+                    move.executeUpdateDelete();
+                    continue;
+                }
+                insert.clearBindings();
+                insert.bindString(1, habit.getId());
+                insert.bindString(2, habit.getName() != null ? habit.getName() : "");
+                if (habit.getDescription() == null) {
+                    insert.bindNull(3);
+                } else {
+                    insert.bindString(3, habit.getDescription());
+                }
+                insert.bindLong(4, habit.getStreak());
+                insert.bindLong(5, habit.isCompletedToday() ? 1 : 0);
+                insert.bindLong(6, habit.getHistory().getStartDay());
+                insert.bindBlob(7, habit.getHistory().toBytes());
+                insert.bindLong(8, position++);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Insert or update one habit, keeping its position if it is already cached
+     */
+    public void upsert(Habit habit) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        ContentValues values = toContentValues(habit);
+        db.beginTransaction();
+        try {
+            int updated = db.update(TABLE, values, "id = ?", new String[]{habit.getId()});
+            if (updated == 0) {
+                try (Cursor cursor = db.rawQuery("SELECT IFNULL(MAX(position), -1) + 1 FROM " + TABLE, null)) {
+                    values.put("position", cursor.moveToFirst() ? cursor.getLong(0) : 0);
+                }
+                db.insert(TABLE, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Apply a delta sync page: upsert changed rows and drop tombstoned ids atomically
+     * Rows with unsent local mutations (pinned ids) keep their local version
+     */
+    public void applyDelta(List<Habit> changed, List<String> deletedIds, Set<String> pinnedIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Habit habit : changed) {
+                if (!pinnedIds.contains(habit.getId())) {
+                    upsert(habit);
+                }
+            }
+            for (String id : deletedIds) {
+                if (!pinnedIds.contains(id)) {
+                    db.delete(TABLE, "id = ?", new String[]{id});
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Swap a locally created row for the server's version, keeping its position
+     */
+    public void replaceId(String localId, Habit habit) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE, "id = ?", new String[]{habit.getId()});
+            ContentValues values = toContentValues(habit);
+            if (db.update(TABLE, values, "id = ?", new String[]{localId}) == 0) {
+                upsert(habit);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void delete(String habitId) {
+        database.getWritableDatabase().delete(TABLE, "id = ?", new String[]{habitId});
+    }
+
+    private ContentValues toContentValues(Habit habit) {
+        ContentValues values = new ContentValues();
+        values.put("id", habit.getId());
+        values.put("name", habit.getName() != null ? habit.getName() : "");
+        values.put("description", habit.getDescription());
+        values.put("streak", habit.getStreak());
+        values.put("completed_today", habit.isCompletedToday() ? 1 : 0);
+        values.put("history_start", habit.getHistory().getStartDay());
+        values.put("history", habit.getHistory().toBytes());
+        return values;
+    }
+
+    private static void deleteAllExcept(SQLiteDatabase db, Set<String> keepIds) {
+        if (keepIds.isEmpty()) {
+            db.delete(TABLE, null, null);
+            return;
+        }
+        List<String> stale = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE, new String[]{"id"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(0);
+                if (!keepIds.contains(id)) {
+                    stale.add(id);
+                }
+            }
+        }
+        for (String id : stale) {
+            db.delete(TABLE, "id = ?", new String[]{id});
+        }
+    }
+}
@@ -0,0 +1,355 @@
+// OutboxDao.java - Durable queue of local mutations waiting to reach the server
+package com.taskshabitstracker.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * OutboxDao - Stores add/toggle/delete mutations in tap order until they are sent
+ * Toggles carry the state they set (TOGGLE_COMPLETED, plus TOGGLE_DATE for habits), so
+ * sending one twice, e.g. after a response was lost, leaves the server in that state.
+ * Redundant mutations of the same entity are collapsed on enqueue:
+ * - toggle followed by toggle of the same day back to the earlier state cancels out;
+ *   a toggle to the state already queued is dropped
+ * - add followed by delete removes both, nothing is ever sent
+ * - delete drops the entity's queued toggles
+ * An entry that is already in flight is never collapsed, the new mutation queues behind it.
+ * Consecutive toggles and deletes of one entity type can be claimed together and sent
+ * as a single batch request (see claimBatch).
+ * All methods do disk I/O and must be called off the main thread
+ */
+public class OutboxDao {
+    public static final String ENTITY_TASK = "task";
+    public static final String ENTITY_HABIT = "habit";
+
+    public static final String OP_ADD = "ADD";
+    public static final String OP_TOGGLE = "TOGGLE";
+    public static final String OP_DELETE = "DELETE";
+
+    // Payload fields of a toggle: the new state, and for habits the "yyyy-MM-dd" day
+    public static final String TOGGLE_DATE = "date";
+    public static final String TOGGLE_COMPLETED = "completed";
+
+    private static final String TABLE = AppDatabase.TABLE_OUTBOX;
+    private static final String ID_MAP_TABLE = AppDatabase.TABLE_OUTBOX_ID_MAP;
+    private static final String[] COLUMNS = {"seq", "entity_type", "entity_id", "op", "payload"};
+
+    private final AppDatabase database;
+    private final List<OnOutboxChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Called on the writing thread after the outbox changed
+     * storeChanged is true when cached rows were rewritten too (server id assigned, entry rejected)
+     */
+    public interface OnOutboxChangedListener {
+        void onOutboxChanged(String entityType, boolean storeChanged);
+    }
+
+    OutboxDao(AppDatabase database) {
+        this.database = database;
+    }
+
+    public void addListener(OnOutboxChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnOutboxChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void notifyChanged(String entityType, boolean storeChanged) {
+        for (OnOutboxChangedListener listener : listeners) {
+            listener.onOutboxChanged(entityType, storeChanged);
+        }
+    }
+
+    /**
+     * Queue a mutation, collapsing it against the entity's pending entries
+     */
+    public void enqueue(String entityType, String entityId, String op, @Nullable String payload) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            insertCollapsed(db, entityType, entityId, op, payload);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        notifyChanged(entityType, false);
+    }
+
+    /**
+     * Queue several mutations of one entity type in one transaction, e.g. a bulk edit
+     * Either all of them are queued or none; listeners are notified once
+     */
+    public void enqueueAll(String entityType, List<Mutation> mutations) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Mutation mutation : mutations) {
+                insertCollapsed(db, entityType, mutation.entityId, mutation.op, mutation.payload);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        notifyChanged(entityType, false);
+    }
+
+    private static void insertCollapsed(SQLiteDatabase db, String entityType, String entityId, String op,
+                                        @Nullable String payload) {
+        String id = resolveId(db, entityType, entityId);
+        List<Entry> pending = getPending(db, entityType, id);
+        Entry last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+
+        if (OP_TOGGLE.equals(op) && last != null && !last.inFlight && OP_TOGGLE.equals(last.op)
+                && Objects.equals(toggleDate(last.payload), toggleDate(payload))) {
+            // Entries queued before toggles carried a state flip it, so two of them cancel too
+            if (!Objects.equals(toggleTarget(last.payload), toggleTarget(payload))
+                    || toggleTarget(payload) == null) {
+                delete(db, last.seq);
+            }
+        } else if (OP_DELETE.equals(op) && containsQueuedAdd(pending)) {
+            // The server never saw this entity
+            for (Entry entry : pending) {
+                delete(db, entry.seq);
+            }
+        } else {
+            if (OP_DELETE.equals(op)) {
+                for (Entry entry : pending) {
+                    if (!entry.inFlight && OP_TOGGLE.equals(entry.op)) {
+                        delete(db, entry.seq);
+                    }
+                }
+            }
+            ContentValues values = new ContentValues();
+            values.put("entity_type", entityType);
+            values.put("entity_id", id);
+            values.put("op", op);
+            values.put("payload", payload);
+            values.put("in_flight", 0);
+            db.insert(TABLE, null, values);
+        }
+    }
+
+    @Nullable
+    private static String toggleDate(@Nullable String payload) {
+        if (payload == null) return null;
+        try {
+            return new JSONObject(payload).optString(TOGGLE_DATE, null);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Boolean toggleTarget(@Nullable String payload) {
+        if (payload == null) return null;
+        try {
+            JSONObject json = new JSONObject(payload);
+            return json.has(TOGGLE_COMPLETED) ? json.getBoolean(TOGGLE_COMPLETED) : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Take the oldest entry, plus the toggles and deletes of the same entity type queued
+     * right behind it, and mark them in flight
+     * An add is always claimed alone, since later entries may need the server id it returns
+     * @param max the most entries to claim
+     * @return the entries in queue order, empty when the outbox is empty
+     */
+    public List<Entry> claimBatch(int max) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<Entry> batch = new ArrayList<>();
+            try (Cursor cursor = db.query(TABLE, COLUMNS, null, null, null, null, "seq",
+                    String.valueOf(max))) {
+                while (cursor.moveToNext()) {
+                    Entry entry = new Entry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                            cursor.getString(3), cursor.isNull(4) ? null : cursor.getString(4), true);
+                    if (!batch.isEmpty() && (OP_ADD.equals(entry.op)
+                            || !entry.entityType.equals(batch.get(0).entityType))) {
+                        break;
+                    }
+                    batch.add(entry);
+                    if (OP_ADD.equals(entry.op)) break;
+                }
+            }
+            ContentValues values = new ContentValues();
+            values.put("in_flight", 1);
+            for (Entry entry : batch) {
+                db.update(TABLE, values, "seq = ?", new String[]{String.valueOf(entry.seq)});
+            }
+            db.setTransactionSuccessful();
+            return batch;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Put in-flight entries back in the queue after an interrupted flush
+     */
+    public void releaseInFlight() {
+        ContentValues values = new ContentValues();
+        values.put("in_flight", 0);
+        database.getWritableDatabase().update(TABLE, values, "in_flight = 1", null);
+    }
+
+    public void remove(long seq) {
+        delete(database.getWritableDatabase(), seq);
+    }
+
+    /**
+     * Remove the given entries and put the rest of the batch back in the queue
+     */
+    public void settleBatch(List<Entry> sent, List<Entry> keep) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Entry entry : sent) {
+                delete(db, entry.seq);
+            }
+            ContentValues values = new ContentValues();
+            values.put("in_flight", 0);
+            for (Entry entry : keep) {
+                db.update(TABLE, values, "seq = ?", new String[]{String.valueOf(entry.seq)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Point queued entries (and later enqueues) for a locally created entity at its server id
+     */
+    public void remapEntityId(String entityType, String localId, String serverId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put("entity_id", serverId);
+            db.update(TABLE, values, "entity_type = ? AND entity_id = ?",
+                    new String[]{entityType, localId});
+
+            ContentValues mapping = new ContentValues();
+            mapping.put("entity_type", entityType);
+            mapping.put("local_id", localId);
+            mapping.put("server_id", serverId);
+            db.insertWithOnConflict(ID_MAP_TABLE, null, mapping, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Ids of entities that still have unsent mutations
+     */
+    public Set<String> getPendingIds(String entityType) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(true, TABLE, new String[]{"entity_id"}, "entity_type = ?",
+                new String[]{entityType}, null, null, null, null)) {
+            Set<String> ids = new HashSet<>(cursor.getCount() * 2);
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+            return ids;
+        }
+    }
+
+    public boolean isEmpty() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT 1 FROM " + TABLE + " LIMIT 1", null)) {
+            return !cursor.moveToFirst();
+        }
+    }
+
+    private static String resolveId(SQLiteDatabase db, String entityType, String entityId) {
+        try (Cursor cursor = db.query(ID_MAP_TABLE, new String[]{"server_id"},
+                "entity_type = ? AND local_id = ?", new String[]{entityType, entityId},
+                null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : entityId;
+        }
+    }
+
+    private static List<Entry> getPending(SQLiteDatabase db, String entityType, String entityId) {
+        try (Cursor cursor = db.query(TABLE,
+                new String[]{"seq", "entity_type", "entity_id", "op", "payload", "in_flight"},
+                "entity_type = ? AND entity_id = ?", new String[]{entityType, entityId},
+                null, null, "seq")) {
+            List<Entry> entries = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                entries.add(new Entry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.isNull(4) ? null : cursor.getString(4),
+                        cursor.getInt(5) != 0));
+            }
+            return entries;
+        }
+    }
+
+    private static boolean containsQueuedAdd(List<Entry> pending) {
+        for (Entry entry : pending) {
+            if (OP_ADD.equals(entry.op)) {
+                // An add that is already being sent may still create the entity
+                return !entry.inFlight;
+            }
+        }
+        return false;
+    }
+
+    private static void delete(SQLiteDatabase db, long seq) {
+        db.delete(TABLE, "seq = ?", new String[]{String.valueOf(seq)});
+    }
+
+    /**
+     * A mutation to queue with enqueueAll
+     */
+    public static class Mutation {
+        public final String entityId;
+        public final String op;
+        @Nullable public final String payload;
+
+        public Mutation(String entityId, String op, @Nullable String payload) {
+            this.entityId = entityId;
+            this.op = op;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * One queued mutation
+     */
+    public static class Entry {
+        public final long seq;
+        public final String entityType;
+        public final String entityId;
+        public final String op;
+        @Nullable public final String payload;
+        public final boolean inFlight;
+
+        Entry(long seq, String entityType, String entityId, String op, @Nullable String payload,
+              boolean inFlight) {
+            this.seq = seq;
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.op = op;
+            this.payload = payload;
+            this.inFlight = inFlight;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+// SyncStateDao.java - Per-collection ETag and delta cursor
+package com.taskshabitstracker.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import androidx.annotation.Nullable;
+
+/**
+ * SyncStateDao - Remembers where the last sync of each collection stopped
+ * Kept in the same database as the cached rows so both are cleared together
+ */
+public class SyncStateDao {
+    public static final String RESOURCE_TASKS = "tasks";
+    public static final String RESOURCE_HABITS = "habits";
+
+    private static final String TABLE = AppDatabase.TABLE_SYNC_STATE;
+
+    private final AppDatabase database;
+
+    SyncStateDao(AppDatabase database) {
+        this.database = database;
+    }
+
+    public SyncState get(String resource) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE, new String[]{"etag", "cursor", "next_page", "fill_complete"},
+                "resource = ?", new String[]{resource}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return new SyncState(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getInt(3) != 0);
+            }
+            return new SyncState(null, null);
+        }
+    }
+
+    public void save(String resource, @Nullable String etag, @Nullable String syncCursor) {
+        ContentValues values = new ContentValues();
+        values.put("etag", etag);
+        values.put("cursor", syncCursor);
+        upsert(resource, values);
+    }
+
+    /**
+     * Record how far the initial paged download of a collection has got
+     * @param nextPage cursor of the next page to request, null once the last page was stored
+     */
+    public void savePaging(String resource, @Nullable String nextPage, boolean fillComplete) {
+        ContentValues values = new ContentValues();
+        values.put("next_page", nextPage);
+        values.put("fill_complete", fillComplete ? 1 : 0);
+        upsert(resource, values);
+    }
+
+    private void upsert(String resource, ContentValues values) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (db.update(TABLE, values, "resource = ?", new String[]{resource}) == 0) {
+                values.put("resource", resource);
+                // A new row, e.g. from save() after a logout wipe, never claims a complete cache
+                if (!values.containsKey("fill_complete")) values.put("fill_complete", 0);
+                db.insert(TABLE, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Last ETag and updatedSince cursor seen for a collection, and the
+     * progress of its initial paged download
+     */
+    public static class SyncState {
+        @Nullable public final String etag;
+        @Nullable public final String cursor;
+        @Nullable public final String nextPage;
+        public final boolean fillComplete;
+
+        public SyncState(@Nullable String etag, @Nullable String cursor) {
+            this(etag, cursor, null, false);
+        }
+
+        public SyncState(@Nullable String etag, @Nullable String cursor, @Nullable String nextPage,
+                         boolean fillComplete) {
+            this.etag = etag;
+            this.cursor = cursor;
+            this.nextPage = nextPage;
+            this.fillComplete = fillComplete;
+        }
+    }
+}
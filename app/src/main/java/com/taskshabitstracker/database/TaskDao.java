@@ -0,0 +1,326 @@
+// TaskDao.java - SQLite access for cached tasks
+package com.taskshabitstracker.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.taskshabitstracker.model.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * TaskDao - Reads and writes the local task table
+ * All methods do disk I/O and must be called off the main thread
+ */
+public class TaskDao {
+    private static final String TABLE = AppDatabase.TABLE_TASKS;
+    private static final String[] COLUMNS = {
+            "id", "user_id", "title", "description", "completed", "due_date",
+            "due_notifications", "pre_due_notifications"
+    };
+    private static final String[] PAGE_COLUMNS = withPosition();
+
+    private final AppDatabase database;
+
+    TaskDao(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Load every cached task in server order
+     */
+    public List<Task> getAll() {
+        return query(null, null, null);
+    }
+
+    /**
+     * Load the first cached tasks in server order
+     */
+    public List<Task> getFirst(int limit) {
+        return query(null, null, String.valueOf(limit));
+    }
+
+    /**
+     * Load up to limit cached tasks right after (or before) a position, in server order
+     * Seeks on the position index, so a page deep in the list costs the same as the first
+     * @param before true for the rows before position, false for the rows after it
+     */
+    public Page getPage(long position, boolean before, int limit) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE, PAGE_COLUMNS, before ? "position < ?" : "position > ?",
+                new String[]{String.valueOf(position)}, null, null,
+                before ? "position DESC" : "position", String.valueOf(limit))) {
+            int count = cursor.getCount();
+            List<Task> tasks = new ArrayList<>(count);
+            long[] positions = new long[count];
+            while (cursor.moveToNext()) {
+                // Rows before the position are read backwards from it; store them in list order
+                int index = before ? count - 1 - cursor.getPosition() : cursor.getPosition();
+                tasks.add(readTask(cursor));
+                positions[index] = cursor.getLong(COLUMNS.length);
+            }
+            if (before) Collections.reverse(tasks);
+            return new Page(tasks, positions);
+        }
+    }
+
+    /**
+     * Load the cached tasks with the given ids (at most 999) in server order
+     */
+    public List<Task> getByIds(List<String> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        return query("id IN (" + placeholders(ids.size()) + ")", ids.toArray(new String[0]), null);
+    }
+
+    public int count() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    public int countCompleted() {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE + " WHERE completed = 1", null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /**
+     * Incomplete tasks with a due date and at least one kind of due notification enabled
+     */
+    public List<Task> getWithReminders() {
+        return query("completed = 0 AND due_date IS NOT NULL"
+                + " AND (due_notifications = 1 OR pre_due_notifications = 1)", null, null);
+    }
+
+    private List<Task> query(String selection, String[] selectionArgs, String limit) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE, COLUMNS, selection, selectionArgs, null, null, "position", limit)) {
+            List<Task> tasks = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                tasks.add(readTask(cursor));
+            }
+            return tasks;
+        }
+    }
+
+    private static Task readTask(Cursor cursor) {
+        return new Task(
+                cursor.getString(0),
+                cursor.getString(1),
+                cursor.getString(2),
+                cursor.isNull(3) ? "" : cursor.getString(3),
+                cursor.getInt(4) != 0,
+                cursor.isNull(5) ? null : cursor.getString(5),
+                cursor.getInt(6) != 0,
+                cursor.getInt(7) != 0
+        );
+    }
+
+    private static String[] withPosition() {
+        String[] columns = Arrays.copyOf(COLUMNS, COLUMNS.length + 1);
+        columns[COLUMNS.length] = "position";
+        return columns;
+    }
+
+    /**
+     * Replace the cached list with a fresh server snapshot in a single transaction
+     * Pinned ids have unsent local mutations: their cached row is kept as is (moved
+     * to its snapshot position), and pinned rows missing from the snapshot are kept
+     * after it
+     */
+    public void replaceAll(List<Task> tasks, Set<String> pinnedIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            deleteAllExcept(db, pinnedIds);
+            SQLiteStatement move = db.compileStatement("UPDATE " + TABLE + " SET position = ? WHERE id = ?");
+            if (!pinnedIds.isEmpty()) {
+                db.execSQL("UPDATE " + TABLE + " SET position = position + ?", new Object[]{tasks.size()});
+            }
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+                    + " (id, user_id, title, description, completed, due_date,"
+                    + " due_notifications, pre_due_notifications, position)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            int position = 0;
+            for (Task task : tasks) {
+                if (pinnedIds.contains(task.getId())) {
+                    move.bindLong(1, position++);
+                    move.bindString(2, task.getId());
+                    move.executeUpdateDelete();
+                    continue;
+                }
+                insert.clearBindings();
+                insert.bindString(1, task.getId());
+                bindNullable(insert, 2, task.getUserId());
+                bindNullable(insert, 3, task.getTitle());
+                bindNullable(insert, 4, task.getDescription());
+                insert.bindLong(5, task.isCompleted() ? 1 : 0);
+                bindNullable(insert, 6, task.getDueDate());
+                insert.bindLong(7, task.isEnableDueDateNotifications() ? 1 : 0);
+                insert.bindLong(8, task.isEnablePreDueNotifications() ? 1 : 0);
+                insert.bindLong(9, position++);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Insert or update one task, keeping its position if it is already cached
+     */
+    public void upsert(Task task) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        ContentValues values = toContentValues(task);
+        db.beginTransaction();
+        try {
+            int updated = db.update(TABLE, values, "id = ?", new String[]{task.getId()});
+            if (updated == 0) {
+                values.put("position", nextPosition(db));
+                db.insert(TABLE, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Store the next page of the initial download after the rows already cached
+     * Rows with unsent local mutations (pinned ids) keep their local version
+     */
+    public void appendPage(List<Task> page, Set<String> pinnedIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Task task : page) {
+                if (!pinnedIds.contains(task.getId())) {
+                    upsert(task);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Apply a delta sync page: upsert changed rows and drop tombstoned ids atomically
+     * Rows with unsent local mutations (pinned ids) keep their local version
+     */
+    public void applyDelta(List<Task> changed, List<String> deletedIds, Set<String> pinnedIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Task task : changed) {
+                if (!pinnedIds.contains(task.getId())) {
+                    upsert(task);
+                }
+            }
+            for (String id : deletedIds) {
+                if (!pinnedIds.contains(id)) {
+                    db.delete(TABLE, "id = ?", new String[]{id});
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Swap a locally created row for the server's version, keeping its position
+     */
+    public void replaceId(String localId, Task task) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE, "id = ?", new String[]{task.getId()});
+            ContentValues values = toContentValues(task);
+            if (db.update(TABLE, values, "id = ?", new String[]{localId}) == 0) {
+                upsert(task);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public void delete(String taskId) {
+        database.getWritableDatabase().delete(TABLE, "id = ?", new String[]{taskId});
+    }
+
+    private ContentValues toContentValues(Task task) {
+        ContentValues values = new ContentValues();
+        values.put("id", task.getId());
+        values.put("user_id", task.getUserId());
+        values.put("title", task.getTitle() != null ? task.getTitle() : "");
+        values.put("description", task.getDescription());
+        values.put("completed", task.isCompleted() ? 1 : 0);
+        values.put("due_date", task.getDueDate());
+        values.put("due_notifications", task.isEnableDueDateNotifications() ? 1 : 0);
+        values.put("pre_due_notifications", task.isEnablePreDueNotifications() ? 1 : 0);
+        return values;
+    }
+
+    static String placeholders(int count) {
+        StringBuilder marks = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            marks.append(i == 0 ? "?" : ",?");
+        }
+        return marks.toString();
+    }
+
+    private long nextPosition(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("SELECT IFNULL(MAX(position), -1) + 1 FROM " + TABLE, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static void deleteAllExcept(SQLiteDatabase db, Set<String> keepIds) {
+        if (keepIds.isEmpty()) {
+            db.delete(TABLE, null, null);
+            return;
+        }
+        List<String> stale = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE, new String[]{"id"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                String id = cursor.getString(0);
+                if (!keepIds.contains(id)) {
+                    stale.add(id);
+                }
+            }
+        }
+        for (String id : stale) {
+            db.delete(TABLE, "id = ?", new String[]{id});
+        }
+    }
+
+    /**
+     * Rows read by getPage, with the position of each row
+     */
+    public static class Page {
+        public final List<Task> tasks;
+        public final long[] positions;
+
+        Page(List<Task> tasks, long[] positions) {
+            this.tasks = tasks;
+            this.positions = positions;
+        }
+    }
+}
@@ -97,9 +97,8 @@ public class AddTaskDialogFragment extends DialogFragment {
             }
         }
 
-        Task task = new Task(title, description, dueDateStr.isEmpty() ? null : dueDateStr);
-        task.setEnableDueDateNotifications(enableDueDateNotifications);
-        task.setEnablePreDueNotifications(enablePreDueNotifications);
+        Task task = new Task(title, description, dueDateStr.isEmpty() ? null : dueDateStr,
+                enableDueDateNotifications, enablePreDueNotifications);
         if (listener != null) {
             listener.onTaskAdded(task);
         }
@@ -1,21 +1,26 @@
 package com.taskshabitstracker.fragments;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
+import androidx.activity.OnBackPressedCallback;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import com.taskshabitstracker.HabitDetailActivity;
 import com.taskshabitstracker.adapters.HabitsAdapter;
 import com.taskshabitstracker.databinding.FragmentHabitsBinding;
 import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.repository.SearchRepository;
+import com.taskshabitstracker.utils.AppLog;
 import com.taskshabitstracker.viewmodel.HabitsViewModel;
+import java.util.List;
 
 public class HabitsFragment extends Fragment {
     private static final String TAG = "HabitsFragment";
@@ -23,6 +28,7 @@ public class HabitsFragment extends Fragment {
     private FragmentHabitsBinding binding;
     private HabitsViewModel viewModel;
     private HabitsAdapter habitsAdapter;
+    private OnBackPressedCallback exitSelection;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -33,13 +39,16 @@ public class HabitsFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        Log.d(TAG, "onViewCreated: Initializing");
+        AppLog.d(TAG, "onViewCreated: Initializing");
 
         viewModel = new ViewModelProvider(this).get(HabitsViewModel.class);
         setupRecyclerView();
+        setupSelection();
+        setupSearch();
         setupObservers();
         setupFab();
         viewModel.loadHabits();
+        SearchRepository.getInstance(requireContext()).preload();
     }
 
     private void setupRecyclerView() {
@@ -58,37 +67,114 @@ public class HabitsFragment extends Fragment {
                             })
                             .setNegativeButton("Cancel", null)
                             .show();
-                }
+                },
+                habit -> startActivity(HabitDetailActivity.newIntent(requireContext(), habit.getId()))
         );
         binding.habitsRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         binding.habitsRecyclerView.setAdapter(habitsAdapter);
     }
 
+    private void setupSelection() {
+        // Back leaves selection before it leaves the screen
+        exitSelection = new OnBackPressedCallback(false) {
+            @Override
+            public void handleOnBackPressed() {
+                habitsAdapter.clearSelection();
+            }
+        };
+        requireActivity().getOnBackPressedDispatcher().addCallback(getViewLifecycleOwner(), exitSelection);
+        habitsAdapter.setOnSelectionChangedListener(count -> {
+            exitSelection.setEnabled(count > 0);
+            binding.tvSelectionCount.setText(count + " selected");
+            binding.selectionBar.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+            binding.fabAddHabit.setVisibility(count > 0 ? View.GONE : View.VISIBLE);
+        });
+        binding.btnBulkComplete.setOnClickListener(v -> setSelectedCompleted(true));
+        binding.btnBulkUncomplete.setOnClickListener(v -> setSelectedCompleted(false));
+        binding.btnBulkDelete.setOnClickListener(v -> confirmDeleteSelected());
+    }
+
+    private void setSelectedCompleted(boolean completed) {
+        List<Habit> selected = habitsAdapter.getSelectedHabits();
+        habitsAdapter.clearSelection();
+        viewModel.setHabitsCompletedToday(selected, completed, () -> {
+        }, error -> {
+            Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    private void confirmDeleteSelected() {
+        List<Habit> selected = habitsAdapter.getSelectedHabits();
+        String count = selected.size() == 1 ? "1 habit" : selected.size() + " habits";
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Delete Habits")
+                .setMessage("Are you sure you want to delete " + count + "?")
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    habitsAdapter.clearSelection();
+                    viewModel.deleteHabits(selected, () -> {
+                        Toast.makeText(getContext(), "Deleted " + count, Toast.LENGTH_SHORT).show();
+                    }, error -> {
+                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                    });
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void setupSearch() {
+        binding.searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                binding.searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                viewModel.search(query);
+                return true;
+            }
+        });
+    }
+
     private void setupObservers() {
         viewModel.getHabits().observe(getViewLifecycleOwner(), habits -> {
-            Log.d(TAG, "Habits LiveData updated: " + (habits != null ? habits.toString() : "null"));
-            habitsAdapter.updateHabits(habits);
-            binding.habitsRecyclerView.setVisibility(habits != null && !habits.isEmpty() ? View.VISIBLE : View.GONE);
-            binding.emptyHabitsTextView.setVisibility(habits != null && !habits.isEmpty() ? View.GONE : View.VISIBLE);
+            AppLog.d(TAG, "Habits LiveData updated", "habits", habits);
+            if (!viewModel.isSearching()) showHabits(habits);
         });
 
+        // Null when the search ends, which brings back the full list
+        viewModel.getSearchResults().observe(getViewLifecycleOwner(), results -> {
+            AppLog.d(TAG, "Search results updated", "count", results != null ? results.size() : -1);
+            showHabits(results != null ? results : viewModel.getHabits().getValue());
+        });
+
+        viewModel.getPendingHabitIds().observe(getViewLifecycleOwner(), habitsAdapter::setPendingIds);
+
         viewModel.getIsLoading().observe(getViewLifecycleOwner(), isLoading -> {
             if (isLoading && (viewModel.getHabits().getValue() == null || viewModel.getHabits().getValue().isEmpty())) {
                 binding.progressBar.setVisibility(View.VISIBLE);
             } else {
                 binding.progressBar.setVisibility(View.GONE);
             }
-            Log.d(TAG, "Loading state: " + isLoading);
+            AppLog.d(TAG, "Loading state", "loading", isLoading);
         });
 
         viewModel.getErrorMessage().observe(getViewLifecycleOwner(), error -> {
             if (error != null && !error.isEmpty()) {
                 Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
-                Log.e(TAG, "Error: " + error);
+                AppLog.e(TAG, "Error", "message", error);
             }
         });
     }
 
+    private void showHabits(List<Habit> habits) {
+        habitsAdapter.updateHabits(habits);
+        binding.emptyHabitsTextView.setText(viewModel.isSearching() ? "No matching habits" : "No habits for now");
+        binding.habitsRecyclerView.setVisibility(habits != null && !habits.isEmpty() ? View.VISIBLE : View.GONE);
+        binding.emptyHabitsTextView.setVisibility(habits != null && !habits.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
     private void setupFab() {
         binding.fabAddHabit.setOnClickListener(v -> {
             AddHabitDialogFragment dialog = AddHabitDialogFragment.newInstance();
@@ -1,5 +1,6 @@
 package com.taskshabitstracker.fragments;
 
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
@@ -8,7 +9,10 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import com.taskshabitstracker.BuildConfig;
+import com.taskshabitstracker.NetworkMetricsActivity;
 import com.taskshabitstracker.databinding.FragmentSettingsBinding;
+import com.taskshabitstracker.repository.NavigationPrefetcher;
 
 public class SettingsFragment extends Fragment {
     private FragmentSettingsBinding binding;
@@ -31,18 +35,36 @@ public class SettingsFragment extends Fragment {
         binding.cbMilestones.setChecked(prefs.getBoolean("enableMilestoneNotifications", true));
         binding.cbWeeklySummary.setChecked(prefs.getBoolean("enableWeeklySummary", true));
         binding.cbInactivity.setChecked(prefs.getBoolean("enableInactivityNotifications", true));
+        binding.cbPrefetch.setChecked(prefs.getBoolean(NavigationPrefetcher.PREF_ENABLED, true));
+        binding.etPrefetchBudget.setText(String.valueOf(
+                prefs.getInt(NavigationPrefetcher.PREF_BUDGET_KB, NavigationPrefetcher.DEFAULT_BUDGET_KB)));
 
         // Save settings
         binding.btnSaveSettings.setOnClickListener(v -> saveSettings());
+
+        // Per-endpoint network figures, for development only
+        if (BuildConfig.DEBUG) {
+            binding.btnNetworkMetrics.setVisibility(View.VISIBLE);
+            binding.btnNetworkMetrics.setOnClickListener(v ->
+                    startActivity(new Intent(requireContext(), NetworkMetricsActivity.class)));
+        }
     }
 
     private void saveSettings() {
         SharedPreferences prefs = requireContext().getSharedPreferences("TasksPrefs", requireContext().MODE_PRIVATE);
+        int budgetKb;
+        try {
+            budgetKb = Integer.parseInt(binding.etPrefetchBudget.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            budgetKb = NavigationPrefetcher.DEFAULT_BUDGET_KB;
+        }
         prefs.edit()
                 .putBoolean("enableStreakNotifications", binding.cbStreaks.isChecked())
                 .putBoolean("enableMilestoneNotifications", binding.cbMilestones.isChecked())
                 .putBoolean("enableWeeklySummary", binding.cbWeeklySummary.isChecked())
                 .putBoolean("enableInactivityNotifications", binding.cbInactivity.isChecked())
+                .putBoolean(NavigationPrefetcher.PREF_ENABLED, binding.cbPrefetch.isChecked())
+                .putInt(NavigationPrefetcher.PREF_BUDGET_KB, budgetKb)
                 .apply();
         android.widget.Toast.makeText(getContext(), "Settings saved", android.widget.Toast.LENGTH_SHORT).show();
     }
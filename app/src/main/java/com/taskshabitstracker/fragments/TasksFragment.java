@@ -1,20 +1,30 @@
 package com.taskshabitstracker.fragments;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
+import androidx.activity.OnBackPressedCallback;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.taskshabitstracker.adapters.TaskAdapter;
+import com.taskshabitstracker.databinding.DialogTaskViewBinding;
 import com.taskshabitstracker.databinding.FragmentTasksBinding;
+import com.taskshabitstracker.domain.TaskQuery;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.repository.SearchRepository;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
 import com.taskshabitstracker.viewmodel.TasksViewModel;
+import java.util.Collections;
+import java.util.List;
 
 public class TasksFragment extends Fragment {
     private static final String TAG = "TasksFragment";
@@ -22,6 +32,7 @@ public class TasksFragment extends Fragment {
     private FragmentTasksBinding binding;
     private TasksViewModel viewModel;
     private TaskAdapter taskAdapter;
+    private OnBackPressedCallback exitSelection;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -33,13 +44,17 @@ public class TasksFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        Log.d(TAG, "onViewCreated: Initializing");
+        AppLog.d(TAG, "onViewCreated: Initializing");
 
         viewModel = new ViewModelProvider(this).get(TasksViewModel.class);
         setupRecyclerView();
+        setupSelection();
+        setupSearch();
+        setupTaskView();
         setupObservers();
         setupFab();
         viewModel.loadTasks();
+        SearchRepository.getInstance(requireContext()).preload();
     }
 
     private void setupRecyclerView() {
@@ -60,35 +75,175 @@ public class TasksFragment extends Fragment {
                             .show();
                 }
         );
-        binding.tasksRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        binding.tasksRecyclerView.setLayoutManager(layoutManager);
         binding.tasksRecyclerView.setAdapter(taskAdapter);
+        // Also called after layout passes, so a first page shorter than the screen keeps paging
+        binding.tasksRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Search results are not part of the paged window
+                if (viewModel.isSearching()) return;
+                viewModel.onTasksVisible(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
+    }
+
+    private void setupSelection() {
+        // Back leaves selection before it leaves the screen
+        exitSelection = new OnBackPressedCallback(false) {
+            @Override
+            public void handleOnBackPressed() {
+                taskAdapter.clearSelection();
+            }
+        };
+        requireActivity().getOnBackPressedDispatcher().addCallback(getViewLifecycleOwner(), exitSelection);
+        taskAdapter.setOnSelectionChangedListener(count -> {
+            exitSelection.setEnabled(count > 0);
+            binding.tvSelectionCount.setText(count + " selected");
+            binding.selectionBar.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+            binding.fabAddTask.setVisibility(count > 0 ? View.GONE : View.VISIBLE);
+        });
+        binding.btnBulkComplete.setOnClickListener(v -> setSelectedCompleted(true));
+        binding.btnBulkUncomplete.setOnClickListener(v -> setSelectedCompleted(false));
+        binding.btnBulkDelete.setOnClickListener(v -> confirmDeleteSelected());
+    }
+
+    private void setSelectedCompleted(boolean completed) {
+        List<Task> selected = taskAdapter.getSelectedTasks();
+        taskAdapter.clearSelection();
+        viewModel.setTasksCompleted(selected, completed, () -> {
+        }, error -> {
+            Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    private void confirmDeleteSelected() {
+        List<Task> selected = taskAdapter.getSelectedTasks();
+        String count = selected.size() == 1 ? "1 task" : selected.size() + " tasks";
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Delete Tasks")
+                .setMessage("Are you sure you want to delete " + count + "?")
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    taskAdapter.clearSelection();
+                    viewModel.deleteTasks(selected, () -> {
+                        Toast.makeText(getContext(), "Deleted " + count, Toast.LENGTH_SHORT).show();
+                    }, error -> {
+                        Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
+                    });
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void setupSearch() {
+        binding.searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                binding.searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                viewModel.search(query);
+                return true;
+            }
+        });
+    }
+
+    private void setupTaskView() {
+        binding.btnTaskView.setOnClickListener(v -> showTaskViewDialog());
+    }
+
+    private void showTaskViewDialog() {
+        DialogTaskViewBinding dialogBinding = DialogTaskViewBinding.inflate(getLayoutInflater());
+        TaskQuery query = viewModel.getTaskQuery();
+        int today = DateUtils.today();
+
+        dialogBinding.rgSort.check(query.getSort() == TaskQuery.Sort.DUE_DATE ? dialogBinding.rbSortDueDate.getId()
+                : query.getSort() == TaskQuery.Sort.TITLE ? dialogBinding.rbSortTitle.getId()
+                : dialogBinding.rbSortCreated.getId());
+        dialogBinding.cbHideCompleted.setChecked(query.isHideCompleted());
+        dialogBinding.cbOverdueOnly.setChecked(query.isOverdueOnly());
+        dialogBinding.cbGroupByDue.setChecked(query.getGrouping() == TaskQuery.Grouping.DUE);
+        // Ranges are saved as days, so one picked on an earlier day shows as "Any time"
+        int days = query.hasDueRange() && query.getDueFrom() == today ? query.getDueTo() - today : -1;
+        dialogBinding.rgDueRange.check(days == 0 ? dialogBinding.rbDueToday.getId()
+                : days == 7 ? dialogBinding.rbDueWeek.getId()
+                : days == 30 ? dialogBinding.rbDueMonth.getId()
+                : dialogBinding.rbDueAny.getId());
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Sort & filter")
+                .setView(dialogBinding.getRoot())
+                .setPositiveButton("Apply", (dialog, which) -> viewModel.setTaskQuery(readTaskQuery(dialogBinding)))
+                .setNeutralButton("Reset", (dialog, which) -> viewModel.setTaskQuery(TaskQuery.DEFAULT))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private static TaskQuery readTaskQuery(DialogTaskViewBinding dialogBinding) {
+        int sortId = dialogBinding.rgSort.getCheckedRadioButtonId();
+        TaskQuery.Sort sort = sortId == dialogBinding.rbSortDueDate.getId() ? TaskQuery.Sort.DUE_DATE
+                : sortId == dialogBinding.rbSortTitle.getId() ? TaskQuery.Sort.TITLE
+                : TaskQuery.Sort.CREATED;
+        int rangeId = dialogBinding.rgDueRange.getCheckedRadioButtonId();
+        int days = rangeId == dialogBinding.rbDueToday.getId() ? 0
+                : rangeId == dialogBinding.rbDueWeek.getId() ? 7
+                : rangeId == dialogBinding.rbDueMonth.getId() ? 30
+                : -1;
+        int today = DateUtils.today();
+        return TaskQuery.DEFAULT
+                .sortedBy(sort)
+                .hidingCompleted(dialogBinding.cbHideCompleted.isChecked())
+                .withOverdueOnly(dialogBinding.cbOverdueOnly.isChecked())
+                .groupedBy(dialogBinding.cbGroupByDue.isChecked() ? TaskQuery.Grouping.DUE : TaskQuery.Grouping.NONE)
+                .dueBetween(days < 0 ? DateUtils.NO_DATE : today, days < 0 ? DateUtils.NO_DATE : today + days);
     }
 
     private void setupObservers() {
         viewModel.getTasks().observe(getViewLifecycleOwner(), tasks -> {
-            Log.d(TAG, "Tasks LiveData updated: " + (tasks != null ? tasks.toString() : "null"));
-            taskAdapter.updateTasks(tasks);
-            binding.tasksRecyclerView.setVisibility(tasks != null && !tasks.isEmpty() ? View.VISIBLE : View.GONE);
-            binding.emptyTextView.setVisibility(tasks != null && !tasks.isEmpty() ? View.GONE : View.VISIBLE);
+            AppLog.d(TAG, "Tasks LiveData updated", "tasks", tasks);
+            if (!viewModel.isSearching()) showTasks(tasks);
+        });
+
+        // Null when the search ends, which brings back the full list
+        viewModel.getSearchResults().observe(getViewLifecycleOwner(), results -> {
+            AppLog.d(TAG, "Search results updated", "count", results != null ? results.size() : -1);
+            showTasks(results != null ? results : viewModel.getTasks().getValue());
         });
 
+        viewModel.getPendingTaskIds().observe(getViewLifecycleOwner(), taskAdapter::setPendingIds);
+
         viewModel.getIsLoading().observe(getViewLifecycleOwner(), isLoading -> {
             if (isLoading && (viewModel.getTasks().getValue() == null || viewModel.getTasks().getValue().isEmpty())) {
                 binding.progressBar.setVisibility(View.VISIBLE);
             } else {
                 binding.progressBar.setVisibility(View.GONE);
             }
-            Log.d(TAG, "Loading state: " + isLoading);
+            AppLog.d(TAG, "Loading state", "loading", isLoading);
         });
 
         viewModel.getErrorMessage().observe(getViewLifecycleOwner(), error -> {
             if (error != null && !error.isEmpty()) {
                 Toast.makeText(getContext(), error, Toast.LENGTH_SHORT).show();
-                Log.e(TAG, "Error: " + error);
+                AppLog.e(TAG, "Error", "message", error);
             }
         });
     }
 
+    private void showTasks(List<Task> tasks) {
+        // Search results are not grouped
+        taskAdapter.updateTasks(tasks, viewModel.isSearching() ? Collections.emptyList() : viewModel.getTaskSections());
+        binding.emptyTextView.setText(viewModel.isSearching() ? "No matching tasks"
+                : !viewModel.getTaskQuery().isDefault() ? "No tasks match these filters"
+                : "No tasks for now");
+        binding.tasksRecyclerView.setVisibility(tasks != null && !tasks.isEmpty() ? View.VISIBLE : View.GONE);
+        binding.emptyTextView.setVisibility(tasks != null && !tasks.isEmpty() ? View.GONE : View.VISIBLE);
+    }
+
     private void setupFab() {
         binding.fabAddTask.setOnClickListener(v -> {
             AddTaskDialogFragment dialog = AddTaskDialogFragment.newInstance();
@@ -1,4 +1,3 @@
-
 package com.taskshabitstracker.network;
 
 import android.content.Context;
@@ -8,34 +7,35 @@ import com.android.volley.toolbox.JsonObjectRequest;
 import com.taskshabitstracker.utils.SessionManager;
 import org.json.JSONObject;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Authenticated JSON Request that automatically includes session token
+ * The header map is built by SessionManager when the session changes and shared by all requests
  */
 public class AuthenticatedJsonRequest extends JsonObjectRequest {
     private final SessionManager sessionManager;
+    private Priority priority = Priority.NORMAL;
 
     public AuthenticatedJsonRequest(Context context, int method, String url, JSONObject jsonRequest,
                                     Response.Listener<JSONObject> listener, Response.ErrorListener errorListener) {
         super(method, url, jsonRequest, listener, errorListener);
-        this.sessionManager = new SessionManager(context);
+        this.sessionManager = SessionManager.getInstance(context);
     }
 
-    @Override
-    public Map<String, String> getHeaders() throws AuthFailureError {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("Content-Type", "application/json");
+    public AuthenticatedJsonRequest setPriority(Priority priority) {
+        this.priority = priority;
+        return this;
+    }
 
-        // Add session token if available
-        String sessionToken = sessionManager.getSessionToken();
-        if (sessionToken != null && !sessionToken.isEmpty()) {
-            headers.put("Authorization", "Bearer " + sessionToken);
-            // or use session ID header if your backend expects it differently
-            // headers.put("X-Session-ID", sessionToken);
-        }
+    @Override
+    public Priority getPriority() {
+        return priority;
+    }
 
-        return headers;
+    @Override
+    public Map<String, String> getHeaders() throws AuthFailureError {
+        // Content-Type plus "Authorization: Bearer <token>" when signed in
+        return sessionManager.getAuthHeaders();
     }
-}
\ No newline at end of file
+}
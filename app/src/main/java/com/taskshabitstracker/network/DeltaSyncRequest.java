@@ -0,0 +1,185 @@
+package com.taskshabitstracker.network;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conditional, incremental GET for a collection endpoint
+ * Sends If-None-Match with the last ETag and understands three answers:
+ * - 304 Not Modified: nothing changed, nothing to parse
+ * - a JSON array: a full snapshot (first sync, or a server without delta support)
+ * - {"items": [...], "deleted": ["id", ...], "cursor": "..."}: only changed rows and tombstones
+ * The body is decoded with a streaming JsonReader on the network thread, straight
+ * from the response bytes into model objects
+ */
+public class DeltaSyncRequest<T> extends Request<DeltaSyncRequest.Result<T>> {
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_CURSOR = "X-Sync-Cursor";
+
+    private final ItemReader<T> itemReader;
+    private final Response.Listener<Result<T>> listener;
+    private final Map<String, String> headers;
+
+    /**
+     * Decodes one element of the collection from the token stream
+     */
+    public interface ItemReader<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+
+    public DeltaSyncRequest(String url, @Nullable String etag, Map<String, String> extraHeaders,
+                            ItemReader<T> itemReader,
+                            Response.Listener<Result<T>> listener, Response.ErrorListener errorListener) {
+        super(Method.GET, url, errorListener);
+        this.itemReader = itemReader;
+        this.listener = listener;
+        this.headers = new HashMap<>(extraHeaders);
+        if (etag != null && !etag.isEmpty()) {
+            headers.put("If-None-Match", etag);
+        }
+        // Volley's own cache would replace the 304 with a stale body; the local store is the cache
+        setShouldCache(false);
+    }
+
+    /**
+     * Append the updatedSince cursor to a collection URL
+     */
+    public static String withCursor(String baseUrl, @Nullable String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return baseUrl;
+        }
+        return baseUrl + (baseUrl.contains("?") ? "&" : "?") + "updatedSince="
+                + Uri.encode(cursor);
+    }
+
+    @Override
+    public Priority getPriority() {
+        // Fetched for the screen on display
+        return Priority.HIGH;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    protected Response<Result<T>> parseNetworkResponse(NetworkResponse response) {
+        String etag = response.headers != null ? response.headers.get(HEADER_ETAG) : null;
+        String headerCursor = response.headers != null ? response.headers.get(HEADER_CURSOR) : null;
+
+        if (response.notModified || response.statusCode == 304) {
+            return Response.success(Result.notModified(etag), null);
+        }
+
+        String charset = HttpHeaderParser.parseCharset(response.headers, "UTF-8");
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(response.data), charset))) {
+            Result<T> result;
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                result = new Result<>(false, true, readItems(reader), new ArrayList<>(), etag, headerCursor);
+            } else {
+                result = readDelta(reader, etag, headerCursor);
+            }
+            return Response.success(result, null);
+        } catch (Exception e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    private Result<T> readDelta(JsonReader reader, @Nullable String etag, @Nullable String headerCursor)
+            throws IOException {
+        List<T> items = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        String cursor = headerCursor;
+        boolean full = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "items":
+                    items = readItems(reader);
+                    break;
+                case "deleted":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        deleted.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                case "cursor":
+                    cursor = reader.nextString();
+                    break;
+                case "full":
+                    full = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Result<>(false, full, items, deleted, etag, cursor);
+    }
+
+    private List<T> readItems(JsonReader reader) throws IOException {
+        List<T> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            items.add(itemReader.read(reader));
+        }
+        reader.endArray();
+        return items;
+    }
+
+    @Override
+    protected void deliverResponse(Result<T> response) {
+        listener.onResponse(response);
+    }
+
+    /**
+     * Outcome of a sync round trip
+     */
+    public static class Result<T> {
+        public final boolean notModified;
+        public final boolean fullSnapshot;
+        public final List<T> items;
+        public final List<String> deleted;
+        @Nullable public final String etag;
+        @Nullable public final String cursor;
+
+        Result(boolean notModified, boolean fullSnapshot, List<T> items, List<String> deleted,
+               @Nullable String etag, @Nullable String cursor) {
+            this.notModified = notModified;
+            this.fullSnapshot = fullSnapshot;
+            this.items = items;
+            this.deleted = deleted;
+            this.etag = etag;
+            this.cursor = cursor;
+        }
+
+        static <T> Result<T> notModified(@Nullable String etag) {
+            return new Result<>(true, false, new ArrayList<>(), new ArrayList<>(), etag, null);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.taskshabitstracker.network;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Compresses the bodies of requests that opt in with HEADER_COMPRESS and marks them
+ * Content-Encoding: gzip. Only endpoints known to take bulk payloads, such as the batch
+ * endpoints, opt in; small bodies are sent as is anyway, since gzip headers would make
+ * them larger.
+ * A host that answers a compressed body with 415 gets that request again uncompressed
+ * and is not sent compressed bodies again for the life of the process
+ */
+public class GzipRequestInterceptor implements Interceptor {
+    /** Request header asking for the body to be compressed; it is not sent to the server */
+    public static final String HEADER_COMPRESS = "X-Compress-Body";
+
+    private static final int UNSUPPORTED_MEDIA_TYPE = 415;
+
+    private final long minBytes;
+    private final Set<String> refusingHosts = ConcurrentHashMap.newKeySet();
+
+    public GzipRequestInterceptor(long minBytes) {
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request marked = chain.request();
+        if (marked.header(HEADER_COMPRESS) == null) {
+            return chain.proceed(marked);
+        }
+        Request original = marked.newBuilder().removeHeader(HEADER_COMPRESS).build();
+        RequestBody body = original.body();
+        String host = original.url().host();
+        if (body == null || original.header("Content-Encoding") != null || body.contentLength() < minBytes
+                || refusingHosts.contains(host)) {
+            return chain.proceed(original);
+        }
+
+        Buffer compressed = new Buffer();
+        try (BufferedSink gzip = Okio.buffer(new GzipSink(compressed))) {
+            body.writeTo(gzip);
+        }
+        RequestBody gzipped = RequestBody.create(compressed.readByteString(), body.contentType());
+        Response response = chain.proceed(original.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(original.method(), gzipped)
+                .build());
+        if (response.code() != UNSUPPORTED_MEDIA_TYPE) {
+            return response;
+        }
+        // The server does not take compressed bodies
+        response.close();
+        refusingHosts.add(host);
+        return chain.proceed(original);
+    }
+}
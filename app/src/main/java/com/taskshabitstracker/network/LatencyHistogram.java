@@ -0,0 +1,76 @@
+package com.taskshabitstracker.network;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Fixed-bucket histogram of durations in milliseconds
+ * Buckets grow roughly 1-2-5 per decade, so memory is constant however many
+ * samples are recorded; percentiles are reported as the upper bound of the
+ * bucket they fall in. Not thread-safe, NetworkMetrics guards it
+ */
+class LatencyHistogram {
+    private static final long[] BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    // The last slot counts samples above the largest bound
+    private final long[] counts = new long[BOUNDS_MS.length + 1];
+    private long count;
+    private long sumMs;
+    private long maxMs;
+
+    void record(long millis) {
+        if (millis < 0) return;
+        int slot = 0;
+        while (slot < BOUNDS_MS.length && millis > BOUNDS_MS[slot]) {
+            slot++;
+        }
+        counts[slot]++;
+        count++;
+        sumMs += millis;
+        maxMs = Math.max(maxMs, millis);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long meanMs() {
+        return count == 0 ? 0 : sumMs / count;
+    }
+
+    /**
+     * @param fraction e.g. 0.95 for the 95th percentile
+     */
+    long percentileMs(double fraction) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int slot = 0; slot < BOUNDS_MS.length; slot++) {
+            seen += counts[slot];
+            if (seen >= rank) return Math.min(BOUNDS_MS[slot], maxMs);
+        }
+        return maxMs;
+    }
+
+    JSONObject toJson() throws JSONException {
+        JSONArray buckets = new JSONArray();
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] == 0) continue;
+            buckets.put(new JSONObject()
+                    .put("le", slot < BOUNDS_MS.length ? String.valueOf(BOUNDS_MS[slot]) : "+Inf")
+                    .put("count", counts[slot]));
+        }
+        return new JSONObject()
+                .put("count", count)
+                .put("meanMs", meanMs())
+                .put("p50Ms", percentileMs(0.50))
+                .put("p95Ms", percentileMs(0.95))
+                .put("maxMs", maxMs)
+                .put("buckets", buckets);
+    }
+
+    String summary() {
+        return "p50 " + percentileMs(0.50) + " / p95 " + percentileMs(0.95) + " / max " + maxMs + " ms";
+    }
+}
@@ -0,0 +1,71 @@
+package com.taskshabitstracker.network;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.stream.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Request for a single JSON object, delivered as a finished model
+ * The body is decoded in parseNetworkResponse, on the network dispatcher thread,
+ * with a streaming JsonReader; only the model object is posted to the main thread.
+ * A body that does not decode fails the request with a ParseError
+ */
+public class ModelRequest<T> extends Request<T> {
+    private final DeltaSyncRequest.ItemReader<T> reader;
+    private final Response.Listener<T> listener;
+    private final Map<String, String> headers;
+    private Priority priority = Priority.NORMAL;
+
+    public ModelRequest(int method, String url, DeltaSyncRequest.ItemReader<T> reader,
+                        Response.Listener<T> listener, Response.ErrorListener errorListener) {
+        this(method, url, Collections.emptyMap(), reader, listener, errorListener);
+    }
+
+    public ModelRequest(int method, String url, Map<String, String> headers,
+                        DeltaSyncRequest.ItemReader<T> reader,
+                        Response.Listener<T> listener, Response.ErrorListener errorListener) {
+        super(method, url, errorListener);
+        this.reader = reader;
+        this.listener = listener;
+        this.headers = headers;
+    }
+
+    public ModelRequest<T> setPriority(Priority priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    protected Response<T> parseNetworkResponse(NetworkResponse response) {
+        String charset = HttpHeaderParser.parseCharset(response.headers, "UTF-8");
+        try (JsonReader json = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(response.data), charset))) {
+            return Response.success(reader.read(json), HttpHeaderParser.parseCacheHeaders(response));
+        } catch (Exception e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    @Override
+    protected void deliverResponse(T response) {
+        listener.onResponse(response);
+    }
+}
@@ -0,0 +1,305 @@
+// NetworkMetrics.java - Client-side latency, size and error figures per endpoint
+package com.taskshabitstracker.network;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NetworkMetrics - Per-endpoint instrumentation of the shared request queues
+ * Volley's request events give the queue wait and delivery time; OkHttpStack reports
+ * each attempt, the status code, the bytes sent and received and when the body was
+ * fully read, which splits the dispatch into network and parse time. Every attempt
+ * carries an X-Trace-Id header so a slow call can be found in the server logs.
+ * Endpoints are named by method and path with id segments folded, e.g.
+ * "PUT /api/tasks/{id}/toggle". Figures live in memory for the life of the process;
+ * the debug screen shows them and exports them with toJson()
+ */
+public class NetworkMetrics implements RequestQueue.RequestEventListener {
+    public static final String HEADER_TRACE_ID = "X-Trace-Id";
+
+    private static NetworkMetrics instance;
+
+    private final Map<Request<?>, Trace> traces = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStats> endpoints = new TreeMap<>();
+    private long startedAt = System.currentTimeMillis();
+
+    private NetworkMetrics() {}
+
+    public static synchronized NetworkMetrics getInstance() {
+        if (instance == null) {
+            instance = new NetworkMetrics();
+        }
+        return instance;
+    }
+
+    @Override
+    public void onRequestEvent(Request<?> request, int event) {
+        long now = SystemClock.elapsedRealtime();
+        switch (event) {
+            case RequestQueue.RequestEvent.REQUEST_QUEUED:
+                traces.put(request, new Trace(endpointOf(request), now));
+                break;
+            case RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_STARTED: {
+                Trace trace = traces.get(request);
+                if (trace != null) trace.dispatchedAt = now;
+                break;
+            }
+            case RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_FINISHED: {
+                Trace trace = traces.get(request);
+                if (trace != null) trace.dispatchFinishedAt = now;
+                break;
+            }
+            case RequestQueue.RequestEvent.REQUEST_FINISHED: {
+                Trace trace = traces.remove(request);
+                if (trace != null) record(trace, request.isCanceled(), now);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Called by the stack before each attempt, retries included
+     * @return the trace id to send with the attempt
+     */
+    String onAttemptStarted(Request<?> request) {
+        Trace trace = traces.get(request);
+        if (trace == null) {
+            // Sent without going through an instrumented queue
+            return UUID.randomUUID().toString();
+        }
+        trace.attempts++;
+        return trace.traceId;
+    }
+
+    void onRequestSent(Request<?> request, long bodyBytes) {
+        Trace trace = traces.get(request);
+        if (trace != null) trace.requestBytes = Math.max(0, bodyBytes);
+    }
+
+    void onResponse(Request<?> request, int statusCode) {
+        Trace trace = traces.get(request);
+        if (trace == null) return;
+        trace.statusCode = statusCode;
+        trace.failure = null;
+        trace.responseAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * The response body has been read to the end (or closed), bytes as received
+     */
+    void onBodyRead(Request<?> request, long bodyBytes) {
+        Trace trace = traces.get(request);
+        if (trace == null) return;
+        trace.responseBytes = bodyBytes;
+        trace.responseAt = SystemClock.elapsedRealtime();
+    }
+
+    void onAttemptFailed(Request<?> request, IOException error) {
+        Trace trace = traces.get(request);
+        if (trace == null) return;
+        trace.failure = error instanceof SocketTimeoutException ? "timeout" : error.getClass().getSimpleName();
+        trace.responseAt = SystemClock.elapsedRealtime();
+    }
+
+    private synchronized void record(Trace trace, boolean canceled, long finishedAt) {
+        EndpointStats stats = endpoints.get(trace.endpoint);
+        if (stats == null) {
+            stats = new EndpointStats();
+            endpoints.put(trace.endpoint, stats);
+        }
+        stats.requests++;
+        if (canceled) {
+            stats.canceled++;
+            return;
+        }
+        stats.retries += Math.max(0, trace.attempts - 1);
+        if (trace.failure != null) {
+            stats.count("error:" + trace.failure);
+        } else if (trace.statusCode > 0) {
+            stats.count(String.valueOf(trace.statusCode));
+        }
+        stats.requestBytes += trace.requestBytes;
+        stats.responseBytes += trace.responseBytes;
+        stats.maxResponseBytes = Math.max(stats.maxResponseBytes, trace.responseBytes);
+        if (trace.dispatchedAt == 0) return;
+
+        stats.queueWait.record(trace.dispatchedAt - trace.queuedAt);
+        long networkDone = trace.responseAt != 0 ? trace.responseAt : trace.dispatchFinishedAt;
+        stats.network.record(networkDone - trace.dispatchedAt);
+        if (trace.dispatchFinishedAt != 0) {
+            stats.parse.record(trace.dispatchFinishedAt - networkDone);
+            stats.delivery.record(finishedAt - trace.dispatchFinishedAt);
+        }
+        stats.total.record(finishedAt - trace.queuedAt);
+    }
+
+    /**
+     * Mean response size of an endpoint named as by endpointOf, e.g. "GET /api/tasks"
+     * @return -1 when no response has been recorded for it yet
+     */
+    public synchronized long averageResponseBytes(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        long completed = stats != null ? stats.requests - stats.canceled : 0;
+        return completed > 0 ? stats.responseBytes / completed : -1;
+    }
+
+    public synchronized void reset() {
+        endpoints.clear();
+        startedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Everything recorded so far, plus the coalescer's counters when one is given
+     */
+    public synchronized JSONObject toJson(@Nullable RequestCoalescer coalescer) throws JSONException {
+        JSONObject byEndpoint = new JSONObject();
+        for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+            byEndpoint.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject json = new JSONObject()
+                .put("since", startedAt)
+                .put("exportedAt", System.currentTimeMillis())
+                .put("inFlight", traces.size())
+                .put("endpoints", byEndpoint);
+        if (coalescer != null) {
+            json.put("coalescer", new JSONObject()
+                    .put("issued", coalescer.getIssuedCount())
+                    .put("coalesced", coalescer.getCoalescedCount()));
+        }
+        return json;
+    }
+
+    /**
+     * Human-readable digest for the debug screen
+     */
+    public synchronized String summary() {
+        if (endpoints.isEmpty()) return "No requests recorded yet";
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+            EndpointStats stats = entry.getValue();
+            text.append(entry.getKey()).append('\n')
+                    .append("  requests ").append(stats.requests)
+                    .append(", retries ").append(stats.retries)
+                    .append(", canceled ").append(stats.canceled).append('\n')
+                    .append("  status ").append(stats.outcomes).append('\n')
+                    .append("  total    ").append(stats.total.summary()).append('\n')
+                    .append("  queue    ").append(stats.queueWait.summary()).append('\n')
+                    .append("  network  ").append(stats.network.summary()).append('\n')
+                    .append("  parse    ").append(stats.parse.summary()).append('\n')
+                    .append("  delivery ").append(stats.delivery.summary()).append('\n')
+                    .append("  bytes in ").append(stats.responseBytes)
+                    .append(" (max ").append(stats.maxResponseBytes).append("), out ")
+                    .append(stats.requestBytes).append("\n\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * "GET /api/tasks", "PUT /api/tasks/{id}/toggle": query dropped, id-like segments folded
+     */
+    static String endpointOf(Request<?> request) {
+        Uri uri = Uri.parse(request.getUrl());
+        StringBuilder path = new StringBuilder();
+        for (String segment : uri.getPathSegments()) {
+            path.append('/').append(looksLikeId(segment) ? "{id}" : segment);
+        }
+        return methodName(request.getMethod()) + " " + (path.length() == 0 ? "/" : path);
+    }
+
+    // Ids here are numbers or UUIDs; route words never contain digits
+    private static boolean looksLikeId(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (Character.isDigit(segment.charAt(i))) return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String methodName(int method) {
+        switch (method) {
+            case Request.Method.GET: return "GET";
+            case Request.Method.POST: return "POST";
+            case Request.Method.PUT: return "PUT";
+            case Request.Method.DELETE: return "DELETE";
+            case Request.Method.HEAD: return "HEAD";
+            case Request.Method.OPTIONS: return "OPTIONS";
+            case Request.Method.TRACE: return "TRACE";
+            case Request.Method.PATCH: return "PATCH";
+            case Request.Method.DEPRECATED_GET_OR_POST: return "GET_OR_POST";
+            default: return "UNKNOWN";
+        }
+    }
+
+    /**
+     * Timestamps of one request, elapsedRealtime millis; 0 means not reached
+     */
+    private static class Trace {
+        final String endpoint;
+        final String traceId = UUID.randomUUID().toString();
+        final long queuedAt;
+        volatile long dispatchedAt;
+        volatile long responseAt;
+        volatile long dispatchFinishedAt;
+        volatile int attempts;
+        volatile int statusCode;
+        volatile long requestBytes;
+        volatile long responseBytes;
+        volatile String failure;
+
+        Trace(String endpoint, long queuedAt) {
+            this.endpoint = endpoint;
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    private static class EndpointStats {
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram queueWait = new LatencyHistogram();
+        final LatencyHistogram network = new LatencyHistogram();
+        final LatencyHistogram parse = new LatencyHistogram();
+        final LatencyHistogram delivery = new LatencyHistogram();
+        // Status code, or "error:<kind>" for attempts that got no response
+        final Map<String, Integer> outcomes = new TreeMap<>();
+        long requests;
+        long canceled;
+        long retries;
+        long requestBytes;
+        long responseBytes;
+        long maxResponseBytes;
+
+        void count(String outcome) {
+            Integer seen = outcomes.get(outcome);
+            outcomes.put(outcome, seen == null ? 1 : seen + 1);
+        }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("requests", requests)
+                    .put("canceled", canceled)
+                    .put("retries", retries)
+                    .put("outcomes", new JSONObject(outcomes))
+                    .put("requestBytes", requestBytes)
+                    .put("responseBytes", responseBytes)
+                    .put("maxResponseBytes", maxResponseBytes)
+                    .put("totalMs", total.toJson())
+                    .put("queueWaitMs", queueWait.toJson())
+                    .put("networkMs", network.toJson())
+                    .put("parseMs", parse.toJson())
+                    .put("deliveryMs", delivery.toJson());
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.taskshabitstracker.network;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Volley HTTP stack that executes requests through a shared OkHttpClient
+ * The client owns the connection pool, the HTTP cache and the cookie jar, so every
+ * Volley request reuses keep-alive (and, over TLS, HTTP/2) connections and gets
+ * transparent gzip decoding of responses. Per-request timeouts come from the
+ * request's retry policy, as with HurlStack.
+ * Each attempt is reported to NetworkMetrics and tagged with its trace id
+ */
+public class OkHttpStack extends BaseHttpStack {
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final OkHttpClient client;
+    private final NetworkMetrics metrics;
+
+    public OkHttpStack(OkHttpClient client, NetworkMetrics metrics) {
+        this.client = client;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders)
+            throws IOException, AuthFailureError {
+        int timeoutMs = request.getTimeoutMs();
+        // newBuilder() shares the pool, cache and dispatcher of the base client
+        OkHttpClient callClient = client.newBuilder()
+                .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        for (Map.Entry<String, String> header : additionalHeaders.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        builder.header(NetworkMetrics.HEADER_TRACE_ID, metrics.onAttemptStarted(request));
+        setMethodAndBody(builder, request);
+        okhttp3.Request call = builder.build();
+        metrics.onRequestSent(request, call.body() != null ? call.body().contentLength() : 0);
+
+        Response response;
+        try {
+            response = callClient.newCall(call).execute();
+        } catch (IOException e) {
+            metrics.onAttemptFailed(request, e);
+            throw e;
+        }
+        int statusCode = response.code();
+        metrics.onResponse(request, statusCode);
+        List<Header> headers = toVolleyHeaders(response.headers());
+        ResponseBody body = response.body();
+
+        if (body == null || !hasResponseBody(request.getMethod(), statusCode)) {
+            response.close();
+            return new HttpResponse(statusCode, headers);
+        }
+        // BasicNetwork closes the stream once the body has been read, which releases the connection
+        return new HttpResponse(statusCode, headers, (int) body.contentLength(),
+                new MeteredStream(body.byteStream(), request));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void setMethodAndBody(okhttp3.Request.Builder builder, Request<?> request)
+            throws AuthFailureError {
+        switch (request.getMethod()) {
+            case Request.Method.DEPRECATED_GET_OR_POST:
+                byte[] postBody = request.getPostBody();
+                if (postBody != null) {
+                    builder.post(RequestBody.create(postBody, parseType(request.getPostBodyContentType())));
+                } else {
+                    builder.get();
+                }
+                break;
+            case Request.Method.GET:
+                builder.get();
+                break;
+            case Request.Method.DELETE:
+                byte[] deleteBody = request.getBody();
+                builder.delete(deleteBody != null
+                        ? RequestBody.create(deleteBody, parseType(request.getBodyContentType()))
+                        : null);
+                break;
+            case Request.Method.POST:
+                builder.post(createBody(request));
+                break;
+            case Request.Method.PUT:
+                builder.put(createBody(request));
+                break;
+            case Request.Method.HEAD:
+                builder.head();
+                break;
+            case Request.Method.OPTIONS:
+                builder.method("OPTIONS", null);
+                break;
+            case Request.Method.TRACE:
+                builder.method("TRACE", null);
+                break;
+            case Request.Method.PATCH:
+                builder.patch(createBody(request));
+                break;
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
+
+    // OkHttp requires a body for POST, PUT and PATCH, so a missing one is sent empty
+    private static RequestBody createBody(Request<?> request) throws AuthFailureError {
+        byte[] body = request.getBody();
+        return RequestBody.create(body != null ? body : EMPTY_BODY, parseType(request.getBodyContentType()));
+    }
+
+    private static MediaType parseType(String contentType) {
+        return contentType != null ? MediaType.parse(contentType) : null;
+    }
+
+    private static List<Header> toVolleyHeaders(Headers okHeaders) {
+        List<Header> headers = new ArrayList<>(okHeaders.size());
+        for (int i = 0; i < okHeaders.size(); i++) {
+            headers.add(new Header(okHeaders.name(i), okHeaders.value(i)));
+        }
+        return headers;
+    }
+
+    private static boolean hasResponseBody(int requestMethod, int responseCode) {
+        return requestMethod != Request.Method.HEAD
+                && !(100 <= responseCode && responseCode < 200)
+                && responseCode != 204
+                && responseCode != 304;
+    }
+
+    /**
+     * Counts the body as BasicNetwork reads it and reports when it is done
+     */
+    private class MeteredStream extends FilterInputStream {
+        private final Request<?> request;
+        private long bytesRead;
+        private boolean reported;
+
+        MeteredStream(InputStream in, Request<?> request) {
+            super(in);
+            this.request = request;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) report(); else bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n == -1) report(); else bytesRead += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            report();
+            super.close();
+        }
+
+        private void report() {
+            if (reported) return;
+            reported = true;
+            metrics.onBodyRead(request, bytesRead);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.taskshabitstracker.network;
+
+import android.net.Uri;
+import androidx.annotation.Nullable;
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a cursor-paginated collection: GET url?limit=N&cursor=C
+ * Understands {"items": [...], "nextCursor": "..."} where a missing or null
+ * nextCursor means this was the last page. A bare JSON array (a server that
+ * ignores the paging parameters) is taken as the whole collection.
+ * The sync cursor header, when present, is passed through so the caller can
+ * start delta syncs from the moment the download began
+ */
+public class PageRequest<T> extends Request<PageRequest.Page<T>> {
+    private static final String HEADER_CURSOR = "X-Sync-Cursor";
+
+    private final DeltaSyncRequest.ItemReader<T> itemReader;
+    private final Response.Listener<Page<T>> listener;
+    private final Map<String, String> headers;
+
+    public PageRequest(String baseUrl, int limit, @Nullable String cursor, Map<String, String> extraHeaders,
+                       DeltaSyncRequest.ItemReader<T> itemReader,
+                       Response.Listener<Page<T>> listener, Response.ErrorListener errorListener) {
+        super(Method.GET, pageUrl(baseUrl, limit, cursor), errorListener);
+        this.itemReader = itemReader;
+        this.listener = listener;
+        this.headers = new HashMap<>(extraHeaders);
+        // Pages land in the local store, which is the cache
+        setShouldCache(false);
+    }
+
+    private static String pageUrl(String baseUrl, int limit, @Nullable String cursor) {
+        StringBuilder url = new StringBuilder(baseUrl)
+                .append(baseUrl.contains("?") ? "&" : "?")
+                .append("limit=").append(limit);
+        if (cursor != null && !cursor.isEmpty()) {
+            url.append("&cursor=").append(Uri.encode(cursor));
+        }
+        return url.toString();
+    }
+
+    @Override
+    public Priority getPriority() {
+        // Fetched for the screen on display
+        return Priority.HIGH;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    protected Response<Page<T>> parseNetworkResponse(NetworkResponse response) {
+        String syncCursor = response.headers != null ? response.headers.get(HEADER_CURSOR) : null;
+        String charset = HttpHeaderParser.parseCharset(response.headers, "UTF-8");
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(response.data), charset))) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                return Response.success(new Page<>(readItems(reader), null, syncCursor), null);
+            }
+            List<T> items = new ArrayList<>();
+            String nextCursor = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "items":
+                        items = readItems(reader);
+                        break;
+                    case "nextCursor":
+                        nextCursor = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return Response.success(new Page<>(items, nextCursor, syncCursor), null);
+        } catch (Exception e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    private List<T> readItems(JsonReader reader) throws IOException {
+        List<T> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            items.add(itemReader.read(reader));
+        }
+        reader.endArray();
+        return items;
+    }
+
+    @Override
+    protected void deliverResponse(Page<T> response) {
+        listener.onResponse(response);
+    }
+
+    /**
+     * Items of one page and where to continue
+     */
+    public static class Page<T> {
+        public final List<T> items;
+        @Nullable public final String nextCursor;
+        @Nullable public final String syncCursor;
+
+        Page(List<T> items, @Nullable String nextCursor, @Nullable String syncCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+            this.syncCursor = syncCursor;
+        }
+
+        public boolean isLast() {
+            return nextCursor == null || nextCursor.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.taskshabitstracker.network;
+
+import com.taskshabitstracker.utils.AppLog;
+import android.content.Context;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Single-flight layer over the shared RequestQueue
+ * Callers name a read with a key (normally its URL). While a flight for that key
+ * is in progress, further callers are attached to it instead of sending their own
+ * request: the network call, the parse and whatever the flight does with the
+ * response (e.g. writing it to the local store) happen once, and every caller gets
+ * the same result. Counters record how many requests were saved.
+ * Reads the repositories share between screens have no owner and are never cancelled,
+ * so their result is kept for the next screen. Reads only one screen wants (e.g. the
+ * pages of its list) pass an owner tag, and the screen drops them with cancelAll when
+ * it goes away; the request itself stops once nobody else waits on it.
+ * Only use it for reads whose result does not depend on who asked
+ */
+public class RequestCoalescer {
+    private static final String TAG = "RequestCoalescer";
+
+    private static RequestCoalescer instance;
+
+    private final RequestQueue requestQueue;
+    private final Map<String, Flight<?>> inFlight = new HashMap<>();
+    // Owners already cancelled, so a load chain still under way cannot start new flights for them
+    private final Map<Object, Boolean> cancelledOwners = new WeakHashMap<>();
+    private int issuedCount;
+    private int coalescedCount;
+
+    /**
+     * Starts the shared work for a key and reports its outcome exactly once
+     */
+    public interface FlightStarter<T> {
+        Request<?> start(Response.Listener<T> onDone, Response.ErrorListener onError);
+    }
+
+    private RequestCoalescer(Context context) {
+        requestQueue = VolleySingleton.getInstance(context).getRequestQueue();
+    }
+
+    public static synchronized RequestCoalescer getInstance(Context context) {
+        if (instance == null) {
+            instance = new RequestCoalescer(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Join the flight for key, or start one with starter if none is in progress
+     * The caller's callbacks cannot be cancelled
+     */
+    public <T> void enqueue(String key, FlightStarter<T> starter,
+                            Response.Listener<T> listener, Response.ErrorListener errorListener) {
+        enqueue(null, key, starter, listener, errorListener);
+    }
+
+    /**
+     * Join the flight for key, or start one with starter if none is in progress
+     * @param owner tag of the screen the result is for, see {@link #cancelAll(Object)};
+     *              null if it must not be cancelled
+     */
+    public <T> void enqueue(@Nullable Object owner, String key, FlightStarter<T> starter,
+                            Response.Listener<T> listener, Response.ErrorListener errorListener) {
+        Flight<T> flight;
+        synchronized (this) {
+            if (owner != null && cancelledOwners.containsKey(owner)) return;
+            @SuppressWarnings("unchecked")
+            Flight<T> existing = (Flight<T>) inFlight.get(key);
+            if (existing != null) {
+                existing.waiters.add(new Waiter<>(owner, listener, errorListener));
+                coalescedCount++;
+                AppLog.d(TAG, "Joined in-flight request", "key", key, "saved", coalescedCount);
+                return;
+            }
+            flight = new Flight<>();
+            flight.waiters.add(new Waiter<>(owner, listener, errorListener));
+            inFlight.put(key, flight);
+            issuedCount++;
+        }
+        Response.ErrorListener onFailed = error -> {
+            for (Waiter<T> waiter : finish(key, flight)) {
+                waiter.errorListener.onErrorResponse(error);
+            }
+        };
+        try {
+            Request<?> request = starter.start(
+                    result -> {
+                        for (Waiter<T> waiter : finish(key, flight)) {
+                            waiter.listener.onResponse(result);
+                        }
+                    },
+                    onFailed);
+            synchronized (this) {
+                // The owner may have been cancelled while the request was being built
+                if (flight.waiters.isEmpty()) return;
+                flight.request = request;
+            }
+            requestQueue.add(request);
+        } catch (RuntimeException e) {
+            // Otherwise the key stays taken and every later caller waits on a flight that never lands
+            AppLog.e(TAG, "Could not start request", e, "key", key);
+            onFailed.onErrorResponse(new VolleyError(e));
+        }
+    }
+
+    /**
+     * Drop every callback registered by owner
+     * A flight is cancelled once none of its callers is left; flights still shared
+     * with other callers keep going and only stop reporting to this one.
+     * Later enqueues for owner are ignored
+     */
+    public synchronized void cancelAll(Object owner) {
+        cancelledOwners.put(owner, Boolean.TRUE);
+        Iterator<Map.Entry<String, Flight<?>>> flights = inFlight.entrySet().iterator();
+        while (flights.hasNext()) {
+            Flight<?> flight = flights.next().getValue();
+            flight.waiters.removeIf(waiter -> waiter.owner == owner);
+            if (flight.waiters.isEmpty()) {
+                if (flight.request != null) flight.request.cancel();
+                flights.remove();
+            }
+        }
+    }
+
+    private synchronized <T> List<Waiter<T>> finish(String key, Flight<T> flight) {
+        if (inFlight.get(key) == flight) {
+            inFlight.remove(key);
+        }
+        // Copy so callers joining from inside a callback start a new flight
+        List<Waiter<T>> done = new ArrayList<>(flight.waiters);
+        flight.waiters.clear();
+        return done;
+    }
+
+    /**
+     * Requests actually sent through the coalescer
+     */
+    public synchronized int getIssuedCount() {
+        return issuedCount;
+    }
+
+    /**
+     * Requests that were answered by joining an in-flight one instead of being sent
+     */
+    public synchronized int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    private static class Flight<T> {
+        final List<Waiter<T>> waiters = new ArrayList<>();
+        Request<?> request;
+    }
+
+    private static class Waiter<T> {
+        @Nullable final Object owner;
+        final Response.Listener<T> listener;
+        final Response.ErrorListener errorListener;
+
+        Waiter(@Nullable Object owner, Response.Listener<T> listener, Response.ErrorListener errorListener) {
+            this.owner = owner;
+            this.listener = listener;
+            this.errorListener = errorListener;
+        }
+    }
+}
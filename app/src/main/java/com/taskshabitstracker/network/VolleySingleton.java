@@ -2,14 +2,29 @@ package com.taskshabitstracker.network;
 
 import android.content.Context;
 import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.Volley;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.NoCache;
+import java.io.File;
 import java.net.CookieHandler;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.JavaNetCookieJar;
+import okhttp3.OkHttpClient;
 
 public class VolleySingleton {
+    private static final long HTTP_CACHE_BYTES = 10L * 1024 * 1024;
+    private static final long GZIP_MIN_REQUEST_BYTES = 1024;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final int NETWORK_THREADS = 4;
+    private static final int BACKGROUND_NETWORK_THREADS = 1;
+
     private static VolleySingleton instance;
+    private final OkHttpClient httpClient;
     private RequestQueue requestQueue;
+    private final RequestQueue backgroundQueue;
 
     private VolleySingleton(Context context) {
         // Enable cookie handling
@@ -17,7 +32,28 @@ public class VolleySingleton {
         cookieManager.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
         CookieHandler.setDefault(cookieManager);
 
-        requestQueue = Volley.newRequestQueue(context.getApplicationContext());
+        // One client for the whole app: shared connection pool, HTTP cache honoring
+        // Cache-Control, and the same cookie store the rest of the app uses.
+        // Request bodies are gzipped only for requests that opt in, see GzipRequestInterceptor
+        Context appContext = context.getApplicationContext();
+        httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, 5, TimeUnit.MINUTES))
+                .cache(new Cache(new File(appContext.getCacheDir(), "http"), HTTP_CACHE_BYTES))
+                .cookieJar(new JavaNetCookieJar(cookieManager))
+                .addInterceptor(new GzipRequestInterceptor(GZIP_MIN_REQUEST_BYTES))
+                .build();
+
+        // OkHttp's cache replaces Volley's disk cache so responses are cached once
+        NetworkMetrics metrics = NetworkMetrics.getInstance();
+        requestQueue = new RequestQueue(new NoCache(), new BasicNetwork(new OkHttpStack(httpClient, metrics)),
+                NETWORK_THREADS);
+        requestQueue.addRequestEventListener(metrics);
+        requestQueue.start();
+        // Telemetry gets its own dispatcher so it can never hold a thread a toggle needs
+        backgroundQueue = new RequestQueue(new NoCache(), new BasicNetwork(new OkHttpStack(httpClient, metrics)),
+                BACKGROUND_NETWORK_THREADS);
+        backgroundQueue.addRequestEventListener(metrics);
+        backgroundQueue.start();
     }
 
     public static synchronized VolleySingleton getInstance(Context context) {
@@ -27,7 +63,24 @@ public class VolleySingleton {
         return instance;
     }
 
+    /**
+     * Queue for user-visible traffic
+     * Dispatch order follows Request.getPriority(): user-initiated mutations are
+     * IMMEDIATE, reads for the screen on display HIGH, anything else NORMAL
+     */
     public RequestQueue getRequestQueue() {
         return requestQueue;
     }
-}
\ No newline at end of file
+
+    /**
+     * Queue for traffic nobody is waiting on, such as timeline events and points updates
+     * It shares the connection pool but has its own dispatcher thread
+     */
+    public RequestQueue getBackgroundQueue() {
+        return backgroundQueue;
+    }
+
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+}
@@ -0,0 +1,136 @@
+// ReminderHeap.java - Indexed min-heap of upcoming reminder instants
+package com.taskshabitstracker.notifications;
+
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReminderHeap - Reminders ordered by trigger time, addressable by key
+ * A key (e.g. "DUE_DATE:<taskId>") names at most one reminder; the key-to-slot
+ * index makes put and remove O(log n) instead of a linear scan, which is what
+ * lets the scheduler reconcile only the entities that changed.
+ * Not thread safe; ReminderScheduler guards it
+ */
+class ReminderHeap {
+    private final List<Reminder> heap = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /**
+     * Insert the reminder, or move the existing one with the same key to its new time
+     */
+    void put(Reminder reminder) {
+        Integer slot = slots.get(reminder.key);
+        if (slot == null) {
+            heap.add(reminder);
+            slots.put(reminder.key, heap.size() - 1);
+            siftUp(heap.size() - 1);
+            return;
+        }
+        long previous = heap.get(slot).triggerAt;
+        heap.set(slot, reminder);
+        if (reminder.triggerAt < previous) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+    }
+
+    /**
+     * @return true if a reminder with this key was queued
+     */
+    boolean remove(String key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) return false;
+        Reminder last = heap.remove(heap.size() - 1);
+        if (slot < heap.size()) {
+            heap.set(slot, last);
+            slots.put(last.key, slot);
+            siftDown(slot);
+            siftUp(slot);
+        }
+        return true;
+    }
+
+    @Nullable
+    Reminder peek() {
+        return heap.isEmpty() ? null : heap.get(0);
+    }
+
+    @Nullable
+    Reminder poll() {
+        Reminder head = peek();
+        if (head != null) {
+            remove(head.key);
+        }
+        return head;
+    }
+
+    void clear() {
+        heap.clear();
+        slots.clear();
+    }
+
+    int size() {
+        return heap.size();
+    }
+
+    private void siftUp(int index) {
+        Reminder item = heap.get(index);
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Reminder parentItem = heap.get(parent);
+            if (parentItem.triggerAt <= item.triggerAt) break;
+            place(index, parentItem);
+            index = parent;
+        }
+        place(index, item);
+    }
+
+    private void siftDown(int index) {
+        int size = heap.size();
+        Reminder item = heap.get(index);
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap.get(child + 1).triggerAt < heap.get(child).triggerAt) {
+                child++;
+            }
+            Reminder childItem = heap.get(child);
+            if (item.triggerAt <= childItem.triggerAt) break;
+            place(index, childItem);
+            index = child;
+        }
+        place(index, item);
+    }
+
+    private void place(int index, Reminder item) {
+        heap.set(index, item);
+        slots.put(item.key, index);
+    }
+
+    /**
+     * One notification to show at triggerAt
+     */
+    static final class Reminder {
+        final String key;
+        final String type;
+        final String entityId;
+        final String title;
+        final long triggerAt;
+
+        Reminder(String type, String entityId, String title, long triggerAt) {
+            this.key = keyOf(type, entityId);
+            this.type = type;
+            this.entityId = entityId;
+            this.title = title;
+            this.triggerAt = triggerAt;
+        }
+
+        static String keyOf(String type, String entityId) {
+            return type + ":" + entityId;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+// ReminderScheduler.java - Keeps one alarm armed for the next task or habit reminder
+package com.taskshabitstracker.notifications;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
+import com.taskshabitstracker.utils.SessionManager;
+import com.taskshabitstracker.workers.NotificationWorker;
+import com.taskshabitstracker.workers.ReminderWorker;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReminderScheduler - Single source of truth for due, pre-due, overdue and habit reminders
+ * Every upcoming instant lives in an indexed min-heap; exactly one unique WorkManager
+ * item is armed, for the earliest one. Writes to the store report the tasks and
+ * habits they touched, so only their reminders are recomputed. When the alarm fires,
+ * ReminderWorker calls onAlarm, which rebuilds from the store, shows everything due
+ * and re-arms for the next instant.
+ * Methods read the database and must be called off the main thread
+ */
+public class ReminderScheduler {
+    private static final String TAG = "ReminderScheduler";
+    private static final String WORK_NAME = "reminder_alarm";
+    private static final String PREFS = "ReminderPrefs";
+    private static final String KEY_LAST_PROCESSED = "last_processed_at";
+
+    public static final String TYPE_PRE_DUE = "PRE_DUE";
+    public static final String TYPE_DUE_DATE = "DUE_DATE";
+    public static final String TYPE_OVERDUE = "OVERDUE";
+    public static final String TYPE_HABIT = "HABIT_REMINDER";
+
+    private static final int TASK_REMINDER_HOUR = 9;
+    private static final int HABIT_REMINDER_HOUR = 20;
+    // Reminders missed while the app was not running are caught up for at most a day
+    private static final long MAX_CATCH_UP_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final String[] TASK_TYPES = {TYPE_PRE_DUE, TYPE_DUE_DATE, TYPE_OVERDUE};
+
+    private static ReminderScheduler instance;
+
+    private final Context appContext;
+    private final AppDatabase database;
+    private final SharedPreferences prefs;
+    private final ReminderHeap heap = new ReminderHeap();
+    private boolean loaded;
+    private long armedAt = Long.MIN_VALUE;
+
+    private ReminderScheduler(Context context) {
+        appContext = context.getApplicationContext();
+        database = AppDatabase.getInstance(appContext);
+        prefs = appContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        // The signed-out user's reminders go with the store
+        SessionManager.getInstance(appContext).observeSessionEnd(() ->
+                AppExecutors.getInstance().diskIO().execute(this::reload));
+    }
+
+    public static synchronized ReminderScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReminderScheduler(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Load the reminders of stored tasks and habits and arm the alarm, once per process
+     */
+    public synchronized void ensureArmed() {
+        ensureLoaded();
+        arm();
+    }
+
+    /**
+     * Recompute the reminders of a task that was added or edited
+     */
+    public synchronized void onTaskSaved(Task task) {
+        if (!ensureLoaded()) {
+            putTaskReminders(task, lastProcessed());
+        }
+        arm();
+    }
+
+    public synchronized void onTaskRemoved(String taskId) {
+        if (!ensureLoaded()) {
+            removeTaskReminders(taskId);
+        }
+        arm();
+    }
+
+    public synchronized void onHabitSaved(Habit habit) {
+        if (!ensureLoaded()) {
+            putHabitReminder(habit, lastProcessed());
+        }
+        arm();
+    }
+
+    public synchronized void onHabitRemoved(String habitId) {
+        if (!ensureLoaded()) {
+            heap.remove(ReminderHeap.Reminder.keyOf(TYPE_HABIT, habitId));
+        }
+        arm();
+    }
+
+    /**
+     * Rebuild from the store, e.g. after a full sync replaced the cached rows
+     */
+    public synchronized void reload() {
+        rebuild();
+        arm();
+    }
+
+    /**
+     * Show every reminder that is due and arm the alarm for the next one
+     * Called by ReminderWorker; the store is re-read since the process may have been restarted
+     */
+    public synchronized void onAlarm() {
+        rebuild();
+        long now = System.currentTimeMillis();
+        List<ReminderHeap.Reminder> due = new ArrayList<>();
+        ReminderHeap.Reminder head;
+        while ((head = heap.peek()) != null && head.triggerAt <= now) {
+            due.add(heap.poll());
+        }
+        for (ReminderHeap.Reminder reminder : due) {
+            NotificationWorker.showNotification(appContext, reminder.type, reminder.title, 0,
+                    reminder.key.hashCode());
+            // Overdue and habit reminders repeat daily until the task or habit is done
+            if (TYPE_OVERDUE.equals(reminder.type) || TYPE_HABIT.equals(reminder.type)) {
+                int hour = TYPE_HABIT.equals(reminder.type) ? HABIT_REMINDER_HOUR : TASK_REMINDER_HOUR;
+                heap.put(new ReminderHeap.Reminder(reminder.type, reminder.entityId, reminder.title,
+                        nextDailyAfter(DateUtils.epochDayOf(reminder.triggerAt), hour, now)));
+            }
+        }
+        prefs.edit().putLong(KEY_LAST_PROCESSED, now).apply();
+        AppLog.d(TAG, "Showed reminders", "shown", due.size(), "queued", heap.size());
+        // The alarm that woke us is spent
+        armedAt = Long.MIN_VALUE;
+        arm();
+    }
+
+    /**
+     * @return true if the heap was just built from the store (which already has the change)
+     */
+    private boolean ensureLoaded() {
+        if (loaded) return false;
+        rebuild();
+        return true;
+    }
+
+    private void rebuild() {
+        heap.clear();
+        long since = lastProcessed();
+        for (Task task : database.taskDao().getWithReminders()) {
+            putTaskReminders(task, since);
+        }
+        for (Habit habit : database.habitDao().getAll()) {
+            putHabitReminder(habit, since);
+        }
+        loaded = true;
+    }
+
+    /**
+     * Reminders after this instant have not been shown yet
+     */
+    private long lastProcessed() {
+        long now = System.currentTimeMillis();
+        long last = prefs.getLong(KEY_LAST_PROCESSED, 0);
+        if (last == 0) {
+            // First run: nothing from the past is owed
+            prefs.edit().putLong(KEY_LAST_PROCESSED, now).apply();
+            return now;
+        }
+        return Math.max(last, now - MAX_CATCH_UP_MILLIS);
+    }
+
+    private void putTaskReminders(Task task, long since) {
+        removeTaskReminders(task.getId());
+        if (task.isCompleted() || !task.hasDueDate()) return;
+        int dueDay = task.getDueEpochDay();
+        String id = task.getId();
+        if (task.isEnablePreDueNotifications()) {
+            long at = DateUtils.localMillis(dueDay - 1, TASK_REMINDER_HOUR);
+            if (at > since) heap.put(new ReminderHeap.Reminder(TYPE_PRE_DUE, id, task.getTitle(), at));
+        }
+        if (task.isEnableDueDateNotifications()) {
+            long at = DateUtils.localMillis(dueDay, TASK_REMINDER_HOUR);
+            if (at > since) heap.put(new ReminderHeap.Reminder(TYPE_DUE_DATE, id, task.getTitle(), at));
+            heap.put(new ReminderHeap.Reminder(TYPE_OVERDUE, id, task.getTitle(),
+                    nextDailyAfter(dueDay + 1, TASK_REMINDER_HOUR, since)));
+        }
+    }
+
+    private void removeTaskReminders(String taskId) {
+        for (String type : TASK_TYPES) {
+            heap.remove(ReminderHeap.Reminder.keyOf(type, taskId));
+        }
+    }
+
+    private void putHabitReminder(Habit habit, long since) {
+        // A habit already done today is next due tomorrow evening
+        int today = DateUtils.today();
+        int day = today + (habit.getHistory().isCompleted(today) ? 1 : 0);
+        heap.put(new ReminderHeap.Reminder(TYPE_HABIT, habit.getId(), habit.getName(),
+                nextDailyAfter(day, HABIT_REMINDER_HOUR, since)));
+    }
+
+    /**
+     * First instant at the given hour, on or after firstDay, that is later than since
+     */
+    private static long nextDailyAfter(int firstDay, int hour, long since) {
+        int day = Math.max(firstDay, DateUtils.epochDayOf(since));
+        long at = DateUtils.localMillis(day, hour);
+        return at > since ? at : DateUtils.localMillis(day + 1, hour);
+    }
+
+    /**
+     * Point the single unique alarm at the head of the heap, if it moved
+     */
+    private void arm() {
+        ReminderHeap.Reminder head = heap.peek();
+        WorkManager workManager = WorkManager.getInstance(appContext);
+        if (head == null) {
+            if (armedAt != Long.MAX_VALUE) {
+                workManager.cancelUniqueWork(WORK_NAME);
+                armedAt = Long.MAX_VALUE;
+            }
+            return;
+        }
+        if (head.triggerAt == armedAt) return;
+        long delay = Math.max(0, head.triggerAt - System.currentTimeMillis());
+        OneTimeWorkRequest alarm = new OneTimeWorkRequest.Builder(ReminderWorker.class)
+                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .build();
+        workManager.enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.REPLACE, alarm);
+        armedAt = head.triggerAt;
+        AppLog.d(TAG, "Next reminder", "key", head.key, "delayMs", delay);
+    }
+}
@@ -0,0 +1,366 @@
+// PagedWindow.java - Scroll-driven, bounded window over a large ordered collection
+package com.taskshabitstracker.paging;
+
+import com.taskshabitstracker.utils.AppLog;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * PagedWindow - Holds at most maxItems rows of a collection that may be far larger
+ * Pages are requested from a PageSource, keyed by the position of the row at the
+ * edge of the window rather than an offset, when the visible range comes within
+ * prefetchDistance of either edge of the window; once the window grows past
+ * maxItems the pages farthest from the user are dropped, so memory stays
+ * bounded no matter how far the user scrolls.
+ * While more rows exist after the window, snapshots end with null placeholder
+ * rows that the adapter renders as loading rows.
+ * Must be used from the main thread
+ */
+public class PagedWindow<T> {
+    private static final String TAG = "PagedWindow";
+
+    // Boundary that every row comes after
+    public static final long BEFORE_FIRST = Long.MIN_VALUE;
+
+    /**
+     * Loads up to limit rows right after (or before) a position, in collection order
+     */
+    public interface PageSource<T> {
+        void loadPage(long position, boolean before, int limit, LoadCallback<T> callback);
+    }
+
+    /**
+     * @param positions the position of each row, as passed back to loadPage
+     * @param endReached true when there are no more rows in the direction loaded
+     */
+    public interface LoadCallback<T> {
+        void onLoaded(List<T> items, long[] positions, boolean endReached);
+        void onError(String error);
+    }
+
+    public interface KeyProvider<T> {
+        String keyOf(T item);
+    }
+
+    public interface OnWindowChanged<T> {
+        void onWindowChanged(List<T> snapshot);
+    }
+
+    public interface OnLoadError {
+        void onLoadError(String error);
+    }
+
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxItems;
+    private final PageSource<T> source;
+    private final KeyProvider<T> keyProvider;
+    private final OnWindowChanged<T> onWindowChanged;
+    private final OnLoadError onLoadError;
+
+    private final List<T> items = new ArrayList<>();
+    // Positions of the loaded rows by key; kept for removed rows so restore needs nothing extra
+    private final Map<String, Long> positions = new HashMap<>();
+    private boolean startReached = true;
+    private boolean endReached;
+    private boolean loadingForward;
+    private boolean loadingBackward;
+    private boolean failed; // stop scroll-driven loads after an error until the next refresh
+    private int generation; // bumped by refresh so pages for an older window are ignored
+
+    public PagedWindow(int pageSize, int prefetchDistance, int maxItems, PageSource<T> source,
+                       KeyProvider<T> keyProvider, OnWindowChanged<T> onWindowChanged,
+                       OnLoadError onLoadError) {
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxItems = Math.max(maxItems, pageSize * 2);
+        this.source = source;
+        this.keyProvider = keyProvider;
+        this.onWindowChanged = onWindowChanged;
+        this.onLoadError = onLoadError;
+    }
+
+    /**
+     * Reload the rows currently in the window (the first page if it is empty)
+     */
+    public void refresh() {
+        int gen = ++generation;
+        loadingForward = true;
+        loadingBackward = false;
+        failed = false;
+        int limit = Math.max(items.size(), pageSize);
+        // From the top of the collection when the window starts there, so rows added above show up
+        long from = startReached ? BEFORE_FIRST : firstPosition() - 1;
+        source.loadPage(from, false, limit, new LoadCallback<T>() {
+            @Override
+            public void onLoaded(List<T> page, long[] pagePositions, boolean end) {
+                if (gen != generation) return;
+                loadingForward = false;
+                items.clear();
+                positions.clear();
+                add(items.size(), page, pagePositions);
+                startReached = from == BEFORE_FIRST;
+                endReached = end;
+                publish();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (gen != generation) return;
+                loadingForward = false;
+                failed = true;
+                onLoadError.onLoadError(error);
+            }
+        });
+    }
+
+    /**
+     * Ignore the pages still being loaded and load no more, e.g. once the screen is gone
+     */
+    public void cancel() {
+        generation++;
+        loadingForward = false;
+        loadingBackward = false;
+        failed = true;
+    }
+
+    /**
+     * Report the adapter positions on screen; loads the next or previous page when needed
+     */
+    public void onVisibleRange(int first, int last) {
+        if (first < 0 || failed) return;
+        if (!endReached && !loadingForward && last >= items.size() - prefetchDistance) {
+            loadForward();
+        }
+        if (!startReached && !loadingBackward && first < prefetchDistance) {
+            loadBackward();
+        }
+    }
+
+    private void loadForward() {
+        int gen = generation;
+        loadingForward = true;
+        source.loadPage(lastPosition(), false, pageSize, new LoadCallback<T>() {
+            @Override
+            public void onLoaded(List<T> page, long[] pagePositions, boolean end) {
+                if (gen != generation) return;
+                loadingForward = false;
+                add(items.size(), page, pagePositions);
+                endReached = end;
+                trimFront();
+                publish();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (gen != generation) return;
+                loadingForward = false;
+                failed = true;
+                onLoadError.onLoadError(error);
+            }
+        });
+    }
+
+    private void loadBackward() {
+        int gen = generation;
+        loadingBackward = true;
+        source.loadPage(firstPosition(), true, pageSize, new LoadCallback<T>() {
+            @Override
+            public void onLoaded(List<T> page, long[] pagePositions, boolean end) {
+                if (gen != generation) return;
+                loadingBackward = false;
+                add(0, page, pagePositions);
+                startReached = end;
+                trimBack();
+                publish();
+            }
+
+            @Override
+            public void onError(String error) {
+                if (gen != generation) return;
+                loadingBackward = false;
+                failed = true;
+                onLoadError.onLoadError(error);
+            }
+        });
+    }
+
+    private void trimFront() {
+        int excess = items.size() - maxItems;
+        if (excess <= 0) return;
+        // Drop whole pages so the window does not page in and out a few rows at a time
+        int drop = Math.min(items.size(), ((excess + pageSize - 1) / pageSize) * pageSize);
+        forget(items.subList(0, drop));
+        startReached = false;
+        AppLog.d(TAG, "Dropped rows before the window", "rows", drop);
+    }
+
+    private void trimBack() {
+        int excess = items.size() - maxItems;
+        if (excess <= 0) return;
+        int drop = Math.min(items.size(), ((excess + pageSize - 1) / pageSize) * pageSize);
+        forget(items.subList(items.size() - drop, items.size()));
+        endReached = false;
+        AppLog.d(TAG, "Dropped rows after the window", "rows", drop);
+    }
+
+    /**
+     * Replace the row with the same key, if it is in the window
+     */
+    public boolean replace(T item) {
+        int index = indexOf(keyProvider.keyOf(item));
+        if (index < 0) return false;
+        items.set(index, item);
+        publish();
+        return true;
+    }
+
+    /**
+     * Remove the row with the given key
+     * @return its index in the window, or -1 if it is not loaded
+     */
+    public int remove(String key) {
+        int index = indexOf(key);
+        if (index < 0) return -1;
+        items.remove(index);
+        publish();
+        return index;
+    }
+
+    /**
+     * Put a removed row back, e.g. when the removal could not be saved
+     */
+    public void restore(int index, T item) {
+        items.add(Math.min(Math.max(index, 0), items.size()), item);
+        publish();
+    }
+
+    /**
+     * Replace the loaded rows with the same keys as the given items, publishing once
+     */
+    public void replaceAll(Collection<T> replacements) {
+        Map<String, T> byKey = new HashMap<>(replacements.size() * 2);
+        for (T item : replacements) {
+            byKey.put(keyProvider.keyOf(item), item);
+        }
+        boolean changed = false;
+        for (int i = 0; i < items.size() && !byKey.isEmpty(); i++) {
+            T replacement = byKey.remove(keyProvider.keyOf(items.get(i)));
+            if (replacement != null) {
+                items.set(i, replacement);
+                changed = true;
+            }
+        }
+        if (changed) publish();
+    }
+
+    /**
+     * Remove the loaded rows with the given keys, publishing once
+     * @return the removed rows by their index in the window, to pass to restoreAll
+     */
+    public SortedMap<Integer, T> removeAll(Set<String> keys) {
+        SortedMap<Integer, T> removed = new TreeMap<>();
+        List<T> kept = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            if (keys.contains(keyProvider.keyOf(item))) {
+                removed.put(i, item);
+            } else {
+                kept.add(item);
+            }
+        }
+        if (removed.isEmpty()) return removed;
+        items.clear();
+        items.addAll(kept);
+        publish();
+        return removed;
+    }
+
+    /**
+     * Put rows removed by removeAll back, e.g. when the removal could not be saved
+     */
+    public void restoreAll(SortedMap<Integer, T> removed) {
+        if (removed.isEmpty()) return;
+        // In ascending order each index is where the row sat among the rows before it
+        for (Map.Entry<Integer, T> entry : removed.entrySet()) {
+            items.add(Math.min(Math.max(entry.getKey(), 0), items.size()), entry.getValue());
+        }
+        publish();
+    }
+
+    /**
+     * Add a row created locally at the end of the collection
+     * If the window does not reach the end the row is paged in like any other
+     */
+    public boolean append(T item) {
+        if (!endReached) return false;
+        items.add(item);
+        trimFront();
+        publish();
+        return true;
+    }
+
+    /**
+     * Loaded rows, without placeholders
+     */
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    private void add(int index, List<T> page, long[] pagePositions) {
+        items.addAll(index, page);
+        for (int i = 0; i < page.size(); i++) {
+            positions.put(keyProvider.keyOf(page.get(i)), pagePositions[i]);
+        }
+    }
+
+    private void forget(List<T> dropped) {
+        for (T item : dropped) {
+            positions.remove(keyProvider.keyOf(item));
+        }
+        dropped.clear();
+    }
+
+    // Position of the first loaded row that came from the source; rows appended locally have none
+    private long firstPosition() {
+        for (T item : items) {
+            Long position = positions.get(keyProvider.keyOf(item));
+            if (position != null) return position;
+        }
+        return BEFORE_FIRST + 1;
+    }
+
+    private long lastPosition() {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            Long position = positions.get(keyProvider.keyOf(items.get(i)));
+            if (position != null) return position;
+        }
+        return BEFORE_FIRST;
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < items.size(); i++) {
+            if (key.equals(keyProvider.keyOf(items.get(i)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void publish() {
+        int placeholders = endReached ? 0 : prefetchDistance;
+        List<T> snapshot = new ArrayList<>(items.size() + placeholders);
+        snapshot.addAll(items);
+        for (int i = 0; i < placeholders; i++) {
+            snapshot.add(null);
+        }
+        onWindowChanged.onWindowChanged(snapshot);
+    }
+}
@@ -0,0 +1,206 @@
+// TaskListPipeline.java - Sorts, filters and groups the task list off the main thread
+package com.taskshabitstracker.paging;
+
+import com.taskshabitstracker.domain.SortedTaskList;
+import com.taskshabitstracker.domain.TaskQuery;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * TaskListPipeline - Keeps a SortedTaskList on the lists executor and publishes
+ * snapshots of it on the main thread
+ * The tasks are read from the source when the pipeline starts and on reload();
+ * changing the query re-sorts the tasks already held, and put()/remove() move
+ * single tasks, so optimistic edits show up without sorting the list again.
+ * Edits made while a load is running are applied once it lands.
+ * Must be used from the main thread
+ */
+public class TaskListPipeline {
+    private static final String TAG = "TaskListPipeline";
+
+    /**
+     * Loads every task in server order
+     */
+    public interface TaskSource {
+        void loadAll(LoadCallback callback);
+    }
+
+    public interface LoadCallback {
+        void onLoaded(List<Task> tasks);
+        void onError(String error);
+    }
+
+    public interface OnListChanged {
+        void onListChanged(SortedTaskList.Snapshot snapshot);
+    }
+
+    public interface OnLoadError {
+        void onLoadError(String error);
+    }
+
+    private interface Edit {
+        void applyTo(SortedTaskList list);
+    }
+
+    private final TaskSource source;
+    private final OnListChanged onListChanged;
+    private final OnLoadError onLoadError;
+    private final Executor executor;
+    private final Executor mainThread;
+
+    // Main thread
+    private TaskQuery query;
+    private int generation; // bumped by stop so snapshots of a stopped pipeline are ignored
+    private int loads; // bumped by every load so only the latest one is applied
+
+    // Lists executor
+    private SortedTaskList list;
+    private final List<Edit> pendingEdits = new ArrayList<>();
+    private boolean loading;
+
+    public TaskListPipeline(TaskSource source, OnListChanged onListChanged, OnLoadError onLoadError) {
+        this.source = source;
+        this.onListChanged = onListChanged;
+        this.onLoadError = onLoadError;
+        executor = AppExecutors.getInstance().lists();
+        mainThread = AppExecutors.getInstance().mainThread();
+    }
+
+    public boolean isRunning() {
+        return query != null;
+    }
+
+    /**
+     * Start with a query, or switch to another one without reading the tasks again
+     */
+    public void setQuery(TaskQuery newQuery) {
+        boolean starting = query == null;
+        query = newQuery;
+        if (starting) {
+            load();
+            return;
+        }
+        int gen = generation;
+        executor.execute(() -> {
+            if (list == null) return; // the load applies the latest query when it lands
+            list.setQuery(newQuery);
+            publish(gen);
+        });
+    }
+
+    /**
+     * Read the tasks again, e.g. after a sync rewrote the store
+     * The current snapshot stays on screen until the new one is ready
+     */
+    public void reload() {
+        if (query != null) load();
+    }
+
+    /**
+     * Stop publishing and drop the held tasks
+     */
+    public void stop() {
+        if (query == null) return;
+        query = null;
+        generation++;
+        loads++;
+        executor.execute(() -> {
+            list = null;
+            loading = false;
+            pendingEdits.clear();
+        });
+    }
+
+    /**
+     * Add a task or replace the one with the same id
+     */
+    public void put(Task task) {
+        edit(list -> list.put(task));
+    }
+
+    public void remove(String taskId) {
+        edit(list -> list.remove(taskId));
+    }
+
+    /**
+     * Apply a bulk edit as one change, so one snapshot is published
+     */
+    public void putAll(Collection<Task> tasks) {
+        List<Task> copy = new ArrayList<>(tasks);
+        edit(list -> {
+            for (Task task : copy) {
+                list.put(task);
+            }
+        });
+    }
+
+    public void removeAll(Collection<String> taskIds) {
+        List<String> copy = new ArrayList<>(taskIds);
+        edit(list -> {
+            for (String id : copy) {
+                list.remove(id);
+            }
+        });
+    }
+
+    private void edit(Edit edit) {
+        if (query == null) return;
+        int gen = generation;
+        executor.execute(() -> {
+            if (loading) pendingEdits.add(edit);
+            if (list == null) return;
+            edit.applyTo(list);
+            list.setToday(DateUtils.today());
+            publish(gen);
+        });
+    }
+
+    private void load() {
+        int gen = generation;
+        int load = ++loads;
+        executor.execute(() -> loading = true);
+        source.loadAll(new LoadCallback() {
+            @Override
+            public void onLoaded(List<Task> tasks) {
+                if (load != loads) return;
+                TaskQuery loadedQuery = query;
+                executor.execute(() -> {
+                    list = new SortedTaskList(loadedQuery, DateUtils.today());
+                    list.reset(tasks);
+                    // Edits made while the tasks were read may or may not be in them; put and remove are idempotent
+                    for (Edit edit : pendingEdits) {
+                        edit.applyTo(list);
+                    }
+                    pendingEdits.clear();
+                    loading = false;
+                    AppLog.d(TAG, "Task list sorted", "tasks", tasks.size(), "shown", list.size());
+                    publish(gen);
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                if (load != loads) return;
+                executor.execute(() -> {
+                    loading = false;
+                    pendingEdits.clear();
+                });
+                onLoadError.onLoadError(error);
+            }
+        });
+    }
+
+    // On the lists executor
+    private void publish(int gen) {
+        SortedTaskList.Snapshot snapshot = list.snapshot();
+        mainThread.execute(() -> {
+            if (gen == generation) onListChanged.onListChanged(snapshot);
+        });
+    }
+}
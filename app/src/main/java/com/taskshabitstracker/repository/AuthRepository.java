@@ -2,11 +2,11 @@
 package com.taskshabitstracker.repository;
 
 import android.content.Context;
-import android.util.Log;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
 import com.android.volley.toolbox.JsonObjectRequest;
 import com.taskshabitstracker.network.VolleySingleton;
+import com.taskshabitstracker.utils.AppLog;
 
 /**
  * AuthRepository - Handles all authentication-related API calls
@@ -36,14 +36,19 @@ public class AuthRepository {
                 url,
                 null,
                 response -> {
-                    Log.d(TAG, "Logout successful: " + response.toString());
+                    AppLog.d(TAG, "Logout successful");
                     onSuccess.run();
                 },
                 error -> {
-                    Log.e(TAG, "Logout error: " + error.toString());
+                    AppLog.e(TAG, "Logout error", "error", error);
                     onError.onError(error.getMessage());
                 }
-        );
+        ) {
+            @Override
+            public Priority getPriority() {
+                return Priority.IMMEDIATE;
+            }
+        };
 
         requestQueue.add(request);
     }
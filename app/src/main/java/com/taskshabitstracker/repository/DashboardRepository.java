@@ -2,58 +2,106 @@
 package com.taskshabitstracker.repository;
 
 import android.content.Context;
-import android.util.Log;
+import android.content.SharedPreferences;
+import androidx.lifecycle.LiveData;
+import com.android.volley.ParseError;
 import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.JsonObjectRequest;
 import com.taskshabitstracker.model.DashboardStats;
-import com.taskshabitstracker.network.VolleySingleton;
-import org.json.JSONObject;
+import com.taskshabitstracker.network.ModelJsonReader;
+import com.taskshabitstracker.network.ModelRequest;
+import com.taskshabitstracker.network.RequestCoalescer;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.SessionManager;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * DashboardRepository - Dashboard stats, counted locally and reconciled with the server
+ * One instance serves the whole process; the stats themselves live in StatsAggregator
+ */
 public class DashboardRepository {
     private static final String TAG = "DashboardRepository";
     private static final String BASE_URL = "http://10.0.2.2:8080/api/dashboard";
+    private static final long RECONCILE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    private static final String KEY_RECONCILED_AT = "reconciled_at";
 
-    private final RequestQueue requestQueue;
+    private static DashboardRepository instance;
 
-    public DashboardRepository(Context context) {
-        requestQueue = VolleySingleton.getInstance(context).getRequestQueue();
+    private final RequestCoalescer coalescer;
+    // Bumped by invalidate(), so a reconciliation that was already under way is not counted
+    private final AtomicInteger generation = new AtomicInteger();
+    private final StatsAggregator aggregator;
+    private final SharedPreferences prefs;
+    private final AppExecutors executors;
+
+    private DashboardRepository(Context context) {
+        coalescer = RequestCoalescer.getInstance(context);
+        aggregator = StatsAggregator.getInstance(context);
+        prefs = context.getSharedPreferences("StatsPrefs", Context.MODE_PRIVATE);
+        executors = AppExecutors.getInstance();
+        SessionManager.getInstance(context).observeSessionEnd(this::invalidate);
     }
 
-    public void getDashboardStats(OnSuccessCallback<DashboardStats> onSuccess, OnErrorCallback onError) {
-        String url = BASE_URL + "/stats";
+    public static synchronized DashboardRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new DashboardRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
 
-        JsonObjectRequest request = new JsonObjectRequest(
-                Request.Method.GET,
-                url,
-                null,
-                response -> {
-                    try {
-                        DashboardStats stats = parseDashboardStats(response);
-                        onSuccess.onSuccess(stats);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing dashboard stats", e);
-                        onError.onError("Error parsing dashboard data");
+    /**
+     * Stats computed from the local store, updated as tasks and habits change
+     */
+    public LiveData<DashboardStats> getStats() {
+        executors.diskIO().execute(aggregator::ensureLoaded);
+        return aggregator.getStats();
+    }
+
+    /**
+     * Fetch the server's stats if the last reconciliation is older than the interval
+     * Points and streak are taken from the server; counts stay local
+     */
+    public void reconcileIfStale(OnErrorCallback onError) {
+        if (!isStale()) return;
+        int started = generation.get();
+        getDashboardStats(
+                stats -> executors.diskIO().execute(() -> {
+                    aggregator.reconcile(stats);
+                    if (generation.get() == started) {
+                        prefs.edit().putLong(KEY_RECONCILED_AT, System.currentTimeMillis()).apply();
                     }
-                },
-                error -> {
-                    Log.e(TAG, "Dashboard stats error: " + error.toString());
-                    onError.onError("Failed to load dashboard data");
-                }
-        );
+                }),
+                onError);
+    }
+
+    public boolean isStale() {
+        long last = prefs.getLong(KEY_RECONCILED_AT, 0);
+        return System.currentTimeMillis() - last >= RECONCILE_INTERVAL_MILLIS;
+    }
 
-        requestQueue.add(request);
+    /**
+     * The server's points or streak changed, e.g. points were awarded: reconcile on next use
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        prefs.edit().remove(KEY_RECONCILED_AT).apply();
     }
 
-    private DashboardStats parseDashboardStats(JSONObject response) throws Exception {
-        return new DashboardStats(
-                response.optInt("points", 0),
-                response.optInt("streak", 0),
-                response.optInt("completedTasks", 0),
-                response.optInt("totalTasks", 0),
-                response.optInt("completedHabits", 0),
-                response.optInt("totalHabits", 0)
-        );
+    public void getDashboardStats(OnSuccessCallback<DashboardStats> onSuccess, OnErrorCallback onError) {
+        String url = BASE_URL + "/stats";
+
+        coalescer.<DashboardStats>enqueue("GET " + url,
+                // Decoded on the network thread; the main thread only gets the stats
+                (onDone, onFailed) -> new ModelRequest<>(Request.Method.GET, url,
+                        ModelJsonReader::readDashboardStats, onDone, onFailed)
+                        .setPriority(Request.Priority.HIGH),
+                onSuccess::onSuccess,
+                error -> {
+                    AppLog.e(TAG, "Dashboard stats error", "error", error);
+                    onError.onError(error instanceof ParseError
+                            ? "Error parsing dashboard data" : "Failed to load dashboard data");
+                });
     }
 
     public interface OnSuccessCallback<T> {
@@ -1,101 +1,303 @@
 package com.taskshabitstracker.repository;
 
 import android.content.Context;
-import android.util.Log;
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.JsonArrayRequest;
-import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.StringRequest;
+import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import com.android.volley.Response;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.database.HabitDao;
+import com.taskshabitstracker.database.OutboxDao;
+import com.taskshabitstracker.database.SyncStateDao;
+import com.taskshabitstracker.domain.CacheEntry;
 import com.taskshabitstracker.model.Habit;
-import com.taskshabitstracker.network.VolleySingleton;
-import org.json.JSONArray;
+import com.taskshabitstracker.network.DeltaSyncRequest;
+import com.taskshabitstracker.network.ModelJsonReader;
+import com.taskshabitstracker.network.RequestCoalescer;
+import com.taskshabitstracker.notifications.ReminderScheduler;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
+import com.taskshabitstracker.utils.SessionManager;
+import com.taskshabitstracker.workers.OutboxWorker;
+import org.json.JSONException;
 import org.json.JSONObject;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * HabitsRepository - Habits in the local store, kept in sync with the server
+ * One instance serves the whole process and holds the last list read from the
+ * store, so a screen opened again shows it without touching the disk. The list
+ * counts as fresh for SYNC_TTL_MILLIS after the server confirmed it; every local
+ * write invalidates it.
+ */
 public class HabitsRepository {
     private static final String TAG = "HabitsRepository";
     private static final String BASE_URL = "http://10.0.2.2:8080/api/habits";
+    private static final long SYNC_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
 
-    private final RequestQueue requestQueue;
+    private static HabitsRepository instance;
 
-    public HabitsRepository(Context context) {
-        requestQueue = VolleySingleton.getInstance(context).getRequestQueue();
+    private final Context appContext;
+    private final RequestCoalescer coalescer;
+    private final CacheEntry<List<Habit>> habitCache = new CacheEntry<>(SYNC_TTL_MILLIS);
+    private final SessionManager sessionManager;
+    private final AppDatabase database;
+    private final HabitDao habitDao;
+    private final SyncStateDao syncStateDao;
+    private final OutboxDao outboxDao;
+    private final ReminderScheduler reminders;
+    private final StatsAggregator stats;
+    private final SearchRepository search;
+    private final AppExecutors executors;
+
+    private HabitsRepository(Context context) {
+        appContext = context.getApplicationContext();
+        coalescer = RequestCoalescer.getInstance(context);
+        sessionManager = SessionManager.getInstance(context);
+        database = AppDatabase.getInstance(context);
+        habitDao = database.habitDao();
+        syncStateDao = database.syncStateDao();
+        outboxDao = database.outboxDao();
+        reminders = ReminderScheduler.getInstance(context);
+        stats = StatsAggregator.getInstance(context);
+        search = SearchRepository.getInstance(context);
+        executors = AppExecutors.getInstance();
+        sessionManager.observeSessionEnd(this::clearCache);
+        // A server id or a rejected change rewrote stored habits
+        outboxDao.addListener((entityType, storeChanged) -> {
+            if (storeChanged && OutboxDao.ENTITY_HABIT.equals(entityType)) invalidateHabits();
+        });
+    }
+
+    public static synchronized HabitsRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new HabitsRepository(context.getApplicationContext());
+        }
+        return instance;
     }
 
-    public void getHabits(DashboardRepository.OnSuccessCallback<List<Habit>> onSuccess,
+    /**
+     * Offline-first load: cached habits are delivered through onCached right away
+     * if held in memory, else as soon as they are read from disk. Unless they are
+     * still fresh, a conditional delta sync is then merged into them and delivered
+     * through onSuccess; fresh habits go to onSuccess as they are
+     */
+    public void getHabits(DashboardRepository.OnSuccessCallback<List<Habit>> onCached,
+                          DashboardRepository.OnSuccessCallback<List<Habit>> onSuccess,
                           DashboardRepository.OnErrorCallback onError) {
-        JsonArrayRequest request = new JsonArrayRequest(
-                Request.Method.GET,
-                BASE_URL,
-                null,
-                response -> {
-                    try {
-                        List<Habit> habits = parseHabitsArray(response);
-                        Log.d(TAG, "Habits fetched: " + habits.size());
-                        onSuccess.onSuccess(habits);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing habits", e);
-                        onError.onError("Error parsing habits data");
-                    }
-                },
-                error -> {
-                    Log.e(TAG, "Habits error: " + error.toString());
-                    onError.onError("Failed to load habits");
+        // Called on the main thread, so a screen opened again renders in its first frame
+        List<Habit> held = habitCache.get();
+        if (held != null) {
+            if (!held.isEmpty()) onCached.onSuccess(held);
+            if (habitCache.isFresh(SystemClock.elapsedRealtime())) {
+                onSuccess.onSuccess(held);
+                return;
+            }
+        }
+        long generation = habitCache.generation();
+        executors.diskIO().execute(() -> {
+            List<Habit> cached = habitDao.getAll();
+            habitCache.update(cached);
+            SyncStateDao.SyncState syncState = syncStateDao.get(SyncStateDao.RESOURCE_HABITS);
+            executors.mainThread().execute(() -> {
+                if (held == null && !cached.isEmpty()) {
+                    onCached.onSuccess(cached);
                 }
-        );
+                // Without cached rows a delta would have nothing to apply to
+                refreshHabits(cached, cached.isEmpty() ? new SyncStateDao.SyncState(null, null) : syncState,
+                        synced -> {
+                            habitCache.markFresh(SystemClock.elapsedRealtime(), generation);
+                            onSuccess.onSuccess(synced);
+                        }, onError);
+            });
+        });
+    }
 
-        requestQueue.add(request);
+    /**
+     * True while getHabits would answer from memory without a sync
+     */
+    public boolean hasFreshHabits() {
+        return habitCache.isFresh(SystemClock.elapsedRealtime());
     }
 
-    public void toggleHabitCompletion(Habit habit, Runnable onSuccess, DashboardRepository.OnErrorCallback onError) {
-        String url = BASE_URL + "/" + habit.getId() + "/toggle";
+    /**
+     * Read one habit from the local cache, e.g. for the detail screen
+     */
+    public void getHabit(String habitId, DashboardRepository.OnSuccessCallback<Habit> onSuccess,
+                         DashboardRepository.OnErrorCallback onError) {
+        executors.diskIO().execute(() -> {
+            Habit habit = habitDao.get(habitId);
+            executors.mainThread().execute(() -> {
+                if (habit != null) {
+                    onSuccess.onSuccess(habit);
+                } else {
+                    onError.onError("Habit not found");
+                }
+            });
+        });
+    }
 
-        JsonObjectRequest request = new JsonObjectRequest(
-                Request.Method.PUT,
+    private void refreshHabits(List<Habit> cached, SyncStateDao.SyncState syncState,
+                               DashboardRepository.OnSuccessCallback<List<Habit>> onSuccess,
+                               DashboardRepository.OnErrorCallback onError) {
+        String url = DeltaSyncRequest.withCursor(BASE_URL, syncState.cursor);
+        // Concurrent loads share one sync; a null result means nothing changed
+        coalescer.<List<Habit>>enqueue("GET " + url + " " + syncState.etag,
+                (onDone, onFailed) -> createSyncRequest(url, syncState, onDone, onFailed),
+                merged -> onSuccess.onSuccess(merged != null ? merged : cached),
+                error -> {
+                    AppLog.e(TAG, "Habits error", "error", error);
+                    onError.onError("Failed to load habits");
+                });
+    }
+
+    private DeltaSyncRequest<Habit> createSyncRequest(String url, SyncStateDao.SyncState syncState,
+                                                      Response.Listener<List<Habit>> onSynced,
+                                                      Response.ErrorListener onError) {
+        return new DeltaSyncRequest<>(
                 url,
-                null,
-                response -> {
-                    Log.d(TAG, "Toggle response: " + response.toString());
-                    onSuccess.run();
+                syncState.etag,
+                sessionManager.getCookieHeaders(),
+                ModelJsonReader::readHabit,
+                result -> {
+                    if (result.notModified) {
+                        AppLog.d(TAG, "Habits not modified since last sync");
+                        onSynced.onResponse(null);
+                        return;
+                    }
+                    List<Habit> changed = result.items;
+                    executors.diskIO().execute(() -> {
+                        // Rows with queued mutations keep their optimistic local version
+                        Set<String> pinnedIds = outboxDao.getPendingIds(OutboxDao.ENTITY_HABIT);
+                        if (result.fullSnapshot) {
+                            habitDao.replaceAll(changed, pinnedIds);
+                            reminders.reload();
+                            search.reloadHabits();
+                        } else {
+                            habitDao.applyDelta(changed, result.deleted, pinnedIds);
+                            for (Habit habit : changed) {
+                                if (pinnedIds.contains(habit.getId())) continue;
+                                reminders.onHabitSaved(habit);
+                                search.onHabitSaved(habit);
+                            }
+                            for (String id : result.deleted) {
+                                if (pinnedIds.contains(id)) continue;
+                                reminders.onHabitRemoved(id);
+                                search.onHabitRemoved(id);
+                            }
+                        }
+                        syncStateDao.save(SyncStateDao.RESOURCE_HABITS, result.etag, result.cursor);
+                        stats.recountHabits();
+                        List<Habit> merged = habitDao.getAll();
+                        habitCache.update(merged);
+                        AppLog.d(TAG, "Habits synced", "changed", changed.size(),
+                                "deleted", result.deleted.size(), "total", merged.size());
+                        executors.mainThread().execute(() -> onSynced.onResponse(merged));
+                    });
                 },
-                error -> {
-                    Log.e(TAG, "Toggle error: " + error.toString());
-                    onError.onError("Failed to update habit");
-                }
+                onError
         );
+    }
 
-        requestQueue.add(request);
+    /**
+     * Store the toggled habit and queue the toggle in the outbox
+     * Only the changed day is sent, so the server can apply it to its copy of the history.
+     * onSuccess runs once the change is durable locally; the server is updated by OutboxWorker
+     * @param day the epoch day that was toggled
+     */
+    public void toggleHabitCompletion(Habit habit, int day, Runnable onSuccess,
+                                      DashboardRepository.OnErrorCallback onError) {
+        String payload;
+        try {
+            payload = togglePayload(habit, day);
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error creating JSON for habit toggle", e);
+            onError.onError("Failed to update habit");
+            return;
+        }
+        enqueueMutation(() -> {
+                    habitDao.upsert(habit);
+                    reminders.onHabitSaved(habit);
+                    // Only today's completions are counted
+                    if (day == DateUtils.today()) stats.onHabitToggled(habit.getHistory().isCompleted(day));
+                }, habit.getId(), OutboxDao.OP_TOGGLE, payload,
+                onSuccess, onError, "Failed to update habit");
     }
 
-    public void deleteHabit(Habit habit, Runnable onSuccess, DashboardRepository.OnErrorCallback onError) {
-        String url = BASE_URL + "/" + habit.getId();
+    /**
+     * Store the toggled habits and queue their toggles of the given day as one transaction
+     * Either every habit is saved or none is; OutboxWorker sends the toggles as one batch request
+     */
+    public void toggleHabits(List<Habit> toggled, int day, Runnable onSuccess,
+                             DashboardRepository.OnErrorCallback onError) {
+        List<OutboxDao.Mutation> mutations = new ArrayList<>(toggled.size());
+        try {
+            for (Habit habit : toggled) {
+                mutations.add(new OutboxDao.Mutation(habit.getId(), OutboxDao.OP_TOGGLE, togglePayload(habit, day)));
+            }
+        } catch (Exception e) {
+            AppLog.e(TAG, "Error creating JSON for habit toggles", e);
+            onError.onError("Failed to update habits");
+            return;
+        }
+        enqueueMutations(() -> {
+                    for (Habit habit : toggled) {
+                        habitDao.upsert(habit);
+                    }
+                }, () -> {
+                    for (Habit habit : toggled) {
+                        reminders.onHabitSaved(habit);
+                    }
+                }, mutations, onSuccess, onError, "Failed to update habits");
+    }
 
-        StringRequest request = new StringRequest(
-                Request.Method.DELETE,
-                url,
-                response -> {
-                    Log.d(TAG, "Delete response: " + (response != null ? response : "No content"));
-                    onSuccess.run();
-                },
-                error -> {
-                    Log.e(TAG, "Delete error: ", error);
-                    if (error.networkResponse != null) {
-                        Log.e(TAG, "Status code: " + error.networkResponse.statusCode);
-                        Log.e(TAG, "Response data: " + new String(error.networkResponse.data));
+    private static String togglePayload(Habit habit, int day) throws JSONException {
+        return new JSONObject()
+                .put(OutboxDao.TOGGLE_DATE, DateUtils.formatEpochDay(day))
+                .put(OutboxDao.TOGGLE_COMPLETED, habit.getHistory().isCompleted(day))
+                .toString();
+    }
+
+    /**
+     * Delete the habits locally and queue their deletion as one transaction
+     */
+    public void deleteHabits(List<Habit> habits, Runnable onSuccess, DashboardRepository.OnErrorCallback onError) {
+        List<OutboxDao.Mutation> mutations = new ArrayList<>(habits.size());
+        for (Habit habit : habits) {
+            mutations.add(new OutboxDao.Mutation(habit.getId(), OutboxDao.OP_DELETE, null));
+        }
+        enqueueMutations(() -> {
+                    for (Habit habit : habits) {
+                        habitDao.delete(habit.getId());
                     }
-                    onError.onError("Failed to delete habit");
-                }
-        );
+                }, () -> {
+                    for (Habit habit : habits) {
+                        reminders.onHabitRemoved(habit.getId());
+                        search.onHabitRemoved(habit.getId());
+                    }
+                }, mutations, onSuccess, onError, "Failed to delete habits");
+    }
 
-        requestQueue.add(request);
+    public void deleteHabit(Habit habit, Runnable onSuccess, DashboardRepository.OnErrorCallback onError) {
+        enqueueMutation(() -> {
+                    habitDao.delete(habit.getId());
+                    reminders.onHabitRemoved(habit.getId());
+                    search.onHabitRemoved(habit.getId());
+                    stats.onHabitDeleted(habit.isCompletedToday());
+                }, habit.getId(), OutboxDao.OP_DELETE, null,
+                onSuccess, onError, "Failed to delete habit");
     }
 
+    /**
+     * Store the new habit under its local id and queue its creation
+     * The local id is swapped for the server's once the outbox entry is sent
+     */
     public void addHabit(Habit habit, DashboardRepository.OnSuccessCallback<Habit> onSuccess,
                          DashboardRepository.OnErrorCallback onError) {
-        String url = BASE_URL;
-
         try {
             JSONObject jsonHabit = new JSONObject();
             jsonHabit.put("name", habit.getName());
@@ -103,52 +305,105 @@ public class HabitsRepository {
             jsonHabit.put("streak", habit.getStreak());
             jsonHabit.put("completedToday", habit.isCompletedToday());
 
-            JsonObjectRequest request = new JsonObjectRequest(
-                    Request.Method.POST,
-                    url,
-                    jsonHabit,
-                    response -> {
-                        try {
-                            Habit newHabit = new Habit(
-                                    response.getString("id"),
-                                    response.getString("name"),
-                                    response.optString("description", ""),
-                                    response.optInt("streak", 0),
-                                    response.optBoolean("completedToday", false)
-                            );
-                            Log.d(TAG, "Habit added: " + newHabit.getId());
-                            onSuccess.onSuccess(newHabit);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing new habit", e);
-                            onError.onError("Error parsing new habit");
-                        }
-                    },
-                    error -> {
-                        Log.e(TAG, "Add habit error: " + error.toString());
-                        onError.onError("Failed to add habit");
-                    }
-            );
-
-            requestQueue.add(request);
+            enqueueMutation(() -> {
+                        habitDao.upsert(habit);
+                        reminders.onHabitSaved(habit);
+                        search.onHabitSaved(habit);
+                        stats.onHabitAdded(habit.isCompletedToday());
+                    }, habit.getId(), OutboxDao.OP_ADD, jsonHabit.toString(),
+                    () -> onSuccess.onSuccess(habit), onError, "Failed to add habit");
         } catch (Exception e) {
-            Log.e(TAG, "Error creating JSON for habit", e);
+            AppLog.e(TAG, "Error creating JSON for habit", e);
             onError.onError("Error creating habit data");
         }
     }
 
-    private List<Habit> parseHabitsArray(JSONArray response) throws Exception {
-        List<Habit> habits = new ArrayList<>();
-        for (int i = 0; i < response.length(); i++) {
-            JSONObject habitJson = response.getJSONObject(i);
-            Habit habit = new Habit(
-                    habitJson.getString("id"),
-                    habitJson.getString("name"),
-                    habitJson.optString("description", ""),
-                    habitJson.optInt("streak", 0),
-                    habitJson.optBoolean("completedToday", false)
-            );
-            habits.add(habit);
-        }
-        return habits;
+    private void enqueueMutation(Runnable localWrite, String habitId, String op, String payload,
+                                 Runnable onQueued, DashboardRepository.OnErrorCallback onError,
+                                 String errorMsg) {
+        executors.diskIO().execute(() -> {
+            try {
+                localWrite.run();
+                outboxDao.enqueue(OutboxDao.ENTITY_HABIT, habitId, op, payload);
+            } catch (SQLiteException e) {
+                AppLog.e(TAG, "Error queueing mutation", e, "op", op, "habitId", habitId);
+                executors.mainThread().execute(() -> onError.onError(errorMsg));
+                return;
+            }
+            invalidateHabits();
+            OutboxWorker.schedule(appContext);
+            executors.mainThread().execute(onQueued);
+        });
+    }
+
+    /**
+     * Run the store writes and the outbox inserts of a bulk edit in one transaction
+     * afterCommit updates the in-memory indexes once the writes are durable
+     */
+    private void enqueueMutations(Runnable localWrites, Runnable afterCommit, List<OutboxDao.Mutation> mutations,
+                                  Runnable onQueued, DashboardRepository.OnErrorCallback onError,
+                                  String errorMsg) {
+        executors.diskIO().execute(() -> {
+            try {
+                database.runInTransaction(() -> {
+                    localWrites.run();
+                    outboxDao.enqueueAll(OutboxDao.ENTITY_HABIT, mutations);
+                });
+            } catch (SQLiteException e) {
+                AppLog.e(TAG, "Error queueing bulk edit", e, "habits", mutations.size());
+                executors.mainThread().execute(() -> onError.onError(errorMsg));
+                return;
+            }
+            afterCommit.run();
+            stats.recountHabits();
+            invalidateHabits();
+            OutboxWorker.schedule(appContext);
+            executors.mainThread().execute(onQueued);
+        });
+    }
+
+    /**
+     * Observe unsent habit mutations
+     * The observer gets the ids with queued changes, plus the cached list whenever the
+     * outbox rewrote it (a server id was assigned or a change was rejected)
+     * @return a handle to pass to removePendingObserver
+     */
+    public OutboxDao.OnOutboxChangedListener addPendingObserver(OnPendingChanged observer) {
+        OutboxDao.OnOutboxChangedListener listener = (entityType, storeChanged) -> {
+            if (!OutboxDao.ENTITY_HABIT.equals(entityType)) return;
+            executors.diskIO().execute(() -> {
+                Set<String> pendingIds = outboxDao.getPendingIds(OutboxDao.ENTITY_HABIT);
+                List<Habit> habits = storeChanged ? habitDao.getAll() : null;
+                executors.mainThread().execute(() -> observer.onPendingChanged(pendingIds, habits));
+            });
+        };
+        outboxDao.addListener(listener);
+        // Deliver the current state, e.g. entries left over from before a process restart
+        listener.onOutboxChanged(OutboxDao.ENTITY_HABIT, false);
+        return listener;
+    }
+
+    public void removePendingObserver(OutboxDao.OnOutboxChangedListener listener) {
+        outboxDao.removeListener(listener);
+    }
+
+    /**
+     * The stored habits changed locally: the next load goes to the server, and the
+     * held list is read again
+     */
+    public void invalidateHabits() {
+        habitCache.invalidate();
+        executors.diskIO().execute(() -> habitCache.update(habitDao.getAll()));
+    }
+
+    /**
+     * Drop the held list; the store it came from was cleared
+     */
+    public void clearCache() {
+        habitCache.clear();
+    }
+
+    public interface OnPendingChanged {
+        void onPendingChanged(Set<String> pendingIds, @Nullable List<Habit> habits);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+// NavigationPrefetcher.java - Warms the data of the tabs the user is likely to open next
+package com.taskshabitstracker.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import com.taskshabitstracker.domain.NavigationModel;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.network.NetworkMetrics;
+import com.taskshabitstracker.paging.PagedWindow;
+import com.taskshabitstracker.utils.AppLog;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NavigationPrefetcher - Learns which tab tends to follow which (see NavigationModel)
+ * and, shortly after each destination change, brings the local store up to date for
+ * the likely next tabs so they open on fresh rows instead of waiting for the server
+ * Nothing is prefetched on a metered network, in battery saver, or on a low battery
+ * that is not charging. Each prefetch is charged its endpoint's average response size
+ * (from NetworkMetrics) against an hourly byte budget set in the settings; a tab that
+ * would go over what is left is skipped.
+ * Must be used from the main thread
+ */
+public class NavigationPrefetcher {
+    public static final String DASHBOARD = "dashboard";
+    public static final String TASKS = "tasks";
+    public static final String HABITS = "habits";
+
+    // Keys in the "TasksPrefs" settings
+    public static final String PREF_ENABLED = "enablePrefetch";
+    public static final String PREF_BUDGET_KB = "prefetchBudgetKb";
+    public static final int DEFAULT_BUDGET_KB = 512;
+
+    private static final String TAG = "NavigationPrefetcher";
+    private static final List<String> TABS = Arrays.asList(DASHBOARD, TASKS, HABITS);
+    private static final double MIN_PROBABILITY = 0.3;
+    // Lets the requests of the screen that was just opened go first
+    private static final long DELAY_MILLIS = 1500;
+    private static final long MIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final long BUDGET_WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Charged for an endpoint that has not answered yet in this process
+    private static final long DEFAULT_COST_BYTES = 16 * 1024;
+    private static final int LOW_BATTERY_PERCENT = 20;
+    private static final int TASK_PAGE_SIZE = 50;
+    private static final String KEY_MODEL = "transitions";
+
+    private static NavigationPrefetcher instance;
+
+    private final Context appContext;
+    private final SharedPreferences settings;
+    private final SharedPreferences modelPrefs;
+    private final NavigationModel model;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable prefetchNext = this::prefetchNext;
+    private final Map<String, Long> lastPrefetched = new HashMap<>();
+    private String current;
+    private long windowStart;
+    private long spentBytes;
+
+    private NavigationPrefetcher(Context context) {
+        appContext = context.getApplicationContext();
+        settings = appContext.getSharedPreferences("TasksPrefs", Context.MODE_PRIVATE);
+        modelPrefs = appContext.getSharedPreferences("NavigationPrefs", Context.MODE_PRIVATE);
+        model = NavigationModel.decode(modelPrefs.getString(KEY_MODEL, null));
+    }
+
+    public static synchronized NavigationPrefetcher getInstance(Context context) {
+        if (instance == null) {
+            instance = new NavigationPrefetcher(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Record a move to a destination and schedule prefetching from it
+     * @param destination one of the tab names, or any other name for screens that are not prefetched
+     */
+    public void onDestinationChanged(String destination) {
+        if (current != null && !current.equals(destination)) {
+            model.record(current, destination);
+            modelPrefs.edit().putString(KEY_MODEL, model.encode()).apply();
+        }
+        current = destination;
+        handler.removeCallbacks(prefetchNext);
+        handler.postDelayed(prefetchNext, DELAY_MILLIS);
+    }
+
+    /**
+     * Drop a scheduled prefetch, e.g. when the app goes to the background
+     */
+    public void cancel() {
+        handler.removeCallbacks(prefetchNext);
+    }
+
+    private void prefetchNext() {
+        String from = current;
+        if (from == null || !settings.getBoolean(PREF_ENABLED, true)) return;
+        String skipReason = skipReason();
+        if (skipReason != null) {
+            AppLog.d(TAG, "Prefetch skipped", "reason", skipReason);
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        for (String next : model.likelyNext(from, TABS, MIN_PROBABILITY)) {
+            Long last = lastPrefetched.get(next);
+            if (last != null && now - last < MIN_INTERVAL_MILLIS) continue;
+            // The tab would be served from the repositories' caches without a request
+            if (isFresh(next)) continue;
+            long cost = estimateCost(next);
+            if (!charge(cost, now)) {
+                AppLog.d(TAG, "Prefetch over budget", "destination", next, "bytes", cost);
+                continue;
+            }
+            lastPrefetched.put(next, now);
+            AppLog.d(TAG, "Prefetching", "destination", next, "bytes", cost);
+            prefetch(next);
+        }
+    }
+
+    @Nullable
+    private String skipReason() {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || connectivity.getActiveNetwork() == null) return "offline";
+        if (connectivity.isActiveNetworkMetered()) return "metered";
+        PowerManager power = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+        if (power != null && power.isPowerSaveMode()) return "battery saver";
+        BatteryManager battery = (BatteryManager) appContext.getSystemService(Context.BATTERY_SERVICE);
+        if (battery != null && !battery.isCharging()) {
+            int level = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+            if (level > 0 && level < LOW_BATTERY_PERCENT) return "low battery";
+        }
+        return null;
+    }
+
+    private boolean isFresh(String destination) {
+        switch (destination) {
+            case TASKS:
+                return TasksRepository.getInstance(appContext).hasFreshTasks();
+            case HABITS:
+                return HabitsRepository.getInstance(appContext).hasFreshHabits();
+            default:
+                return !DashboardRepository.getInstance(appContext).isStale();
+        }
+    }
+
+    private static long estimateCost(String destination) {
+        String endpoint = TASKS.equals(destination) ? "GET /api/tasks"
+                : HABITS.equals(destination) ? "GET /api/habits"
+                : "GET /api/dashboard/stats";
+        long average = NetworkMetrics.getInstance().averageResponseBytes(endpoint);
+        return average >= 0 ? average : DEFAULT_COST_BYTES;
+    }
+
+    private boolean charge(long cost, long now) {
+        if (windowStart == 0 || now - windowStart >= BUDGET_WINDOW_MILLIS) {
+            windowStart = now;
+            spentBytes = 0;
+        }
+        long budget = settings.getInt(PREF_BUDGET_KB, DEFAULT_BUDGET_KB) * 1024L;
+        if (spentBytes + cost > budget) return false;
+        spentBytes += cost;
+        return true;
+    }
+
+    // The same reads the screens start, so a screen opened mid-prefetch joins it in the coalescer,
+    // and they fill the same process-wide caches the screens are served from
+    private void prefetch(String destination) {
+        switch (destination) {
+            case TASKS:
+                TasksRepository tasks = TasksRepository.getInstance(appContext);
+                // Fetches the first page if the store does not have it yet, then a delta sync
+                tasks.loadTaskPage(PagedWindow.BEFORE_FIRST, false, TASK_PAGE_SIZE,
+                        new PagedWindow.LoadCallback<Task>() {
+                    @Override
+                    public void onLoaded(List<Task> items, long[] positions, boolean endReached) {
+                        tasks.syncTasks(changed -> AppLog.d(TAG, "Tasks prefetched", "changed", changed),
+                                error -> AppLog.e(TAG, "Task prefetch failed", "message", error));
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        AppLog.e(TAG, "Task prefetch failed", "message", error);
+                    }
+                });
+                break;
+            case HABITS:
+                HabitsRepository.getInstance(appContext).getHabits(cached -> { },
+                        synced -> AppLog.d(TAG, "Habits prefetched", "habits", synced.size()),
+                        error -> AppLog.e(TAG, "Habit prefetch failed", "message", error));
+                break;
+            default:
+                DashboardRepository dashboard = DashboardRepository.getInstance(appContext);
+                dashboard.getStats();
+                dashboard.reconcileIfStale(error -> AppLog.e(TAG, "Dashboard prefetch failed", "message", error));
+                break;
+        }
+    }
+}
@@ -2,56 +2,88 @@
 package com.taskshabitstracker.repository;
 
 import android.content.Context;
-import android.util.Log;
+import android.os.SystemClock;
 import com.android.volley.Request;
-import com.android.volley.RequestQueue;
-import com.android.volley.toolbox.JsonObjectRequest;
+import com.android.volley.ParseError;
+import com.taskshabitstracker.domain.CacheEntry;
 import com.taskshabitstracker.model.UserProfile;
-import com.taskshabitstracker.network.VolleySingleton;
+import com.taskshabitstracker.network.ModelJsonReader;
+import com.taskshabitstracker.network.ModelRequest;
+import com.taskshabitstracker.network.RequestCoalescer;
+import com.taskshabitstracker.utils.AppLog;
 import com.taskshabitstracker.utils.SessionManager;
-import org.json.JSONObject;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * ProfileRepository - The user's profile, held in memory for the whole process
+ * The last profile is shown at once and re-read from the server when older than
+ * PROFILE_TTL_MILLIS or invalidated, e.g. after points were awarded
+ */
 public class ProfileRepository {
     private static final String TAG = "ProfileRepository";
     private static final String BASE_URL = "http://10.0.2.2:8080/api/profile";
+    private static final long PROFILE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
 
-    private final RequestQueue requestQueue;
-    private final SessionManager sessionManager;
+    private static ProfileRepository instance;
 
-    public ProfileRepository(Context context) {
-        requestQueue = VolleySingleton.getInstance(context).getRequestQueue();
-        sessionManager = new SessionManager(context);
+    private final RequestCoalescer coalescer;
+    private final CacheEntry<UserProfile> profileCache = new CacheEntry<>(PROFILE_TTL_MILLIS);
+
+    private ProfileRepository(Context context) {
+        coalescer = RequestCoalescer.getInstance(context);
+        SessionManager.getInstance(context).observeSessionEnd(this::clearCache);
+    }
+
+    public static synchronized ProfileRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProfileRepository(context.getApplicationContext());
+        }
+        return instance;
     }
 
-    public void getUserProfile(DashboardRepository.OnSuccessCallback<UserProfile> onSuccess,
+    /**
+     * The held profile goes to onCached right away; unless it is fresh, the server's
+     * copy follows through onSuccess. A fresh profile goes to onSuccess as it is
+     */
+    public void getUserProfile(DashboardRepository.OnSuccessCallback<UserProfile> onCached,
+                               DashboardRepository.OnSuccessCallback<UserProfile> onSuccess,
                                DashboardRepository.OnErrorCallback onError) {
-        JsonObjectRequest request = new JsonObjectRequest(
-                Request.Method.GET,
-                BASE_URL,
-                null,
-                response -> {
-                    try {
-                        UserProfile profile = parseUserProfile(response);
-                        onSuccess.onSuccess(profile);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing profile", e);
-                        onError.onError("Error parsing profile data");
-                    }
+        UserProfile held = profileCache.get();
+        if (held != null) {
+            onCached.onSuccess(held);
+            if (profileCache.isFresh(SystemClock.elapsedRealtime())) {
+                onSuccess.onSuccess(held);
+                return;
+            }
+        }
+        long generation = profileCache.generation();
+        coalescer.<UserProfile>enqueue("GET " + BASE_URL,
+                // Decoded on the network thread; the main thread only gets the profile
+                (onDone, onFailed) -> new ModelRequest<>(Request.Method.GET, BASE_URL,
+                        ModelJsonReader::readUserProfile, onDone, onFailed)
+                        .setPriority(Request.Priority.HIGH),
+                profile -> {
+                    profileCache.put(profile, SystemClock.elapsedRealtime(), generation);
+                    onSuccess.onSuccess(profile);
                 },
                 error -> {
-                    Log.e(TAG, "Profile error: " + error.toString());
-                    onError.onError("Failed to load profile");
-                }
-        );
+                    AppLog.e(TAG, "Profile error", "error", error);
+                    onError.onError(error instanceof ParseError
+                            ? "Error parsing profile data" : "Failed to load profile");
+                });
+    }
 
-        requestQueue.add(request);
+    /**
+     * The server's profile changed, e.g. points were awarded: re-read it on next use
+     */
+    public void invalidate() {
+        profileCache.invalidate();
     }
 
-    private UserProfile parseUserProfile(JSONObject response) throws Exception {
-        return new UserProfile(
-                response.getString("email"),
-                response.optString("name", ""),
-                response.optString("profilePicture", "")
-        );
+    /**
+     * Forget the held profile, e.g. on logout
+     */
+    public void clearCache() {
+        profileCache.clear();
     }
 }
@@ -0,0 +1,186 @@
+// SearchRepository.java - Search-as-you-type over cached tasks and habits
+package com.taskshabitstracker.repository;
+
+import android.content.Context;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.domain.SearchIndex;
+import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.SessionManager;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SearchRepository - In-memory search indexes over task titles/descriptions and
+ * habit names/descriptions
+ * The indexes are filled from the store once per process, on the first search or
+ * preload, and from then on kept current the way ReminderScheduler is: writes to the
+ * store report the rows they touched, and only those are re-indexed. Queries run on
+ * the search executor; starting a query supersedes the previous one of the same
+ * kind, which is cancelled mid-query and never delivered.
+ * The on* methods are called from the writing thread, off the main thread
+ */
+public class SearchRepository {
+    private static final String TAG = "SearchRepository";
+    // Results are read back from the store, which allows at most 999 ids per query
+    public static final int MAX_RESULTS = 200;
+
+    private static SearchRepository instance;
+
+    private final AppDatabase database;
+    private final AppExecutors executors;
+    private final SearchIndex taskIndex = new SearchIndex();
+    private final SearchIndex habitIndex = new SearchIndex();
+    private final AtomicInteger taskQueries = new AtomicInteger();
+    private final AtomicInteger habitQueries = new AtomicInteger();
+    private boolean loaded;
+
+    private SearchRepository(Context context) {
+        database = AppDatabase.getInstance(context);
+        executors = AppExecutors.getInstance();
+        SessionManager.getInstance(context).observeSessionEnd(this::reset);
+    }
+
+    public static synchronized SearchRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new SearchRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Build the indexes in the background so the first keystroke does not wait for them
+     */
+    public void preload() {
+        executors.search().execute(this::ensureLoaded);
+    }
+
+    /**
+     * Deliver the cached tasks matching query on the main thread, unless superseded first
+     */
+    public void searchTasks(String query, DashboardRepository.OnSuccessCallback<List<Task>> onResults) {
+        int ticket = taskQueries.incrementAndGet();
+        executors.search().execute(() -> {
+            List<String> ids = run(taskIndex, query, taskQueries, ticket);
+            if (ids == null) return;
+            List<Task> found = ids.isEmpty() ? Collections.emptyList() : database.taskDao().getByIds(ids);
+            executors.mainThread().execute(() -> {
+                if (ticket == taskQueries.get()) onResults.onSuccess(found);
+            });
+        });
+    }
+
+    public void searchHabits(String query, DashboardRepository.OnSuccessCallback<List<Habit>> onResults) {
+        int ticket = habitQueries.incrementAndGet();
+        executors.search().execute(() -> {
+            List<String> ids = run(habitIndex, query, habitQueries, ticket);
+            if (ids == null) return;
+            List<Habit> found = ids.isEmpty() ? Collections.emptyList() : database.habitDao().getByIds(ids);
+            executors.mainThread().execute(() -> {
+                if (ticket == habitQueries.get()) onResults.onSuccess(found);
+            });
+        });
+    }
+
+    /**
+     * Drop any task query in progress or waiting to be delivered
+     */
+    public void cancelTaskSearch() {
+        taskQueries.incrementAndGet();
+    }
+
+    public void cancelHabitSearch() {
+        habitQueries.incrementAndGet();
+    }
+
+    // Null when the query was superseded
+    private List<String> run(SearchIndex index, String query, AtomicInteger queries, int ticket) {
+        if (ticket != queries.get()) return null;
+        ensureLoaded();
+        try {
+            return index.search(query, MAX_RESULTS, () -> ticket != queries.get());
+        } catch (CancellationException e) {
+            AppLog.d(TAG, "Search superseded", "query", query);
+            return null;
+        }
+    }
+
+    private synchronized void ensureLoaded() {
+        if (loaded) return;
+        for (Task task : database.taskDao().getAll()) {
+            putTask(task);
+        }
+        for (Habit habit : database.habitDao().getAll()) {
+            putHabit(habit);
+        }
+        loaded = true;
+        AppLog.d(TAG, "Search indexes built", "tasks", taskIndex.size(), "habits", habitIndex.size());
+    }
+
+    // Before the first load there is nothing to update: the load reads the store
+
+    public synchronized void onTaskSaved(Task task) {
+        if (loaded) putTask(task);
+    }
+
+    public synchronized void onTaskRemoved(String taskId) {
+        if (loaded) taskIndex.remove(taskId);
+    }
+
+    public synchronized void onHabitSaved(Habit habit) {
+        if (loaded) putHabit(habit);
+    }
+
+    public synchronized void onHabitRemoved(String habitId) {
+        if (loaded) habitIndex.remove(habitId);
+    }
+
+    /**
+     * Bring the task index in line with the store after a full sync replaced it
+     * Unchanged rows cost a comparison; only new, edited and dropped rows touch the index
+     */
+    public synchronized void reloadTasks() {
+        if (!loaded) return;
+        List<Task> tasks = database.taskDao().getAll();
+        Set<String> ids = new HashSet<>(tasks.size() * 2);
+        for (Task task : tasks) {
+            putTask(task);
+            ids.add(task.getId());
+        }
+        taskIndex.retainOnly(ids);
+    }
+
+    public synchronized void reloadHabits() {
+        if (!loaded) return;
+        List<Habit> habits = database.habitDao().getAll();
+        Set<String> ids = new HashSet<>(habits.size() * 2);
+        for (Habit habit : habits) {
+            putHabit(habit);
+            ids.add(habit.getId());
+        }
+        habitIndex.retainOnly(ids);
+    }
+
+    /**
+     * Forget everything, e.g. on logout; the next search reloads from the store
+     */
+    public synchronized void reset() {
+        taskIndex.clear();
+        habitIndex.clear();
+        loaded = false;
+    }
+
+    private void putTask(Task task) {
+        taskIndex.put(task.getId(), task.getTitle(), task.getDescription());
+    }
+
+    private void putHabit(Habit habit) {
+        habitIndex.put(habit.getId(), habit.getName(), habit.getDescription());
+    }
+}
@@ -0,0 +1,201 @@
+// StatsAggregator.java - Dashboard counters kept up to date from local task and habit writes
+package com.taskshabitstracker.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.database.SyncStateDao;
+import com.taskshabitstracker.model.DashboardStats;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
+import com.taskshabitstracker.utils.SessionManager;
+
+/**
+ * StatsAggregator - Process-wide DashboardStats computed from the local store
+ * Counters are loaded once with aggregate queries, then adjusted in O(1) by the
+ * repositories as tasks and habits are added, toggled or deleted; syncs that
+ * rewrite many rows recount instead. Points and streak are owned by the server,
+ * so they are cached from the last reconciliation plus what was earned since.
+ * Load and recount methods read the database and must be called off the main thread
+ */
+public class StatsAggregator {
+    private static final String TAG = "StatsAggregator";
+    private static final String PREFS = "StatsPrefs";
+
+    private static StatsAggregator instance;
+
+    private final AppDatabase database;
+    private final SharedPreferences prefs;
+    private final SharedPreferences tasksPrefs;
+    private final MutableLiveData<DashboardStats> stats = new MutableLiveData<>();
+
+    private boolean loaded;
+    private int points;
+    private int streak;
+    private int completedTasks;
+    private int totalTasks;
+    private int completedHabits;
+    private int totalHabits;
+    // Task counts from the last reconciliation, used while the store holds only part of the list
+    private int serverCompletedTasks = -1;
+    private int serverTotalTasks = -1;
+
+    private StatsAggregator(Context context) {
+        Context appContext = context.getApplicationContext();
+        database = AppDatabase.getInstance(appContext);
+        prefs = appContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        tasksPrefs = appContext.getSharedPreferences("TasksPrefs", Context.MODE_PRIVATE);
+        SessionManager.getInstance(appContext).observeSessionEnd(() ->
+                AppExecutors.getInstance().diskIO().execute(this::reset));
+    }
+
+    public static synchronized StatsAggregator getInstance(Context context) {
+        if (instance == null) {
+            instance = new StatsAggregator(context);
+        }
+        return instance;
+    }
+
+    public LiveData<DashboardStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Count stored tasks and habits, once per process
+     */
+    public synchronized void ensureLoaded() {
+        if (loaded) return;
+        points = prefs.getInt("points", 0);
+        streak = tasksPrefs.getInt("streak", 0);
+        countTasks();
+        countHabits();
+        loaded = true;
+        publish();
+    }
+
+    /**
+     * Recount tasks after a sync wrote an unknown number of rows
+     */
+    public synchronized void recountTasks() {
+        if (!loaded) return;
+        countTasks();
+        publish();
+    }
+
+    public synchronized void recountHabits() {
+        if (!loaded) return;
+        countHabits();
+        publish();
+    }
+
+    public synchronized void onTaskAdded(boolean completed) {
+        if (!loaded) return;
+        totalTasks++;
+        if (completed) completedTasks++;
+        publish();
+    }
+
+    public synchronized void onTaskToggled(boolean nowCompleted) {
+        if (!loaded) return;
+        completedTasks += nowCompleted ? 1 : -1;
+        publish();
+    }
+
+    public synchronized void onTaskDeleted(boolean wasCompleted) {
+        if (!loaded) return;
+        totalTasks--;
+        if (wasCompleted) completedTasks--;
+        publish();
+    }
+
+    public synchronized void onHabitAdded(boolean completedToday) {
+        if (!loaded) return;
+        totalHabits++;
+        if (completedToday) completedHabits++;
+        publish();
+    }
+
+    public synchronized void onHabitToggled(boolean nowCompletedToday) {
+        if (!loaded) return;
+        completedHabits += nowCompletedToday ? 1 : -1;
+        publish();
+    }
+
+    public synchronized void onHabitDeleted(boolean wasCompletedToday) {
+        if (!loaded) return;
+        totalHabits--;
+        if (wasCompletedToday) completedHabits--;
+        publish();
+    }
+
+    /**
+     * Points earned locally, ahead of the server's total
+     */
+    public synchronized void onPointsEarned(int earned) {
+        points += earned;
+        prefs.edit().putInt("points", points).apply();
+        if (loaded) publish();
+    }
+
+    public synchronized void onStreakChanged(int newStreak) {
+        streak = newStreak;
+        if (loaded) publish();
+    }
+
+    /**
+     * Take the server's figures for what only the server knows
+     * Task counts come from the server too while the local store is still being filled
+     */
+    public synchronized void reconcile(DashboardStats server) {
+        points = server.getPoints();
+        streak = server.getStreak();
+        prefs.edit().putInt("points", points).apply();
+        serverCompletedTasks = server.getCompletedTasks();
+        serverTotalTasks = server.getTotalTasks();
+        if (loaded) {
+            countTasks();
+            publish();
+        }
+        AppLog.d(TAG, "Reconciled with server", "points", points, "streak", streak);
+    }
+
+    /**
+     * Forget the signed-out user's figures; the store has just been cleared
+     */
+    public synchronized void reset() {
+        prefs.edit().clear().apply();
+        points = 0;
+        streak = 0;
+        serverCompletedTasks = -1;
+        serverTotalTasks = -1;
+        if (loaded) {
+            countTasks();
+            countHabits();
+            publish();
+        }
+    }
+
+    private void countTasks() {
+        boolean storeComplete = database.syncStateDao().get(SyncStateDao.RESOURCE_TASKS).fillComplete;
+        if (!storeComplete && serverTotalTasks >= 0) {
+            totalTasks = serverTotalTasks;
+            completedTasks = serverCompletedTasks;
+            return;
+        }
+        totalTasks = database.taskDao().count();
+        completedTasks = database.taskDao().countCompleted();
+    }
+
+    private void countHabits() {
+        totalHabits = database.habitDao().count();
+        completedHabits = database.habitDao().countCompletedOn(DateUtils.today());
+    }
+
+    private void publish() {
+        stats.postValue(new DashboardStats(points, streak, completedTasks, totalTasks,
+                completedHabits, totalHabits));
+    }
+}
@@ -1,220 +1,415 @@
 package com.taskshabitstracker.repository;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.util.Log;
+import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
 import com.android.volley.NetworkResponse;
-import com.android.volley.Request;
-import com.android.volley.RequestQueue;
 import com.android.volley.Response;
-import com.android.volley.toolbox.JsonArrayRequest;
-import com.android.volley.toolbox.JsonObjectRequest;
-import com.android.volley.toolbox.StringRequest;
+import com.android.volley.VolleyError;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.database.OutboxDao;
+import com.taskshabitstracker.database.SyncStateDao;
+import com.taskshabitstracker.database.TaskDao;
+import com.taskshabitstracker.domain.CacheEntry;
 import com.taskshabitstracker.model.Task;
-import com.taskshabitstracker.network.VolleySingleton;
-import org.json.JSONArray;
+import com.taskshabitstracker.network.DeltaSyncRequest;
+import com.taskshabitstracker.network.ModelJsonReader;
+import com.taskshabitstracker.network.PageRequest;
+import com.taskshabitstracker.network.RequestCoalescer;
+import com.taskshabitstracker.notifications.ReminderScheduler;
+import com.taskshabitstracker.paging.PagedWindow;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.SessionManager;
+import com.taskshabitstracker.workers.OutboxWorker;
+import org.json.JSONException;
 import org.json.JSONObject;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * TasksRepository - Tasks in the local store, kept in sync with the server
+ * One instance serves the whole process, so what it holds survives the screens
+ * that asked for it: the first rows of the list, for a new screen to render before
+ * its first read, and when the store was last confirmed by the server. A sync
+ * within SYNC_TTL_MILLIS of that is skipped; every local write invalidates it.
+ */
 public class TasksRepository {
     private static final String TAG = "TasksRepository";
     private static final String BASE_URL = "http://10.0.2.2:8080/api/tasks";
-    private final RequestQueue requestQueue;
-    private final SharedPreferences prefs;
+    private static final int REMOTE_PAGE_SIZE = 100;
+    private static final long SYNC_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final int CACHED_ROWS = 50;
 
-    public TasksRepository(Context context) {
-        requestQueue = VolleySingleton.getInstance(context).getRequestQueue();
-        prefs = context.getSharedPreferences("TasksPrefs", Context.MODE_PRIVATE);
+    private static TasksRepository instance;
+
+    private final Context appContext;
+    private final RequestCoalescer coalescer;
+    // First rows of the list as last read from the store; fresh while the server confirmed them
+    private final CacheEntry<List<Task>> taskCache = new CacheEntry<>(SYNC_TTL_MILLIS);
+    private final SessionManager sessionManager;
+    private final AppDatabase database;
+    private final TaskDao taskDao;
+    private final SyncStateDao syncStateDao;
+    private final OutboxDao outboxDao;
+    private final ReminderScheduler reminders;
+    private final StatsAggregator stats;
+    private final SearchRepository search;
+    private final AppExecutors executors;
+
+    private TasksRepository(Context context) {
+        appContext = context.getApplicationContext();
+        coalescer = RequestCoalescer.getInstance(context);
+        sessionManager = SessionManager.getInstance(context);
+        database = AppDatabase.getInstance(context);
+        taskDao = database.taskDao();
+        syncStateDao = database.syncStateDao();
+        outboxDao = database.outboxDao();
+        reminders = ReminderScheduler.getInstance(context);
+        stats = StatsAggregator.getInstance(context);
+        search = SearchRepository.getInstance(context);
+        executors = AppExecutors.getInstance();
+        sessionManager.observeSessionEnd(this::clearCache);
+        // Rows the outbox rewrote (server ids, rejected changes) are revalidated on next use
+        outboxDao.addListener((entityType, storeChanged) -> {
+            if (storeChanged && OutboxDao.ENTITY_TASK.equals(entityType)) invalidateTasks();
+        });
     }
 
-    private Map<String, String> getSessionHeaders() {
-        Map<String, String> headers = new HashMap<>();
-        String sessionId = prefs.getString("jsessionid", null);
-        if (sessionId != null) {
-            headers.put("Cookie", "JSESSIONID=" + sessionId);
-            Log.d(TAG, "Using session cookie: JSESSIONID=" + sessionId);
-        } else {
-            Log.w(TAG, "No session ID found in SharedPreferences");
+    public static synchronized TasksRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new TasksRepository(context.getApplicationContext());
         }
-        return headers;
+        return instance;
+    }
+
+    private Map<String, String> getSessionHeaders() {
+        return sessionManager.getCookieHeaders();
+    }
+
+    /**
+     * Read up to limit tasks right after (or before) a list position from the local store
+     * While the initial paged download is incomplete and the store ends inside the
+     * page, the next server pages are fetched and stored first. Serves as the
+     * PageSource of the task list's PagedWindow
+     */
+    public void loadTaskPage(long position, boolean before, int limit, PagedWindow.LoadCallback<Task> callback) {
+        loadTaskPage(null, position, before, limit, callback);
+    }
+
+    /**
+     * loadTaskPage for a screen: server pages it fetches stop with {@link #cancelLoads(Object)}
+     */
+    public void loadTaskPage(@Nullable Object owner, long position, boolean before, int limit,
+                             PagedWindow.LoadCallback<Task> callback) {
+        executors.diskIO().execute(() -> {
+            TaskDao.Page page = taskDao.getPage(position, before, limit);
+            List<Task> rows = page.tasks;
+            SyncStateDao.SyncState syncState = syncStateDao.get(SyncStateDao.RESOURCE_TASKS);
+            // Server pages are stored after the cached rows, so only a forward read can run short
+            if (before || rows.size() == limit || syncState.fillComplete) {
+                if (position == PagedWindow.BEFORE_FIRST) taskCache.update(rows);
+                executors.mainThread().execute(() ->
+                        callback.onLoaded(rows, page.positions, rows.size() < limit));
+                return;
+            }
+            // The store ends inside this page but the server has more
+            executors.mainThread().execute(() -> fetchPage(owner, syncState,
+                    () -> loadTaskPage(owner, position, before, limit, callback), callback::onError));
+        });
+    }
+
+    /**
+     * Read every task from the local store, in server order
+     * Sorted and filtered views need the whole list, so while the initial paged
+     * download is incomplete the remaining server pages are fetched and stored first
+     * @param owner tag of the screen that wants the list, see {@link #cancelLoads(Object)}
+     */
+    public void loadAllTasks(Object owner, OnSuccessCallback<List<Task>> onLoaded, OnErrorCallback onError) {
+        executors.diskIO().execute(() -> {
+            SyncStateDao.SyncState syncState = syncStateDao.get(SyncStateDao.RESOURCE_TASKS);
+            if (syncState.fillComplete) {
+                List<Task> rows = taskDao.getAll();
+                executors.mainThread().execute(() -> onLoaded.onSuccess(rows));
+                return;
+            }
+            executors.mainThread().execute(() -> fetchPage(owner, syncState,
+                    () -> loadAllTasks(owner, onLoaded, onError), onError));
+        });
+    }
+
+    /**
+     * Stop the server page fetches started for owner; one still wanted by another caller
+     * keeps going without reporting back to it
+     */
+    public void cancelLoads(Object owner) {
+        coalescer.cancelAll(owner);
     }
 
-    // Method to save session ID after login
-    public void saveSessionId(String sessionId) {
-        prefs.edit().putString("jsessionid", sessionId).apply();
-        Log.d(TAG, "Saved session ID: " + sessionId);
+    private void fetchPage(@Nullable Object owner, SyncStateDao.SyncState syncState, Runnable onStored,
+                           OnErrorCallback onError) {
+        // Windows loading neighbouring ranges may both ask for the next page; it is fetched once
+        coalescer.<Void>enqueue(owner, "GET " + BASE_URL + "?page=" + syncState.nextPage,
+                (onDone, onFailed) -> createPageRequest(syncState, onDone, onFailed),
+                ignored -> onStored.run(),
+                error -> onError.onError(describeError(error, "Failed to load tasks")));
     }
 
-    public void getTasks(OnTasksFetched callback) {
-        JsonArrayRequest request = new JsonArrayRequest(
-                Request.Method.GET,
+    private PageRequest<Task> createPageRequest(SyncStateDao.SyncState syncState,
+                                                Response.Listener<Void> onStored,
+                                                Response.ErrorListener onError) {
+        return new PageRequest<Task>(
                 BASE_URL,
-                null,
-                response -> {
-                    try {
-                        Log.d(TAG, "GET tasks response: " + response.toString());
-                        List<Task> tasks = parseTasksArray(response);
-                        Log.d(TAG, "Tasks fetched: " + tasks.size());
-                        callback.onSuccess(tasks);
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing tasks response: " + response.toString(), e);
-                        callback.onError("Error parsing tasks data: " + e.getMessage());
+                REMOTE_PAGE_SIZE,
+                syncState.nextPage,
+                getSessionHeaders(),
+                ModelJsonReader::readTask,
+                page -> executors.diskIO().execute(() -> {
+                    Set<String> pinnedIds = outboxDao.getPendingIds(OutboxDao.ENTITY_TASK);
+                    taskDao.appendPage(page.items, pinnedIds);
+                    updateReminders(page.items, Collections.emptyList(), pinnedIds);
+                    stats.recountTasks();
+                    // An empty page that claims more would make no progress; treat it as the end
+                    syncStateDao.savePaging(SyncStateDao.RESOURCE_TASKS, page.nextCursor,
+                            page.isLast() || page.items.isEmpty());
+                    if (syncState.cursor == null && page.syncCursor != null) {
+                        // Deltas from here on also catch changes made while the pages download
+                        syncStateDao.save(SyncStateDao.RESOURCE_TASKS, null, page.syncCursor);
                     }
-                },
-                error -> {
-                    String errorMsg = "Failed to load tasks";
-                    if (error.networkResponse != null) {
-                        Log.e(TAG, "GET tasks error - Status code: " + error.networkResponse.statusCode);
-                        errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
-                        if (error.networkResponse.data != null) {
-                            String responseBody = new String(error.networkResponse.data);
-                            Log.e(TAG, "Error response body: " + responseBody);
-                            errorMsg += " - " + responseBody;
-                            if (responseBody.contains("User not found") || error.networkResponse.statusCode == 401 || error.networkResponse.statusCode == 403) {
-                                errorMsg = "Session expired. Please log in again.";
-                                prefs.edit().remove("jsessionid").apply();
-                            }
-                        }
-                    } else {
-                        Log.e(TAG, "GET tasks error: " + error.toString(), error);
-                        errorMsg += ": " + error.getMessage();
-                    }
-                    callback.onError(errorMsg);
-                }
+                    reloadCachedTasks();
+                    AppLog.d(TAG, "Stored task page", "tasks", page.items.size(), "last", page.isLast());
+                    onStored.onResponse(null);
+                }),
+                onError
         ) {
             @Override
-            public Map<String, String> getHeaders() {
-                return getSessionHeaders();
-            }
-
-            @Override
-            protected Response<JSONArray> parseNetworkResponse(NetworkResponse response) {
-                // Extract and save JSESSIONID from response headers
-                String sessionId = response.headers.get("Set-Cookie");
-                if (sessionId != null && sessionId.contains("JSESSIONID")) {
-                    String jsessionId = sessionId.split("JSESSIONID=")[1].split(";")[0];
-                    saveSessionId(jsessionId);
-                }
+            protected Response<PageRequest.Page<Task>> parseNetworkResponse(NetworkResponse response) {
+                saveSessionCookie(response);
                 return super.parseNetworkResponse(response);
             }
         };
-        requestQueue.add(request);
     }
 
-    public void toggleTaskCompletion(Task task, Runnable onSuccess, OnErrorCallback onError) {
-        String url = BASE_URL + "/" + task.getId() + "/toggle";
+    /**
+     * Bring the local store up to date with a conditional delta sync
+     * Nothing is requested while the initial paged download has no delta cursor yet,
+     * since the pages still to come are fresh anyway, nor while the last sync is fresh
+     * @param onSynced receives true when stored rows changed
+     */
+    public void syncTasks(OnSuccessCallback<Boolean> onSynced, OnErrorCallback onError) {
+        if (taskCache.isFresh(SystemClock.elapsedRealtime())) {
+            onSynced.onSuccess(false);
+            return;
+        }
+        long generation = taskCache.generation();
+        executors.diskIO().execute(() -> {
+            SyncStateDao.SyncState syncState = syncStateDao.get(SyncStateDao.RESOURCE_TASKS);
+            boolean empty = taskDao.count() == 0;
+            executors.mainThread().execute(() -> {
+                if (!syncState.fillComplete && syncState.cursor == null) {
+                    onSynced.onSuccess(false);
+                    return;
+                }
+                // Without cached rows a delta would have nothing to apply to
+                refreshTasks(empty ? new SyncStateDao.SyncState(null, null) : syncState,
+                        changed -> {
+                            taskCache.markFresh(SystemClock.elapsedRealtime(), generation);
+                            onSynced.onSuccess(changed);
+                        }, onError);
+            });
+        });
+    }
+
+    private void refreshTasks(SyncStateDao.SyncState syncState,
+                              OnSuccessCallback<Boolean> onSynced, OnErrorCallback onError) {
+        String url = DeltaSyncRequest.withCursor(BASE_URL, syncState.cursor);
+        // Screens created in quick succession share one sync and one write to the store
+        coalescer.<Boolean>enqueue("GET " + url + " " + syncState.etag,
+                (onDone, onFailed) -> createSyncRequest(url, syncState, onDone, onFailed),
+                onSynced::onSuccess,
+                error -> onError.onError(describeError(error, "Failed to load tasks")));
+    }
 
-        JsonObjectRequest request = new JsonObjectRequest(
-                Request.Method.PUT,
+    private DeltaSyncRequest<Task> createSyncRequest(String url, SyncStateDao.SyncState syncState,
+                                                     Response.Listener<Boolean> onSynced,
+                                                     Response.ErrorListener onError) {
+        return new DeltaSyncRequest<Task>(
                 url,
-                null,
-                response -> {
-                    Log.d(TAG, "Toggle response: " + response.toString());
-                    onSuccess.run();
-                },
-                error -> {
-                    String errorMsg = "Failed to update task";
-                    if (error.networkResponse != null) {
-                        Log.e(TAG, "Toggle error - Status code: " + error.networkResponse.statusCode);
-                        errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
-                        if (error.networkResponse.data != null) {
-                            String responseBody = new String(error.networkResponse.data);
-                            Log.e(TAG, "Toggle error response body: " + responseBody);
-                            errorMsg += " - " + responseBody;
-                            if (responseBody.contains("User not found") || error.networkResponse.statusCode == 401 || error.networkResponse.statusCode == 403) {
-                                errorMsg = "Session expired. Please log in again.";
-                                prefs.edit().remove("jsessionid").apply();
-                            }
-                        }
-                    } else {
-                        Log.e(TAG, "Toggle error: " + error.toString(), error);
-                        errorMsg += ": " + error.getMessage();
+                syncState.etag,
+                getSessionHeaders(),
+                ModelJsonReader::readTask,
+                result -> {
+                    if (result.notModified) {
+                        AppLog.d(TAG, "Tasks not modified since last sync");
+                        onSynced.onResponse(false);
+                        return;
                     }
-                    onError.onError(errorMsg);
-                }
+                    List<Task> changed = result.items;
+                    executors.diskIO().execute(() -> {
+                        // Rows with queued mutations keep their optimistic local version
+                        Set<String> pinnedIds = outboxDao.getPendingIds(OutboxDao.ENTITY_TASK);
+                        if (result.fullSnapshot) {
+                            taskDao.replaceAll(changed, pinnedIds);
+                            syncStateDao.savePaging(SyncStateDao.RESOURCE_TASKS, null, true);
+                            reminders.reload();
+                            search.reloadTasks();
+                        } else {
+                            taskDao.applyDelta(changed, result.deleted, pinnedIds);
+                            updateReminders(changed, result.deleted, pinnedIds);
+                        }
+                        syncStateDao.save(SyncStateDao.RESOURCE_TASKS, result.etag, result.cursor);
+                        stats.recountTasks();
+                        reloadCachedTasks();
+                        AppLog.d(TAG, "Tasks synced", "changed", changed.size(),
+                                "deleted", result.deleted.size());
+                        executors.mainThread().execute(() -> onSynced.onResponse(true));
+                    });
+                },
+                onError
         ) {
             @Override
-            public Map<String, String> getHeaders() {
-                return getSessionHeaders();
+            protected Response<DeltaSyncRequest.Result<Task>> parseNetworkResponse(NetworkResponse response) {
+                saveSessionCookie(response);
+                return super.parseNetworkResponse(response);
             }
+        };
+    }
 
-            @Override
-            protected Response<JSONObject> parseNetworkResponse(NetworkResponse response) {
-                // Extract and save JSESSIONID from response headers
-                String sessionId = response.headers.get("Set-Cookie");
-                if (sessionId != null && sessionId.contains("JSESSIONID")) {
-                    String jsessionId = sessionId.split("JSESSIONID=")[1].split(";")[0];
-                    saveSessionId(jsessionId);
+    /**
+     * Reschedule the reminders and re-index the rows a sync wrote; pinned rows kept their local version
+     */
+    private void updateReminders(List<Task> changed, List<String> deletedIds, Set<String> pinnedIds) {
+        for (Task task : changed) {
+            if (!pinnedIds.contains(task.getId())) {
+                reminders.onTaskSaved(task);
+                search.onTaskSaved(task);
+            }
+        }
+        for (String id : deletedIds) {
+            if (!pinnedIds.contains(id)) {
+                reminders.onTaskRemoved(id);
+                search.onTaskRemoved(id);
+            }
+        }
+    }
+
+    private String describeError(VolleyError error, String errorMsg) {
+        if (error.networkResponse != null) {
+            AppLog.e(TAG, "GET tasks error", "status", error.networkResponse.statusCode);
+            errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
+            if (error.networkResponse.data != null) {
+                String responseBody = new String(error.networkResponse.data);
+                AppLog.e(TAG, "Error response", "body", responseBody);
+                errorMsg += " - " + responseBody;
+                if (responseBody.contains("User not found") || error.networkResponse.statusCode == 401 || error.networkResponse.statusCode == 403) {
+                    errorMsg = "Session expired. Please log in again.";
+                    sessionManager.clearSessionCookie();
                 }
-                return super.parseNetworkResponse(response);
             }
-        };
+        } else {
+            AppLog.e(TAG, "GET tasks error", error);
+            errorMsg += ": " + error.getMessage();
+        }
+        return errorMsg;
+    }
+
+    // Extract and save JSESSIONID from response headers
+    private void saveSessionCookie(NetworkResponse response) {
+        String sessionId = response.headers != null ? response.headers.get("Set-Cookie") : null;
+        if (sessionId != null && sessionId.contains("JSESSIONID")) {
+            String jsessionId = sessionId.split("JSESSIONID=")[1].split(";")[0];
+            sessionManager.saveSessionCookie(jsessionId);
+        }
+    }
 
-        requestQueue.add(request);
+    /**
+     * Store the toggled task and queue the toggle in the outbox
+     * The entry carries the task's new state, so a resend cannot flip it back.
+     * onSuccess runs once the change is durable locally; the server is updated by OutboxWorker
+     */
+    public void toggleTaskCompletion(Task task, Runnable onSuccess, OnErrorCallback onError) {
+        enqueueMutation(() -> {
+                    taskDao.upsert(task);
+                    reminders.onTaskSaved(task);
+                    stats.onTaskToggled(task.isCompleted());
+                }, task.getId(), OutboxDao.OP_TOGGLE, togglePayload(task),
+                onSuccess, onError, "Failed to update task");
     }
 
     public void deleteTask(Task task, Runnable onSuccess, OnErrorCallback onError) {
-        String url = BASE_URL + "/" + task.getId();
+        enqueueMutation(() -> {
+                    taskDao.delete(task.getId());
+                    reminders.onTaskRemoved(task.getId());
+                    search.onTaskRemoved(task.getId());
+                    stats.onTaskDeleted(task.isCompleted());
+                }, task.getId(), OutboxDao.OP_DELETE, null,
+                onSuccess, onError, "Failed to delete task");
+    }
 
-        StringRequest request = new StringRequest(
-                Request.Method.DELETE,
-                url,
-                response -> {
-                    Log.d(TAG, "Delete response: " + (response != null ? response : "No content"));
-                    onSuccess.run();
-                },
-                error -> {
-                    String errorMsg = "Failed to delete task";
-                    if (error.networkResponse != null) {
-                        Log.e(TAG, "Delete error - Status code: " + error.networkResponse.statusCode);
-                        errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
-                        if (error.networkResponse.data != null) {
-                            String responseBody = new String(error.networkResponse.data);
-                            Log.e(TAG, "Delete error response body: " + responseBody);
-                            errorMsg += " - " + responseBody;
-                            if (responseBody.contains("User not found") || error.networkResponse.statusCode == 401 || error.networkResponse.statusCode == 403) {
-                                errorMsg = "Session expired. Please log in again.";
-                                prefs.edit().remove("jsessionid").apply();
-                            }
-                        }
-                    } else {
-                        Log.e(TAG, "Delete error: " + error.toString(), error);
-                        errorMsg += ": " + error.getMessage();
+    /**
+     * Store the toggled tasks and queue their toggles as one transaction
+     * Either every task is saved or none is; OutboxWorker sends the toggles as one batch request
+     */
+    public void toggleTasks(List<Task> toggled, Runnable onSuccess, OnErrorCallback onError) {
+        List<OutboxDao.Mutation> mutations = new ArrayList<>(toggled.size());
+        for (Task task : toggled) {
+            mutations.add(new OutboxDao.Mutation(task.getId(), OutboxDao.OP_TOGGLE, togglePayload(task)));
+        }
+        enqueueMutations(() -> {
+                    for (Task task : toggled) {
+                        taskDao.upsert(task);
                     }
-                    onError.onError(errorMsg);
-                }
-        ) {
-            @Override
-            public Map<String, String> getHeaders() {
-                return getSessionHeaders();
-            }
+                }, () -> {
+                    for (Task task : toggled) {
+                        reminders.onTaskSaved(task);
+                    }
+                }, mutations, onSuccess, onError, "Failed to update tasks");
+    }
 
-            @Override
-            protected Response<String> parseNetworkResponse(NetworkResponse response) {
-                // Extract and save JSESSIONID from response headers
-                String sessionId = response.headers.get("Set-Cookie");
-                if (sessionId != null && sessionId.contains("JSESSIONID")) {
-                    String jsessionId = sessionId.split("JSESSIONID=")[1].split(";")[0];
-                    saveSessionId(jsessionId);
-                }
-                return super.parseNetworkResponse(response);
-            }
-        };
+    private static String togglePayload(Task task) {
+        try {
+            return new JSONObject().put(OutboxDao.TOGGLE_COMPLETED, task.isCompleted()).toString();
+        } catch (JSONException e) {
+            // put(String, boolean) cannot fail
+            throw new IllegalStateException(e);
+        }
+    }
 
-        requestQueue.add(request);
+    /**
+     * Delete the tasks locally and queue their deletion as one transaction
+     */
+    public void deleteTasks(List<Task> tasks, Runnable onSuccess, OnErrorCallback onError) {
+        List<OutboxDao.Mutation> mutations = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            mutations.add(new OutboxDao.Mutation(task.getId(), OutboxDao.OP_DELETE, null));
+        }
+        enqueueMutations(() -> {
+                    for (Task task : tasks) {
+                        taskDao.delete(task.getId());
+                    }
+                }, () -> {
+                    for (Task task : tasks) {
+                        reminders.onTaskRemoved(task.getId());
+                        search.onTaskRemoved(task.getId());
+                    }
+                }, mutations, onSuccess, onError, "Failed to delete tasks");
     }
 
+    /**
+     * Store the new task under its local id and queue its creation
+     * The local id is swapped for the server's once the outbox entry is sent
+     */
     public void addTask(Task task, OnTaskAdded callback) {
         if (task == null) {
             callback.onError("Task cannot be null");
             return;
         }
 
-        String url = BASE_URL;
-
         try {
             JSONObject jsonTask = new JSONObject();
             jsonTask.put("title", task.getTitle() != null ? task.getTitle() : "");
@@ -226,100 +421,121 @@ public class TasksRepository {
             jsonTask.put("enableDueDateNotifications", task.isEnableDueDateNotifications());
             jsonTask.put("enablePreDueNotifications", task.isEnablePreDueNotifications());
 
-            Log.d(TAG, "POST task request JSON: " + jsonTask.toString());
-
-            JsonObjectRequest request = new JsonObjectRequest(
-                    Request.Method.POST,
-                    url,
-                    jsonTask,
-                    response -> {
-                        try {
-                            Log.d(TAG, "POST task response: " + response.toString());
-                            Task newTask = new Task(
-                                    response.getString("id"),
-                                    response.optString("userId", "default-user"),
-                                    response.getString("title"),
-                                    response.optString("description", ""),
-                                    response.optBoolean("completed", false),
-                                    response.has("dueDate") ? response.getString("dueDate") : null,
-                                    response.optBoolean("enableDueDateNotifications", true),
-                                    response.optBoolean("enablePreDueNotifications", true)
-                            );
-                            Log.d(TAG, "Task added: " + newTask.getId());
-                            callback.onTaskAdded(newTask);
-                        } catch (Exception e) {
-                            Log.e(TAG, "Error parsing new task response: " + response.toString(), e);
-                            callback.onError("Error parsing task data: " + e.getMessage());
-                        }
-                    },
-                    error -> {
-                        String errorMsg = "Failed to add task - please check your connection";
-                        if (error.networkResponse != null) {
-                            Log.e(TAG, "POST task error - Status code: " + error.networkResponse.statusCode);
-                            errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
-                            if (error.networkResponse.data != null) {
-                                String responseBody = new String(error.networkResponse.data);
-                                Log.e(TAG, "POST error response body: " + responseBody);
-                                errorMsg += " - " + responseBody;
-                                if (responseBody.contains("User not found") || error.networkResponse.statusCode == 401 || error.networkResponse.statusCode == 403) {
-                                    errorMsg = "Session expired. Please log in again.";
-                                    prefs.edit().remove("jsessionid").apply();
-                                }
-                            }
-                        } else {
-                            Log.e(TAG, "POST task error: " + error.toString(), error);
-                            errorMsg += ": " + error.getMessage();
-                        }
-                        callback.onError(errorMsg);
-                    }
-            ) {
-                @Override
-                public Map<String, String> getHeaders() {
-                    return getSessionHeaders();
-                }
-
-                @Override
-                protected Response<JSONObject> parseNetworkResponse(NetworkResponse response) {
-                    // Extract and save JSESSIONID from response headers
-                    String sessionId = response.headers.get("Set-Cookie");
-                    if (sessionId != null && sessionId.contains("JSESSIONID")) {
-                        String jsessionId = sessionId.split("JSESSIONID=")[1].split(";")[0];
-                        saveSessionId(jsessionId);
-                    }
-                    return super.parseNetworkResponse(response);
-                }
-            };
-
-            requestQueue.add(request);
+            AppLog.d(TAG, "Queueing task creation", "id", task.getId());
+            enqueueMutation(() -> {
+                        taskDao.upsert(task);
+                        reminders.onTaskSaved(task);
+                        search.onTaskSaved(task);
+                        stats.onTaskAdded(task.isCompleted());
+                    }, task.getId(), OutboxDao.OP_ADD, jsonTask.toString(),
+                    () -> callback.onTaskAdded(task), callback::onError, "Failed to add task");
         } catch (Exception e) {
-            Log.e(TAG, "Error creating JSON for task", e);
+            AppLog.e(TAG, "Error creating JSON for task", e);
             callback.onError("Error preparing task data: " + e.getMessage());
         }
     }
 
-    private List<Task> parseTasksArray(JSONArray response) throws Exception {
-        List<Task> tasks = new ArrayList<>();
-        for (int i = 0; i < response.length(); i++) {
-            JSONObject taskJson = response.getJSONObject(i);
-            Task task = new Task(
-                    taskJson.getString("id"),
-                    taskJson.optString("userId", "default-user"),
-                    taskJson.getString("title"),
-                    taskJson.optString("description", ""),
-                    taskJson.optBoolean("completed", false),
-                    taskJson.has("dueDate") ? taskJson.getString("dueDate") : null,
-                    taskJson.optBoolean("enableDueDateNotifications", true),
-                    taskJson.optBoolean("enablePreDueNotifications", true)
-            );
-            tasks.add(task);
-        }
-        Log.d(TAG, "Parsed " + tasks.size() + " tasks from response");
-        return tasks;
+    private void enqueueMutation(Runnable localWrite, String taskId, String op, String payload,
+                                 Runnable onQueued, OnErrorCallback onError, String errorMsg) {
+        executors.diskIO().execute(() -> {
+            try {
+                localWrite.run();
+                outboxDao.enqueue(OutboxDao.ENTITY_TASK, taskId, op, payload);
+            } catch (SQLiteException e) {
+                AppLog.e(TAG, "Error queueing mutation", e, "op", op, "taskId", taskId);
+                executors.mainThread().execute(() -> onError.onError(errorMsg));
+                return;
+            }
+            invalidateTasks();
+            OutboxWorker.schedule(appContext);
+            executors.mainThread().execute(onQueued);
+        });
     }
 
-    public interface OnTasksFetched {
-        void onSuccess(List<Task> tasks);
-        void onError(String error);
+    /**
+     * Run the store writes and the outbox inserts of a bulk edit in one transaction
+     * afterCommit updates the in-memory indexes once the writes are durable
+     */
+    private void enqueueMutations(Runnable localWrites, Runnable afterCommit, List<OutboxDao.Mutation> mutations,
+                                  Runnable onQueued, OnErrorCallback onError, String errorMsg) {
+        executors.diskIO().execute(() -> {
+            try {
+                database.runInTransaction(() -> {
+                    localWrites.run();
+                    outboxDao.enqueueAll(OutboxDao.ENTITY_TASK, mutations);
+                });
+            } catch (SQLiteException e) {
+                AppLog.e(TAG, "Error queueing bulk edit", e, "tasks", mutations.size());
+                executors.mainThread().execute(() -> onError.onError(errorMsg));
+                return;
+            }
+            afterCommit.run();
+            stats.recountTasks();
+            invalidateTasks();
+            OutboxWorker.schedule(appContext);
+            executors.mainThread().execute(onQueued);
+        });
+    }
+
+    /**
+     * Observe unsent task mutations
+     * The observer gets the ids with queued changes, and whether the outbox rewrote
+     * stored rows (a server id was assigned or a change was rejected)
+     * @return a handle to pass to removePendingObserver
+     */
+    public OutboxDao.OnOutboxChangedListener addPendingObserver(OnPendingChanged observer) {
+        OutboxDao.OnOutboxChangedListener listener = (entityType, storeChanged) -> {
+            if (!OutboxDao.ENTITY_TASK.equals(entityType)) return;
+            executors.diskIO().execute(() -> {
+                Set<String> pendingIds = outboxDao.getPendingIds(OutboxDao.ENTITY_TASK);
+                executors.mainThread().execute(() -> observer.onPendingChanged(pendingIds, storeChanged));
+            });
+        };
+        outboxDao.addListener(listener);
+        // Deliver the current state, e.g. entries left over from before a process restart
+        listener.onOutboxChanged(OutboxDao.ENTITY_TASK, false);
+        return listener;
+    }
+
+    public void removePendingObserver(OutboxDao.OnOutboxChangedListener listener) {
+        outboxDao.removeListener(listener);
+    }
+
+    /**
+     * First rows of the task list as last read from the store, or null before the first read
+     * Lets a new screen show the list at once while its own read is under way
+     */
+    @Nullable
+    public List<Task> getCachedTasks() {
+        return taskCache.get();
+    }
+
+    /**
+     * Whether the last sync is recent enough that syncTasks would not ask the server
+     */
+    public boolean hasFreshTasks() {
+        return taskCache.isFresh(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * The stored tasks changed locally: the next sync goes to the server, and the
+     * cached rows are read again
+     */
+    public void invalidateTasks() {
+        taskCache.invalidate();
+        executors.diskIO().execute(this::reloadCachedTasks);
+    }
+
+    /**
+     * Forget everything held in memory, e.g. once the store was cleared on logout
+     */
+    public void clearCache() {
+        taskCache.clear();
+    }
+
+    // Disk thread only
+    private void reloadCachedTasks() {
+        taskCache.update(taskDao.getFirst(CACHED_ROWS));
     }
 
     public interface OnTaskAdded {
@@ -327,6 +543,14 @@ public class TasksRepository {
         void onError(String error);
     }
 
+    public interface OnPendingChanged {
+        void onPendingChanged(Set<String> pendingIds, boolean storeChanged);
+    }
+
+    public interface OnSuccessCallback<T> {
+        void onSuccess(T result);
+    }
+
     public interface OnErrorCallback {
         void onError(String error);
     }
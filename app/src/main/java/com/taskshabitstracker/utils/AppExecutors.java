@@ -0,0 +1,68 @@
+// AppExecutors.java - Shared thread pools for disk and main-thread work
+package com.taskshabitstracker.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AppExecutors - Process-wide executors
+ * diskIO runs database reads/writes sequentially off the main thread,
+ * search runs search-as-you-type queries so they never wait behind a sync write,
+ * lists sorts, filters and groups in-memory lists for the screens,
+ * mainThread posts results back to the UI
+ */
+public class AppExecutors {
+    private static AppExecutors instance;
+
+    private final ExecutorService diskIO;
+    private final ExecutorService search;
+    private final ExecutorService lists;
+    private final Executor mainThread;
+
+    private AppExecutors() {
+        diskIO = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "disk-io");
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        search = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "search"));
+        lists = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "lists"));
+        mainThread = new MainThreadExecutor();
+    }
+
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors();
+        }
+        return instance;
+    }
+
+    public ExecutorService diskIO() {
+        return diskIO;
+    }
+
+    public ExecutorService search() {
+        return search;
+    }
+
+    public ExecutorService lists() {
+        return lists;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mainHandler.post(command);
+        }
+    }
+}
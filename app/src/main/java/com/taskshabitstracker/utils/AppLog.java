@@ -0,0 +1,141 @@
+// AppLog.java - Structured logging that costs nothing when it is off
+package com.taskshabitstracker.utils;
+
+import android.util.Log;
+import com.taskshabitstracker.BuildConfig;
+import java.util.Collection;
+
+/**
+ * AppLog - Logging facade for hot paths (list loads, scrolling, sync)
+ * Calls take a fixed message plus up to three key/value fields instead of a
+ * concatenated string; the line is only assembled once the level is known to be
+ * enabled, so a disabled call builds no strings. Debug and info calls are off in
+ * release builds and R8 removes them entirely (see proguard-rules.pro).
+ * Values are rendered defensively: collections as their size and first few items,
+ * anything else cut to MAX_VALUE_CHARS, so no call can dump a whole payload.
+ * Pass values that are already at hand (ids, sizes); never compute one just to log it
+ */
+public final class AppLog {
+    public static final boolean DEBUG = BuildConfig.DEBUG;
+
+    static final int MAX_VALUE_CHARS = 200;
+    static final int MAX_SAMPLED_ITEMS = 3;
+
+    private AppLog() {}
+
+    public static void d(String tag, String message) {
+        if (DEBUG) Log.d(tag, message);
+    }
+
+    public static void d(String tag, String message, String key, Object value) {
+        if (DEBUG) Log.d(tag, format(message, key, value, null, null, null, null));
+    }
+
+    public static void d(String tag, String message, String key1, Object value1,
+                         String key2, Object value2) {
+        if (DEBUG) Log.d(tag, format(message, key1, value1, key2, value2, null, null));
+    }
+
+    public static void d(String tag, String message, String key1, Object value1,
+                         String key2, Object value2, String key3, Object value3) {
+        if (DEBUG) Log.d(tag, format(message, key1, value1, key2, value2, key3, value3));
+    }
+
+    public static void i(String tag, String message) {
+        if (DEBUG) Log.i(tag, message);
+    }
+
+    public static void i(String tag, String message, String key, Object value) {
+        if (DEBUG) Log.i(tag, format(message, key, value, null, null, null, null));
+    }
+
+    // Warnings and errors are rare and stay on in release, still truncated
+
+    public static void w(String tag, String message) {
+        Log.w(tag, message);
+    }
+
+    public static void w(String tag, String message, String key, Object value) {
+        Log.w(tag, format(message, key, value, null, null, null, null));
+    }
+
+    public static void w(String tag, String message, String key1, Object value1,
+                         String key2, Object value2) {
+        Log.w(tag, format(message, key1, value1, key2, value2, null, null));
+    }
+
+    public static void e(String tag, String message) {
+        Log.e(tag, message);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        Log.e(tag, message, error);
+    }
+
+    public static void e(String tag, String message, Throwable error, String key, Object value) {
+        Log.e(tag, format(message, key, value, null, null, null, null), error);
+    }
+
+    public static void e(String tag, String message, Throwable error, String key1, Object value1,
+                         String key2, Object value2) {
+        Log.e(tag, format(message, key1, value1, key2, value2, null, null), error);
+    }
+
+    public static void e(String tag, String message, String key, Object value) {
+        Log.e(tag, format(message, key, value, null, null, null, null));
+    }
+
+    public static void e(String tag, String message, String key1, Object value1,
+                         String key2, Object value2) {
+        Log.e(tag, format(message, key1, value1, key2, value2, null, null));
+    }
+
+    public static void e(String tag, String message, String key1, Object value1,
+                         String key2, Object value2, String key3, Object value3) {
+        Log.e(tag, format(message, key1, value1, key2, value2, key3, value3));
+    }
+
+    static String format(String message, String key1, Object value1, String key2, Object value2,
+                         String key3, Object value3) {
+        StringBuilder line = new StringBuilder(message);
+        appendField(line, key1, value1);
+        appendField(line, key2, value2);
+        appendField(line, key3, value3);
+        return line.toString();
+    }
+
+    private static void appendField(StringBuilder line, String key, Object value) {
+        if (key == null) return;
+        line.append(' ').append(key).append('=');
+        if (value instanceof Collection) {
+            appendSample(line, (Collection<?>) value);
+        } else {
+            appendTruncated(line, String.valueOf(value));
+        }
+    }
+
+    // Size plus the first few items, e.g. [size=120: a, b, c, ...]
+    private static void appendSample(StringBuilder line, Collection<?> items) {
+        line.append("[size=").append(items.size());
+        int shown = 0;
+        for (Object item : items) {
+            if (shown == MAX_SAMPLED_ITEMS) {
+                line.append(", ...");
+                break;
+            }
+            line.append(shown == 0 ? ": " : ", ");
+            appendTruncated(line, String.valueOf(item));
+            shown++;
+        }
+        line.append(']');
+    }
+
+    private static void appendTruncated(StringBuilder line, String text) {
+        if (text.length() <= MAX_VALUE_CHARS) {
+            line.append(text);
+        } else {
+            line.append(text, 0, MAX_VALUE_CHARS)
+                    .append("...(").append(text.length() - MAX_VALUE_CHARS).append(" more chars)");
+        }
+    }
+}
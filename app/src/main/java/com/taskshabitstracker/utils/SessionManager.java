@@ -1,14 +1,25 @@
-// SessionManager.java - Enhanced session management with validation
+// SessionManager.java - Process-wide, in-memory session state
 package com.taskshabitstracker.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import com.taskshabitstracker.database.AppDatabase;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * SessionManager - Centralized session management
- * Handles all SharedPreferences operations related to user authentication
- * Provides clean API for session operations with enhanced validation
+ * The stored session is read once, on a background thread, when the process starts;
+ * every check after that is answered from memory. Writes update memory first and
+ * are persisted with apply(), so the main thread never waits on disk. Session
+ * changes are published through getSession(), and the headers that authenticated
+ * requests send are built once per change and shared
  */
 public class SessionManager {
     private static final String TAG = "SessionManager";
@@ -16,29 +27,95 @@ public class SessionManager {
     private static final String EMAIL_KEY = "user_email";
     private static final String SESSION_KEY = "user_session";
     private static final String LOGIN_TIME_KEY = "login_time";
+    // Server session cookie, kept where the repositories have always stored it
+    private static final String COOKIE_PREFS_NAME = "TasksPrefs";
+    private static final String COOKIE_KEY = "jsessionid";
 
+    private static SessionManager instance;
+
+    private final Context appContext;
     private final SharedPreferences sharedPreferences;
+    private final SharedPreferences cookiePreferences;
+    private final MutableLiveData<Session> sessionLiveData = new MutableLiveData<>();
+
+    private volatile boolean loaded;
+    private volatile Session session = Session.LOGGED_OUT;
+    private volatile Map<String, String> authHeaders = Collections.emptyMap();
+    private volatile Map<String, String> cookieHeaders = Collections.emptyMap();
 
-    public SessionManager(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    private SessionManager(Context context) {
+        appContext = context.getApplicationContext();
+        sharedPreferences = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        cookiePreferences = appContext.getSharedPreferences(COOKIE_PREFS_NAME, Context.MODE_PRIVATE);
+        AppExecutors.getInstance().diskIO().execute(this::load);
+    }
+
+    public static synchronized SessionManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new SessionManager(context);
+        }
+        return instance;
+    }
+
+    private synchronized void load() {
+        if (loaded) return;
+        Session stored = new Session(
+                sharedPreferences.getString(EMAIL_KEY, null),
+                sharedPreferences.getString(SESSION_KEY, null),
+                sharedPreferences.getLong(LOGIN_TIME_KEY, 0));
+        String cookie = cookiePreferences.getString(COOKIE_KEY, null);
+        setSession(stored);
+        setCookie(cookie);
+        loaded = true;
+        AppLog.d(TAG, "Session loaded", "loggedIn", stored.isLoggedIn());
     }
 
     /**
-     * Check if user is currently logged in with enhanced validation
-     * @return true if user has valid session, false otherwise
+     * Current session; only reads from disk if called before the startup load has run
      */
-    public boolean isUserLoggedIn() {
-        String email = sharedPreferences.getString(EMAIL_KEY, null);
-        String session = sharedPreferences.getString(SESSION_KEY, null);
+    public Session current() {
+        ensureLoaded();
+        return session;
+    }
 
-        boolean isLoggedIn = email != null && !email.isEmpty() &&
-                session != null && !session.isEmpty();
+    /**
+     * Session changes, starting with the stored session once it is loaded
+     */
+    public LiveData<Session> getSession() {
+        return sessionLiveData;
+    }
 
-        Log.d(TAG, "Session check - Email: " + (email != null ? "present" : "null") +
-                ", Session: " + (session != null ? "present" : "null") +
-                ", IsLoggedIn: " + isLoggedIn);
+    /**
+     * Run onEnded on the main thread each time the signed-in user's data has to go: on
+     * logout, even when nobody was signed in, and when another user's session replaced
+     * this one before the logout was delivered. For state derived from the offline cache;
+     * the store wipe is queued on diskIO first, so work posted there sees it cleared
+     */
+    public void observeSessionEnd(Runnable onEnded) {
+        AppExecutors.getInstance().mainThread().execute(() ->
+                sessionLiveData.observeForever(new Observer<Session>() {
+                    @Nullable
+                    private Session previous;
 
-        return isLoggedIn;
+                    @Override
+                    public void onChanged(Session next) {
+                        // Posted values can be conflated, so a switch of user counts as a logout too
+                        boolean ended = !next.isLoggedIn() || (previous != null && previous.isLoggedIn()
+                                && !Objects.equals(previous.email, next.email));
+                        previous = next;
+                        if (ended) {
+                            onEnded.run();
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * Check if user is currently logged in
+     * @return true if user has valid session, false otherwise
+     */
+    public boolean isUserLoggedIn() {
+        return current().isLoggedIn();
     }
 
     /**
@@ -48,19 +125,21 @@ public class SessionManager {
      */
     public void saveSession(String email, String sessionToken) {
         if (email == null || email.isEmpty() || sessionToken == null || sessionToken.isEmpty()) {
-            Log.e(TAG, "Cannot save session - email or token is null/empty");
+            AppLog.e(TAG, "Cannot save session - email or token is null/empty");
             return;
         }
-
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.putString(EMAIL_KEY, email);
-        editor.putString(SESSION_KEY, sessionToken);
-        editor.putLong(LOGIN_TIME_KEY, System.currentTimeMillis());
-
-        boolean success = editor.commit(); // Use commit() to ensure immediate write
-
-        Log.d(TAG, "Session save " + (success ? "successful" : "failed") +
-                " for email: " + email + ", token length: " + sessionToken.length());
+        // Load first so a late background load cannot overwrite the write
+        ensureLoaded();
+        Session saved = new Session(email, sessionToken, System.currentTimeMillis());
+        synchronized (this) {
+            setSession(saved);
+        }
+        sharedPreferences.edit()
+                .putString(EMAIL_KEY, email)
+                .putString(SESSION_KEY, sessionToken)
+                .putLong(LOGIN_TIME_KEY, saved.loginTime)
+                .apply();
+        AppLog.d(TAG, "Session saved");
     }
 
     /**
@@ -68,7 +147,7 @@ public class SessionManager {
      * @return User's email or null if not logged in
      */
     public String getUserEmail() {
-        return sharedPreferences.getString(EMAIL_KEY, null);
+        return current().email;
     }
 
     /**
@@ -76,7 +155,7 @@ public class SessionManager {
      * @return Session token or null if not logged in
      */
     public String getSessionToken() {
-        return sharedPreferences.getString(SESSION_KEY, null);
+        return current().token;
     }
 
     /**
@@ -84,23 +163,68 @@ public class SessionManager {
      * @return Login time in milliseconds or 0 if not available
      */
     public long getLoginTime() {
-        return sharedPreferences.getLong(LOGIN_TIME_KEY, 0);
+        return current().loginTime;
     }
 
     /**
-     * Clear all session data (logout)
+     * Headers for requests authenticated with the session token; shared, do not modify
      */
-    public void clearSession() {
-        Log.d(TAG, "Clearing session for user: " + getUserEmail());
+    public Map<String, String> getAuthHeaders() {
+        ensureLoaded();
+        return authHeaders;
+    }
 
-        SharedPreferences.Editor editor = sharedPreferences.edit();
-        editor.remove(EMAIL_KEY);
-        editor.remove(SESSION_KEY);
-        editor.remove(LOGIN_TIME_KEY);
+    /**
+     * Headers carrying the server session cookie; shared, do not modify
+     */
+    public Map<String, String> getCookieHeaders() {
+        ensureLoaded();
+        return cookieHeaders;
+    }
 
-        boolean success = editor.commit(); // Use commit() to ensure immediate clear
+    /**
+     * Remember the server session cookie from a Set-Cookie header
+     */
+    public void saveSessionCookie(String sessionId) {
+        ensureLoaded();
+        if (sessionId.equals(currentCookie())) return;
+        synchronized (this) {
+            setCookie(sessionId);
+        }
+        cookiePreferences.edit().putString(COOKIE_KEY, sessionId).apply();
+        AppLog.d(TAG, "Saved session cookie");
+    }
 
-        Log.d(TAG, "Session clear " + (success ? "successful" : "failed"));
+    public void clearSessionCookie() {
+        ensureLoaded();
+        synchronized (this) {
+            setCookie(null);
+        }
+        cookiePreferences.edit().remove(COOKIE_KEY).apply();
+    }
+
+    /**
+     * Clear all session data (logout)
+     * The offline cache is wiped even when no session is held in memory, since rows
+     * from an earlier session may still be stored. The wipe includes the outbox, so
+     * edits not yet sent are lost; they belong to the user who is leaving. State
+     * derived from the cache is dropped by its owners through observeSessionEnd
+     */
+    public void clearSession() {
+        ensureLoaded();
+        AppLog.d(TAG, "Clearing session", "loggedIn", session.isLoggedIn());
+
+        // Queued before the logout is published so the owners' reloads run after it
+        AppExecutors.getInstance().diskIO().execute(() ->
+                AppDatabase.getInstance(appContext).clearAllTables());
+        synchronized (this) {
+            setSession(Session.LOGGED_OUT);
+        }
+        sharedPreferences.edit()
+                .remove(EMAIL_KEY)
+                .remove(SESSION_KEY)
+                .remove(LOGIN_TIME_KEY)
+                .apply();
     }
 
     /**
@@ -108,21 +232,12 @@ public class SessionManager {
      * @return true if session data is complete and valid
      */
     public boolean validateSession() {
-        String email = getUserEmail();
-        String token = getSessionToken();
-        long loginTime = getLoginTime();
-
-        boolean isValid = email != null && !email.isEmpty() &&
-                token != null && !token.isEmpty() &&
-                loginTime > 0;
-
-        Log.d(TAG, "Session validation: " + isValid);
-
-        if (!isValid) {
-            Log.w(TAG, "Invalid session detected - clearing session data");
+        Session current = current();
+        boolean isValid = current.isLoggedIn() && current.loginTime > 0;
+        if (!isValid && current.email != null) {
+            AppLog.w(TAG, "Invalid session detected - clearing session data");
             clearSession();
         }
-
         return isValid;
     }
 
@@ -130,11 +245,62 @@ public class SessionManager {
      * Debug method to log current session state
      */
     public void logSessionState() {
-        Log.d(TAG, "=== Session State ===");
-        Log.d(TAG, "Email: " + (getUserEmail() != null ? "present" : "null"));
-        Log.d(TAG, "Token: " + (getSessionToken() != null ? "present" : "null"));
-        Log.d(TAG, "Login time: " + getLoginTime());
-        Log.d(TAG, "Is logged in: " + isUserLoggedIn());
-        Log.d(TAG, "===================");
-    }
-}
\ No newline at end of file
+        Session current = current();
+        AppLog.d(TAG, "Session state", "email", current.email != null ? "present" : "null",
+                "token", current.token != null ? "present" : "null", "loginTime", current.loginTime);
+    }
+
+    // Callers hold the monitor so session and headers change together
+    private void setSession(Session newSession) {
+        session = newSession;
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        if (newSession.token != null && !newSession.token.isEmpty()) {
+            headers.put("Authorization", "Bearer " + newSession.token);
+        }
+        authHeaders = Collections.unmodifiableMap(headers);
+        sessionLiveData.postValue(newSession);
+    }
+
+    private void setCookie(@Nullable String sessionId) {
+        if (sessionId == null) {
+            cookieHeaders = Collections.emptyMap();
+        } else {
+            cookieHeaders = Collections.singletonMap("Cookie", "JSESSIONID=" + sessionId);
+        }
+    }
+
+    @Nullable
+    private String currentCookie() {
+        String cookie = cookieHeaders.get("Cookie");
+        return cookie != null ? cookie.substring("JSESSIONID=".length()) : null;
+    }
+
+    // Loads inline if the background load has not run yet (e.g. when called from diskIO itself)
+    private void ensureLoaded() {
+        if (!loaded) {
+            load();
+        }
+    }
+
+    /**
+     * Immutable snapshot of the signed-in user
+     */
+    public static final class Session {
+        public static final Session LOGGED_OUT = new Session(null, null, 0);
+
+        @Nullable public final String email;
+        @Nullable public final String token;
+        public final long loginTime;
+
+        Session(@Nullable String email, @Nullable String token, long loginTime) {
+            this.email = email;
+            this.token = token;
+            this.loginTime = loginTime;
+        }
+
+        public boolean isLoggedIn() {
+            return email != null && !email.isEmpty() && token != null && !token.isEmpty();
+        }
+    }
+}
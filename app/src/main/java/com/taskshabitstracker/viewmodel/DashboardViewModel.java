@@ -8,34 +8,28 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import com.taskshabitstracker.model.DashboardStats;
 import com.taskshabitstracker.repository.DashboardRepository;
+import com.taskshabitstracker.utils.AppLog;
 
 public class DashboardViewModel extends AndroidViewModel {
+    private static final String TAG = "DashboardViewModel";
     private final DashboardRepository repository;
-    private final MutableLiveData<DashboardStats> dashboardStats = new MutableLiveData<>();
+    private final LiveData<DashboardStats> dashboardStats;
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
 
     public DashboardViewModel(@NonNull Application application) {
         super(application);
-        repository = new DashboardRepository(application);
+        repository = DashboardRepository.getInstance(application);
+        // Counted locally, so the dashboard is filled instantly and offline
+        dashboardStats = repository.getStats();
     }
 
     public void loadDashboardData() {
-        isLoading.setValue(true);
-
-        repository.getDashboardStats(
-                stats -> {
-                    isLoading.setValue(false);
-                    dashboardStats.setValue(stats);
-                },
-                error -> {
-                    isLoading.setValue(false);
-                    errorMessage.setValue(error);
-                }
-        );
+        // The server is only asked now and then, to pick up points and streak
+        repository.reconcileIfStale(error -> AppLog.w(TAG, "Dashboard reconciliation failed", "error", error));
     }
 
     public LiveData<DashboardStats> getDashboardStats() { return dashboardStats; }
     public LiveData<Boolean> getIsLoading() { return isLoading; }
     public LiveData<String> getErrorMessage() { return errorMessage; }
-}
\ No newline at end of file
+}
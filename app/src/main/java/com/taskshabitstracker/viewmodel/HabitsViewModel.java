@@ -1,127 +1,264 @@
 package com.taskshabitstracker.viewmodel;
 
 import android.app.Application;
-import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import com.taskshabitstracker.database.OutboxDao;
+import com.taskshabitstracker.domain.PendingEdits;
+import com.taskshabitstracker.domain.StateStore;
 import com.taskshabitstracker.model.Habit;
 import com.taskshabitstracker.repository.DashboardRepository;
 import com.taskshabitstracker.repository.HabitsRepository;
+import com.taskshabitstracker.repository.SearchRepository;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.DateUtils;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 public class HabitsViewModel extends AndroidViewModel {
     private static final String TAG = "HabitsViewModel";
     private final HabitsRepository repository;
     private final MutableLiveData<List<Habit>> habits = new MutableLiveData<>();
+    // Source of the published list: each change publishes a new immutable snapshot
+    // sharing all unchanged habits with the previous one
+    private final StateStore<Habit> habitStore = new StateStore<>(Habit::getId);
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
+    private final MutableLiveData<Set<String>> pendingHabitIds = new MutableLiveData<>(Collections.emptySet());
+    private final OutboxDao.OnOutboxChangedListener outboxListener;
+    private final SearchRepository search;
+    private final MutableLiveData<List<Habit>> searchResults = new MutableLiveData<>();
+    private String searchQuery = "";
+    // List shown by the current load; a fresh cache hit hands the same one to both callbacks
+    private List<Habit> loadedHabits;
 
     public HabitsViewModel(@NonNull Application application) {
         super(application);
-        repository = new HabitsRepository(application);
+        repository = HabitsRepository.getInstance(application);
+        search = SearchRepository.getInstance(application);
+        // Rows with queued changes; the list itself is republished when the outbox rewrote it
+        outboxListener = repository.addPendingObserver((pendingIds, storedHabits) -> {
+            pendingHabitIds.setValue(pendingIds);
+            if (storedHabits != null && habits.getValue() != null) {
+                habitStore.reset(storedHabits);
+                publishHabits();
+            }
+            if (storedHabits != null) refreshSearch();
+        });
+    }
+
+    /**
+     * Search cached habits as the user types; an empty query ends the search
+     * Results arrive through getSearchResults, which holds null while not searching
+     */
+    public void search(String query) {
+        searchQuery = query.trim();
+        if (searchQuery.isEmpty()) {
+            search.cancelHabitSearch();
+            searchResults.setValue(null);
+            return;
+        }
+        search.searchHabits(searchQuery, searchResults::setValue);
+    }
+
+    /**
+     * Re-run the current query once a change to the stored habits is durable
+     */
+    public void refreshSearch() {
+        if (isSearching()) search.searchHabits(searchQuery, searchResults::setValue);
+    }
+
+    public boolean isSearching() {
+        return !searchQuery.isEmpty();
     }
 
     public void loadHabits() {
-        Log.d(TAG, "Loading habits from repository");
+        AppLog.d(TAG, "Loading habits from repository");
         isLoading.setValue(true);
+        loadedHabits = null;
         repository.getHabits(
+                cachedList -> {
+                    loadedHabits = cachedList;
+                    habitStore.reset(cachedList);
+                    publishHabits();
+                    AppLog.d(TAG, "Cached habits shown", "count", cachedList.size());
+                },
                 habitList -> {
                     isLoading.setValue(false);
-                    habits.setValue(new ArrayList<>(habitList));
-                    Log.d(TAG, "Habits loaded: " + habitList.toString());
+                    refreshSearch();
+                    if (habitList == loadedHabits) return;
+                    loadedHabits = habitList;
+                    habitStore.reset(habitList);
+                    publishHabits();
+                    AppLog.d(TAG, "Habits loaded", "count", habitList.size());
                 },
                 error -> {
                     isLoading.setValue(false);
                     errorMessage.setValue(error);
-                    Log.e(TAG, "Error loading habits: " + error);
+                    AppLog.e(TAG, "Error loading habits", "message", error);
                 }
         );
     }
 
     public void toggleHabitCompletion(Habit habit) {
-        List<Habit> currentHabits = habits.getValue();
-        if (currentHabits != null) {
-            List<Habit> updatedHabits = new ArrayList<>(currentHabits);
-            for (Habit h : updatedHabits) {
-                if (h.getId().equals(habit.getId())) {
-                    h.toggleCompletedToday();
-                    break;
-                }
-            }
-            habits.setValue(updatedHabits);
-            Log.d(TAG, "Habit completion toggled locally: " + habit.getId());
-        }
+        int today = DateUtils.today();
+        Habit toggled = habit.toggledCompletedToday(today);
+        PendingEdits.Edit<Habit> edit = habitStore.put(toggled);
+        publishHabits();
+        AppLog.d(TAG, "Habit completion toggled locally", "id", habit.getId());
 
         isLoading.setValue(true);
-        repository.toggleHabitCompletion(habit,
+        repository.toggleHabitCompletion(toggled, today,
                 () -> {
+                    habitStore.commit(edit);
                     isLoading.setValue(false);
-                    Log.d(TAG, "Habit completion toggled on server: " + habit.getId());
+                    refreshSearch();
+                    AppLog.d(TAG, "Habit completion queued for server", "id", habit.getId());
                 },
                 error -> {
-                    if (currentHabits != null) {
-                        List<Habit> updatedHabits = new ArrayList<>(currentHabits);
-                        for (Habit h : updatedHabits) {
-                            if (h.getId().equals(habit.getId())) {
-                                h.toggleCompletedToday(); // Revert
-                                break;
-                            }
-                        }
-                        habits.setValue(updatedHabits);
-                        Log.d(TAG, "Habit completion reverted: " + habit.getId());
-                    }
+                    // Reverts this toggle only; a later toggle of the same habit stays shown
+                    if (habitStore.rollback(edit)) publishHabits();
+                    AppLog.d(TAG, "Habit completion reverted", "id", habit.getId());
                     isLoading.setValue(false);
                     errorMessage.setValue(error);
-                    Log.e(TAG, "Error toggling habit: " + error);
+                    AppLog.e(TAG, "Error toggling habit", "message", error);
                 }
         );
     }
 
+    /**
+     * Publish the store's current snapshot; it is immutable, so the adapter can diff it off the main thread
+     */
+    private void publishHabits() {
+        habits.setValue(habitStore.snapshot());
+    }
+
     public void deleteHabit(Habit habit, Runnable onSuccess, DashboardRepository.OnErrorCallback onError) {
-        List<Habit> currentHabits = habits.getValue();
-        Log.d(TAG, "Before removal: " + (currentHabits != null ? currentHabits.toString() : "null"));
-        List<Habit> updatedHabits = currentHabits != null ? new ArrayList<>(currentHabits) : new ArrayList<>();
-        updatedHabits.removeIf(h -> h.getId().equals(habit.getId()));
-        habits.setValue(updatedHabits);
-        Log.d(TAG, "Habit removed locally: " + habit.getId() + ", Updated habits: " + updatedHabits.toString());
+        PendingEdits.Edit<Habit> edit = habitStore.remove(habit.getId());
+        publishHabits();
+        AppLog.d(TAG, "Habit removed locally", "id", habit.getId());
 
         isLoading.setValue(true);
         repository.deleteHabit(habit,
                 () -> {
+                    habitStore.commit(edit);
                     isLoading.setValue(false);
+                    refreshSearch();
                     onSuccess.run();
-                    Log.d(TAG, "Habit deleted successfully: " + habit.getId());
-                    loadHabits();
+                    AppLog.d(TAG, "Habit deletion queued", "id", habit.getId());
                 },
                 error -> {
-                    updatedHabits.add(habit);
-                    habits.setValue(new ArrayList<>(updatedHabits));
-                    Log.d(TAG, "Habit deletion reverted: " + habit.getId() + ", Reverted habits: " + updatedHabits.toString());
+                    // The habit returns to its old position
+                    if (habitStore.rollback(edit)) publishHabits();
+                    AppLog.d(TAG, "Habit deletion reverted", "id", habit.getId());
                     isLoading.setValue(false);
                     onError.onError(error);
-                    Log.e(TAG, "Error deleting habit: " + error);
+                    AppLog.e(TAG, "Error deleting habit", "message", error);
                 }
         );
     }
 
+    /**
+     * Mark several habits done or not done today as one optimistic change, saved as one bulk edit
+     * Habits already in that state are skipped. If the edit cannot be saved, each habit
+     * goes back unless it was toggled again since
+     */
+    public void setHabitsCompletedToday(List<Habit> selected, boolean completed, Runnable onSuccess,
+                                        DashboardRepository.OnErrorCallback onError) {
+        int today = DateUtils.today();
+        List<Habit> toggled = new ArrayList<>(selected.size());
+        List<PendingEdits.Edit<Habit>> edits = new ArrayList<>(selected.size());
+        for (Habit habit : selected) {
+            Habit current = habitStore.get(habit.getId());
+            if (current == null || current.getHistory().isCompleted(today) == completed) continue;
+            Habit replacement = current.toggledCompletedToday(today);
+            toggled.add(replacement);
+            edits.add(habitStore.put(replacement));
+        }
+        if (toggled.isEmpty()) {
+            onSuccess.run();
+            return;
+        }
+        publishHabits();
+        AppLog.d(TAG, "Habits toggled locally", "count", toggled.size(), "completed", completed);
+
+        isLoading.setValue(true);
+        repository.toggleHabits(toggled, today,
+                () -> {
+                    for (PendingEdits.Edit<Habit> edit : edits) {
+                        habitStore.commit(edit);
+                    }
+                    isLoading.setValue(false);
+                    refreshSearch();
+                    onSuccess.run();
+                    AppLog.d(TAG, "Bulk completion queued for server", "count", toggled.size());
+                },
+                error -> rollback(edits, onError, error)
+        );
+    }
+
+    /**
+     * Delete several habits as one optimistic change, saved as one bulk edit
+     */
+    public void deleteHabits(List<Habit> selected, Runnable onSuccess, DashboardRepository.OnErrorCallback onError) {
+        if (selected.isEmpty()) {
+            onSuccess.run();
+            return;
+        }
+        List<PendingEdits.Edit<Habit>> edits = new ArrayList<>(selected.size());
+        for (Habit habit : selected) {
+            edits.add(habitStore.remove(habit.getId()));
+        }
+        publishHabits();
+        AppLog.d(TAG, "Habits removed locally", "count", selected.size());
+
+        isLoading.setValue(true);
+        repository.deleteHabits(selected,
+                () -> {
+                    for (PendingEdits.Edit<Habit> edit : edits) {
+                        habitStore.commit(edit);
+                    }
+                    isLoading.setValue(false);
+                    refreshSearch();
+                    onSuccess.run();
+                    AppLog.d(TAG, "Bulk deletion queued", "count", selected.size());
+                },
+                error -> rollback(edits, onError, error)
+        );
+    }
+
+    // Undo the edits of a bulk change that could not be saved, skipping habits edited again since
+    private void rollback(List<PendingEdits.Edit<Habit>> edits, DashboardRepository.OnErrorCallback onError,
+                          String error) {
+        int reverted = 0;
+        for (PendingEdits.Edit<Habit> edit : edits) {
+            if (habitStore.rollback(edit)) reverted++;
+        }
+        if (reverted > 0) publishHabits();
+        AppLog.d(TAG, "Bulk edit reverted", "count", reverted);
+        isLoading.setValue(false);
+        onError.onError(error);
+        AppLog.e(TAG, "Error saving bulk edit", "message", error);
+    }
+
     public void addHabit(Habit habit) {
         isLoading.setValue(true);
         repository.addHabit(habit,
                 newHabit -> {
-                    List<Habit> currentHabits = habits.getValue();
-                    List<Habit> updatedHabits = currentHabits != null ? new ArrayList<>(currentHabits) : new ArrayList<>();
-                    updatedHabits.add(newHabit);
-                    habits.setValue(updatedHabits);
-                    Log.d(TAG, "Habit added locally: " + newHabit.getId());
+                    habitStore.putConfirmed(newHabit);
+                    publishHabits();
+                    AppLog.d(TAG, "Habit added locally", "id", newHabit.getId());
                     isLoading.setValue(false);
+                    refreshSearch();
                 },
                 error -> {
                     isLoading.setValue(false);
                     errorMessage.setValue(error);
-                    Log.e(TAG, "Error adding habit: " + error);
+                    AppLog.e(TAG, "Error adding habit", "message", error);
                 }
         );
     }
@@ -129,4 +266,13 @@ public class HabitsViewModel extends AndroidViewModel {
     public LiveData<List<Habit>> getHabits() { return habits; }
     public LiveData<Boolean> getIsLoading() { return isLoading; }
     public LiveData<String> getErrorMessage() { return errorMessage; }
+    public LiveData<Set<String>> getPendingHabitIds() { return pendingHabitIds; }
+    public LiveData<List<Habit>> getSearchResults() { return searchResults; }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        repository.removePendingObserver(outboxListener);
+        search.cancelHabitSearch();
+    }
 }
\ No newline at end of file
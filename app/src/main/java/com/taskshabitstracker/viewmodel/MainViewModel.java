@@ -37,7 +37,7 @@ public class MainViewModel extends AndroidViewModel {
 
         // Initialize dependencies
         authRepository = new AuthRepository(application);
-        sessionManager = new SessionManager(application);
+        sessionManager = SessionManager.getInstance(application);
     }
 
     /**
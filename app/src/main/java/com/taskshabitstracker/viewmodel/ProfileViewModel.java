@@ -16,17 +16,16 @@ public class ProfileViewModel extends AndroidViewModel {
 
     public ProfileViewModel(@NonNull Application application) {
         super(application);
-        repository = new ProfileRepository(application);
+        repository = ProfileRepository.getInstance(application);
     }
 
     public void loadUserProfile() {
         isLoading.setValue(true);
 
+        // The last profile is shown while the server's copy is fetched
         repository.getUserProfile(
-                profile -> {
-                    isLoading.setValue(false);
-                    userProfile.setValue(profile);
-                },
+                this::showProfile,
+                this::showProfile,
                 error -> {
                     isLoading.setValue(false);
                     errorMessage.setValue(error);
@@ -34,6 +33,12 @@ public class ProfileViewModel extends AndroidViewModel {
         );
     }
 
+    private void showProfile(UserProfile profile) {
+        isLoading.setValue(false);
+        // A fresh profile comes through both callbacks
+        if (profile != userProfile.getValue()) userProfile.setValue(profile);
+    }
+
     public LiveData<UserProfile> getUserProfile() { return userProfile; }
     public LiveData<Boolean> getIsLoading() { return isLoading; }
     public LiveData<String> getErrorMessage() { return errorMessage; }
@@ -2,30 +2,48 @@ package com.taskshabitstracker.viewmodel;
 
 import android.app.Application;
 import android.content.SharedPreferences;
-import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
 import com.android.volley.Request;
+import com.taskshabitstracker.database.OutboxDao;
+import com.taskshabitstracker.domain.PendingEdits;
+import com.taskshabitstracker.domain.SortedTaskList;
+import com.taskshabitstracker.domain.StreakRules;
+import com.taskshabitstracker.domain.TaskQuery;
 import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.repository.DashboardRepository;
+import com.taskshabitstracker.repository.ProfileRepository;
+import com.taskshabitstracker.repository.SearchRepository;
+import com.taskshabitstracker.repository.StatsAggregator;
 import com.taskshabitstracker.repository.TasksRepository;
 import com.taskshabitstracker.network.AuthenticatedJsonRequest;
 import com.taskshabitstracker.network.VolleySingleton;
+import com.taskshabitstracker.notifications.ReminderScheduler;
+import com.taskshabitstracker.paging.PagedWindow;
+import com.taskshabitstracker.paging.TaskListPipeline;
 import org.json.JSONObject;
 import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 import com.taskshabitstracker.workers.NotificationWorker;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.AppExecutors;
+import com.taskshabitstracker.utils.DateUtils;
 import com.taskshabitstracker.utils.SessionManager;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 
 public class TasksViewModel extends AndroidViewModel {
@@ -34,94 +52,199 @@ public class TasksViewModel extends AndroidViewModel {
     private final MutableLiveData<List<Task>> tasks = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
+    private final MutableLiveData<Set<String>> pendingTaskIds = new MutableLiveData<>(Collections.emptySet());
+    private final OutboxDao.OnOutboxChangedListener outboxListener;
+    private final PagedWindow<Task> taskWindow;
+    private final TaskListPipeline taskPipeline;
+    // Owner tag of the server page fetches this screen starts, cancelled in onCleared
+    private final Object requestTag = new Object();
+    private TaskQuery taskQuery = TaskQuery.DEFAULT;
+    // Sections of the list last published to tasks; empty unless grouped
+    private List<SortedTaskList.Section> taskSections = Collections.emptyList();
+    // Optimistic toggles and deletes still waiting for the outbox, so each failure undoes only itself
+    private final PendingEdits<Task> taskEdits = new PendingEdits<>();
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int MAX_LOADED_TASKS = 300;
     private static final int POINTS_PER_COMPLETION = 10;
     private static final String USER_URL = "http://10.0.2.2:8080/api/users";
     private static final String TIMELINE_URL = "http://10.0.2.2:8080/api/timeline";
     private final SharedPreferences prefs;
     private final SessionManager sessionManager;
+    private final StatsAggregator stats;
+    private final SearchRepository search;
+    private final MutableLiveData<List<Task>> searchResults = new MutableLiveData<>();
+    private String searchQuery = "";
 
     public TasksViewModel(@NonNull Application application) {
         super(application);
-        repository = new TasksRepository(application);
+        repository = TasksRepository.getInstance(application);
         prefs = application.getSharedPreferences("TasksPrefs", Application.MODE_PRIVATE);
-        sessionManager = new SessionManager(application);
+        sessionManager = SessionManager.getInstance(application);
+        stats = StatsAggregator.getInstance(application);
+        search = SearchRepository.getInstance(application);
+        // Only a bounded window of the list is held in memory; the store is paged as the user scrolls
+        taskWindow = new PagedWindow<>(PAGE_SIZE, PREFETCH_DISTANCE, MAX_LOADED_TASKS,
+                (position, before, limit, callback) ->
+                        repository.loadTaskPage(requestTag, position, before, limit, callback),
+                Task::getId,
+                snapshot -> {
+                    isLoading.setValue(false);
+                    if (!taskQuery.isDefault()) return;
+                    taskSections = Collections.emptyList();
+                    tasks.setValue(snapshot);
+                },
+                this::handleError);
+        // Rows a previous screen left behind are shown until the window's first read replaces them
+        List<Task> cachedTasks = repository.getCachedTasks();
+        if (cachedTasks != null) tasks.setValue(cachedTasks);
+        // Any other view of the list needs every task, sorted off the main thread
+        taskPipeline = new TaskListPipeline(
+                callback -> repository.loadAllTasks(requestTag, callback::onLoaded, callback::onError),
+                snapshot -> {
+                    isLoading.setValue(false);
+                    taskSections = snapshot.sections;
+                    tasks.setValue(snapshot.tasks);
+                },
+                this::handleError);
+        // Rows with queued changes; the window is reloaded when the outbox rewrote stored rows
+        outboxListener = repository.addPendingObserver((pendingIds, storeChanged) -> {
+            pendingTaskIds.setValue(pendingIds);
+            if (storeChanged && tasks.getValue() != null) {
+                taskWindow.refresh();
+            }
+            if (storeChanged) {
+                taskPipeline.reload();
+                refreshSearch();
+            }
+        });
         // Schedule daily streak and inactivity checks
         scheduleStreakAndInactivityCheck();
         // Schedule weekly summary
         scheduleWeeklySummary();
+        // Arm the reminder alarm for tasks and habits already in the store
+        AppExecutors.getInstance().diskIO().execute(() -> ReminderScheduler.getInstance(application).ensureArmed());
     }
 
     public void loadTasks() {
-        Log.d(TAG, "Loading tasks from repository");
+        AppLog.d(TAG, "Loading tasks from repository");
         isLoading.setValue(true);
-        repository.getTasks(new TasksRepository.OnTasksFetched() {
-            @Override
-            public void onSuccess(List<Task> taskList) {
-                isLoading.setValue(false);
-                tasks.setValue(new ArrayList<>(taskList));
-                // Schedule overdue notifications
-                scheduleOverdueNotifications(taskList);
-                Log.d(TAG, "Tasks loaded: " + taskList.size() + " tasks");
-            }
+        // Stored rows are shown right away, then reloaded if the sync changed any
+        taskWindow.refresh();
+        repository.syncTasks(
+                storeChanged -> {
+                    isLoading.setValue(false);
+                    if (storeChanged) {
+                        taskWindow.refresh();
+                        taskPipeline.reload();
+                        refreshSearch();
+                    }
+                    AppLog.d(TAG, "Tasks synced", "changed", storeChanged);
+                },
+                this::handleError);
+    }
 
-            @Override
-            public void onError(String error) {
-                isLoading.setValue(false);
-                if (error.contains("Session expired") || error.contains("401") || error.contains("403")) {
-                    errorMessage.setValue("Session expired. Please log in again.");
-                    sessionManager.clearSession();
-                } else {
-                    errorMessage.setValue(error);
-                }
-                Log.e(TAG, "Error loading tasks: " + error);
-            }
-        });
+    /**
+     * Report the adapter positions on screen so the window can page ahead of the user
+     */
+    public void onTasksVisible(int firstPosition, int lastPosition) {
+        // Sorted views hold every task; positions only map onto the window in server order
+        if (!taskQuery.isDefault()) return;
+        taskWindow.onVisibleRange(firstPosition, lastPosition);
+    }
+
+    /**
+     * Sort, filter or group the task list; TaskQuery.DEFAULT goes back to the paged list
+     */
+    public void setTaskQuery(TaskQuery query) {
+        if (query.equals(taskQuery)) return;
+        taskQuery = query;
+        AppLog.d(TAG, "Task query changed", "query", query);
+        if (query.isDefault()) {
+            taskPipeline.stop();
+            taskWindow.refresh();
+            return;
+        }
+        if (!taskPipeline.isRunning()) isLoading.setValue(true);
+        taskPipeline.setQuery(query);
+    }
+
+    public TaskQuery getTaskQuery() {
+        return taskQuery;
+    }
+
+    /**
+     * Sections of the list last delivered through getTasks, in list positions
+     */
+    public List<SortedTaskList.Section> getTaskSections() {
+        return taskSections;
+    }
+
+    /**
+     * Search cached tasks as the user types; an empty query ends the search
+     * Results arrive through getSearchResults, which holds null while not searching
+     */
+    public void search(String query) {
+        searchQuery = query.trim();
+        if (searchQuery.isEmpty()) {
+            search.cancelTaskSearch();
+            searchResults.setValue(null);
+            return;
+        }
+        search.searchTasks(searchQuery, searchResults::setValue);
+    }
+
+    /**
+     * Re-run the current query once a change to the stored tasks is durable
+     */
+    public void refreshSearch() {
+        if (isSearching()) search.searchTasks(searchQuery, searchResults::setValue);
+    }
+
+    public boolean isSearching() {
+        return !searchQuery.isEmpty();
+    }
+
+    private void handleError(String error) {
+        isLoading.setValue(false);
+        if (error.contains("Session expired") || error.contains("401") || error.contains("403")) {
+            errorMessage.setValue("Session expired. Please log in again.");
+            sessionManager.clearSession();
+        } else {
+            errorMessage.setValue(error);
+        }
+        AppLog.e(TAG, "Error loading tasks", "message", error);
     }
 
     public void toggleTaskCompletion(Task task) {
-        List<Task> currentTasks = tasks.getValue();
         boolean wasCompleted = task.isCompleted();
+        Task toggled = task.withCompleted(!wasCompleted);
 
-        // Update local state optimistically
-        if (currentTasks != null) {
-            List<Task> updatedTasks = new ArrayList<>(currentTasks);
-            for (Task t : updatedTasks) {
-                if (t.getId().equals(task.getId())) {
-                    t.setCompleted(!t.isCompleted());
-                    break;
-                }
-            }
-            tasks.setValue(updatedTasks);
-            Log.d(TAG, "Task completion toggled locally: " + task.getId() + " to " + !wasCompleted);
-        }
+        // Update local state optimistically with a new instance so the adapter can diff it
+        PendingEdits.Edit<Task> edit = taskEdits.record(task.getId(), task, toggled);
+        replaceTask(toggled);
+        AppLog.d(TAG, "Task completion toggled locally", "id", task.getId(), "completed", !wasCompleted);
 
         isLoading.setValue(true);
-        repository.toggleTaskCompletion(task,
+        repository.toggleTaskCompletion(toggled,
                 () -> {
+                    taskEdits.commit(edit);
                     isLoading.setValue(false);
-                    Log.d(TAG, "Task completion toggled on server: " + task.getId());
+                    refreshSearch();
+                    AppLog.d(TAG, "Task completion queued for server", "id", task.getId());
 
                     // If task was just completed, update points and check milestones
                     if (!wasCompleted) {
+                        stats.onPointsEarned(POINTS_PER_COMPLETION);
                         updateUserPoints(POINTS_PER_COMPLETION, task.getTitle());
-                        updateLocalStreakAndMilestones(task.getTitle());
-                        cancelNotification(task.getId());
+                        updateLocalStreakAndMilestones(task.getTitle(), 1);
                         addTimelineEvent(task.getId(), "COMPLETED", "Task '" + task.getTitle() + "' completed");
                     }
                 },
                 error -> {
-                    // Revert local changes on error
-                    if (currentTasks != null) {
-                        List<Task> revertedTasks = new ArrayList<>(currentTasks);
-                        for (Task t : revertedTasks) {
-                            if (t.getId().equals(task.getId())) {
-                                t.setCompleted(wasCompleted);
-                                break;
-                            }
-                        }
-                        tasks.setValue(revertedTasks);
-                        Log.d(TAG, "Task completion reverted: " + task.getId() + " back to " + wasCompleted);
-                    }
+                    // Revert local changes on error, unless a later edit of the task is showing
+                    if (taskEdits.rollback(edit)) replaceTask(edit.getPrevious());
+                    AppLog.d(TAG, "Task completion reverted", "id", task.getId(), "completed", wasCompleted);
                     isLoading.setValue(false);
                     if (error.contains("Session expired") || error.contains("401") || error.contains("403")) {
                         errorMessage.setValue("Session expired. Please log in again.");
@@ -129,11 +252,19 @@ public class TasksViewModel extends AndroidViewModel {
                     } else {
                         errorMessage.setValue(error);
                     }
-                    Log.e(TAG, "Error toggling task: " + error);
+                    AppLog.e(TAG, "Error toggling task", "message", error);
                 }
         );
     }
 
+    /**
+     * Publish a new list where the task with the same id is replaced
+     */
+    private void replaceTask(Task replacement) {
+        taskWindow.replace(replacement);
+        taskPipeline.put(replacement);
+    }
+
     private void updateUserPoints(int pointsToAdd, String taskTitle) {
         String url = USER_URL + "/addPoints";
         JSONObject jsonBody = new JSONObject();
@@ -141,7 +272,7 @@ public class TasksViewModel extends AndroidViewModel {
             jsonBody.put("points", pointsToAdd);
             jsonBody.put("userId", prefs.getString("user_id", "default-user"));
         } catch (Exception e) {
-            Log.e(TAG, "Error creating JSON for points update", e);
+            AppLog.e(TAG, "Error creating JSON for points update", e);
             errorMessage.setValue("Error updating points");
             return;
         }
@@ -152,29 +283,32 @@ public class TasksViewModel extends AndroidViewModel {
                 url,
                 jsonBody,
                 response -> {
-                    Log.d(TAG, "Points updated: " + pointsToAdd);
+                    AppLog.d(TAG, "Points updated", "points", pointsToAdd);
+                    ProfileRepository.getInstance(getApplication()).invalidate();
+                    DashboardRepository.getInstance(getApplication()).invalidate();
                     // Schedule points earned notification
                     schedulePointsNotification(taskTitle, pointsToAdd);
                 },
                 error -> {
                     String errorMsg = "Failed to update points";
                     if (error.networkResponse != null) {
-                        Log.e(TAG, "Points update error - Status code: " + error.networkResponse.statusCode);
+                        AppLog.e(TAG, "Points update error", "status", error.networkResponse.statusCode);
                         errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
                         if (error.networkResponse.data != null) {
                             String responseBody = new String(error.networkResponse.data);
-                            Log.e(TAG, "Points update error response body: " + responseBody);
+                            AppLog.e(TAG, "Points update error response", "body", responseBody);
                             errorMsg += " - " + responseBody;
                         }
                     } else {
-                        Log.e(TAG, "Points update error: " + error.toString(), error);
+                        AppLog.e(TAG, "Points update error", error);
                         errorMsg += ": " + error.getMessage();
                     }
                     errorMessage.setValue(errorMsg);
                 }
         );
 
-        VolleySingleton.getInstance(getApplication()).getRequestQueue().add(request);
+        request.setPriority(Request.Priority.LOW);
+        VolleySingleton.getInstance(getApplication()).getBackgroundQueue().add(request);
     }
 
     private void addTimelineEvent(String taskId, String eventType, String description) {
@@ -186,7 +320,7 @@ public class TasksViewModel extends AndroidViewModel {
             SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault());
             jsonBody.put("timestamp", sdf.format(new java.util.Date()));
         } catch (Exception e) {
-            Log.e(TAG, "Error creating JSON for timeline event", e);
+            AppLog.e(TAG, "Error creating JSON for timeline event", e);
             return;
         }
 
@@ -195,49 +329,161 @@ public class TasksViewModel extends AndroidViewModel {
                 Request.Method.POST,
                 TIMELINE_URL,
                 jsonBody,
-                response -> Log.d(TAG, "Timeline event added: " + eventType),
+                response -> AppLog.d(TAG, "Timeline event added", "type", eventType),
                 error -> {
                     String errorMsg = "Failed to add timeline event";
                     if (error.networkResponse != null) {
-                        Log.e(TAG, "Timeline event error - Status code: " + error.networkResponse.statusCode);
+                        AppLog.e(TAG, "Timeline event error", "status", error.networkResponse.statusCode);
                         errorMsg += " (Status code: " + error.networkResponse.statusCode + ")";
                         if (error.networkResponse.data != null) {
                             String responseBody = new String(error.networkResponse.data);
-                            Log.e(TAG, "Timeline event error response body: " + responseBody);
+                            AppLog.e(TAG, "Timeline event error response", "body", responseBody);
                             errorMsg += " - " + responseBody;
                         }
                     } else {
-                        Log.e(TAG, "Timeline event error: " + error.toString(), error);
+                        AppLog.e(TAG, "Timeline event error", error);
                         errorMsg += ": " + error.getMessage();
                     }
                     errorMessage.setValue(errorMsg);
                 }
         );
 
-        VolleySingleton.getInstance(getApplication()).getRequestQueue().add(request);
+        request.setPriority(Request.Priority.LOW);
+        VolleySingleton.getInstance(getApplication()).getBackgroundQueue().add(request);
+    }
+
+    /**
+     * Complete or uncomplete several tasks as one optimistic change, saved as one bulk edit
+     * Tasks already in that state are skipped. If the edit cannot be saved, each task
+     * goes back unless it was edited again since
+     */
+    public void setTasksCompleted(List<Task> tasks, boolean completed, Runnable onSuccess,
+                                  TasksRepository.OnErrorCallback onError) {
+        List<Task> toggled = new ArrayList<>(tasks.size());
+        List<PendingEdits.Edit<Task>> edits = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (task.isCompleted() == completed) continue;
+            Task replacement = task.withCompleted(completed);
+            toggled.add(replacement);
+            edits.add(taskEdits.record(task.getId(), task, replacement));
+        }
+        if (toggled.isEmpty()) {
+            onSuccess.run();
+            return;
+        }
+        taskWindow.replaceAll(toggled);
+        taskPipeline.putAll(toggled);
+        AppLog.d(TAG, "Tasks toggled locally", "count", toggled.size(), "completed", completed);
+
+        isLoading.setValue(true);
+        repository.toggleTasks(toggled,
+                () -> {
+                    for (PendingEdits.Edit<Task> edit : edits) {
+                        taskEdits.commit(edit);
+                    }
+                    isLoading.setValue(false);
+                    refreshSearch();
+                    if (completed) {
+                        // One points update for the whole selection
+                        int points = POINTS_PER_COMPLETION * toggled.size();
+                        String title = toggled.size() + " tasks";
+                        stats.onPointsEarned(points);
+                        updateUserPoints(points, title);
+                        updateLocalStreakAndMilestones(title, toggled.size());
+                    }
+                    onSuccess.run();
+                    AppLog.d(TAG, "Bulk completion queued for server", "count", toggled.size());
+                },
+                error -> {
+                    List<Task> reverted = new ArrayList<>(edits.size());
+                    for (PendingEdits.Edit<Task> edit : edits) {
+                        if (taskEdits.rollback(edit)) reverted.add(edit.getPrevious());
+                    }
+                    taskWindow.replaceAll(reverted);
+                    taskPipeline.putAll(reverted);
+                    AppLog.d(TAG, "Bulk completion reverted", "count", reverted.size());
+                    isLoading.setValue(false);
+                    onError.onError(error);
+                    AppLog.e(TAG, "Error toggling tasks", "message", error);
+                }
+        );
+    }
+
+    /**
+     * Delete several tasks as one optimistic change, saved as one bulk edit
+     */
+    public void deleteTasks(List<Task> tasks, Runnable onSuccess, TasksRepository.OnErrorCallback onError) {
+        if (tasks.isEmpty()) {
+            onSuccess.run();
+            return;
+        }
+        List<PendingEdits.Edit<Task>> edits = new ArrayList<>(tasks.size());
+        Set<String> ids = new HashSet<>(tasks.size() * 2);
+        for (Task task : tasks) {
+            edits.add(taskEdits.record(task.getId(), task, null));
+            ids.add(task.getId());
+        }
+        SortedMap<Integer, Task> removed = taskWindow.removeAll(ids);
+        taskPipeline.removeAll(ids);
+        AppLog.d(TAG, "Tasks removed locally", "count", tasks.size());
+
+        isLoading.setValue(true);
+        repository.deleteTasks(tasks,
+                () -> {
+                    for (PendingEdits.Edit<Task> edit : edits) {
+                        taskEdits.commit(edit);
+                    }
+                    isLoading.setValue(false);
+                    refreshSearch();
+                    onSuccess.run();
+                    AppLog.d(TAG, "Bulk deletion queued", "count", tasks.size());
+                },
+                error -> {
+                    // Only tasks that were not edited again since come back
+                    Set<String> restoredIds = new HashSet<>(edits.size() * 2);
+                    List<Task> restored = new ArrayList<>(edits.size());
+                    for (PendingEdits.Edit<Task> edit : edits) {
+                        if (taskEdits.rollback(edit)) {
+                            restoredIds.add(edit.getKey());
+                            restored.add(edit.getPrevious());
+                        }
+                    }
+                    removed.values().removeIf(task -> !restoredIds.contains(task.getId()));
+                    taskWindow.restoreAll(removed);
+                    taskPipeline.putAll(restored);
+                    AppLog.d(TAG, "Bulk deletion reverted", "count", restored.size());
+                    isLoading.setValue(false);
+                    onError.onError(error);
+                    AppLog.e(TAG, "Error deleting tasks", "message", error);
+                }
+        );
     }
 
     public void deleteTask(Task task, Runnable onSuccess, TasksRepository.OnErrorCallback onError) {
-        List<Task> currentTasks = tasks.getValue();
-        List<Task> updatedTasks = currentTasks != null ? new ArrayList<>(currentTasks) : new ArrayList<>();
-        updatedTasks.removeIf(t -> t.getId().equals(task.getId()));
-        tasks.setValue(updatedTasks);
-        Log.d(TAG, "Task removed locally: " + task.getId());
+        PendingEdits.Edit<Task> edit = taskEdits.record(task.getId(), task, null);
+        int removedIndex = taskWindow.remove(task.getId());
+        taskPipeline.remove(task.getId());
+        AppLog.d(TAG, "Task removed locally", "id", task.getId());
 
         isLoading.setValue(true);
         repository.deleteTask(task,
                 () -> {
+                    taskEdits.commit(edit);
                     isLoading.setValue(false);
+                    refreshSearch();
                     onSuccess.run();
-                    cancelNotification(task.getId());
                     addTimelineEvent(task.getId(), "DELETED", "Task '" + task.getTitle() + "' deleted");
-                    Log.d(TAG, "Task deleted successfully: " + task.getId());
-                    loadTasks();
+                    AppLog.d(TAG, "Task deletion queued", "id", task.getId());
                 },
                 error -> {
-                    updatedTasks.add(task);
-                    tasks.setValue(new ArrayList<>(updatedTasks));
-                    Log.d(TAG, "Task deletion reverted: " + task.getId());
+                    if (taskEdits.rollback(edit)) {
+                        Task restored = edit.getPrevious();
+                        if (removedIndex >= 0) {
+                            taskWindow.restore(removedIndex, restored);
+                        }
+                        taskPipeline.put(restored);
+                    }
+                    AppLog.d(TAG, "Task deletion reverted", "id", task.getId());
                     isLoading.setValue(false);
                     if (error.contains("Session expired") || error.contains("401") || error.contains("403")) {
                         errorMessage.setValue("Session expired. Please log in again.");
@@ -245,7 +491,7 @@ public class TasksViewModel extends AndroidViewModel {
                     } else {
                         errorMessage.setValue(error);
                     }
-                    Log.e(TAG, "Error deleting task: " + error);
+                    AppLog.e(TAG, "Error deleting task", "message", error);
                 }
         );
     }
@@ -255,15 +501,14 @@ public class TasksViewModel extends AndroidViewModel {
         repository.addTask(task, new TasksRepository.OnTaskAdded() {
             @Override
             public void onTaskAdded(Task newTask) {
-                List<Task> currentTasks = tasks.getValue();
-                List<Task> updatedTasks = currentTasks != null ? new ArrayList<>(currentTasks) : new ArrayList<>();
-                updatedTasks.add(newTask);
-                tasks.setValue(updatedTasks);
-                Log.d(TAG, "Task added locally: " + newTask.getId());
+                // New tasks are stored last; they only join the window if it already reaches the end
+                boolean shown = taskWindow.append(newTask);
+                taskPipeline.put(newTask);
+                AppLog.d(TAG, "Task added locally", "id", newTask.getId(), "inWindow", shown);
                 isLoading.setValue(false);
-                // Schedule task creation and due date notifications
+                refreshSearch();
+                // Due date reminders were scheduled by the repository when the task was stored
                 scheduleTaskCreatedNotification(newTask);
-                scheduleDueDateNotifications(newTask);
                 addTimelineEvent(newTask.getId(), "CREATED", "Task '" + newTask.getTitle() + "' created");
             }
 
@@ -276,7 +521,7 @@ public class TasksViewModel extends AndroidViewModel {
                 } else {
                     errorMessage.setValue(error);
                 }
-                Log.e(TAG, "Error adding task: " + error);
+                AppLog.e(TAG, "Error adding task", "message", error);
             }
         });
     }
@@ -294,7 +539,7 @@ public class TasksViewModel extends AndroidViewModel {
                 .build();
 
         WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-        Log.d(TAG, "Task creation notification scheduled for task: " + task.getId());
+        AppLog.d(TAG, "Task creation notification scheduled", "id", task.getId());
     }
 
     private void schedulePointsNotification(String taskTitle, int points) {
@@ -310,141 +555,19 @@ public class TasksViewModel extends AndroidViewModel {
                 .build();
 
         WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-        Log.d(TAG, "Points notification scheduled for: " + points + " points");
-    }
-
-    private void scheduleDueDateNotifications(Task task) {
-        String dueDateStr = task.getDueDate();
-        if (dueDateStr == null || dueDateStr.isEmpty()) return;
-
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            java.util.Date dueDate = sdf.parse(dueDateStr);
-            Calendar dueCalendar = Calendar.getInstance();
-            dueCalendar.setTime(dueDate);
-            dueCalendar.set(Calendar.HOUR_OF_DAY, 9);
-            dueCalendar.set(Calendar.MINUTE, 0);
-            dueCalendar.set(Calendar.SECOND, 0);
-            dueCalendar.set(Calendar.MILLISECOND, 0);
-
-            // Schedule due date notification
-            if (task.isEnableDueDateNotifications()) {
-                long delay = dueCalendar.getTimeInMillis() - System.currentTimeMillis();
-                if (delay > 0) {
-                    Data inputData = new Data.Builder()
-                            .putString("taskId", task.getId())
-                            .putString("taskTitle", task.getTitle())
-                            .putString("notificationType", "DUE_DATE")
-                            .build();
-
-                    OneTimeWorkRequest notificationWork = new OneTimeWorkRequest.Builder(NotificationWorker.class)
-                            .setInitialDelay(delay, TimeUnit.MILLISECONDS)
-                            .setInputData(inputData)
-                            .addTag(task.getId() + "_due")
-                            .build();
-
-                    WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-                    Log.d(TAG, "Due date notification scheduled for task: " + task.getId());
-                }
-            }
-
-            // Schedule pre-due notification (1 day before)
-            if (task.isEnablePreDueNotifications()) {
-                dueCalendar.add(Calendar.DAY_OF_MONTH, -1);
-                long preDueDelay = dueCalendar.getTimeInMillis() - System.currentTimeMillis();
-                if (preDueDelay > 0) {
-                    Data inputData = new Data.Builder()
-                            .putString("taskId", task.getId())
-                            .putString("taskTitle", task.getTitle())
-                            .putString("notificationType", "PRE_DUE")
-                            .build();
-
-                    OneTimeWorkRequest notificationWork = new OneTimeWorkRequest.Builder(NotificationWorker.class)
-                            .setInitialDelay(preDueDelay, TimeUnit.MILLISECONDS)
-                            .setInputData(inputData)
-                            .addTag(task.getId() + "_pre_due")
-                            .build();
-
-                    WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-                    Log.d(TAG, "Pre-due notification scheduled for task: " + task.getId());
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error scheduling notifications for task: " + task.getId(), e);
-        }
+        AppLog.d(TAG, "Points notification scheduled", "points", points);
     }
 
+    private void updateLocalStreakAndMilestones(String taskTitle, int completedCount) {
+        int todayDay = DateUtils.today();
+        String today = DateUtils.formatEpochDay(todayDay);
+        int lastCompletionDay = DateUtils.parseEpochDay(prefs.getString("lastTaskCompletionDate", null));
+        int previousTotal = prefs.getInt("totalTasksCompleted", 0);
+        int totalTasksCompleted = previousTotal + completedCount;
+        int weeklyCompletedTasks = prefs.getInt("weeklyCompletedTasks", 0) + completedCount;
+        int weeklyPoints = prefs.getInt("weeklyPoints", 0) + POINTS_PER_COMPLETION * completedCount;
 
-    private void scheduleOverdueNotifications(List<Task> tasks) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Calendar today = Calendar.getInstance();
-            today.set(Calendar.HOUR_OF_DAY, 0);
-            today.set(Calendar.MINUTE, 0);
-            today.set(Calendar.SECOND, 0);
-            today.set(Calendar.MILLISECOND, 0);
-
-            for (Task task : tasks) {
-                String dueDateStr = task.getDueDate();
-                if (dueDateStr == null || dueDateStr.isEmpty() || task.isCompleted() ||
-                        !task.isEnableDueDateNotifications()) {
-                    continue;
-                }
-
-                Calendar dueCalendar = Calendar.getInstance();
-                dueCalendar.setTime(sdf.parse(dueDateStr));
-                dueCalendar.set(Calendar.HOUR_OF_DAY, 0);
-                dueCalendar.set(Calendar.MINUTE, 0);
-                dueCalendar.set(Calendar.SECOND, 0);
-                dueCalendar.set(Calendar.MILLISECOND, 0);
-
-                if (dueCalendar.before(today)) {
-                    // Schedule overdue notification for 9 AM today
-                    Calendar notifyTime = Calendar.getInstance();
-                    notifyTime.set(Calendar.HOUR_OF_DAY, 9);
-                    notifyTime.set(Calendar.MINUTE, 0);
-                    notifyTime.set(Calendar.SECOND, 0);
-                    notifyTime.set(Calendar.MILLISECOND, 0);
-
-                    long delay = notifyTime.getTimeInMillis() - System.currentTimeMillis();
-                    if (delay < 0) delay += 24 * 60 * 60 * 1000; // Next day if past 9 AM
-
-                    Data inputData = new Data.Builder()
-                            .putString("taskId", task.getId())
-                            .putString("taskTitle", task.getTitle())
-                            .putString("notificationType", "OVERDUE")
-                            .build();
-
-                    OneTimeWorkRequest notificationWork = new OneTimeWorkRequest.Builder(NotificationWorker.class)
-                            .setInitialDelay(delay, TimeUnit.MILLISECONDS)
-                            .setInputData(inputData)
-                            .addTag(task.getId() + "_overdue")
-                            .build();
-
-                    WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-                    Log.d(TAG, "Overdue notification scheduled for task: " + task.getId());
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error scheduling overdue notifications", e);
-        }
-    }
-
-    private void updateLocalStreakAndMilestones(String taskTitle) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        String today = sdf.format(new java.util.Date());
-        String lastCompletion = prefs.getString("lastTaskCompletionDate", null);
-        int streak = prefs.getInt("streak", 0);
-        int totalTasksCompleted = prefs.getInt("totalTasksCompleted", 0) + 1;
-        int weeklyCompletedTasks = prefs.getInt("weeklyCompletedTasks", 0) + 1;
-        int weeklyPoints = prefs.getInt("weeklyPoints", 0) + POINTS_PER_COMPLETION;
-
-        // Update streak
-        if (lastCompletion != null && lastCompletion.equals(getYesterday(today))) {
-            streak++;
-        } else if (!today.equals(lastCompletion)) {
-            streak = 1; // Reset streak if not consecutive
-        }
+        int streak = StreakRules.afterCompletion(lastCompletionDay, prefs.getInt("streak", 0), todayDay);
 
         // Save streak, completion date, and weekly stats
         prefs.edit()
@@ -454,6 +577,7 @@ public class TasksViewModel extends AndroidViewModel {
                 .putInt("weeklyCompletedTasks", weeklyCompletedTasks)
                 .putInt("weeklyPoints", weeklyPoints)
                 .apply();
+        stats.onStreakChanged(streak);
 
         // Schedule streak notification
         if (prefs.getBoolean("enableStreakNotifications", true)) {
@@ -469,25 +593,28 @@ public class TasksViewModel extends AndroidViewModel {
                     .build();
 
             WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-            Log.d(TAG, "Streak notification scheduled: " + streak + " days");
+            AppLog.d(TAG, "Streak notification scheduled", "days", streak);
         }
 
-        // Check milestones
-        if (prefs.getBoolean("enableMilestoneNotifications", true) &&
-                (totalTasksCompleted == 10 || totalTasksCompleted == 50 || totalTasksCompleted == 100)) {
+        // Check milestones; a bulk completion may pass several, only the highest is announced
+        int milestone = 0;
+        for (int total = previousTotal + 1; total <= totalTasksCompleted; total++) {
+            if (StreakRules.isMilestone(total)) milestone = total;
+        }
+        if (prefs.getBoolean("enableMilestoneNotifications", true) && milestone > 0) {
             Data inputData = new Data.Builder()
                     .putString("taskTitle", taskTitle)
-                    .putInt("totalTasksCompleted", totalTasksCompleted)
+                    .putInt("totalTasksCompleted", milestone)
                     .putString("notificationType", "MILESTONE")
                     .build();
 
             OneTimeWorkRequest notificationWork = new OneTimeWorkRequest.Builder(NotificationWorker.class)
                     .setInputData(inputData)
-                    .addTag("milestone_" + totalTasksCompleted)
+                    .addTag("milestone_" + milestone)
                     .build();
 
             WorkManager.getInstance(getApplication()).enqueue(notificationWork);
-            Log.d(TAG, "Milestone notification scheduled: " + totalTasksCompleted + " tasks");
+            AppLog.d(TAG, "Milestone notification scheduled", "tasks", milestone);
         }
     }
 
@@ -495,84 +622,54 @@ public class TasksViewModel extends AndroidViewModel {
         // Schedule daily check for streak at risk and inactivity
         PeriodicWorkRequest streakCheck = new PeriodicWorkRequest.Builder(NotificationWorker.class,
                 24, TimeUnit.HOURS)
-                .setInitialDelay(calculateDelayTo8AM(), TimeUnit.MILLISECONDS)
+                .setInitialDelay(DateUtils.millisUntilHour(8, System.currentTimeMillis()), TimeUnit.MILLISECONDS)
                 .setInputData(new Data.Builder().putString("notificationType", "STREAK_CHECK").build())
                 .addTag("streak_check")
                 .build();
 
         PeriodicWorkRequest inactivityCheck = new PeriodicWorkRequest.Builder(NotificationWorker.class,
                 24, TimeUnit.HOURS)
-                .setInitialDelay(calculateDelayTo8AM(), TimeUnit.MILLISECONDS)
+                .setInitialDelay(DateUtils.millisUntilHour(8, System.currentTimeMillis()), TimeUnit.MILLISECONDS)
                 .setInputData(new Data.Builder().putString("notificationType", "INACTIVITY").build())
                 .addTag("inactivity_check")
                 .build();
 
-        WorkManager.getInstance(getApplication()).enqueue(streakCheck);
-        WorkManager.getInstance(getApplication()).enqueue(inactivityCheck);
-        Log.d(TAG, "Daily streak and inactivity checks scheduled");
+        // Unique names keep a single instance of each check however often the view model is created
+        WorkManager.getInstance(getApplication()).enqueueUniquePeriodicWork("streak_check",
+                ExistingPeriodicWorkPolicy.KEEP, streakCheck);
+        WorkManager.getInstance(getApplication()).enqueueUniquePeriodicWork("inactivity_check",
+                ExistingPeriodicWorkPolicy.KEEP, inactivityCheck);
+        AppLog.d(TAG, "Daily streak and inactivity checks scheduled");
     }
 
     private void scheduleWeeklySummary() {
         // Schedule weekly summary on Sunday at 9 AM
         PeriodicWorkRequest summaryWork = new PeriodicWorkRequest.Builder(NotificationWorker.class,
                 7, TimeUnit.DAYS)
-                .setInitialDelay(calculateDelayToSunday9AM(), TimeUnit.MILLISECONDS)
+                .setInitialDelay(DateUtils.millisUntilWeekday(DateUtils.SUNDAY, 9, System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS)
                 .setInputData(new Data.Builder().putString("notificationType", "WEEKLY_SUMMARY").build())
                 .addTag("weekly_summary")
                 .build();
 
-        WorkManager.getInstance(getApplication()).enqueue(summaryWork);
-        Log.d(TAG, "Weekly summary scheduled");
-    }
-
-    private long calculateDelayTo8AM() {
-        Calendar now = Calendar.getInstance();
-        Calendar next8AM = Calendar.getInstance();
-        next8AM.set(Calendar.HOUR_OF_DAY, 8);
-        next8AM.set(Calendar.MINUTE, 0);
-        next8AM.set(Calendar.SECOND, 0);
-        next8AM.set(Calendar.MILLISECOND, 0);
-        if (now.after(next8AM)) {
-            next8AM.add(Calendar.DAY_OF_MONTH, 1);
-        }
-        return next8AM.getTimeInMillis() - now.getTimeInMillis();
-    }
-
-    private long calculateDelayToSunday9AM() {
-        Calendar now = Calendar.getInstance();
-        Calendar nextSunday9AM = Calendar.getInstance();
-        nextSunday9AM.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
-        nextSunday9AM.set(Calendar.HOUR_OF_DAY, 9);
-        nextSunday9AM.set(Calendar.MINUTE, 0);
-        nextSunday9AM.set(Calendar.SECOND, 0);
-        nextSunday9AM.set(Calendar.MILLISECOND, 0);
-        if (now.after(nextSunday9AM)) {
-            nextSunday9AM.add(Calendar.WEEK_OF_YEAR, 1);
-        }
-        return nextSunday9AM.getTimeInMillis() - now.getTimeInMillis();
-    }
-
-    private String getYesterday(String today) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(sdf.parse(today));
-            cal.add(Calendar.DAY_OF_MONTH, -1);
-            return sdf.format(cal.getTime());
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private void cancelNotification(String taskId) {
-        WorkManager.getInstance(getApplication()).cancelAllWorkByTag(taskId);
-        WorkManager.getInstance(getApplication()).cancelAllWorkByTag(taskId + "_due");
-        WorkManager.getInstance(getApplication()).cancelAllWorkByTag(taskId + "_pre_due");
-        WorkManager.getInstance(getApplication()).cancelAllWorkByTag(taskId + "_overdue");
-        Log.d(TAG, "Notifications cancelled for task: " + taskId);
+        WorkManager.getInstance(getApplication()).enqueueUniquePeriodicWork("weekly_summary",
+                ExistingPeriodicWorkPolicy.KEEP, summaryWork);
+        AppLog.d(TAG, "Weekly summary scheduled");
     }
 
     public LiveData<List<Task>> getTasks() { return tasks; }
     public LiveData<Boolean> getIsLoading() { return isLoading; }
     public LiveData<String> getErrorMessage() { return errorMessage; }
+    public LiveData<Set<String>> getPendingTaskIds() { return pendingTaskIds; }
+    public LiveData<List<Task>> getSearchResults() { return searchResults; }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        repository.removePendingObserver(outboxListener);
+        search.cancelTaskSearch();
+        taskPipeline.stop();
+        taskWindow.cancel();
+        repository.cancelLoads(requestTag);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+// HabitHeatmapView.java - Contribution-style heatmap of one habit's history
+package com.taskshabitstracker.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import com.taskshabitstracker.R;
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.domain.HeatmapGrid;
+import com.taskshabitstracker.utils.DateUtils;
+
+/**
+ * HabitHeatmapView - Draws a habit's completion history as one square per day
+ * A single view draws every cell, there are no per-day children. Cell positions are
+ * computed by HeatmapGrid when the width changes and cell states when the history
+ * changes, so onDraw only reads arrays and issues drawRect calls, allocating nothing.
+ * With hardware acceleration onDraw runs when the history changes, not while the
+ * list scrolls. Height follows the width: weeks that do not fit wrap into more bands
+ */
+public class HabitHeatmapView extends View {
+    public static final int WEEKS_PER_YEAR = 53;
+
+    private static final float MIN_CELL_DP = 4f;
+    private static final float GAP_DP = 1.5f;
+    private static final float BAND_GAP_DP = 8f;
+
+    private final HeatmapGrid grid = new HeatmapGrid();
+    private final Paint donePaint = new Paint();
+    private final Paint missedPaint = new Paint();
+    private final float minCellSize;
+    private final float gap;
+    private final float bandGap;
+
+    private HabitHistory history = HabitHistory.EMPTY;
+    private int today = DateUtils.NO_DATE;
+    private int weeks = WEEKS_PER_YEAR;
+    // Content width the grid was laid out for, -1 before the first layout
+    private int laidOutWidth = -1;
+
+    public HabitHeatmapView(Context context) {
+        this(context, null);
+    }
+
+    public HabitHeatmapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        minCellSize = MIN_CELL_DP * density;
+        gap = GAP_DP * density;
+        bandGap = BAND_GAP_DP * density;
+        donePaint.setColor(ContextCompat.getColor(context, R.color.heatmap_done));
+        missedPaint.setColor(ContextCompat.getColor(context, R.color.heatmap_missed));
+    }
+
+    /**
+     * Number of weeks to show, ending with the current one
+     */
+    public void setWeeks(int weeks) {
+        if (weeks == this.weeks) return;
+        this.weeks = Math.max(1, weeks);
+        laidOutWidth = -1;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Show a history as of today; a no-op when both are unchanged
+     * Histories are immutable, so an unchanged habit passes the same instance
+     */
+    public void setHistory(HabitHistory history, int today) {
+        if (history == this.history && today == this.today) return;
+        this.history = history;
+        this.today = today;
+        if (laidOutWidth >= 0) {
+            grid.fill(history, today);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                ? (int) Math.ceil(weeks * (minCellSize + gap)) + getPaddingLeft() + getPaddingRight()
+                : MeasureSpec.getSize(widthMeasureSpec);
+        layoutGrid(width - getPaddingLeft() - getPaddingRight());
+        int height = (int) Math.ceil(grid.height()) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutGrid(w - getPaddingLeft() - getPaddingRight());
+    }
+
+    private void layoutGrid(int contentWidth) {
+        if (contentWidth == laidOutWidth) return;
+        grid.layout(Math.max(0, contentWidth), weeks, minCellSize, gap, bandGap);
+        laidOutWidth = contentWidth;
+        if (today != DateUtils.NO_DATE) {
+            grid.fill(history, today);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (today == DateUtils.NO_DATE || laidOutWidth < 0) return;
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float size = grid.cellSize();
+        int count = grid.cellCount();
+        for (int i = 0; i < count; i++) {
+            byte state = grid.state(i);
+            if (state == HeatmapGrid.OUTSIDE) continue;
+            float x = left + grid.left(i);
+            float y = top + grid.top(i);
+            canvas.drawRect(x, y, x + size, y + size, state == HeatmapGrid.DONE ? donePaint : missedPaint);
+        }
+    }
+}
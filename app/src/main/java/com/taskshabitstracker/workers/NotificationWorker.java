@@ -26,18 +26,32 @@ public class NotificationWorker extends Worker {
         String notificationType = getInputData().getString("notificationType");
         int points = getInputData().getInt("points", 0);
 
+        if (!showNotification(getApplicationContext(), notificationType, taskTitle, points,
+                taskId != null ? taskId.hashCode() : NOTIFICATION_ID)) {
+            return Result.failure(); // Invalid notification type
+        }
+
+        return Result.success();
+    }
+
+    /**
+     * Build and post one notification; also used by ReminderWorker for scheduled reminders
+     * @return false if the notification type is unknown
+     */
+    public static boolean showNotification(Context context, String notificationType, String taskTitle,
+                                           int points, int notificationId) {
         // Create notification channel for Android O and above
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
                     CHANNEL_ID,
                     "Task Notifications",
                     NotificationManager.IMPORTANCE_DEFAULT);
-            NotificationManager manager = getApplicationContext().getSystemService(NotificationManager.class);
+            NotificationManager manager = context.getSystemService(NotificationManager.class);
             manager.createNotificationChannel(channel);
         }
 
         // Build notification based on type
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(getApplicationContext(), CHANNEL_ID)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setSmallIcon(android.R.drawable.ic_dialog_info)
                 .setPriority(NotificationCompat.PRIORITY_DEFAULT);
 
@@ -58,18 +72,22 @@ public class NotificationWorker extends Worker {
                 builder.setContentTitle("Task Created")
                         .setContentText("Task '" + taskTitle + "' has been created.");
                 break;
+            case "HABIT_REMINDER":
+                builder.setContentTitle("Habit Reminder")
+                        .setContentText("Don't forget '" + taskTitle + "' today!");
+                break;
             case "POINTS_EARNED":
                 builder.setContentTitle("Points Earned")
                         .setContentText("You earned " + points + " points for completing '" + taskTitle + "'!");
                 break;
             default:
-                return Result.failure(); // Invalid notification type
+                return false; // Invalid notification type
         }
 
         // Show notification
-        NotificationManager manager = (NotificationManager) getApplicationContext().getSystemService(Context.NOTIFICATION_SERVICE);
-        manager.notify(taskId.hashCode(), builder.build()); // Use taskId hash to avoid conflicts
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        notificationManager.notify(notificationId, builder.build());
 
-        return Result.success();
+        return true;
     }
-}
\ No newline at end of file
+}
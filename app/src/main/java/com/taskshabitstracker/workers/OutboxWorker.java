@@ -0,0 +1,459 @@
+package com.taskshabitstracker.workers;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.android.volley.Request;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.RequestFuture;
+import com.android.volley.toolbox.StringRequest;
+import com.google.gson.stream.JsonReader;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.database.OutboxDao;
+import com.taskshabitstracker.database.SyncStateDao;
+import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.network.GzipRequestInterceptor;
+import com.taskshabitstracker.network.ModelJsonReader;
+import com.taskshabitstracker.network.VolleySingleton;
+import com.taskshabitstracker.notifications.ReminderScheduler;
+import com.taskshabitstracker.repository.SearchRepository;
+import com.taskshabitstracker.repository.StatsAggregator;
+import com.taskshabitstracker.utils.AppLog;
+import com.taskshabitstracker.utils.SessionManager;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the mutation outbox in order once the device is online
+ * Entries are sent in queue order so the server sees the user's actions in tap order.
+ * Runs of toggles and deletes, e.g. from a bulk edit, go out as one batch request that
+ * answers with a status per entry; adds are sent alone. A transport failure or 5xx keeps
+ * the entry and retries with backoff; a 4xx rejection drops it and re-fetches the entity
+ * it touched so the stored copy matches the server again. When a whole batch is rejected
+ * its entries are sent again one at a time, so only the ones at fault are dropped.
+ */
+public class OutboxWorker extends Worker {
+    private static final String TAG = "OutboxWorker";
+    private static final String WORK_NAME = "outbox_flush";
+    private static final String BASE_URL = "http://10.0.2.2:8080/api";
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+    private static final int BATCH_SIZE = 100;
+    // Above this many rejected entities one full resync is cheaper than fetching each
+    private static final int MAX_RECONCILED = 20;
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Ask WorkManager to flush the outbox as soon as there is connectivity
+     * Appending keeps a flush that is already running from missing entries queued after its last read
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest flush = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 10, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME,
+                ExistingWorkPolicy.APPEND_OR_REPLACE, flush);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        AppDatabase database = AppDatabase.getInstance(getApplicationContext());
+        OutboxDao outbox = database.outboxDao();
+        // A previous run may have been stopped mid-request
+        outbox.releaseInFlight();
+
+        int batchSize = BATCH_SIZE;
+        // Entries of a rejected batch still to be sent alone
+        int sendAlone = 0;
+        List<OutboxDao.Entry> batch;
+        while (!(batch = outbox.claimBatch(sendAlone > 0 ? 1 : batchSize)).isEmpty()) {
+            if (isStopped()) {
+                outbox.releaseInFlight();
+                return Result.retry();
+            }
+            int status;
+            String body = null;
+            try {
+                body = batch.size() == 1 ? send(batch.get(0)) : sendBatch(batch);
+                status = 200;
+            } catch (ExecutionException e) {
+                status = statusOf(e.getCause());
+            } catch (TimeoutException e) {
+                status = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outbox.releaseInFlight();
+                return Result.retry();
+            }
+
+            if (batch.size() > 1 && (status == 404 || status == 405 || status == 501)) {
+                // The server has no batch endpoint; fall back to one request per entry
+                AppLog.w(TAG, "Batch endpoint unavailable, sending entries one at a time", "status", status);
+                outbox.releaseInFlight();
+                batchSize = 1;
+                continue;
+            }
+            if (status == 0 || status >= 500) {
+                AppLog.w(TAG, "Outbox flush interrupted, retrying later", "status", status);
+                outbox.releaseInFlight();
+                return Result.retry();
+            }
+            if (status == 401 || status == 403) {
+                // Stop without dropping anything. A login schedules the next flush (see
+                // TasksHabitsApplication); a logout clears the outbox with the rest of the store
+                AppLog.w(TAG, "Session expired, outbox flush stopped");
+                outbox.releaseInFlight();
+                return Result.failure();
+            }
+            if (batch.size() > 1 && status >= 400) {
+                // One bad entry can fail the whole request; find it by sending each entry alone
+                AppLog.w(TAG, "Server rejected a batch, sending its entries one at a time",
+                        "size", batch.size(), "status", status);
+                outbox.releaseInFlight();
+                sendAlone = batch.size();
+                continue;
+            }
+
+            if (batch.size() > 1) {
+                if (!settleBatch(database, batch, body)) {
+                    return Result.retry();
+                }
+                continue;
+            }
+
+            OutboxDao.Entry entry = batch.get(0);
+            if (sendAlone > 0) sendAlone--;
+            boolean storeChanged = false;
+            if (status >= 400) {
+                AppLog.e(TAG, "Server rejected a change, dropping it", "op", entry.op, "status", status);
+                outbox.remove(entry.seq);
+                reconcile(database, entry.entityType, Collections.singletonList(entry));
+                storeChanged = true;
+            } else {
+                if (OutboxDao.OP_ADD.equals(entry.op)) {
+                    storeChanged = applyServerId(database, entry, body);
+                }
+                outbox.remove(entry.seq);
+            }
+            outbox.notifyChanged(entry.entityType, storeChanged);
+        }
+        return Result.success();
+    }
+
+    /**
+     * Apply the per-entry results of a batch: accepted and rejected entries leave the
+     * outbox, entries that failed on the server side stay for the next run
+     * @return false when some entries have to be retried
+     */
+    private boolean settleBatch(AppDatabase database, List<OutboxDao.Entry> batch, @Nullable String body) {
+        String entityType = batch.get(0).entityType;
+        List<OutboxDao.Entry> done = new ArrayList<>(batch.size());
+        List<OutboxDao.Entry> keep = new ArrayList<>();
+        List<OutboxDao.Entry> rejected = new ArrayList<>();
+        int[] statuses = readBatchStatuses(body, batch.size());
+        if (statuses == null) {
+            // The batch was applied but we could not tell how; re-fetch what the server holds
+            AppLog.e(TAG, "Could not read the results of a batch", "type", entityType, "size", batch.size());
+            done.addAll(batch);
+            rejected.addAll(batch);
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                OutboxDao.Entry entry = batch.get(i);
+                if (statuses[i] == 0 || statuses[i] >= 500) {
+                    keep.add(entry);
+                    continue;
+                }
+                if (statuses[i] >= 400) {
+                    AppLog.e(TAG, "Server rejected a batched change, dropping it", "op", entry.op, "status", statuses[i]);
+                    rejected.add(entry);
+                }
+                done.add(entry);
+            }
+        }
+        database.outboxDao().settleBatch(done, keep);
+        if (!rejected.isEmpty()) {
+            reconcile(database, entityType, rejected);
+        }
+        database.outboxDao().notifyChanged(entityType, !rejected.isEmpty());
+        if (!keep.isEmpty()) {
+            AppLog.w(TAG, "Batched changes failed on the server, retrying later", "failed", keep.size(), "size", batch.size());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Statuses from a {"results": [{"id": ..., "status": ...}, ...]} body, in request order
+     * @return null when the body does not hold one result per entry
+     */
+    @Nullable
+    private static int[] readBatchStatuses(@Nullable String body, int count) {
+        try {
+            JSONArray results = new JSONObject(body != null ? body : "").getJSONArray("results");
+            if (results.length() != count) return null;
+            int[] statuses = new int[count];
+            for (int i = 0; i < count; i++) {
+                statuses[i] = results.getJSONObject(i).optInt("status", 0);
+            }
+            return statuses;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Send a run of toggles and deletes as one request to the collection's batch endpoint
+     */
+    private String sendBatch(List<OutboxDao.Entry> batch)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        String body;
+        try {
+            JSONArray operations = new JSONArray();
+            for (OutboxDao.Entry entry : batch) {
+                JSONObject operation = new JSONObject()
+                        .put("id", entry.entityId)
+                        .put("op", entry.op);
+                if (entry.payload != null) {
+                    operation.put("data", new JSONObject(entry.payload));
+                }
+                operations.put(operation);
+            }
+            body = new JSONObject().put("operations", operations).toString();
+        } catch (JSONException e) {
+            // Payloads are written by the repositories as JSON, so this does not happen
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+        return execute(Request.Method.POST, BASE_URL + collection(batch.get(0).entityType) + "/batch", body, true);
+    }
+
+    private String send(OutboxDao.Entry entry)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        String collection = collection(entry.entityType);
+        int method;
+        String url;
+        switch (entry.op) {
+            case OutboxDao.OP_ADD:
+                method = Request.Method.POST;
+                url = BASE_URL + collection;
+                break;
+            case OutboxDao.OP_TOGGLE:
+                // The payload holds the state to set, so a resend after a lost response is harmless
+                method = Request.Method.PUT;
+                url = BASE_URL + collection + "/" + entry.entityId + "/toggle";
+                break;
+            default:
+                method = Request.Method.DELETE;
+                url = BASE_URL + collection + "/" + entry.entityId;
+                break;
+        }
+        return execute(method, url, entry.payload, false);
+    }
+
+    private static String collection(String entityType) {
+        return OutboxDao.ENTITY_TASK.equals(entityType) ? "/tasks" : "/habits";
+    }
+
+    /**
+     * compress: the body may be gzipped; only the batch endpoints take bulk payloads
+     */
+    private String execute(int method, String url, @Nullable String payload, boolean compress)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        RequestFuture<String> future = RequestFuture.newFuture();
+        StringRequest request = new StringRequest(method, url, future, future) {
+            @Override
+            public Map<String, String> getHeaders() {
+                Map<String, String> headers = sessionHeaders();
+                if (!compress) return headers;
+                Map<String, String> marked = new HashMap<>(headers);
+                marked.put(GzipRequestInterceptor.HEADER_COMPRESS, "gzip");
+                return marked;
+            }
+
+            @Override
+            public Priority getPriority() {
+                // Queued user edits go ahead of reads
+                return Priority.IMMEDIATE;
+            }
+
+            @Override
+            public String getBodyContentType() {
+                return "application/json; charset=utf-8";
+            }
+
+            @Override
+            public byte[] getBody() {
+                return payload != null ? payload.getBytes(StandardCharsets.UTF_8) : null;
+            }
+        };
+        request.setShouldCache(false);
+        future.setRequest(request);
+        VolleySingleton.getInstance(getApplicationContext()).getRequestQueue().add(request);
+        return future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Map<String, String> sessionHeaders() {
+        return SessionManager.getInstance(getApplicationContext()).getCookieHeaders();
+    }
+
+    private static int statusOf(@Nullable Throwable cause) {
+        if (cause instanceof VolleyError && ((VolleyError) cause).networkResponse != null) {
+            return ((VolleyError) cause).networkResponse.statusCode;
+        }
+        return 0;
+    }
+
+    /**
+     * Replace the locally generated id with the one the server assigned
+     */
+    private boolean applyServerId(AppDatabase database, OutboxDao.Entry entry, @Nullable String body) {
+        ReminderScheduler reminders = ReminderScheduler.getInstance(getApplicationContext());
+        SearchRepository search = SearchRepository.getInstance(getApplicationContext());
+        String serverId;
+        try {
+            if (OutboxDao.ENTITY_TASK.equals(entry.entityType)) {
+                Task task = ModelJsonReader.readTask(new JsonReader(new StringReader(body != null ? body : "")));
+                serverId = task.getId();
+                database.taskDao().replaceId(entry.entityId, task);
+                reminders.onTaskRemoved(entry.entityId);
+                reminders.onTaskSaved(task);
+                search.onTaskRemoved(entry.entityId);
+                search.onTaskSaved(task);
+            } else {
+                Habit habit = ModelJsonReader.readHabit(new JsonReader(new StringReader(body != null ? body : "")));
+                serverId = habit.getId();
+                database.habitDao().replaceId(entry.entityId, habit);
+                reminders.onHabitRemoved(entry.entityId);
+                reminders.onHabitSaved(habit);
+                search.onHabitRemoved(entry.entityId);
+                search.onHabitSaved(habit);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The entity exists on the server but we could not read it. Its creation is newer
+            // than the sync cursor, so the next delta brings it in; the local copy goes now
+            AppLog.e(TAG, "Error parsing add response", e);
+            removeLocal(database, entry.entityType, entry.entityId);
+            SyncStateDao.SyncState syncState = database.syncStateDao().get(resourceOf(entry.entityType));
+            database.syncStateDao().save(resourceOf(entry.entityType), null, syncState.cursor);
+            return true;
+        }
+        database.outboxDao().remapEntityId(entry.entityType, entry.entityId, serverId);
+        AppLog.d(TAG, "Created entity", "localId", entry.entityId, "serverId", serverId);
+        return true;
+    }
+
+    /**
+     * Put the server's copy of each entity a dropped change touched back in the store
+     * Only used once the entries have left the outbox. An entity that still has queued
+     * changes is left alone; their own outcome settles it. When a fetch fails, or more
+     * than MAX_RECONCILED entities need one, the next sync takes a full snapshot instead
+     */
+    private void reconcile(AppDatabase database, String entityType, List<OutboxDao.Entry> dropped) {
+        boolean reconciled = dropped.size() <= MAX_RECONCILED;
+        for (int i = 0; reconciled && i < dropped.size(); i++) {
+            reconciled = reconcileEntity(database, dropped.get(i));
+        }
+        if (!reconciled) {
+            AppLog.w(TAG, "Could not reconcile dropped changes, resyncing", "count", dropped.size());
+            database.syncStateDao().save(resourceOf(entityType), null, null);
+            return;
+        }
+        StatsAggregator stats = StatsAggregator.getInstance(getApplicationContext());
+        if (OutboxDao.ENTITY_TASK.equals(entityType)) {
+            stats.recountTasks();
+        } else {
+            stats.recountHabits();
+        }
+    }
+
+    private boolean reconcileEntity(AppDatabase database, OutboxDao.Entry entry) {
+        if (OutboxDao.OP_ADD.equals(entry.op)) {
+            // Never created on the server
+            removeLocal(database, entry.entityType, entry.entityId);
+            return true;
+        }
+        if (database.outboxDao().getPendingIds(entry.entityType).contains(entry.entityId)) {
+            return true;
+        }
+        String body;
+        try {
+            body = execute(Request.Method.GET,
+                    BASE_URL + collection(entry.entityType) + "/" + entry.entityId, null, false);
+        } catch (ExecutionException e) {
+            if (statusOf(e.getCause()) != 404) return false;
+            removeLocal(database, entry.entityType, entry.entityId);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        ReminderScheduler reminders = ReminderScheduler.getInstance(getApplicationContext());
+        SearchRepository search = SearchRepository.getInstance(getApplicationContext());
+        try {
+            if (OutboxDao.ENTITY_TASK.equals(entry.entityType)) {
+                Task task = ModelJsonReader.readTask(new JsonReader(new StringReader(body)));
+                database.taskDao().upsert(task);
+                reminders.onTaskSaved(task);
+                search.onTaskSaved(task);
+            } else {
+                Habit habit = ModelJsonReader.readHabit(new JsonReader(new StringReader(body)));
+                database.habitDao().upsert(habit);
+                reminders.onHabitSaved(habit);
+                search.onHabitSaved(habit);
+            }
+        } catch (IOException | RuntimeException e) {
+            AppLog.e(TAG, "Error parsing entity for reconciliation", e);
+            return false;
+        }
+        return true;
+    }
+
+    private void removeLocal(AppDatabase database, String entityType, String entityId) {
+        ReminderScheduler reminders = ReminderScheduler.getInstance(getApplicationContext());
+        SearchRepository search = SearchRepository.getInstance(getApplicationContext());
+        if (OutboxDao.ENTITY_TASK.equals(entityType)) {
+            database.taskDao().delete(entityId);
+            reminders.onTaskRemoved(entityId);
+            search.onTaskRemoved(entityId);
+        } else {
+            database.habitDao().delete(entityId);
+            reminders.onHabitRemoved(entityId);
+            search.onHabitRemoved(entityId);
+        }
+    }
+
+    private static String resourceOf(String entityType) {
+        return OutboxDao.ENTITY_TASK.equals(entityType)
+                ? SyncStateDao.RESOURCE_TASKS : SyncStateDao.RESOURCE_HABITS;
+    }
+}
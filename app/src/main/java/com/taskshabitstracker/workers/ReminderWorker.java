@@ -0,0 +1,25 @@
+package com.taskshabitstracker.workers;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.taskshabitstracker.notifications.ReminderScheduler;
+
+/**
+ * Wakes up for the earliest pending reminder
+ * The scheduler shows everything that is due and enqueues the next wake-up itself
+ */
+public class ReminderWorker extends Worker {
+
+    public ReminderWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        ReminderScheduler.getInstance(getApplicationContext()).onAlarm();
+        return Result.success();
+    }
+}
@@ -0,0 +1,64 @@
+package com.taskshabitstracker;
+
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Looper;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.database.SyncStateDao;
+import com.taskshabitstracker.model.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Shared setup for the Robolectric tests that run against the local store
+ */
+public final class TaskStoreFixture {
+
+    private TaskStoreFixture() {
+    }
+
+    /**
+     * Tasks shaped like the server's: a third without a due date, a quarter completed
+     */
+    public static List<Task> tasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("task-" + i, "user-1", "Task number " + i, "Description for task " + i,
+                    i % 4 == 0, i % 3 == 0 ? null : "2026-01-" + (10 + i % 18), true, true));
+        }
+        return tasks;
+    }
+
+    /**
+     * Replace the store with count tasks whose initial download is complete, so reads never hit the network
+     */
+    public static void fillStore(Context context, int count) {
+        AppDatabase database = AppDatabase.getInstance(context);
+        database.clearAllTables();
+        database.taskDao().replaceAll(tasks(count), Collections.emptySet());
+        database.syncStateDao().savePaging(SyncStateDao.RESOURCE_TASKS, null, true);
+    }
+
+    /**
+     * Run main-looper tasks until condition holds; results are posted there from the disk thread
+     */
+    public static void awaitMain(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out after " + timeoutMillis + " ms");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+}
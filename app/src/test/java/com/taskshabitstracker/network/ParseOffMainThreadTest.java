@@ -0,0 +1,149 @@
+package com.taskshabitstracker.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Looper;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+import com.android.volley.Response;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.HttpResponse;
+import com.android.volley.toolbox.NoCache;
+import com.taskshabitstracker.TaskStoreFixture;
+import com.taskshabitstracker.model.DashboardStats;
+import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.model.UserProfile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * The request types the repositories use decode their bodies on the network
+ * dispatcher, so the main looper only receives finished models
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ParseOffMainThreadTest {
+    private static final String TASK = "{\"id\":\"t1\",\"title\":\"Buy milk\",\"dueDate\":\"2026-03-10\"}";
+    private static final String HABIT = "{\"id\":\"h1\",\"name\":\"Read\",\"streak\":2,\"completedToday\":true}";
+
+    private static final Response.ErrorListener FAIL = error -> {
+        throw new AssertionError(error);
+    };
+
+    private final AtomicInteger readsOnMain = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final List<Boolean> deliveredOnMain = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<String> body = new AtomicReference<>();
+    private RequestQueue queue;
+
+    @Before
+    public void setUp() {
+        BaseHttpStack stack = new BaseHttpStack() {
+            @Override
+            public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) {
+                return new HttpResponse(200, Collections.singletonList(
+                        new Header("Content-Type", "application/json; charset=utf-8")),
+                        body.get().getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        // Default delivery posts to the main looper, as in the app
+        queue = new RequestQueue(new NoCache(), new BasicNetwork(stack), 2);
+        queue.start();
+    }
+
+    @After
+    public void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    public void taskPagesAndDeltas() {
+        body.set("{\"items\":[" + TASK + "," + TASK + "],\"nextCursor\":\"c1\"}");
+        List<Task> page = run(listener -> new PageRequest<Task>("http://test/api/tasks", 50, null,
+                Collections.emptyMap(), recorded(ModelJsonReader::readTask),
+                result -> listener.onResponse(result.items), FAIL));
+        assertEquals(2, page.size());
+
+        body.set("{\"items\":[" + TASK + "],\"deleted\":[\"t2\"],\"cursor\":\"c2\"}");
+        List<Task> delta = run(listener -> new DeltaSyncRequest<Task>("http://test/api/tasks", null,
+                Collections.emptyMap(), recorded(ModelJsonReader::readTask),
+                result -> listener.onResponse(result.items), FAIL));
+        assertEquals(1, delta.size());
+
+        assertParsedOffMain(3);
+    }
+
+    @Test
+    public void habitDeltas() {
+        body.set("[" + HABIT + "," + HABIT + "]");
+        List<Habit> habits = run(listener -> new DeltaSyncRequest<Habit>("http://test/api/habits", null,
+                Collections.emptyMap(), recorded(ModelJsonReader::readHabit),
+                result -> listener.onResponse(result.items), FAIL));
+
+        assertEquals(2, habits.size());
+        assertParsedOffMain(2);
+    }
+
+    @Test
+    public void dashboardStatsAndProfile() {
+        body.set("{\"points\":40,\"streak\":3,\"completedTasks\":1,\"totalTasks\":2}");
+        DashboardStats stats = run(listener -> new ModelRequest<DashboardStats>(Request.Method.GET,
+                "http://test/api/dashboard", recorded(ModelJsonReader::readDashboardStats), listener, FAIL));
+        assertEquals(40, stats.getPoints());
+
+        body.set("{\"id\":\"u1\",\"email\":\"someone@example.com\",\"name\":\"Someone\"}");
+        UserProfile profile = run(listener -> new ModelRequest<UserProfile>(Request.Method.GET,
+                "http://test/api/profile", recorded(ModelJsonReader::readUserProfile), listener, FAIL));
+        assertEquals("u1", profile.getId());
+
+        assertParsedOffMain(2);
+    }
+
+    private interface RequestFactory<T> {
+        Request<?> create(Response.Listener<T> listener);
+    }
+
+    // Queue the request and wait on the main looper for its result
+    private <T> T run(RequestFactory<T> factory) {
+        AtomicReference<T> result = new AtomicReference<>();
+        queue.add(factory.create(value -> {
+            deliveredOnMain.add(Looper.myLooper() == Looper.getMainLooper());
+            result.set(value);
+        }));
+        TaskStoreFixture.awaitMain(() -> result.get() != null, 10_000);
+        return result.get();
+    }
+
+    private <T> DeltaSyncRequest.ItemReader<T> recorded(DeltaSyncRequest.ItemReader<T> reader) {
+        return json -> {
+            reads.incrementAndGet();
+            if (Looper.myLooper() == Looper.getMainLooper()) readsOnMain.incrementAndGet();
+            return reader.read(json);
+        };
+    }
+
+    private void assertParsedOffMain(int expectedReads) {
+        assertEquals(expectedReads, reads.get());
+        assertEquals("Models decoded on the main looper", 0, readsOnMain.get());
+        assertFalse(deliveredOnMain.isEmpty());
+        for (boolean onMain : deliveredOnMain) {
+            assertTrue("Result delivered off the main looper", onMain);
+        }
+    }
+}
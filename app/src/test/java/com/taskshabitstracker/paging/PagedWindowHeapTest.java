@@ -0,0 +1,101 @@
+package com.taskshabitstracker.paging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import com.taskshabitstracker.TaskStoreFixture;
+import com.taskshabitstracker.database.AppDatabase;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.repository.TasksRepository;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Scrolling from the first task to the last keeps the window, and the heap, bounded
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class PagedWindowHeapTest {
+    private static final int TASKS = 50_000;
+    // Same window shape as TasksViewModel
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int MAX_LOADED_TASKS = 300;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        TaskStoreFixture.fillStore(context, TASKS);
+    }
+
+    @Test
+    public void scrollingTheWholeListKeepsHeapBounded() {
+        long fullListBytes = retainedBytesOfFullList();
+
+        AtomicReference<List<Task>> latest = new AtomicReference<>();
+        AtomicInteger largestSnapshot = new AtomicInteger();
+        PagedWindow<Task> window = new PagedWindow<>(PAGE_SIZE, PREFETCH_DISTANCE, MAX_LOADED_TASKS,
+                TasksRepository.getInstance(context)::loadTaskPage, Task::getId,
+                snapshot -> {
+                    latest.set(snapshot);
+                    largestSnapshot.set(Math.max(largestSnapshot.get(), snapshot.size()));
+                },
+                error -> { throw new AssertionError(error); });
+        window.refresh();
+        TaskStoreFixture.awaitMain(() -> latest.get() != null, 10_000);
+        long baseline = usedHeap();
+
+        // Keep the last rows of the window on screen until the end of the list is loaded
+        long peak = baseline;
+        String lastId = null;
+        for (int step = 1; ; step++) {
+            List<Task> snapshot = latest.get();
+            Task last = snapshot.get(snapshot.size() - 1);
+            if (last != null) {
+                lastId = last.getId();
+                break;
+            }
+            latest.set(null);
+            window.onVisibleRange(snapshot.size() - PREFETCH_DISTANCE - 5, snapshot.size() - 1);
+            TaskStoreFixture.awaitMain(() -> latest.get() != null, 10_000);
+            assertTrue("Window grew to " + window.getItems().size(), window.getItems().size() <= MAX_LOADED_TASKS);
+            if (step % 100 == 0) {
+                peak = Math.max(peak, usedHeap());
+            }
+        }
+        peak = Math.max(peak, usedHeap());
+
+        assertEquals("task-" + (TASKS - 1), lastId);
+        assertTrue(largestSnapshot.get() <= MAX_LOADED_TASKS + PREFETCH_DISTANCE);
+        long growth = peak - baseline;
+        assertTrue("Heap grew by " + growth + " bytes while scrolling; the whole list retains "
+                + fullListBytes, growth < fullListBytes / 4);
+    }
+
+    // What holding every task at once would cost, for scale
+    private long retainedBytesOfFullList() {
+        long before = usedHeap();
+        List<Task> all = AppDatabase.getInstance(context).taskDao().getAll();
+        long after = usedHeap();
+        assertEquals(TASKS, all.size());
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
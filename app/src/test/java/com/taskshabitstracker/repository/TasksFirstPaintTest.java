@@ -0,0 +1,65 @@
+package com.taskshabitstracker.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import com.taskshabitstracker.TaskStoreFixture;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.paging.PagedWindow;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * The task list's first paint comes from the local store, without the network,
+ * and costs one page however large the account is
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TasksFirstPaintTest {
+    private static final int TASKS = 50_000;
+    // Same window shape as TasksViewModel
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 20;
+    private static final int MAX_LOADED_TASKS = 300;
+    private static final long FIRST_PAINT_BUDGET_MILLIS = 500;
+
+    private TasksRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        TaskStoreFixture.fillStore(context, TASKS);
+        repository = TasksRepository.getInstance(context);
+    }
+
+    @Test
+    public void firstPageOf50kTasksIsPaintedFromDisk() {
+        AtomicReference<List<Task>> firstPaint = new AtomicReference<>();
+        PagedWindow<Task> window = new PagedWindow<>(PAGE_SIZE, PREFETCH_DISTANCE, MAX_LOADED_TASKS,
+                repository::loadTaskPage, Task::getId,
+                snapshot -> firstPaint.compareAndSet(null, snapshot),
+                error -> { throw new AssertionError(error); });
+
+        long start = System.nanoTime();
+        window.refresh();
+        TaskStoreFixture.awaitMain(() -> firstPaint.get() != null, 10_000);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<Task> snapshot = firstPaint.get();
+        assertNotNull(snapshot.get(0));
+        assertEquals("task-0", snapshot.get(0).getId());
+        // One page of rows, then placeholders for the rest of the list
+        assertEquals(PAGE_SIZE, window.getItems().size());
+        assertEquals(PAGE_SIZE + PREFETCH_DISTANCE, snapshot.size());
+        assertTrue("First paint took " + elapsed + " ms", elapsed < FIRST_PAINT_BUDGET_MILLIS);
+    }
+}
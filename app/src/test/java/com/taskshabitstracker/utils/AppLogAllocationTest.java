@@ -0,0 +1,60 @@
+package com.taskshabitstracker.utils;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * A disabled AppLog call allocates nothing inside the facade
+ * Run with ./gradlew testReleaseUnitTest; debug builds log for real and skip it.
+ * This covers AppLog alone, not the code around its call sites: the adapter binds
+ * and repository loads are not run, and the arguments are boxed up front. What a
+ * call site computes for its arguments is only gone in the APK, where R8 strips the
+ * call (see proguard-rules.pro), and a JVM test cannot show that
+ */
+public class AppLogAllocationTest {
+    private static final String TAG = "AppLogAllocationTest";
+    private static final int CALLS = 10_000;
+
+    @Test
+    public void disabledCallsAllocateNothingInTheFacade() {
+        assumeFalse("Debug builds log", AppLog.DEBUG);
+        List<String> page = new ArrayList<>(Collections.nCopies(500, "task"));
+        Integer rows = 50;
+        Integer start = 12_000;
+        Integer shown = 500;
+        Boolean last = Boolean.FALSE;
+        // The first round links the calls
+        logHotPaths(page, rows, start, shown, last);
+        allocatedBytes();
+
+        long before = allocatedBytes();
+        for (int i = 0; i < CALLS; i++) {
+            logHotPaths(page, rows, start, shown, last);
+        }
+        long allocated = allocatedBytes() - before;
+
+        // Reading the counter costs a few hundred bytes; one object per round would be 16 per round
+        assertTrue("Logging allocated " + allocated + " bytes over " + CALLS + " rounds", allocated < CALLS);
+    }
+
+    // The argument shapes of the calls made while scrolling, loading and syncing lists
+    private static void logHotPaths(List<String> page, Integer rows, Integer start, Integer shown, Boolean last) {
+        AppLog.d(TAG, "Dropped rows before the window", "rows", rows, "start", start);
+        AppLog.d(TAG, "Task list sorted", "tasks", page, "shown", shown);
+        AppLog.d(TAG, "Stored task page", "tasks", page, "last", last);
+        AppLog.d(TAG, "Search superseded", "query", "groceries");
+        AppLog.d(TAG, "Tasks synced", "changed", page, "total", shown, "last", last);
+        AppLog.i(TAG, "Habits loaded", "count", shown);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
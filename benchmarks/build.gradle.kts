@@ -0,0 +1,32 @@
+// JMH benchmarks for the :core domain code.
+// Run with ./gradlew :benchmarks:jmh; results are written to results/latest.json
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":core"))
+    // The JSONObject/JSONArray API Android ships, for the DOM baselines
+    implementation(libs.org.json)
+    // The client behind the app's OkHttpStack, for HttpStackBenchmark
+    implementation(libs.okhttp)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // The 1M-item parameters hold a few hundred MB of fixtures
+    jvmArgs.add("-Xmx4g")
+    // Records gc.alloc.rate.norm, the bytes allocated per operation
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.projectDirectory.file("results/latest.json"))
+}
@@ -0,0 +1,85 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.domain.HabitHistory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streak and completion figures over a habit history of size days
+ * The day-array variants walk the same history one day at a time, which is
+ * what the bitmap replaces
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HabitHistoryBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private HabitHistory history;
+    private boolean[] days;
+    private int today;
+
+    @Setup
+    public void setUp() {
+        // Long runs of completions broken by the odd missed day
+        Random random = new Random(TaskFixtures.SEED);
+        days = new boolean[size];
+        long[] words = new long[(size + 63) / 64];
+        for (int day = 0; day < size; day++) {
+            days[day] = random.nextInt(20) != 0;
+            if (days[day]) words[day / 64] |= 1L << day;
+        }
+        history = HabitHistory.fromWords(0, words);
+        today = size - 1;
+    }
+
+    @Benchmark
+    public int currentStreak() {
+        return history.currentStreak(today);
+    }
+
+    @Benchmark
+    public int longestStreak() {
+        return history.longestStreak();
+    }
+
+    @Benchmark
+    public double completionRate() {
+        return history.completionRate(0, today);
+    }
+
+    @Benchmark
+    public int longestStreakFromDays() {
+        int longest = 0;
+        int run = 0;
+        for (boolean done : days) {
+            run = done ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+
+    @Benchmark
+    public int completedFromDays() {
+        int completed = 0;
+        for (boolean done : days) {
+            if (done) completed++;
+        }
+        return completed;
+    }
+
+    @Benchmark
+    public HabitHistory toggleToday() {
+        return history.with(today, !history.isCompleted(today));
+    }
+}
@@ -0,0 +1,112 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.domain.HeatmapGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU side of HabitHeatmapView for a list of 100 habits
+ * bindAll is what binding every row costs (filling the cell states), drawAll walks
+ * the cells the way onDraw does, with the Canvas calls replaced by a checksum of
+ * the rectangles. The list rows show a year; the detail screen shows whole histories
+ * of the given length. A frame at 60fps has a 16ms budget
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeatmapBenchmark {
+    private static final int HABITS = 100;
+    private static final int WEEKS_PER_YEAR = 53;
+    // A 360dp row at 2.75x density, HabitHeatmapView's cell sizes
+    private static final float WIDTH_PX = 990f;
+    private static final float MIN_CELL_PX = 11f;
+    private static final float GAP_PX = 4f;
+    private static final float BAND_GAP_PX = 22f;
+
+    @Param({"1", "3", "10"})
+    public int years;
+
+    private HabitHistory[] histories;
+    private HeatmapGrid[] rows;
+    private HeatmapGrid detail;
+    private int today;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(TaskFixtures.SEED);
+        int days = years * 365;
+        today = 20000;
+        histories = new HabitHistory[HABITS];
+        rows = new HeatmapGrid[HABITS];
+        for (int h = 0; h < HABITS; h++) {
+            long[] words = new long[(days + 63) / 64];
+            int completionOdds = 2 + random.nextInt(18);
+            for (int day = 0; day < days; day++) {
+                if (random.nextInt(completionOdds) != 0) words[day / 64] |= 1L << day;
+            }
+            histories[h] = HabitHistory.fromWords(today - days + 1, words);
+            rows[h] = new HeatmapGrid();
+            rows[h].layout(WIDTH_PX, WEEKS_PER_YEAR, MIN_CELL_PX, GAP_PX, BAND_GAP_PX);
+            rows[h].fill(histories[h], today);
+        }
+        detail = new HeatmapGrid();
+        detail.layout(WIDTH_PX, years * WEEKS_PER_YEAR, MIN_CELL_PX, GAP_PX, BAND_GAP_PX);
+    }
+
+    @Benchmark
+    public int bindAll() {
+        int cells = 0;
+        for (int h = 0; h < HABITS; h++) {
+            rows[h].fill(histories[h], today);
+            cells += rows[h].cellCount();
+        }
+        return cells;
+    }
+
+    @Benchmark
+    public float drawAll() {
+        float checksum = 0;
+        for (HeatmapGrid grid : rows) {
+            checksum += draw(grid);
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public float bindAndDrawDetail() {
+        detail.fill(histories[0], today);
+        return draw(detail);
+    }
+
+    @Benchmark
+    public HeatmapGrid layoutDetail() {
+        HeatmapGrid grid = new HeatmapGrid();
+        grid.layout(WIDTH_PX, years * WEEKS_PER_YEAR, MIN_CELL_PX, GAP_PX, BAND_GAP_PX);
+        return grid;
+    }
+
+    // Same loop as HabitHeatmapView.onDraw
+    private static float draw(HeatmapGrid grid) {
+        float size = grid.cellSize();
+        float checksum = 0;
+        int count = grid.cellCount();
+        for (int i = 0; i < count; i++) {
+            byte state = grid.state(i);
+            if (state == HeatmapGrid.OUTSIDE) continue;
+            float x = grid.left(i);
+            float y = grid.top(i);
+            checksum += (x + size) * state + (y + size);
+        }
+        return checksum;
+    }
+}
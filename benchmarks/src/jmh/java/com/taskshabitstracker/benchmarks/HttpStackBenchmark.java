@@ -0,0 +1,163 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import com.taskshabitstracker.utils.DateUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Latency of a burst of 50 concurrent task-list reads against a local stand-in server,
+ * through the transport Volley's default HurlStack uses (HttpURLConnection) and through
+ * the shared OkHttpClient behind OkHttpStack, configured as in VolleySingleton.
+ * The stand-in answers with a page of tasks after a fixed delay, gzipped when the client
+ * accepts it, so the score covers connection reuse and response compression but not
+ * HTTP/2, which needs TLS. One operation is the whole burst; divide by 50 for the mean
+ * time per request as seen by a caller
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HttpStackBenchmark {
+    private static final int CONCURRENT_REQUESTS = 50;
+    private static final int TASKS_PER_RESPONSE = 200;
+    // Same pool shape as VolleySingleton
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+
+    @Param({"0", "20"})
+    public int serverDelayMillis;
+
+    private HttpServer server;
+    private ExecutorService callers;
+    private OkHttpClient okHttpClient;
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] plain = TaskFixtures.json(TaskFixtures.tasks(TASKS_PER_RESPONSE, DateUtils.today()));
+        byte[] gzipped = gzip(plain);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), CONCURRENT_REQUESTS);
+        server.setExecutor(Executors.newFixedThreadPool(CONCURRENT_REQUESTS));
+        server.createContext("/api/tasks", exchange -> {
+            try (InputStream ignored = exchange.getRequestBody()) {
+                if (serverDelayMillis > 0) {
+                    Thread.sleep(serverDelayMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = plain;
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                body = gzipped;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/tasks";
+
+        callers = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(CONCURRENT_REQUESTS);
+        okHttpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.shutdownNow();
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    @Benchmark
+    public long httpUrlConnection() throws Exception {
+        return burst(() -> {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            try {
+                connection.setUseCaches(false);
+                try (InputStream in = connection.getInputStream()) {
+                    return drain(in);
+                }
+            } finally {
+                connection.disconnect();
+            }
+        });
+    }
+
+    @Benchmark
+    public long okHttp() throws Exception {
+        return burst(() -> {
+            try (Response response = okHttpClient.newCall(new Request.Builder().url(url).build()).execute()) {
+                return drain(response.body().byteStream());
+            }
+        });
+    }
+
+    private long burst(Callable<Long> call) throws Exception {
+        List<Future<Long>> pending = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            pending.add(callers.submit(call));
+        }
+        long bytes = 0;
+        for (Future<Long> future : pending) {
+            bytes += future.get();
+        }
+        return bytes;
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+        }
+        return total;
+    }
+
+    private static byte[] gzip(byte[] plain) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(plain);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.DateUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparing two snapshots of the task list after a sync touched 1% of the rows
+ * DiffUtil itself ships in an Android library, so this measures the per-row work
+ * its item callbacks do in the adapters: match by id, then compare with Task.equals
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListDiffBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Task> before;
+    private List<Task> after;
+
+    @Setup
+    public void setUp() {
+        before = TaskFixtures.tasks(size, DateUtils.today());
+        after = new ArrayList<>(before);
+        Random random = new Random(TaskFixtures.SEED);
+        for (int i = 0; i < Math.max(1, size / 100); i++) {
+            int index = random.nextInt(after.size());
+            Task task = after.get(index);
+            switch (i % 3) {
+                case 0:
+                    after.set(index, task.withCompleted(!task.isCompleted()));
+                    break;
+                case 1:
+                    after.remove(index);
+                    break;
+                default:
+                    after.add(index, new Task("new-" + i, "user-1", "Added " + i, "", false, null, true, true));
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public int keyedDiff() {
+        Map<String, Task> previous = new HashMap<>(before.size() * 2);
+        for (Task task : before) {
+            previous.put(task.getId(), task);
+        }
+        int changes = 0;
+        for (Task task : after) {
+            Task old = previous.remove(task.getId());
+            if (old == null || !old.equals(task)) changes++;
+        }
+        // Whatever is left was removed
+        return changes + previous.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.DateUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding overdue and due-today tasks, as the adapter and reminders do for every row
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OverdueScanBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Task> tasks;
+    private int today;
+
+    @Setup
+    public void setUp() {
+        today = DateUtils.today();
+        tasks = TaskFixtures.tasks(size, today);
+    }
+
+    @Benchmark
+    public int countOverdue() {
+        int overdue = 0;
+        for (Task task : tasks) {
+            if (task.isOverdue(today)) overdue++;
+        }
+        return overdue;
+    }
+
+    @Benchmark
+    public int countDueToday() {
+        int dueToday = 0;
+        for (Task task : tasks) {
+            if (task.isDueOn(today)) dueToday++;
+        }
+        return dueToday;
+    }
+}
@@ -0,0 +1,87 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.domain.SearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchIndex over titles and descriptions drawn from a small vocabulary, so common
+ * words match a large share of the documents the way they do in real task lists.
+ * Each query is one keystroke of search-as-you-type and has a 16ms frame budget;
+ * the results are capped the way SearchRepository caps them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+    private static final int MAX_RESULTS = 200;
+    private static final String[] WORDS = {
+            "buy", "call", "clean", "dentist", "email", "finish", "groceries", "gym",
+            "invoice", "kitchen", "laundry", "meeting", "mom", "pay", "plan", "read",
+            "report", "review", "run", "schedule", "send", "taxes", "team", "trip",
+            "update", "walk", "water", "weekly", "write", "yoga"
+    };
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int documents;
+
+    private SearchIndex index;
+    private Random random;
+    private int edits;
+
+    @Setup
+    public void setUp() {
+        random = new Random(TaskFixtures.SEED);
+        index = new SearchIndex();
+        for (int i = 0; i < documents; i++) {
+            index.put("task-" + i, title(i), description());
+        }
+    }
+
+    private String title(int i) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+    }
+
+    private String description() {
+        StringBuilder description = new StringBuilder();
+        int words = random.nextInt(8);
+        for (int w = 0; w < words; w++) {
+            description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return description.toString();
+    }
+
+    // The first keystroke: a one-letter prefix of several common words
+    @Benchmark
+    public List<String> shortPrefix() {
+        return index.search("r", MAX_RESULTS);
+    }
+
+    @Benchmark
+    public List<String> multiWord() {
+        return index.search("weekly team rep", MAX_RESULTS);
+    }
+
+    // A title number: one exact word among many distinct ones
+    @Benchmark
+    public List<String> rare() {
+        return index.search("plan " + (documents / 2), MAX_RESULTS);
+    }
+
+    // An edited task re-indexed in place
+    @Benchmark
+    public void put() {
+        int i = edits++ % documents;
+        index.put("task-" + i, title(i), description());
+    }
+}
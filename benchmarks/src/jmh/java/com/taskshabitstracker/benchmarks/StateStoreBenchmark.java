@@ -0,0 +1,70 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.domain.PendingEdits;
+import com.taskshabitstracker.domain.StateStore;
+import com.taskshabitstracker.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One optimistic toggle published as a new list
+ * copy is the old path: copy the whole list and replace one item; store shares
+ * everything but one tree path with the previous snapshot. storeRollback also
+ * undoes the edit, as a failed write would
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StateStoreBenchmark {
+    private static final int TODAY = 20000;
+
+    @Param({"1000", "10000", "100000"})
+    public int count;
+
+    private List<Task> tasks;
+    private StateStore<Task> store;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tasks = TaskFixtures.tasks(count, TODAY);
+        store = new StateStore<>(Task::getId);
+        store.reset(tasks);
+    }
+
+    @Benchmark
+    public List<Task> copy() {
+        int i = next++ % count;
+        List<Task> updated = new ArrayList<>(tasks);
+        Task task = updated.get(i);
+        updated.set(i, task.withCompleted(!task.isCompleted()));
+        tasks = updated;
+        return updated;
+    }
+
+    @Benchmark
+    public List<Task> store() {
+        Task task = store.snapshot().get(next++ % count);
+        store.commit(store.put(task.withCompleted(!task.isCompleted())));
+        return store.snapshot();
+    }
+
+    @Benchmark
+    public List<Task> storeRollback() {
+        Task task = store.snapshot().get(next++ % count);
+        PendingEdits.Edit<Task> edit = store.put(task.withCompleted(!task.isCompleted()));
+        store.snapshot();
+        store.rollback(edit);
+        return store.snapshot();
+    }
+}
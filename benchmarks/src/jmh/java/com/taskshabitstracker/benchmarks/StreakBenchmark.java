@@ -0,0 +1,66 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.domain.StreakRules;
+import com.taskshabitstracker.utils.DateUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaying a history of completions through the streak rules
+ * The stored variant includes the "yyyy-MM-dd" round trip the app makes through
+ * SharedPreferences on every completion
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreakBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private int[] completionDays;
+
+    @Setup
+    public void setUp() {
+        // Mostly consecutive days, with repeats and gaps
+        Random random = new Random(TaskFixtures.SEED);
+        completionDays = new int[size];
+        int day = 0;
+        for (int i = 0; i < size; i++) {
+            day += random.nextInt(10) < 7 ? 1 : random.nextInt(3) * 2;
+            completionDays[i] = day;
+        }
+    }
+
+    @Benchmark
+    public int replayCompletions() {
+        int last = DateUtils.NO_DATE;
+        int streak = 0;
+        int milestones = 0;
+        for (int i = 0; i < completionDays.length; i++) {
+            streak = StreakRules.afterCompletion(last, streak, completionDays[i]);
+            if (StreakRules.isMilestone(i + 1)) milestones++;
+            last = completionDays[i];
+        }
+        return streak + milestones;
+    }
+
+    @Benchmark
+    public int replayStoredCompletions() {
+        String last = null;
+        int streak = 0;
+        for (int day : completionDays) {
+            streak = StreakRules.afterCompletion(DateUtils.parseEpochDay(last), streak, day);
+            last = DateUtils.formatEpochDay(day);
+        }
+        return streak;
+    }
+}
@@ -0,0 +1,55 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.DateUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic task lists shaped like the server's: a third without a due date,
+ * due dates spread two months either side of today, a quarter completed
+ */
+final class TaskFixtures {
+    static final long SEED = 42;
+
+    private TaskFixtures() {
+    }
+
+    static List<Task> tasks(int count, int today) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String dueDate = random.nextInt(3) == 0
+                    ? null
+                    : DateUtils.formatEpochDay(today - 60 + random.nextInt(120));
+            tasks.add(new Task("task-" + i, "user-1", "Task number " + i,
+                    "Description for task " + i, random.nextInt(4) == 0, dueDate,
+                    random.nextBoolean(), random.nextBoolean()));
+        }
+        return tasks;
+    }
+
+    /**
+     * The body of GET /api/tasks for these tasks
+     */
+    static byte[] json(List<Task> tasks) {
+        StringBuilder json = new StringBuilder(tasks.size() * 220).append('[');
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"id\":\"").append(task.getId())
+                    .append("\",\"userId\":\"").append(task.getUserId())
+                    .append("\",\"title\":\"").append(task.getTitle())
+                    .append("\",\"description\":\"").append(task.getDescription())
+                    .append("\",\"completed\":").append(task.isCompleted())
+                    .append(",\"dueDate\":").append(task.getDueDate() == null ? "null" : "\"" + task.getDueDate() + "\"")
+                    .append(",\"enableDueDateNotifications\":").append(task.isEnableDueDateNotifications())
+                    .append(",\"enablePreDueNotifications\":").append(task.isEnablePreDueNotifications())
+                    .append(",\"createdAt\":\"2024-01-01T00:00:00Z\"}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.google.gson.stream.JsonReader;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.network.ModelJsonReader;
+import com.taskshabitstracker.utils.DateUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a task list response the way DeltaSyncRequest and PageRequest do:
+ * a streaming reader over the raw bytes, one ModelJsonReader.readTask per element,
+ * against the JsonArrayRequest path it replaced: the body decoded to a String,
+ * parsed into a JSONArray DOM, then copied into tasks field by field.
+ * Run with the gc profiler (on by default in the build) for bytes per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskParsingBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = TaskFixtures.json(TaskFixtures.tasks(size, DateUtils.today()));
+    }
+
+    @Benchmark
+    public List<Task> parseTaskArray() throws IOException {
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            List<Task> tasks = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                tasks.add(ModelJsonReader.readTask(reader));
+            }
+            reader.endArray();
+            return tasks;
+        }
+    }
+
+    @Benchmark
+    public List<Task> parseTaskArrayDom() throws JSONException {
+        JSONArray response = new JSONArray(new String(body, StandardCharsets.UTF_8));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < response.length(); i++) {
+            JSONObject taskJson = response.getJSONObject(i);
+            tasks.add(new Task(
+                    taskJson.getString("id"),
+                    taskJson.optString("userId", "default-user"),
+                    taskJson.getString("title"),
+                    taskJson.optString("description", ""),
+                    taskJson.optBoolean("completed", false),
+                    taskJson.isNull("dueDate") ? null : taskJson.getString("dueDate"),
+                    taskJson.optBoolean("enableDueDateNotifications", true),
+                    taskJson.optBoolean("enablePreDueNotifications", true)));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,69 @@
+package com.taskshabitstracker.benchmarks;
+
+import com.taskshabitstracker.domain.SortedTaskList;
+import com.taskshabitstracker.domain.TaskQuery;
+import com.taskshabitstracker.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SortedTaskList under a grouped, due-date sorted query with completed tasks hidden
+ * resort is what every completion toggle would cost if the list were sorted again;
+ * toggle is the incremental path TaskListPipeline takes. Both include the snapshot
+ * that is published to the adapter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskQueryBenchmark {
+    private static final int TODAY = 20000;
+    private static final TaskQuery QUERY = TaskQuery.DEFAULT
+            .sortedBy(TaskQuery.Sort.DUE_DATE)
+            .hidingCompleted(true)
+            .groupedBy(TaskQuery.Grouping.DUE);
+
+    @Param({"1000", "10000", "100000"})
+    public int count;
+
+    private List<Task> tasks;
+    private SortedTaskList list;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        tasks = TaskFixtures.tasks(count, TODAY);
+        list = new SortedTaskList(QUERY, TODAY);
+        list.reset(tasks);
+    }
+
+    @Benchmark
+    public SortedTaskList.Snapshot resort() {
+        SortedTaskList sorted = new SortedTaskList(QUERY, TODAY);
+        sorted.reset(tasks);
+        return sorted.snapshot();
+    }
+
+    @Benchmark
+    public SortedTaskList.Snapshot toggle() {
+        int i = next++ % count;
+        Task task = tasks.get(i).withCompleted(!tasks.get(i).isCompleted());
+        tasks.set(i, task);
+        list.put(task);
+        return list.snapshot();
+    }
+
+    @Benchmark
+    public SortedTaskList.Snapshot changeSort() {
+        list.setQuery(QUERY.sortedBy(next++ % 2 == 0 ? TaskQuery.Sort.TITLE : TaskQuery.Sort.DUE_DATE));
+        return list.snapshot();
+    }
+}
@@ -0,0 +1,17 @@
+// Plain-JVM domain code: models, date arithmetic, streak rules and JSON decoding.
+// Nothing here may depend on Android so it can be unit tested and benchmarked on the JVM.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // Streaming JsonReader, API-compatible with android.util.JsonReader
+    api(libs.gson)
+
+    testImplementation(libs.junit)
+}
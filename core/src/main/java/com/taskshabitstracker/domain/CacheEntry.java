@@ -0,0 +1,88 @@
+// CacheEntry.java - The last result of a read and how long it stays fresh
+package com.taskshabitstracker.domain;
+
+/**
+ * CacheEntry - Holds the last result of a read with the time it was confirmed by
+ * the server, for stale-while-revalidate: the value is served even when stale, and
+ * isFresh() tells the caller whether to revalidate in the background.
+ * invalidate() marks the entry stale but keeps the value. A read takes generation()
+ * before it starts and passes it to put() or markFresh(); if the entry was invalidated
+ * in between, the result may predate that change and is not counted as fresh, and if
+ * it was cleared, the result is dropped.
+ * Times are supplied by the caller in milliseconds from one monotonic clock.
+ * Thread-safe
+ */
+public final class CacheEntry<T> {
+    private final long ttlMillis;
+    private T value;
+    // Time of the last confirmation; meaningless while stale
+    private long confirmedAt;
+    private boolean stale = true;
+    private long generation;
+    private long clearedAt;
+
+    public CacheEntry(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * The last value, fresh or not; null when nothing was stored or it was cleared
+     */
+    public synchronized T get() {
+        return value;
+    }
+
+    public synchronized boolean isFresh(long now) {
+        return !stale && value != null && now - confirmedAt < ttlMillis;
+    }
+
+    /**
+     * Token for a read about to start; see put and markFresh
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Replace the value without changing its freshness, e.g. after a local write
+     */
+    public synchronized void update(T newValue) {
+        value = newValue;
+    }
+
+    /**
+     * Store the result of a read started at the given generation
+     */
+    public synchronized void put(T newValue, long now, long readGeneration) {
+        if (readGeneration < clearedAt) return;
+        value = newValue;
+        markFresh(now, readGeneration);
+    }
+
+    /**
+     * The server confirmed the value through a read started at the given generation
+     */
+    public synchronized void markFresh(long now, long readGeneration) {
+        if (readGeneration != generation) return;
+        confirmedAt = now;
+        stale = false;
+    }
+
+    /**
+     * The server copy may have changed: keep serving the value but revalidate on next use
+     */
+    public synchronized void invalidate() {
+        stale = true;
+        generation++;
+    }
+
+    /**
+     * Drop the value, e.g. on logout
+     */
+    public synchronized void clear() {
+        value = null;
+        stale = true;
+        generation++;
+        clearedAt = generation;
+    }
+}
@@ -0,0 +1,273 @@
+// HabitHistory.java - Day-indexed completion bitmap for one habit
+package com.taskshabitstracker.domain;
+
+import java.util.Arrays;
+
+/**
+ * HabitHistory - Which days a habit was completed, one bit per epoch day
+ * Bits are packed into longs: bit i of word w is day startDay + 64 * w + i, and
+ * startDay is always a multiple of 64 so two histories line up word for word.
+ * Leading and trailing empty words are trimmed, so ten years of daily use is
+ * about 60 longs. Streaks and completion counts are computed a word at a time
+ * with bitCount / numberOfLeadingZeros instead of walking days.
+ * Immutable: with() returns a new history, which keeps Habit diffable
+ */
+public final class HabitHistory {
+    public static final HabitHistory EMPTY = new HabitHistory(0, new long[0]);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int startDay;
+    private final long[] words;
+
+    private HabitHistory(int startDay, long[] words) {
+        this.startDay = startDay;
+        this.words = words;
+    }
+
+    /**
+     * Build from packed words whose bit 0 is startDay; startDay need not be aligned
+     */
+    public static HabitHistory fromWords(int startDay, long[] words) {
+        int shift = Math.floorMod(startDay, 64);
+        if (shift == 0) {
+            return trimmed(startDay, words.clone());
+        }
+        long[] aligned = new long[words.length + 1];
+        for (int w = 0; w < words.length; w++) {
+            aligned[w] |= words[w] << shift;
+            aligned[w + 1] |= words[w] >>> (64 - shift);
+        }
+        return trimmed(startDay - shift, aligned);
+    }
+
+    /**
+     * History in which the streak days ending on lastDay are completed
+     * Used for habits stored before histories existed, where the streak is all we know
+     */
+    public static HabitHistory ofStreak(int lastDay, int streak) {
+        if (streak <= 0) return EMPTY;
+        int first = lastDay - streak + 1;
+        int start = first - Math.floorMod(first, 64);
+        long[] words = new long[wordIndex(start, lastDay) + 1];
+        for (int w = 0; w < words.length; w++) {
+            words[w] = rangeMask(start + 64 * w, first, lastDay);
+        }
+        return new HabitHistory(start, words);
+    }
+
+    /**
+     * Decode the little-endian blob written by toBytes()
+     */
+    public static HabitHistory fromBytes(int startDay, byte[] bytes) {
+        long[] words = new long[bytes.length / 8];
+        for (int w = 0; w < words.length; w++) {
+            long word = 0;
+            for (int b = 7; b >= 0; b--) {
+                word = (word << 8) | (bytes[w * 8 + b] & 0xFF);
+            }
+            words[w] = word;
+        }
+        return fromWords(startDay, words);
+    }
+
+    /**
+     * Decode the sync format: 16 hex digits per word, most significant digit first
+     * @throws IllegalArgumentException if the text is not in that format
+     */
+    public static HabitHistory fromHex(int startDay, String hex) {
+        if (hex.length() % 16 != 0) {
+            throw new IllegalArgumentException("History length " + hex.length() + " is not a multiple of 16");
+        }
+        long[] words = new long[hex.length() / 16];
+        for (int w = 0; w < words.length; w++) {
+            long word = 0;
+            for (int i = w * 16; i < w * 16 + 16; i++) {
+                int digit = Character.digit(hex.charAt(i), 16);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Bad hex digit in history at " + i);
+                }
+                word = (word << 4) | digit;
+            }
+            words[w] = word;
+        }
+        return fromWords(startDay, words);
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    /**
+     * Epoch day of bit 0 of the first word; meaningless when empty
+     */
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public boolean isCompleted(int day) {
+        int w = wordIndex(startDay, day);
+        if (day < startDay || w >= words.length) return false;
+        return (words[w] & (1L << (day - startDay))) != 0;
+    }
+
+    /**
+     * Copy with one day set or cleared; this instance if nothing changes
+     */
+    public HabitHistory with(int day, boolean completed) {
+        if (isCompleted(day) == completed) return this;
+        int dayStart = day - Math.floorMod(day, 64);
+        int newStart = isEmpty() ? dayStart : Math.min(startDay, dayStart);
+        int newEnd = isEmpty() ? dayStart : Math.max(startDay + 64 * (words.length - 1), dayStart);
+        long[] copy = new long[wordIndex(newStart, newEnd) + 1];
+        if (!isEmpty()) {
+            System.arraycopy(words, 0, copy, wordIndex(newStart, startDay), words.length);
+        }
+        copy[wordIndex(newStart, day)] ^= 1L << (day - newStart);
+        return trimmed(newStart, copy);
+    }
+
+    /**
+     * Consecutive completed days ending today, or ending yesterday while today is still open
+     */
+    public int currentStreak(int today) {
+        return runEndingOn(isCompleted(today) ? today : today - 1);
+    }
+
+    /**
+     * Consecutive completed days ending on day, 0 if day itself was missed
+     */
+    public int runEndingOn(int day) {
+        if (!isCompleted(day)) return 0;
+        int w = wordIndex(startDay, day);
+        int bit = day - startDay - 64 * w;
+        // Move day's bit to the top; the leading ones of the word are the run
+        long missed = ~words[w] << (63 - bit);
+        if (missed != 0) return Long.numberOfLeadingZeros(missed);
+        int run = bit + 1;
+        while (--w >= 0) {
+            if (words[w] != -1L) {
+                return run + Long.numberOfLeadingZeros(~words[w]);
+            }
+            run += 64;
+        }
+        return run;
+    }
+
+    public int longestStreak() {
+        int longest = 0;
+        int carried = 0;
+        for (long word : words) {
+            if (word == -1L) {
+                carried += 64;
+                continue;
+            }
+            // The run from earlier words continues into the low bits
+            longest = Math.max(longest, carried + Long.numberOfTrailingZeros(~word));
+            // Each step shortens every run of ones by one
+            int inside = 0;
+            for (long runs = word; runs != 0; runs &= runs << 1) {
+                inside++;
+            }
+            longest = Math.max(longest, inside);
+            carried = Long.numberOfLeadingZeros(~word);
+        }
+        return Math.max(longest, carried);
+    }
+
+    /**
+     * Completed days in [from, to], both inclusive
+     */
+    public int completedBetween(int from, int to) {
+        if (isEmpty() || to < from) return 0;
+        int first = Math.max(from, startDay);
+        int last = Math.min(to, startDay + 64 * words.length - 1);
+        if (last < first) return 0;
+        int count = 0;
+        for (int w = wordIndex(startDay, first); w <= wordIndex(startDay, last); w++) {
+            count += Long.bitCount(words[w] & rangeMask(startDay + 64 * w, first, last));
+        }
+        return count;
+    }
+
+    public int missedBetween(int from, int to) {
+        return to < from ? 0 : (to - from + 1) - completedBetween(from, to);
+    }
+
+    /**
+     * Share of days in [from, to] that were completed, 0 for an empty window
+     */
+    public double completionRate(int from, int to) {
+        return to < from ? 0 : (double) completedBetween(from, to) / (to - from + 1);
+    }
+
+    /**
+     * Storage format: the words as little-endian bytes, starting at getStartDay()
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[words.length * 8];
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            for (int b = 0; b < 8; b++) {
+                bytes[w * 8 + b] = (byte) (word >>> (8 * b));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Sync format, see fromHex
+     */
+    public String toHex() {
+        char[] text = new char[words.length * 16];
+        for (int w = 0; w < words.length; w++) {
+            for (int i = 0; i < 16; i++) {
+                text[w * 16 + i] = HEX[(int) (words[w] >>> (60 - 4 * i)) & 0xF];
+            }
+        }
+        return new String(text);
+    }
+
+    private static HabitHistory trimmed(int startDay, long[] words) {
+        int first = 0;
+        int end = words.length;
+        while (first < end && words[first] == 0) first++;
+        while (end > first && words[end - 1] == 0) end--;
+        if (first == end) return EMPTY;
+        if (first == 0 && end == words.length) return new HabitHistory(startDay, words);
+        return new HabitHistory(startDay + 64 * first, Arrays.copyOfRange(words, first, end));
+    }
+
+    private static int wordIndex(int startDay, int day) {
+        return Math.floorDiv(day - startDay, 64);
+    }
+
+    // Bits of the word starting at wordStart that fall in [from, to]
+    private static long rangeMask(int wordStart, int from, int to) {
+        long low = from <= wordStart ? -1L : -1L << (from - wordStart);
+        long high = to >= wordStart + 63 ? -1L : -1L >>> (63 - (to - wordStart));
+        return low & high;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HabitHistory)) return false;
+        HabitHistory other = (HabitHistory) o;
+        return startDay == other.startDay && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * startDay + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        int days = 0;
+        for (long word : words) {
+            days += Long.bitCount(word);
+        }
+        return "HabitHistory{startDay=" + startDay + ", completedDays=" + days + '}';
+    }
+}
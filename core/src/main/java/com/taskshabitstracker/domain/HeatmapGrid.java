@@ -0,0 +1,124 @@
+// HeatmapGrid.java - Cell geometry and states of a completion heatmap
+package com.taskshabitstracker.domain;
+
+import com.taskshabitstracker.utils.DateUtils;
+
+/**
+ * HeatmapGrid - Lays a habit history out as a contribution-style grid
+ * One column per week (Monday at the top), time running left to right. When the
+ * weeks do not fit the width at the minimum cell size the columns wrap into bands
+ * stacked top to bottom, oldest first; the last column always holds today.
+ * layout() computes every cell position once per size, and fill() writes one
+ * state byte per cell, so drawing is plain array reads. Arrays are only
+ * reallocated when the grid grows. Not thread-safe; owned by one view
+ */
+public final class HeatmapGrid {
+    public static final int DAYS_PER_WEEK = 7;
+
+    // Cell states
+    public static final byte OUTSIDE = 0;
+    public static final byte MISSED = 1;
+    public static final byte DONE = 2;
+
+    private int columns;
+    private int bands;
+    private float cellSize;
+    private float height;
+    private int firstDay = DateUtils.NO_DATE;
+
+    private float[] columnX = new float[0];
+    private float[] rowY = new float[0];
+    private byte[] cells = new byte[0];
+
+    /**
+     * Size the grid to a width
+     * @param weeks weeks that must be shown; the last band is padded with older weeks
+     * @param minCellSize cells are stretched from this size to fill the width
+     * @param gap space between cells
+     * @param bandGap extra space between bands
+     */
+    public void layout(float width, int weeks, float minCellSize, float gap, float bandGap) {
+        int fit = (int) ((width + gap) / (minCellSize + gap));
+        columns = Math.max(1, Math.min(weeks, fit));
+        bands = (Math.max(1, weeks) + columns - 1) / columns;
+        cellSize = Math.max(1f, (width - gap * (columns - 1)) / columns);
+        float bandHeight = DAYS_PER_WEEK * (cellSize + gap) - gap;
+        height = bands * bandHeight + (bands - 1) * bandGap;
+
+        if (columnX.length < columns) columnX = new float[columns];
+        for (int column = 0; column < columns; column++) {
+            columnX[column] = column * (cellSize + gap);
+        }
+        if (rowY.length < bands * DAYS_PER_WEEK) rowY = new float[bands * DAYS_PER_WEEK];
+        for (int band = 0; band < bands; band++) {
+            float top = band * (bandHeight + bandGap);
+            for (int row = 0; row < DAYS_PER_WEEK; row++) {
+                rowY[band * DAYS_PER_WEEK + row] = top + row * (cellSize + gap);
+            }
+        }
+        if (cells.length < cellCount()) cells = new byte[cellCount()];
+    }
+
+    /**
+     * Set every cell from the history; days after today are OUTSIDE
+     */
+    public void fill(HabitHistory history, int today) {
+        int count = cellCount();
+        // Monday of the first column
+        firstDay = today - (DateUtils.dayOfWeek(today) - DateUtils.MONDAY) - (count - DAYS_PER_WEEK);
+        for (int i = 0; i < count; i++) {
+            int day = firstDay + i;
+            if (day > today) {
+                cells[i] = OUTSIDE;
+            } else {
+                cells[i] = history.isCompleted(day) ? DONE : MISSED;
+            }
+        }
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    public float cellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Total height of all bands at the laid out width
+     */
+    public float height() {
+        return height;
+    }
+
+    public int cellCount() {
+        return bands * columns * DAYS_PER_WEEK;
+    }
+
+    /**
+     * Epoch day of cell 0 after the last fill(), or DateUtils.NO_DATE
+     */
+    public int firstDay() {
+        return firstDay;
+    }
+
+    /**
+     * State of cell i; cells run down each column, then across, then down the bands
+     */
+    public byte state(int i) {
+        return cells[i];
+    }
+
+    public float left(int i) {
+        return columnX[(i / DAYS_PER_WEEK) % columns];
+    }
+
+    public float top(int i) {
+        int band = i / (DAYS_PER_WEEK * columns);
+        return rowY[band * DAYS_PER_WEEK + i % DAYS_PER_WEEK];
+    }
+}
@@ -0,0 +1,113 @@
+// NavigationModel.java - Which screen the user tends to open next
+package com.taskshabitstracker.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NavigationModel - Counts of observed moves between destinations, weighted toward
+ * recent ones
+ * Each time a move from a destination is recorded, that destination's counts decay
+ * by DECAY first, so habits that changed a week ago stop dominating within a few
+ * dozen moves. Every candidate starts with a weight of PRIOR, so with no history
+ * all candidates are equally likely.
+ * Destinations are plain names chosen by the caller. Not thread-safe
+ */
+public final class NavigationModel {
+    private static final double DECAY = 0.9;
+    private static final double PRIOR = 1.0;
+    // Weights this small are dropped so the encoded form stays short
+    private static final double MIN_WEIGHT = 0.01;
+
+    private final Map<String, Map<String, Double>> moves = new HashMap<>();
+
+    public void record(String from, String to) {
+        if (from.equals(to)) return;
+        Map<String, Double> counts = moves.get(from);
+        if (counts == null) {
+            counts = new HashMap<>();
+            moves.put(from, counts);
+        }
+        for (Map.Entry<String, Double> entry : counts.entrySet()) {
+            entry.setValue(entry.getValue() * DECAY);
+        }
+        counts.values().removeIf(weight -> weight < MIN_WEIGHT);
+        Double weight = counts.get(to);
+        counts.put(to, (weight != null ? weight : 0) + 1);
+    }
+
+    /**
+     * Share of moves from one destination that went to another, among the candidates
+     */
+    public double probability(String from, String to, Collection<String> candidates) {
+        if (from.equals(to) || !candidates.contains(to)) return 0;
+        double total = 0;
+        for (String candidate : candidates) {
+            if (!candidate.equals(from)) total += weight(from, candidate);
+        }
+        return total > 0 ? weight(from, to) / total : 0;
+    }
+
+    /**
+     * Candidates other than from whose probability is at least minProbability, most likely first
+     */
+    public List<String> likelyNext(String from, Collection<String> candidates, double minProbability) {
+        List<String> likely = new ArrayList<>();
+        for (String candidate : candidates) {
+            if (probability(from, candidate, candidates) >= minProbability) likely.add(candidate);
+        }
+        Collections.sort(likely, (a, b) -> Double.compare(weight(from, b), weight(from, a)));
+        return likely;
+    }
+
+    private double weight(String from, String to) {
+        Map<String, Double> counts = moves.get(from);
+        Double weight = counts != null ? counts.get(to) : null;
+        return PRIOR + (weight != null ? weight : 0);
+    }
+
+    /**
+     * Compact text form, e.g. for SharedPreferences: "from>to=weight;..."
+     */
+    public String encode() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Map<String, Double>> from : moves.entrySet()) {
+            for (Map.Entry<String, Double> to : from.getValue().entrySet()) {
+                if (text.length() > 0) text.append(';');
+                text.append(from.getKey()).append('>').append(to.getKey()).append('=')
+                        .append(Math.round(to.getValue() * 100) / 100.0);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Read the form written by encode(); entries that do not parse are skipped
+     */
+    public static NavigationModel decode(String text) {
+        NavigationModel model = new NavigationModel();
+        if (text == null || text.isEmpty()) return model;
+        for (String entry : text.split(";")) {
+            int arrow = entry.indexOf('>');
+            int equals = entry.lastIndexOf('=');
+            if (arrow <= 0 || equals <= arrow + 1) continue;
+            try {
+                double weight = Double.parseDouble(entry.substring(equals + 1));
+                String from = entry.substring(0, arrow);
+                Map<String, Double> counts = model.moves.get(from);
+                if (counts == null) {
+                    counts = new HashMap<>();
+                    model.moves.put(from, counts);
+                }
+                counts.put(entry.substring(arrow + 1, equals), weight);
+            } catch (NumberFormatException e) {
+                // Written by an older version; start that move over
+            }
+        }
+        return model;
+    }
+}
@@ -0,0 +1,133 @@
+// PendingEdits.java - Optimistic edits in flight, so each can be undone on its own
+package com.taskshabitstracker.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PendingEdits - Edits shown before the write behind them succeeded
+ * Each edit replaces a whole item (or removes it, value null) and remembers what
+ * it replaced. Edits of the same key form a chain in the order they were made:
+ * undoing one that a later edit already overwrote only hands its previous value
+ * down the chain, so undoing never clobbers a newer edit. Confirming an edit
+ * settles it and every earlier one of its key.
+ * Not thread-safe; use from a single writer
+ */
+public final class PendingEdits<T> {
+    private final Map<String, Edit<T>> latest = new HashMap<>();
+
+    public static final class Edit<T> {
+        private final String key;
+        private final T value;
+        private T previous;
+        private Edit<T> earlier;
+        private Edit<T> later;
+        private boolean open = true;
+
+        Edit(String key, T previous, T value) {
+            this.key = key;
+            this.previous = previous;
+            this.value = value;
+        }
+
+        public String getKey() { return key; }
+        // Null for a removal
+        public T getValue() { return value; }
+        /**
+         * What undoing this edit restores; null when the item did not exist
+         */
+        public T getPrevious() { return previous; }
+        public boolean isOpen() { return open; }
+    }
+
+    /**
+     * Record an edit that has just been shown
+     */
+    public Edit<T> record(String key, T previous, T value) {
+        Edit<T> edit = new Edit<>(key, previous, value);
+        Edit<T> last = latest.put(key, edit);
+        if (last != null) {
+            last.later = edit;
+            edit.earlier = last;
+        }
+        return edit;
+    }
+
+    /**
+     * The write behind an edit succeeded; earlier edits of its key can no longer be undone
+     */
+    public void commit(Edit<T> edit) {
+        if (!edit.open) return;
+        for (Edit<T> e = edit; e != null; e = e.earlier) {
+            e.open = false;
+        }
+        Edit<T> later = edit.later;
+        if (later != null) {
+            later.earlier = null;
+        } else {
+            latest.remove(edit.key);
+        }
+        edit.earlier = null;
+        edit.later = null;
+    }
+
+    /**
+     * The write behind an edit failed
+     * @return true when the edit is still what is shown, so the caller must restore
+     * getPrevious(); false when a later edit overwrote it or it was already settled
+     */
+    public boolean rollback(Edit<T> edit) {
+        if (!edit.open) return false;
+        edit.open = false;
+        Edit<T> earlier = edit.earlier;
+        Edit<T> later = edit.later;
+        edit.earlier = null;
+        edit.later = null;
+        if (earlier != null) earlier.later = later;
+        if (later != null) {
+            later.earlier = earlier;
+            later.previous = edit.previous;
+            return false;
+        }
+        if (earlier != null) {
+            latest.put(edit.key, earlier);
+        } else {
+            latest.remove(edit.key);
+        }
+        return true;
+    }
+
+    public boolean isPending(String key) {
+        return latest.containsKey(key);
+    }
+
+    /**
+     * Fresh data arrived for a key: undoing its open edits now restores that instead
+     */
+    public void rebase(String key, T confirmed) {
+        Edit<T> first = latest.get(key);
+        if (first == null) return;
+        while (first.earlier != null) {
+            first = first.earlier;
+        }
+        first.previous = confirmed;
+    }
+
+    /**
+     * The newest open edit of every key, i.e. what is shown for each
+     */
+    public Collection<Edit<T>> latestEdits() {
+        return new ArrayList<>(latest.values());
+    }
+
+    public void clear() {
+        for (Edit<T> edit : latest.values()) {
+            for (Edit<T> e = edit; e != null; e = e.earlier) {
+                e.open = false;
+            }
+        }
+        latest.clear();
+    }
+}
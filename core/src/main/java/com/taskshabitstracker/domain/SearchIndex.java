@@ -0,0 +1,256 @@
+// SearchIndex.java - In-memory inverted index with prefix matching
+package com.taskshabitstracker.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * SearchIndex - Finds documents whose text has words starting with every query word
+ * Text is split into lower-cased words of letters and digits. Each document gets a
+ * small int ordinal, and each word a sorted posting array of ordinals; the words are
+ * kept in a sorted map so all words with a given prefix are one sub-map. A query
+ * ORs the postings of each query word's prefix range into a bit set and ANDs the
+ * sets together. put() and remove() only touch the postings of words that were
+ * added or dropped, so edits never rebuild the index.
+ * Thread-safe; a query holds the lock for its duration
+ */
+public final class SearchIndex {
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    // Per ordinal: the document key and its sorted, distinct words
+    private String[] keys = new String[64];
+    private String[][] docTerms = new String[64][];
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+    private int nextOrdinal;
+
+    /**
+     * Index or re-index a document; a no-op when its words are unchanged
+     */
+    public synchronized void put(String key, String... fields) {
+        String[] words = tokenize(fields);
+        Integer existing = ordinals.get(key);
+        if (existing == null) {
+            int ordinal = allocate(key);
+            for (String word : words) {
+                addPosting(word, ordinal);
+            }
+            docTerms[ordinal] = words;
+            return;
+        }
+        int ordinal = existing;
+        String[] old = docTerms[ordinal];
+        if (Arrays.equals(old, words)) return;
+        // Both arrays are sorted: walk them together and touch only the differences
+        int i = 0;
+        int j = 0;
+        while (i < old.length || j < words.length) {
+            int order = i == old.length ? 1 : j == words.length ? -1 : old[i].compareTo(words[j]);
+            if (order < 0) {
+                removePosting(old[i++], ordinal);
+            } else if (order > 0) {
+                addPosting(words[j++], ordinal);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        docTerms[ordinal] = words;
+    }
+
+    public synchronized void remove(String key) {
+        Integer ordinal = ordinals.remove(key);
+        if (ordinal == null) return;
+        for (String word : docTerms[ordinal]) {
+            removePosting(word, ordinal);
+        }
+        keys[ordinal] = null;
+        docTerms[ordinal] = null;
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+    }
+
+    /**
+     * Remove every document whose key is not in keep, e.g. after a full sync
+     */
+    public synchronized void retainOnly(Set<String> keep) {
+        List<String> stale = new ArrayList<>();
+        for (String key : ordinals.keySet()) {
+            if (!keep.contains(key)) stale.add(key);
+        }
+        for (String key : stale) {
+            remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        terms.clear();
+        ordinals.clear();
+        Arrays.fill(keys, null);
+        Arrays.fill(docTerms, null);
+        freeCount = 0;
+        nextOrdinal = 0;
+    }
+
+    public synchronized int size() {
+        return ordinals.size();
+    }
+
+    public List<String> search(String query, int limit) {
+        return search(query, limit, () -> false);
+    }
+
+    /**
+     * Keys of up to limit documents matching every word of the query, in index order
+     * The last word may be partly typed; every word matches as a prefix
+     * @param cancelled polled while the query runs
+     * @throws CancellationException once cancelled returns true
+     */
+    public synchronized List<String> search(String query, int limit, BooleanSupplier cancelled) {
+        String[] words = tokenize(query);
+        if (words.length == 0 || limit <= 0) return Collections.emptyList();
+        // Longer words tend to match fewer documents, so they narrow the result first
+        Arrays.sort(words, (a, b) -> b.length() - a.length());
+
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet wordMatches = new BitSet(nextOrdinal);
+            int scanned = 0;
+            for (Postings postings : prefixRange(word)) {
+                postings.addTo(wordMatches);
+                if (++scanned % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+            }
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+            if (matches.isEmpty() || cancelled.getAsBoolean()) break;
+        }
+        if (cancelled.getAsBoolean()) throw new CancellationException();
+
+        List<String> found = new ArrayList<>(Math.min(limit, matches.cardinality()));
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && found.size() < limit;
+             ordinal = matches.nextSetBit(ordinal + 1)) {
+            found.add(keys[ordinal]);
+        }
+        return found;
+    }
+
+    private Collection<Postings> prefixRange(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+    }
+
+    private int allocate(String key) {
+        int ordinal;
+        if (freeCount > 0) {
+            ordinal = freeOrdinals[--freeCount];
+        } else {
+            ordinal = nextOrdinal++;
+            if (ordinal == keys.length) {
+                keys = Arrays.copyOf(keys, ordinal * 2);
+                docTerms = Arrays.copyOf(docTerms, ordinal * 2);
+            }
+        }
+        keys[ordinal] = key;
+        ordinals.put(key, ordinal);
+        return ordinal;
+    }
+
+    private void addPosting(String word, int ordinal) {
+        Postings postings = terms.get(word);
+        if (postings == null) {
+            postings = new Postings();
+            terms.put(word, postings);
+        }
+        postings.add(ordinal);
+    }
+
+    private void removePosting(String word, int ordinal) {
+        Postings postings = terms.get(word);
+        if (postings != null && postings.remove(ordinal) && postings.size == 0) {
+            terms.remove(word);
+        }
+    }
+
+    /**
+     * Sorted, distinct, lower-cased words of letters and digits
+     */
+    static String[] tokenize(String... fields) {
+        List<String> words = new ArrayList<>();
+        for (String field : fields) {
+            if (field == null) continue;
+            int start = -1;
+            for (int i = 0; i <= field.length(); i++) {
+                boolean wordChar = i < field.length() && Character.isLetterOrDigit(field.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    words.add(field.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+        }
+        Collections.sort(words);
+        Iterator<String> iterator = words.iterator();
+        String previous = null;
+        while (iterator.hasNext()) {
+            String word = iterator.next();
+            if (word.equals(previous)) iterator.remove();
+            previous = word;
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Sorted ordinals of the documents containing one word
+     */
+    private static final class Postings {
+        int[] ordinals = new int[2];
+        int size;
+
+        void add(int ordinal) {
+            int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, at, ordinals, at + 1, size - at);
+            ordinals[at] = ordinal;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            int at = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (at < 0) return false;
+            System.arraycopy(ordinals, at + 1, ordinals, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ordinals[i]);
+            }
+        }
+    }
+}
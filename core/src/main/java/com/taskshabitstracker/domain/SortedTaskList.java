@@ -0,0 +1,173 @@
+// SortedTaskList.java - Task list kept sorted, filtered and grouped under edits
+package com.taskshabitstracker.domain;
+
+import com.taskshabitstracker.model.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SortedTaskList - The tasks matching a TaskQuery, in the query's order
+ * reset() sorts once; after that put() and remove() move a single task with two
+ * binary searches instead of sorting again. Every known task is kept, matching or
+ * not, so an edit can bring a hidden task back and a query or day change can be
+ * re-applied without reading the store. New tasks take the next server order,
+ * as they are stored last.
+ * Not thread-safe; confine an instance to one thread
+ */
+public final class SortedTaskList {
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Matching entries in query order
+    private final List<Entry> rows = new ArrayList<>();
+    private final Comparator<Entry> order = this::compare;
+    private TaskQuery query;
+    private int today;
+    private int nextServerOrder;
+
+    public SortedTaskList(TaskQuery query, int today) {
+        this.query = query;
+        this.today = today;
+    }
+
+    public TaskQuery getQuery() { return query; }
+    public int getToday() { return today; }
+
+    /**
+     * Replace every task; tasks are given in server order
+     */
+    public void reset(List<Task> tasks) {
+        entries.clear();
+        nextServerOrder = 0;
+        for (Task task : tasks) {
+            entries.put(task.getId(), new Entry(task, nextServerOrder++));
+        }
+        rebuild();
+    }
+
+    public void setQuery(TaskQuery query) {
+        if (query.equals(this.query)) return;
+        this.query = query;
+        rebuild();
+    }
+
+    /**
+     * Move to a new day; overdue filters and due sections depend on it
+     */
+    public void setToday(int today) {
+        if (today == this.today) return;
+        this.today = today;
+        rebuild();
+    }
+
+    /**
+     * Add a task or replace the one with the same id
+     */
+    public void put(Task task) {
+        Entry old = entries.get(task.getId());
+        if (old != null) {
+            if (old.task.equals(task)) return;
+            removeRow(old);
+        }
+        Entry entry = new Entry(task, old != null ? old.serverOrder : nextServerOrder++);
+        entries.put(task.getId(), entry);
+        insertRow(entry);
+    }
+
+    public void remove(String taskId) {
+        Entry old = entries.remove(taskId);
+        if (old != null) removeRow(old);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * The matching tasks in order, with their sections when grouped
+     */
+    public Snapshot snapshot() {
+        List<Task> tasks = new ArrayList<>(rows.size());
+        List<Section> sections = new ArrayList<>();
+        boolean grouped = query.getGrouping() != TaskQuery.Grouping.NONE;
+        int start = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            tasks.add(rows.get(i).task);
+            if (grouped && (i + 1 == rows.size() || rows.get(i + 1).section != rows.get(i).section)) {
+                sections.add(new Section(rows.get(i).section, start, i + 1 - start));
+                start = i + 1;
+            }
+        }
+        return new Snapshot(Collections.unmodifiableList(tasks), Collections.unmodifiableList(sections));
+    }
+
+    private void rebuild() {
+        rows.clear();
+        for (Entry entry : entries.values()) {
+            entry.section = query.section(entry.task, today);
+            if (query.matches(entry.task, today)) rows.add(entry);
+        }
+        Collections.sort(rows, order);
+    }
+
+    private void insertRow(Entry entry) {
+        entry.section = query.section(entry.task, today);
+        if (!query.matches(entry.task, today)) return;
+        int at = Collections.binarySearch(rows, entry, order);
+        rows.add(at < 0 ? -at - 1 : at, entry);
+    }
+
+    private void removeRow(Entry entry) {
+        // Entries are compared by the state they were inserted with, so the search finds them
+        int at = Collections.binarySearch(rows, entry, order);
+        if (at >= 0) rows.remove(at);
+    }
+
+    private int compare(Entry a, Entry b) {
+        if (a.section != b.section) return Integer.compare(a.section, b.section);
+        return query.compare(a.task, a.serverOrder, b.task, b.serverOrder);
+    }
+
+    private static final class Entry {
+        final Task task;
+        final int serverOrder;
+        int section;
+
+        Entry(Task task, int serverOrder) {
+            this.task = task;
+            this.serverOrder = serverOrder;
+        }
+    }
+
+    /**
+     * A run of consecutive tasks in one TaskQuery section
+     */
+    public static final class Section {
+        public final int kind;
+        public final int start;
+        public final int size;
+
+        public Section(int kind, int start, int size) {
+            this.kind = kind;
+            this.start = start;
+            this.size = size;
+        }
+
+        public String getTitle() {
+            return TaskQuery.sectionTitle(kind);
+        }
+    }
+
+    public static final class Snapshot {
+        public final List<Task> tasks;
+        // Empty when the query is not grouped
+        public final List<Section> sections;
+
+        Snapshot(List<Task> tasks, List<Section> sections) {
+            this.tasks = tasks;
+            this.sections = sections;
+        }
+    }
+}
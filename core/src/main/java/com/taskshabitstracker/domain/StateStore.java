@@ -0,0 +1,337 @@
+// StateStore.java - Versioned, structurally shared list state with optimistic edits
+package com.taskshabitstracker.domain;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * StateStore - An ordered collection of items keyed by id, published as immutable
+ * versioned snapshots
+ * Items live in a persistent AVL tree ordered by a position each key is given when
+ * it first appears, so a removed item that comes back returns to its place. Every
+ * put or remove copies only the O(log n) nodes on one path and shares the rest with
+ * the previous snapshot, which stays valid and can be read from any thread, e.g.
+ * by a background diff. Optimistic edits are tracked with PendingEdits: rollback()
+ * reverts one edit without disturbing later ones, and reset() with fresh data keeps
+ * the edits that are still in flight on top of it.
+ * Single writer: call the mutating methods from one thread
+ */
+public final class StateStore<T> {
+
+    public interface KeyProvider<T> {
+        String keyOf(T item);
+    }
+
+    private final KeyProvider<T> keyProvider;
+    private final PendingEdits<T> pending = new PendingEdits<>();
+    private Map<String, Long> positions = new HashMap<>();
+    private long nextPosition;
+    private Node<T> root;
+    private long version;
+    private Snapshot<T> snapshot;
+
+    public StateStore(KeyProvider<T> keyProvider) {
+        this.keyProvider = keyProvider;
+        snapshot = new Snapshot<>(null, 0);
+    }
+
+    /**
+     * The current state; never changes once returned
+     */
+    public Snapshot<T> snapshot() {
+        if (snapshot.version != version) {
+            snapshot = new Snapshot<>(root, version);
+        }
+        return snapshot;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public T get(String key) {
+        Long position = positions.get(key);
+        return position != null ? find(root, position) : null;
+    }
+
+    /**
+     * Replace everything with confirmed data in display order; edits still in flight
+     * are applied on top and will roll back to the new data
+     */
+    public void reset(List<T> items) {
+        positions = new HashMap<>(items.size() * 2);
+        nextPosition = 0;
+        for (T item : items) {
+            positions.put(keyProvider.keyOf(item), nextPosition++);
+        }
+        root = build(items, 0, items.size());
+        for (PendingEdits.Edit<T> edit : pending.latestEdits()) {
+            pending.rebase(edit.getKey(), get(edit.getKey()));
+            write(edit.getKey(), edit.getValue());
+        }
+        version++;
+    }
+
+    /**
+     * Show an item optimistically, adding it at the end if its key is new
+     */
+    public PendingEdits.Edit<T> put(T item) {
+        String key = keyProvider.keyOf(item);
+        PendingEdits.Edit<T> edit = pending.record(key, get(key), item);
+        write(key, item);
+        version++;
+        return edit;
+    }
+
+    /**
+     * Hide an item optimistically
+     */
+    public PendingEdits.Edit<T> remove(String key) {
+        PendingEdits.Edit<T> edit = pending.record(key, get(key), null);
+        write(key, null);
+        version++;
+        return edit;
+    }
+
+    /**
+     * The write behind an edit succeeded; it is now part of the confirmed state
+     */
+    public void commit(PendingEdits.Edit<T> edit) {
+        pending.commit(edit);
+    }
+
+    /**
+     * The write behind an edit failed; revert it alone
+     * @return true if the visible state changed
+     */
+    public boolean rollback(PendingEdits.Edit<T> edit) {
+        if (!pending.rollback(edit)) return false;
+        write(edit.getKey(), edit.getPrevious());
+        version++;
+        return true;
+    }
+
+    /**
+     * Add or replace an item that needs no rollback, e.g. one the server created
+     */
+    public void putConfirmed(T item) {
+        String key = keyProvider.keyOf(item);
+        write(key, item);
+        pending.rebase(key, item);
+        version++;
+    }
+
+    private void write(String key, T value) {
+        Long position = positions.get(key);
+        if (value == null) {
+            if (position != null) root = remove(root, position);
+            return;
+        }
+        if (position == null) {
+            position = nextPosition++;
+            positions.put(key, position);
+        }
+        root = put(root, position, value);
+    }
+
+    /**
+     * An immutable state of the store, as a list in display order
+     * get(i) walks the tree in O(log n); iteration is O(n) overall
+     */
+    public static final class Snapshot<T> extends AbstractList<T> {
+        private final Node<T> root;
+        private final long version;
+
+        Snapshot(Node<T> root, long version) {
+            this.root = root;
+            this.version = version;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+            }
+            Node<T> node = root;
+            while (true) {
+                int leftSize = StateStore.size(node.left);
+                if (index < leftSize) {
+                    node = node.left;
+                } else if (index == leftSize) {
+                    return node.value;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return StateStore.size(root);
+        }
+
+        // Tree shape, for tests
+        int height() {
+            return StateStore.height(root);
+        }
+
+        /**
+         * Nodes of this snapshot's tree that other does not share, for tests
+         */
+        int nodesNotIn(Snapshot<T> other) {
+            Set<Node<T>> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+            collect(other.root, shared);
+            Set<Node<T>> own = Collections.newSetFromMap(new IdentityHashMap<>());
+            collect(root, own);
+            own.removeAll(shared);
+            return own.size();
+        }
+
+        private static <T> void collect(Node<T> node, Set<Node<T>> into) {
+            if (node == null) return;
+            into.add(node);
+            collect(node.left, into);
+            collect(node.right, into);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            ArrayDeque<Node<T>> path = new ArrayDeque<>();
+            for (Node<T> node = root; node != null; node = node.left) {
+                path.push(node);
+            }
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return !path.isEmpty();
+                }
+
+                @Override
+                public T next() {
+                    if (path.isEmpty()) throw new NoSuchElementException();
+                    Node<T> node = path.pop();
+                    for (Node<T> child = node.right; child != null; child = child.left) {
+                        path.push(child);
+                    }
+                    return node.value;
+                }
+            };
+        }
+    }
+
+    // Persistent AVL tree keyed by position; nodes are never modified once built
+
+    private static final class Node<T> {
+        final long position;
+        final T value;
+        final Node<T> left;
+        final Node<T> right;
+        final int height;
+        final int size;
+
+        Node(long position, T value, Node<T> left, Node<T> right) {
+            this.position = position;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            height = Math.max(height(left), height(right)) + 1;
+            size = size(left) + size(right) + 1;
+        }
+    }
+
+    private static int height(Node<?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static <T> T find(Node<T> node, long position) {
+        while (node != null) {
+            if (position < node.position) {
+                node = node.left;
+            } else if (position > node.position) {
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    // Items get positions 0..n-1, so a balanced tree is built directly
+    private static <T> Node<T> build(List<T> items, int from, int to) {
+        if (from >= to) return null;
+        int mid = (from + to) >>> 1;
+        return new Node<>(mid, items.get(mid), build(items, from, mid), build(items, mid + 1, to));
+    }
+
+    private static <T> Node<T> put(Node<T> node, long position, T value) {
+        if (node == null) return new Node<>(position, value, null, null);
+        if (position < node.position) {
+            return balance(node.position, node.value, put(node.left, position, value), node.right);
+        }
+        if (position > node.position) {
+            return balance(node.position, node.value, node.left, put(node.right, position, value));
+        }
+        return node.value == value ? node : new Node<>(position, value, node.left, node.right);
+    }
+
+    private static <T> Node<T> remove(Node<T> node, long position) {
+        if (node == null) return null;
+        if (position < node.position) {
+            Node<T> left = remove(node.left, position);
+            return left == node.left ? node : balance(node.position, node.value, left, node.right);
+        }
+        if (position > node.position) {
+            Node<T> right = remove(node.right, position);
+            return right == node.right ? node : balance(node.position, node.value, node.left, right);
+        }
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Node<T> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.position, successor.value, node.left, remove(node.right, successor.position));
+    }
+
+    private static <T> Node<T> balance(long position, T value, Node<T> left, Node<T> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.position, left.value, left.left, left.right);
+            }
+            return rotateRight(position, value, left, right);
+        }
+        if (difference < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.position, right.value, right.left, right.right);
+            }
+            return rotateLeft(position, value, left, right);
+        }
+        return new Node<>(position, value, left, right);
+    }
+
+    private static <T> Node<T> rotateRight(long position, T value, Node<T> left, Node<T> right) {
+        return new Node<>(left.position, left.value, left.left, new Node<>(position, value, left.right, right));
+    }
+
+    private static <T> Node<T> rotateLeft(long position, T value, Node<T> left, Node<T> right) {
+        return new Node<>(right.position, right.value, new Node<>(position, value, left, right.left), right.right);
+    }
+}
@@ -0,0 +1,38 @@
+// StreakRules.java - Daily completion streak and milestone rules
+package com.taskshabitstracker.domain;
+
+import com.taskshabitstracker.utils.DateUtils;
+
+/**
+ * StreakRules - How a task completion moves the user's streak
+ * Days are epoch days (see DateUtils); a completion the day after the last one
+ * extends the streak, another completion on the same day keeps it, and anything
+ * else starts a new streak of one
+ */
+public final class StreakRules {
+    private static final int[] MILESTONES = {10, 50, 100};
+
+    private StreakRules() {
+    }
+
+    /**
+     * @param lastCompletionDay day of the previous completion, or DateUtils.NO_DATE
+     * @return the streak after a completion on today
+     */
+    public static int afterCompletion(int lastCompletionDay, int streak, int today) {
+        if (lastCompletionDay == DateUtils.NO_DATE) return 1;
+        if (lastCompletionDay == today - 1) return streak + 1;
+        if (lastCompletionDay == today) return Math.max(streak, 1);
+        return 1;
+    }
+
+    /**
+     * True when this many completed tasks is worth a milestone notification
+     */
+    public static boolean isMilestone(int totalCompleted) {
+        for (int milestone : MILESTONES) {
+            if (totalCompleted == milestone) return true;
+        }
+        return false;
+    }
+}
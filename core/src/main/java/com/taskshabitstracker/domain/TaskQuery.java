@@ -0,0 +1,160 @@
+// TaskQuery.java - How the task list is sorted, filtered and grouped
+package com.taskshabitstracker.domain;
+
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.DateUtils;
+import java.util.Objects;
+
+/**
+ * TaskQuery - Immutable view settings for the task list
+ * Changes produce a new instance (see sortedBy and the other with-methods). Filters
+ * combine with AND; the due range is inclusive and either end may be open
+ * (DateUtils.NO_DATE). When grouped, tasks are ordered by section first and by
+ * the sort inside each section. Ties keep server order, so the order is total
+ */
+public final class TaskQuery {
+    public enum Sort { CREATED, DUE_DATE, TITLE }
+
+    public enum Grouping { NONE, DUE }
+
+    // Sections of Grouping.DUE, in display order
+    public static final int SECTION_OVERDUE = 0;
+    public static final int SECTION_TODAY = 1;
+    public static final int SECTION_NEXT_7_DAYS = 2;
+    public static final int SECTION_LATER = 3;
+    public static final int SECTION_NO_DATE = 4;
+    public static final int SECTION_COMPLETED = 5;
+    private static final String[] SECTION_TITLES = {
+            "Overdue", "Today", "Next 7 days", "Later", "No due date", "Completed"
+    };
+
+    /**
+     * Server order, nothing hidden, no sections: the plain paged list
+     */
+    public static final TaskQuery DEFAULT = new TaskQuery(Sort.CREATED, false, false,
+            DateUtils.NO_DATE, DateUtils.NO_DATE, Grouping.NONE);
+
+    private final Sort sort;
+    private final boolean hideCompleted;
+    private final boolean overdueOnly;
+    private final int dueFrom;
+    private final int dueTo;
+    private final Grouping grouping;
+
+    private TaskQuery(Sort sort, boolean hideCompleted, boolean overdueOnly,
+                      int dueFrom, int dueTo, Grouping grouping) {
+        this.sort = sort;
+        this.hideCompleted = hideCompleted;
+        this.overdueOnly = overdueOnly;
+        this.dueFrom = dueFrom;
+        this.dueTo = dueTo;
+        this.grouping = grouping;
+    }
+
+    public Sort getSort() { return sort; }
+    public boolean isHideCompleted() { return hideCompleted; }
+    public boolean isOverdueOnly() { return overdueOnly; }
+    public int getDueFrom() { return dueFrom; }
+    public int getDueTo() { return dueTo; }
+    public Grouping getGrouping() { return grouping; }
+
+    public boolean isDefault() {
+        return equals(DEFAULT);
+    }
+
+    public boolean hasDueRange() {
+        return dueFrom != DateUtils.NO_DATE || dueTo != DateUtils.NO_DATE;
+    }
+
+    public TaskQuery sortedBy(Sort sort) {
+        return new TaskQuery(sort, hideCompleted, overdueOnly, dueFrom, dueTo, grouping);
+    }
+
+    public TaskQuery hidingCompleted(boolean hideCompleted) {
+        return new TaskQuery(sort, hideCompleted, overdueOnly, dueFrom, dueTo, grouping);
+    }
+
+    public TaskQuery withOverdueOnly(boolean overdueOnly) {
+        return new TaskQuery(sort, hideCompleted, overdueOnly, dueFrom, dueTo, grouping);
+    }
+
+    /**
+     * Only tasks due between the two epoch days, inclusive; NO_DATE leaves an end open
+     */
+    public TaskQuery dueBetween(int dueFrom, int dueTo) {
+        return new TaskQuery(sort, hideCompleted, overdueOnly, dueFrom, dueTo, grouping);
+    }
+
+    public TaskQuery groupedBy(Grouping grouping) {
+        return new TaskQuery(sort, hideCompleted, overdueOnly, dueFrom, dueTo, grouping);
+    }
+
+    public boolean matches(Task task, int today) {
+        if (hideCompleted && task.isCompleted()) return false;
+        if (overdueOnly && !task.isOverdue(today)) return false;
+        if (hasDueRange()) {
+            if (!task.hasDueDate()) return false;
+            int due = task.getDueEpochDay();
+            if (dueFrom != DateUtils.NO_DATE && due < dueFrom) return false;
+            if (dueTo != DateUtils.NO_DATE && due > dueTo) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Section of a task as of today; 0 for every task when not grouped
+     */
+    public int section(Task task, int today) {
+        if (grouping == Grouping.NONE) return 0;
+        if (task.isCompleted()) return SECTION_COMPLETED;
+        if (!task.hasDueDate()) return SECTION_NO_DATE;
+        int due = task.getDueEpochDay();
+        if (due < today) return SECTION_OVERDUE;
+        if (due == today) return SECTION_TODAY;
+        return due <= today + 7 ? SECTION_NEXT_7_DAYS : SECTION_LATER;
+    }
+
+    public static String sectionTitle(int section) {
+        return SECTION_TITLES[section];
+    }
+
+    /**
+     * Order of two tasks in the same section; serverOrder breaks ties
+     */
+    int compare(Task a, int serverOrderA, Task b, int serverOrderB) {
+        int order = 0;
+        if (sort == Sort.DUE_DATE) {
+            // Tasks without a due date go last
+            order = Integer.compare(dueKey(a), dueKey(b));
+        } else if (sort == Sort.TITLE) {
+            order = String.CASE_INSENSITIVE_ORDER.compare(a.getTitle(), b.getTitle());
+        }
+        return order != 0 ? order : Integer.compare(serverOrderA, serverOrderB);
+    }
+
+    private static int dueKey(Task task) {
+        return task.hasDueDate() ? task.getDueEpochDay() : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TaskQuery)) return false;
+        TaskQuery other = (TaskQuery) o;
+        return sort == other.sort && hideCompleted == other.hideCompleted
+                && overdueOnly == other.overdueOnly && dueFrom == other.dueFrom
+                && dueTo == other.dueTo && grouping == other.grouping;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, hideCompleted, overdueOnly, dueFrom, dueTo, grouping);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskQuery{sort=" + sort + ", hideCompleted=" + hideCompleted
+                + ", overdueOnly=" + overdueOnly + ", dueFrom=" + dueFrom
+                + ", dueTo=" + dueTo + ", grouping=" + grouping + '}';
+    }
+}
@@ -0,0 +1,100 @@
+package com.taskshabitstracker.model;
+
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.utils.DateUtils;
+import java.util.Objects;
+
+/**
+ * Immutable habit. Changes produce a new instance (see toggledCompletedToday)
+ * so lists handed to the adapter can be diffed safely against the previous ones.
+ * The completion history is the only state; the streak and today's completion are
+ * read from it as of the current day, so they stay right across midnight.
+ */
+public final class Habit {
+    private final String id;
+    private final String name;
+    private final String description;
+    private final HabitHistory history;
+
+    public Habit(String id, String name, String description, HabitHistory history) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.history = history;
+    }
+
+    /**
+     * Habit without a recorded history; the streak is taken to be the latest run of days
+     */
+    public Habit(String id, String name, String description, int streak, boolean completedToday) {
+        this(id, name, description,
+                HabitHistory.ofStreak(DateUtils.today() - (completedToday ? 0 : 1), streak));
+    }
+
+    // New habits get a local id so they can be stored and queued before the server assigns one
+    public Habit(String name, String description) {
+        this(java.util.UUID.randomUUID().toString(), name, description, HabitHistory.EMPTY);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTitle() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getStreak() {
+        return history.currentStreak(DateUtils.today());
+    }
+
+    public boolean isCompletedToday() {
+        return history.isCompleted(DateUtils.today());
+    }
+
+    public HabitHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Copy with today's completion flipped
+     * @param today the current epoch day, see DateUtils.today()
+     */
+    public Habit toggledCompletedToday(int today) {
+        return new Habit(id, name, description, history.with(today, !history.isCompleted(today)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Habit)) return false;
+        Habit other = (Habit) o;
+        return Objects.equals(id, other.id)
+                && Objects.equals(name, other.name)
+                && Objects.equals(description, other.description)
+                && Objects.equals(history, other.history);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, description, history);
+    }
+
+    @Override
+    public String toString() {
+        return "Habit{" +
+                "id='" + id + '\'' +
+                ", name='" + name + '\'' +
+                ", description='" + description + '\'' +
+                ", history=" + history +
+                '}';
+    }
+}
@@ -0,0 +1,113 @@
+package com.taskshabitstracker.model;
+
+import com.taskshabitstracker.utils.DateUtils;
+import java.util.Objects;
+
+/**
+ * Immutable task. Changes produce a new instance (see withCompleted) so lists
+ * handed to the adapter can be diffed safely against the previous ones.
+ */
+public final class Task {
+    private final String id;
+    private final String userId; // Associate task with a user
+    private final String title;
+    private final String description;
+    private final boolean completed;
+    private final String dueDate; // Changed to String for API 24 compatibility
+    private final boolean enableDueDateNotifications; // Added for notification preferences
+    private final boolean enablePreDueNotifications; // Added for pre-due (e.g., 1 day before) notifications
+    private final int dueEpochDay; // dueDate parsed once; DateUtils.NO_DATE when absent or malformed
+
+    // Constructor for creating new tasks
+    public Task(String title, String description, String dueDate) {
+        this(title, description, dueDate, true, true);
+    }
+
+    // Constructor for creating new tasks with explicit notification preferences
+    public Task(String title, String description, String dueDate,
+                boolean enableDueDateNotifications, boolean enablePreDueNotifications) {
+        this(java.util.UUID.randomUUID().toString(), null, title, description, false, dueDate,
+                enableDueDateNotifications, enablePreDueNotifications);
+    }
+
+    // Constructor for parsing backend data
+    public Task(String id, String userId, String title, String description, boolean completed, String dueDate,
+                boolean enableDueDateNotifications, boolean enablePreDueNotifications) {
+        this.id = id;
+        this.userId = userId;
+        this.title = title;
+        this.description = description;
+        this.completed = completed;
+        this.dueDate = dueDate;
+        this.enableDueDateNotifications = enableDueDateNotifications;
+        this.enablePreDueNotifications = enablePreDueNotifications;
+        this.dueEpochDay = DateUtils.parseEpochDay(dueDate);
+    }
+
+    public Task(String id, String title, String description, boolean completed, String dueDate) {
+        this(id, null, title, description, completed, dueDate, false, false);
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public String getUserId() { return userId; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public boolean isCompleted() { return completed; }
+    public String getDueDate() { return dueDate; }
+    public boolean isEnableDueDateNotifications() { return enableDueDateNotifications; }
+    public boolean isEnablePreDueNotifications() { return enablePreDueNotifications; }
+    public int getDueEpochDay() { return dueEpochDay; }
+    public boolean hasDueDate() { return dueEpochDay != DateUtils.NO_DATE; }
+
+    // Day checks against DateUtils.today(); integer comparisons only
+    public boolean isOverdue(int today) {
+        return !completed && hasDueDate() && dueEpochDay < today;
+    }
+
+    public boolean isDueOn(int epochDay) {
+        return hasDueDate() && dueEpochDay == epochDay;
+    }
+
+    // Copy helper
+    public Task withCompleted(boolean newCompleted) {
+        if (newCompleted == completed) return this;
+        return new Task(id, userId, title, description, newCompleted, dueDate,
+                enableDueDateNotifications, enablePreDueNotifications);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Task)) return false;
+        Task other = (Task) o;
+        return completed == other.completed
+                && enableDueDateNotifications == other.enableDueDateNotifications
+                && enablePreDueNotifications == other.enablePreDueNotifications
+                && Objects.equals(id, other.id)
+                && Objects.equals(userId, other.userId)
+                && Objects.equals(title, other.title)
+                && Objects.equals(description, other.description)
+                && Objects.equals(dueDate, other.dueDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, userId, title, description, completed, dueDate,
+                enableDueDateNotifications, enablePreDueNotifications);
+    }
+
+    @Override
+    public String toString() {
+        return "Task{" +
+                "id='" + id + '\'' +
+                ", userId='" + userId + '\'' +
+                ", title='" + title + '\'' +
+                ", description='" + description + '\'' +
+                ", completed=" + completed +
+                ", dueDate='" + dueDate + '\'' +
+                ", enableDueDateNotifications=" + enableDueDateNotifications +
+                ", enablePreDueNotifications=" + enablePreDueNotifications +
+                '}';
+    }
+}
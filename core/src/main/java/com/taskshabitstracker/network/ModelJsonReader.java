@@ -0,0 +1,223 @@
+package com.taskshabitstracker.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.model.DashboardStats;
+import com.taskshabitstracker.model.Habit;
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.model.UserProfile;
+import com.taskshabitstracker.utils.DateUtils;
+
+import java.io.IOException;
+
+/**
+ * Streaming decoders for task, habit, dashboard stats and profile JSON objects
+ * Fields are read straight from the token stream into the model constructor
+ * arguments; unknown fields are skipped without being materialized.
+ * A habit's completion history travels as "historyStart" ("yyyy-MM-dd", the day of
+ * the first bit) and "history" (HabitHistory.toHex); when it is present the
+ * streak is recomputed from it so it agrees with what local toggles produce
+ */
+public final class ModelJsonReader {
+
+    private ModelJsonReader() {
+    }
+
+    public static Task readTask(JsonReader reader) throws IOException {
+        String id = null;
+        String userId = "default-user";
+        String title = null;
+        String description = "";
+        boolean completed = false;
+        String dueDate = null;
+        boolean enableDueDateNotifications = true;
+        boolean enablePreDueNotifications = true;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "userId":
+                    userId = reader.nextString();
+                    break;
+                case "title":
+                    title = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "completed":
+                    completed = reader.nextBoolean();
+                    break;
+                case "dueDate":
+                    dueDate = reader.nextString();
+                    break;
+                case "enableDueDateNotifications":
+                    enableDueDateNotifications = reader.nextBoolean();
+                    break;
+                case "enablePreDueNotifications":
+                    enablePreDueNotifications = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (id == null || title == null) {
+            throw new IOException("Task is missing id or title");
+        }
+        return new Task(id, userId, title, description, completed, dueDate,
+                enableDueDateNotifications, enablePreDueNotifications);
+    }
+
+    public static Habit readHabit(JsonReader reader) throws IOException {
+        String id = null;
+        String name = null;
+        String description = "";
+        int streak = 0;
+        boolean completedToday = false;
+        int historyStart = DateUtils.NO_DATE;
+        String history = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                case "streak":
+                    streak = reader.nextInt();
+                    break;
+                case "completedToday":
+                    completedToday = reader.nextBoolean();
+                    break;
+                case "historyStart":
+                    historyStart = DateUtils.parseEpochDay(reader.nextString());
+                    break;
+                case "history":
+                    history = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (id == null || name == null) {
+            throw new IOException("Habit is missing id or name");
+        }
+        if (history == null || historyStart == DateUtils.NO_DATE) {
+            return new Habit(id, name, description, streak, completedToday);
+        }
+        HabitHistory days;
+        try {
+            days = HabitHistory.fromHex(historyStart, history);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Habit " + id + " has a malformed history", e);
+        }
+        return new Habit(id, name, description, days);
+    }
+
+    /**
+     * Missing counters read as 0
+     */
+    public static DashboardStats readDashboardStats(JsonReader reader) throws IOException {
+        int points = 0;
+        int streak = 0;
+        int completedTasks = 0;
+        int totalTasks = 0;
+        int completedHabits = 0;
+        int totalHabits = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "points":
+                    points = reader.nextInt();
+                    break;
+                case "streak":
+                    streak = reader.nextInt();
+                    break;
+                case "completedTasks":
+                    completedTasks = reader.nextInt();
+                    break;
+                case "totalTasks":
+                    totalTasks = reader.nextInt();
+                    break;
+                case "completedHabits":
+                    completedHabits = reader.nextInt();
+                    break;
+                case "totalHabits":
+                    totalHabits = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new DashboardStats(points, streak, completedTasks, totalTasks, completedHabits, totalHabits);
+    }
+
+    public static UserProfile readUserProfile(JsonReader reader) throws IOException {
+        String id = null;
+        String email = null;
+        String name = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "email":
+                    email = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (email == null) {
+            throw new IOException("Profile is missing email");
+        }
+        return new UserProfile(id, email, name);
+    }
+}
@@ -0,0 +1,174 @@
+// DateUtils.java - Allocation-free calendar-day arithmetic
+package com.taskshabitstracker.utils;
+
+import java.util.TimeZone;
+
+/**
+ * DateUtils - Works with dates as epoch days (days since 1970-01-01 in local time)
+ * Due dates are parsed once into an int, and "today" is cached until the next
+ * local midnight, so overdue/due-today checks are plain integer comparisons
+ */
+public final class DateUtils {
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    // ISO day-of-week numbers, as returned by dayOfWeek
+    public static final int MONDAY = 1;
+    public static final int SUNDAY = 7;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long MILLIS_PER_HOUR = 60L * 60 * 1000;
+
+    // Cached local day and the [start, end) millis window in which it is valid
+    private static volatile int cachedToday = NO_DATE;
+    private static volatile long todayStartMillis;
+    private static volatile long todayEndMillis;
+
+    private DateUtils() {
+    }
+
+    /**
+     * Current local epoch day; recomputed only when the clock leaves the cached day
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        if (cachedToday == NO_DATE || now < todayStartMillis || now >= todayEndMillis) {
+            refreshToday(now);
+        }
+        return cachedToday;
+    }
+
+    /**
+     * Forget the cached day, e.g. after a time zone change
+     */
+    public static void invalidateToday() {
+        cachedToday = NO_DATE;
+    }
+
+    private static synchronized void refreshToday(long now) {
+        TimeZone zone = TimeZone.getDefault();
+        int day = (int) Math.floorDiv(now + zone.getOffset(now), MILLIS_PER_DAY);
+        todayStartMillis = toLocalMillis(zone, day, 0);
+        todayEndMillis = toLocalMillis(zone, day + 1, 0);
+        cachedToday = day;
+    }
+
+    /**
+     * Parse "yyyy-MM-dd" into an epoch day without allocating
+     * @return the epoch day, or NO_DATE if the text is null or malformed
+     */
+    public static int parseEpochDay(String text) {
+        if (text == null || text.length() < 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return NO_DATE;
+        }
+        int year = parseDigits(text, 0, 4);
+        int month = parseDigits(text, 5, 7);
+        int day = parseDigits(text, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NO_DATE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Format an epoch day back to "yyyy-MM-dd"
+     */
+    public static String formatEpochDay(int epochDay) {
+        // Inverse of toEpochDay (civil-from-days)
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] out = new char[10];
+        out[0] = (char) ('0' + year / 1000 % 10);
+        out[1] = (char) ('0' + year / 100 % 10);
+        out[2] = (char) ('0' + year / 10 % 10);
+        out[3] = (char) ('0' + year % 10);
+        out[4] = '-';
+        out[5] = (char) ('0' + month / 10);
+        out[6] = (char) ('0' + month % 10);
+        out[7] = '-';
+        out[8] = (char) ('0' + day / 10);
+        out[9] = (char) ('0' + day % 10);
+        return new String(out);
+    }
+
+    /**
+     * Local epoch day containing the given instant
+     */
+    public static int epochDayOf(long millis) {
+        return (int) Math.floorDiv(millis + TimeZone.getDefault().getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Wall-clock millis of the given local day and hour in the default time zone
+     */
+    public static long localMillis(int epochDay, int hourOfDay) {
+        return toLocalMillis(TimeZone.getDefault(), epochDay, hourOfDay);
+    }
+
+    /**
+     * ISO day of week of an epoch day, MONDAY (1) to SUNDAY (7)
+     */
+    public static int dayOfWeek(int epochDay) {
+        // 1970-01-01 was a Thursday
+        return Math.floorMod(epochDay + 3, 7) + 1;
+    }
+
+    /**
+     * Millis from now until the local clock next reads hourOfDay:00
+     */
+    public static long millisUntilHour(int hourOfDay, long now) {
+        int day = epochDayOf(now);
+        long at = localMillis(day, hourOfDay);
+        if (at <= now) {
+            at = localMillis(day + 1, hourOfDay);
+        }
+        return at - now;
+    }
+
+    /**
+     * Millis from now until the next given ISO weekday at hourOfDay:00
+     */
+    public static long millisUntilWeekday(int isoDayOfWeek, int hourOfDay, long now) {
+        int day = epochDayOf(now);
+        day += Math.floorMod(isoDayOfWeek - dayOfWeek(day), 7);
+        long at = localMillis(day, hourOfDay);
+        if (at <= now) {
+            at = localMillis(day + 7, hourOfDay);
+        }
+        return at - now;
+    }
+
+    private static long toLocalMillis(TimeZone zone, int epochDay, int hourOfDay) {
+        long localMillis = epochDay * MILLIS_PER_DAY + hourOfDay * MILLIS_PER_HOUR;
+        // Two-step offset lookup handles days where the offset changes (DST)
+        long guess = localMillis - zone.getOffset(localMillis);
+        return localMillis - zone.getOffset(guess);
+    }
+
+    private static int toEpochDay(int year, int month, int day) {
+        // Days-from-civil for the proleptic Gregorian calendar
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yoe = y - era * 400;
+        int mp = month > 2 ? month - 3 : month + 9;
+        int doy = (153 * mp + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,89 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CacheEntryTest {
+    private static final long TTL = 1_000;
+
+    @Test
+    public void freshUntilTheTtlRunsOut() {
+        CacheEntry<String> entry = new CacheEntry<>(TTL);
+        assertFalse(entry.isFresh(0));
+
+        entry.put("v", 100, entry.generation());
+
+        assertTrue(entry.isFresh(100 + TTL - 1));
+        assertFalse(entry.isFresh(100 + TTL));
+        assertEquals("v", entry.get());
+    }
+
+    @Test
+    public void invalidateKeepsServingTheValue() {
+        CacheEntry<String> entry = new CacheEntry<>(TTL);
+        entry.put("v", 0, entry.generation());
+
+        entry.invalidate();
+
+        assertFalse(entry.isFresh(1));
+        assertEquals("v", entry.get());
+    }
+
+    @Test
+    public void readThatRacedAnInvalidateIsNotFresh() {
+        CacheEntry<String> entry = new CacheEntry<>(TTL);
+        long read = entry.generation();
+
+        entry.invalidate();
+        entry.put("from before the change", 0, read);
+
+        assertEquals("from before the change", entry.get());
+        assertFalse(entry.isFresh(1));
+
+        entry.put("v", 2, entry.generation());
+        assertTrue(entry.isFresh(3));
+    }
+
+    @Test
+    public void readThatRacedAClearIsDropped() {
+        CacheEntry<String> entry = new CacheEntry<>(TTL);
+        entry.put("old user", 0, entry.generation());
+        long read = entry.generation();
+
+        entry.clear();
+        entry.put("old user, late", 1, read);
+
+        assertNull(entry.get());
+        assertFalse(entry.isFresh(2));
+    }
+
+    @Test
+    public void markFreshOnlyForTheCurrentGeneration() {
+        CacheEntry<String> entry = new CacheEntry<>(TTL);
+        entry.put("v", 0, entry.generation());
+        entry.invalidate();
+        long stale = entry.generation() - 1;
+
+        entry.markFresh(10, stale);
+        assertFalse(entry.isFresh(11));
+
+        entry.markFresh(10, entry.generation());
+        assertTrue(entry.isFresh(11));
+    }
+
+    @Test
+    public void updateDoesNotChangeFreshness() {
+        CacheEntry<String> entry = new CacheEntry<>(TTL);
+        entry.update("local");
+        assertFalse(entry.isFresh(0));
+
+        entry.put("v", 0, entry.generation());
+        entry.update("edited");
+        assertTrue(entry.isFresh(1));
+        assertEquals("edited", entry.get());
+    }
+}
@@ -0,0 +1,158 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Test;
+
+public class HabitHistoryTest {
+    // A word boundary: day 64 * 300 is bit 0 of a word
+    private static final int BOUNDARY = 64 * 300;
+
+    @Test
+    public void completedDaysAcrossAWordBoundary() {
+        HabitHistory history = HabitHistory.EMPTY
+                .with(BOUNDARY - 1, true)
+                .with(BOUNDARY, true)
+                .with(BOUNDARY + 63, true)
+                .with(BOUNDARY + 64, true);
+
+        assertTrue(history.isCompleted(BOUNDARY - 1));
+        assertTrue(history.isCompleted(BOUNDARY));
+        assertTrue(history.isCompleted(BOUNDARY + 63));
+        assertTrue(history.isCompleted(BOUNDARY + 64));
+        assertFalse(history.isCompleted(BOUNDARY + 1));
+        assertFalse(history.isCompleted(BOUNDARY - 2));
+        assertFalse(history.isCompleted(BOUNDARY + 65));
+        assertEquals(4, history.completedBetween(BOUNDARY - 64, BOUNDARY + 127));
+    }
+
+    @Test
+    public void clearingTheOnlyDayTrimsToEmpty() {
+        HabitHistory history = HabitHistory.EMPTY.with(BOUNDARY + 5, true).with(BOUNDARY + 5, false);
+
+        assertSame(HabitHistory.EMPTY, history);
+    }
+
+    @Test
+    public void withReturnsTheSameInstanceWhenNothingChanges() {
+        HabitHistory history = HabitHistory.ofStreak(BOUNDARY, 3);
+
+        assertSame(history, history.with(BOUNDARY, true));
+        assertSame(history, history.with(BOUNDARY + 10, false));
+    }
+
+    @Test
+    public void runEndingOnCountsBackThroughFullWords() {
+        // 200 days ending just past a boundary: one partial word, two full words, one partial word
+        HabitHistory history = HabitHistory.ofStreak(BOUNDARY + 2, 200);
+
+        assertEquals(200, history.runEndingOn(BOUNDARY + 2));
+        assertEquals(199, history.runEndingOn(BOUNDARY + 1));
+        assertEquals(197, history.runEndingOn(BOUNDARY - 1));
+        assertEquals(0, history.runEndingOn(BOUNDARY + 3));
+        assertEquals(0, history.runEndingOn(BOUNDARY + 2 - 200));
+    }
+
+    @Test
+    public void runStopsAtAMissedDayInAnEarlierWord() {
+        HabitHistory history = HabitHistory.ofStreak(BOUNDARY + 10, 100).with(BOUNDARY - 20, false);
+
+        assertEquals(30, history.runEndingOn(BOUNDARY + 10));
+    }
+
+    @Test
+    public void currentStreakCountsFromYesterdayWhileTodayIsOpen() {
+        HabitHistory history = HabitHistory.ofStreak(BOUNDARY - 1, 5);
+
+        assertEquals(5, history.currentStreak(BOUNDARY));
+        assertEquals(6, history.with(BOUNDARY, true).currentStreak(BOUNDARY));
+        assertEquals(0, history.currentStreak(BOUNDARY + 1));
+    }
+
+    @Test
+    public void longestStreakSpanningWords() {
+        HabitHistory history = HabitHistory.ofStreak(BOUNDARY + 70, 140)
+                .with(BOUNDARY + 200, true)
+                .with(BOUNDARY + 201, true);
+
+        assertEquals(140, history.longestStreak());
+    }
+
+    @Test
+    public void longestStreakOfAFullHistory() {
+        assertEquals(128, HabitHistory.ofStreak(BOUNDARY + 127, 128).longestStreak());
+        assertEquals(0, HabitHistory.EMPTY.longestStreak());
+    }
+
+    @Test
+    public void bitMathMatchesDayByDayCounting() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int start = BOUNDARY + random.nextInt(64);
+            int span = 1 + random.nextInt(400);
+            BitSet days = new BitSet();
+            HabitHistory history = HabitHistory.EMPTY;
+            for (int i = 0; i < span; i++) {
+                // Long runs with occasional gaps, so runs often cross word boundaries
+                if (random.nextInt(10) != 0) {
+                    days.set(i);
+                    history = history.with(start + i, true);
+                }
+            }
+
+            assertEquals(longestRun(days), history.longestStreak());
+            for (int probe = 0; probe < 20; probe++) {
+                int day = random.nextInt(span);
+                assertEquals(runEndingAt(days, day), history.runEndingOn(start + day));
+                int to = day + random.nextInt(span - day);
+                assertEquals(days.get(day, to + 1).cardinality(), history.completedBetween(start + day, start + to));
+            }
+        }
+    }
+
+    @Test
+    public void storageFormatsRoundTrip() {
+        HabitHistory history = HabitHistory.ofStreak(BOUNDARY + 30, 90).with(BOUNDARY - 100, true);
+
+        assertEquals(history, HabitHistory.fromBytes(history.getStartDay(), history.toBytes()));
+        assertEquals(history, HabitHistory.fromHex(history.getStartDay(), history.toHex()));
+    }
+
+    @Test
+    public void fromWordsAlignsAnUnalignedStart() {
+        HabitHistory history = HabitHistory.fromWords(BOUNDARY + 10, new long[] {-1L});
+
+        assertEquals(0, history.getStartDay() % 64);
+        assertFalse(history.isCompleted(BOUNDARY + 9));
+        assertEquals(64, history.runEndingOn(BOUNDARY + 73));
+        assertFalse(history.isCompleted(BOUNDARY + 74));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromHexRejectsAPartialWord() {
+        HabitHistory.fromHex(BOUNDARY, "ff");
+    }
+
+    private static int runEndingAt(BitSet days, int day) {
+        int run = 0;
+        while (day - run >= 0 && days.get(day - run)) {
+            run++;
+        }
+        return run;
+    }
+
+    private static int longestRun(BitSet days) {
+        int longest = 0;
+        int run = 0;
+        for (int i = 0; i <= days.length(); i++) {
+            run = days.get(i) ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,51 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+
+/**
+ * Relayout at an unchanged size, refill and the per-cell reads of a draw pass
+ * reuse the grid's arrays, so a heatmap that is redrawn while scrolling allocates nothing
+ */
+public class HeatmapGridAllocationTest {
+    private static final int TODAY = 20_000;
+    private static final int WEEKS = 53;
+    private static final int ITERATIONS = 20_000;
+
+    private float sink;
+
+    @Test
+    public void redrawAtTheSameSizeAllocatesNothing() {
+        HabitHistory history = HabitHistory.ofStreak(TODAY, 150).with(TODAY - 200, true);
+        HeatmapGrid grid = new HeatmapGrid();
+        for (int i = 0; i < ITERATIONS; i++) {
+            redraw(grid, history);
+        }
+        allocatedBytes();
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            redraw(grid, history);
+        }
+        long allocated = allocatedBytes() - before;
+
+        assertTrue("Redraws allocated " + allocated + " bytes", allocated < ITERATIONS);
+    }
+
+    private void redraw(HeatmapGrid grid, HabitHistory history) {
+        grid.layout(1080f, WEEKS, 12f, 2f, 8f);
+        grid.fill(history, TODAY);
+        for (int i = 0; i < grid.cellCount(); i++) {
+            if (grid.state(i) == HeatmapGrid.DONE) {
+                sink += grid.left(i) + grid.top(i);
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
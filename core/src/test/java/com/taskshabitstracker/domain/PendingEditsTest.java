@@ -0,0 +1,115 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PendingEditsTest {
+
+    @Test
+    public void rollingBackTheLatestEditRestoresItsPrevious() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> edit = edits.record("a", "old", "new");
+
+        assertTrue(edits.rollback(edit));
+
+        assertEquals("old", edit.getPrevious());
+        assertFalse(edits.isPending("a"));
+    }
+
+    @Test
+    public void rollingBackAnOverwrittenEditHandsItsPreviousDown() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> first = edits.record("a", "v0", "v1");
+        PendingEdits.Edit<String> second = edits.record("a", "v1", "v2");
+
+        // The later edit is what is shown, so nothing is restored now
+        assertFalse(edits.rollback(first));
+        assertTrue(edits.isPending("a"));
+
+        // ...but undoing the later one now goes all the way back
+        assertTrue(edits.rollback(second));
+        assertEquals("v0", second.getPrevious());
+        assertFalse(edits.isPending("a"));
+    }
+
+    @Test
+    public void rollingBackTheMiddleOfThreeEdits() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> first = edits.record("a", "v0", "v1");
+        PendingEdits.Edit<String> second = edits.record("a", "v1", "v2");
+        PendingEdits.Edit<String> third = edits.record("a", "v2", "v3");
+
+        assertFalse(edits.rollback(second));
+        assertEquals("v1", third.getPrevious());
+
+        assertTrue(edits.rollback(third));
+        assertEquals("v1", third.getPrevious());
+        assertTrue(edits.rollback(first));
+        assertEquals("v0", first.getPrevious());
+    }
+
+    @Test
+    public void commitSettlesEarlierEditsOfTheKey() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> first = edits.record("a", "v0", "v1");
+        PendingEdits.Edit<String> second = edits.record("a", "v1", "v2");
+        PendingEdits.Edit<String> third = edits.record("a", "v2", "v3");
+
+        edits.commit(second);
+
+        assertFalse(first.isOpen());
+        assertFalse(second.isOpen());
+        assertFalse(edits.rollback(first));
+        assertTrue(edits.rollback(third));
+        assertEquals("v2", third.getPrevious());
+    }
+
+    @Test
+    public void editsOfOtherKeysAreIndependent() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> a = edits.record("a", "a0", "a1");
+        edits.record("b", "b0", "b1");
+
+        assertTrue(edits.rollback(a));
+
+        assertTrue(edits.isPending("b"));
+        assertEquals(1, edits.latestEdits().size());
+    }
+
+    @Test
+    public void rebaseChangesWhatTheFirstOpenEditRestores() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> first = edits.record("a", "v0", "v1");
+        PendingEdits.Edit<String> second = edits.record("a", "v1", "v2");
+
+        edits.rebase("a", "server");
+        edits.rollback(first);
+
+        assertEquals("server", second.getPrevious());
+    }
+
+    @Test
+    public void removalOfANewItemRestoresNothing() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> added = edits.record("a", null, "v1");
+
+        assertTrue(edits.rollback(added));
+        assertNull(added.getPrevious());
+    }
+
+    @Test
+    public void clearSettlesEverything() {
+        PendingEdits<String> edits = new PendingEdits<>();
+        PendingEdits.Edit<String> edit = edits.record("a", "v0", "v1");
+
+        edits.clear();
+
+        assertFalse(edit.isOpen());
+        assertFalse(edits.rollback(edit));
+        assertTrue(edits.latestEdits().isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CancellationException;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    @Test
+    public void tokenizeSplitsLowerCasesAndDeduplicates() {
+        assertArrayEquals(new String[] {"buy", "milk", "x2"},
+                SearchIndex.tokenize("Buy MILK, buy milk!", null, "x2"));
+    }
+
+    @Test
+    public void everyQueryWordMatchesAsAPrefix() {
+        SearchIndex index = new SearchIndex();
+        index.put("a", "Buy milk", "from the shop");
+        index.put("b", "Buy bread");
+        index.put("c", "Milk the cow");
+
+        assertEquals(Arrays.asList("a", "b"), index.search("bu", 10));
+        assertEquals(Arrays.asList("a", "c"), index.search("MIL", 10));
+        assertEquals(Collections.singletonList("a"), index.search("milk bu", 10));
+        assertEquals(Collections.singletonList("a"), index.search("sho", 10));
+        assertTrue(index.search("bread milk", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void resultsAreLimited() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 20; i++) {
+            index.put("k" + i, "walk the dog");
+        }
+
+        assertEquals(Arrays.asList("k0", "k1", "k2"), index.search("walk", 3));
+        assertTrue(index.search("walk", 0).isEmpty());
+    }
+
+    @Test
+    public void reindexingReplacesOldWords() {
+        SearchIndex index = new SearchIndex();
+        index.put("a", "Buy milk");
+
+        index.put("a", "Sell milk");
+
+        assertTrue(index.search("buy", 10).isEmpty());
+        assertEquals(Collections.singletonList("a"), index.search("sell milk", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removedDocumentsStopMatchingAndTheirSlotIsReused() {
+        SearchIndex index = new SearchIndex();
+        index.put("a", "Buy milk");
+        index.put("b", "Buy bread");
+
+        index.remove("a");
+        index.put("c", "Buy eggs");
+
+        assertEquals(Arrays.asList("c", "b"), index.search("buy", 10));
+        assertTrue(index.search("milk", 10).isEmpty());
+    }
+
+    @Test
+    public void retainOnlyDropsEverythingElse() {
+        SearchIndex index = new SearchIndex();
+        index.put("a", "one");
+        index.put("b", "two");
+        index.put("c", "three");
+
+        index.retainOnly(new HashSet<>(Arrays.asList("a", "c")));
+
+        assertEquals(2, index.size());
+        assertTrue(index.search("two", 10).isEmpty());
+    }
+
+    @Test
+    public void clearEmptiesTheIndex() {
+        SearchIndex index = new SearchIndex();
+        index.put("a", "one");
+
+        index.clear();
+        index.put("b", "one");
+
+        assertEquals(Collections.singletonList("b"), index.search("one", 10));
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelledQueryThrows() {
+        SearchIndex index = new SearchIndex();
+        index.put("a", "Buy milk");
+
+        index.search("buy", 10, () -> true);
+    }
+}
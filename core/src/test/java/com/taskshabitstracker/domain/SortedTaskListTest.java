@@ -0,0 +1,124 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertEquals;
+
+import com.taskshabitstracker.model.Task;
+import com.taskshabitstracker.utils.DateUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class SortedTaskListTest {
+    private static final int TODAY = DateUtils.parseEpochDay("2026-03-10");
+
+    @Test
+    public void editsKeepTheSameOrderAsAFullSort() {
+        TaskQuery query = TaskQuery.DEFAULT.sortedBy(TaskQuery.Sort.DUE_DATE)
+                .hidingCompleted(true).groupedBy(TaskQuery.Grouping.DUE);
+        Random random = new Random(7);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(randomTask("t" + i, random));
+        }
+        SortedTaskList list = new SortedTaskList(query, TODAY);
+        list.reset(tasks);
+
+        for (int i = 0; i < 2_000; i++) {
+            int at = random.nextInt(tasks.size() + 1);
+            if (at == tasks.size()) {
+                Task task = randomTask("new" + i, random);
+                tasks.add(task);
+                list.put(task);
+            } else if (random.nextInt(4) == 0) {
+                list.remove(tasks.remove(at).getId());
+            } else {
+                Task task = randomTask(tasks.get(at).getId(), random);
+                tasks.set(at, task);
+                list.put(task);
+            }
+        }
+
+        SortedTaskList sorted = new SortedTaskList(query, TODAY);
+        sorted.reset(tasks);
+        assertEquals(ids(sorted.snapshot().tasks), ids(list.snapshot().tasks));
+        assertEquals(sorted.size(), list.size());
+    }
+
+    @Test
+    public void groupedByDue() {
+        SortedTaskList list = new SortedTaskList(
+                TaskQuery.DEFAULT.sortedBy(TaskQuery.Sort.DUE_DATE).groupedBy(TaskQuery.Grouping.DUE), TODAY);
+        list.reset(Arrays.asList(
+                task("later", false, TODAY + 30),
+                task("none", false, DateUtils.NO_DATE),
+                task("today", false, TODAY),
+                task("done", true, TODAY - 1),
+                task("week", false, TODAY + 3),
+                task("late", false, TODAY - 2)));
+
+        SortedTaskList.Snapshot snapshot = list.snapshot();
+
+        assertEquals(Arrays.asList("late", "today", "week", "later", "none", "done"), ids(snapshot.tasks));
+        assertEquals(6, snapshot.sections.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i, snapshot.sections.get(i).kind);
+            assertEquals(i, snapshot.sections.get(i).start);
+        }
+    }
+
+    @Test
+    public void movingToTheNextDayRegroups() {
+        SortedTaskList list = new SortedTaskList(
+                TaskQuery.DEFAULT.groupedBy(TaskQuery.Grouping.DUE), TODAY);
+        list.reset(Arrays.asList(task("a", false, TODAY), task("b", false, TODAY + 1)));
+
+        list.setToday(TODAY + 1);
+
+        List<SortedTaskList.Section> sections = list.snapshot().sections;
+        assertEquals(TaskQuery.SECTION_OVERDUE, sections.get(0).kind);
+        assertEquals(TaskQuery.SECTION_TODAY, sections.get(1).kind);
+    }
+
+    @Test
+    public void aHiddenTaskComesBackInItsPlace() {
+        SortedTaskList list = new SortedTaskList(TaskQuery.DEFAULT.hidingCompleted(true), TODAY);
+        list.reset(Arrays.asList(task("a", false, TODAY), task("b", false, TODAY), task("c", false, TODAY)));
+
+        list.put(task("b", true, TODAY));
+        assertEquals(Arrays.asList("a", "c"), ids(list.snapshot().tasks));
+
+        list.put(task("b", false, TODAY));
+        assertEquals(Arrays.asList("a", "b", "c"), ids(list.snapshot().tasks));
+    }
+
+    @Test
+    public void titleSortIgnoresCase() {
+        SortedTaskList list = new SortedTaskList(TaskQuery.DEFAULT.sortedBy(TaskQuery.Sort.TITLE), TODAY);
+        list.reset(Arrays.asList(
+                new Task("1", "banana", "", false, null),
+                new Task("2", "Apple", "", false, null),
+                new Task("3", "cherry", "", false, null)));
+
+        assertEquals(Arrays.asList("2", "1", "3"), ids(list.snapshot().tasks));
+    }
+
+    private static Task randomTask(String id, Random random) {
+        int due = random.nextInt(5) == 0 ? DateUtils.NO_DATE : TODAY - 10 + random.nextInt(40);
+        return task(id, random.nextInt(5) == 0, due);
+    }
+
+    private static Task task(String id, boolean completed, int dueDay) {
+        String due = dueDay == DateUtils.NO_DATE ? null : DateUtils.formatEpochDay(dueDay);
+        return new Task(id, id, "", completed, due);
+    }
+
+    private static List<String> ids(List<Task> tasks) {
+        List<String> ids = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+}
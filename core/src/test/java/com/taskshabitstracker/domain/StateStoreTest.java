@@ -0,0 +1,149 @@
+package com.taskshabitstracker.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class StateStoreTest {
+
+    private static StateStore<String> store() {
+        // Items are "key:value"
+        return new StateStore<>(item -> item.substring(0, item.indexOf(':')));
+    }
+
+    @Test
+    public void sequentialInsertsStayBalanced() {
+        StateStore<String> store = store();
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            store.put("k" + i + ":v");
+        }
+
+        StateStore.Snapshot<String> snapshot = store.snapshot();
+        assertEquals(count, snapshot.size());
+        // An AVL tree of n nodes is at most about 1.44 log2(n + 2) high
+        assertTrue("Height " + snapshot.height(), snapshot.height() <= 1.45 * log2(count + 2));
+        assertEquals("k0:v", snapshot.get(0));
+        assertEquals("k9999:v", snapshot.get(count - 1));
+    }
+
+    @Test
+    public void removalsStayBalanced() {
+        StateStore<String> store = store();
+        store.reset(items(4_096));
+        for (int i = 0; i < 4_096; i += 2) {
+            store.remove("k" + i);
+        }
+        for (int i = 1; i < 3_000; i += 2) {
+            store.remove("k" + i);
+        }
+
+        StateStore.Snapshot<String> snapshot = store.snapshot();
+        assertEquals(548, snapshot.size());
+        assertTrue("Height " + snapshot.height(), snapshot.height() <= 1.45 * log2(snapshot.size() + 2));
+        assertEquals("k3001:v", snapshot.get(0));
+    }
+
+    @Test
+    public void anEditCopiesOnlyOnePath() {
+        StateStore<String> store = store();
+        store.reset(items(1_024));
+        StateStore.Snapshot<String> before = store.snapshot();
+
+        store.put("k500:changed");
+        StateStore.Snapshot<String> after = store.snapshot();
+
+        assertTrue(after.nodesNotIn(before) <= before.height());
+        assertEquals("k500:v", before.get(500));
+        assertEquals("k500:changed", after.get(500));
+    }
+
+    @Test
+    public void oldSnapshotsDoNotChange() {
+        StateStore<String> store = store();
+        store.reset(items(5));
+        StateStore.Snapshot<String> before = store.snapshot();
+
+        store.remove("k1");
+        store.put("k9:v");
+
+        assertEquals(items(5), new ArrayList<>(before));
+        assertEquals(Arrays.asList("k0:v", "k2:v", "k3:v", "k4:v", "k9:v"), new ArrayList<>(store.snapshot()));
+    }
+
+    @Test
+    public void snapshotIsReusedUntilTheNextWrite() {
+        StateStore<String> store = store();
+        store.reset(items(3));
+
+        assertSame(store.snapshot(), store.snapshot());
+        store.put("k0:changed");
+        assertEquals(store.version(), store.snapshot().getVersion());
+    }
+
+    @Test
+    public void removedItemReturnsToItsPlace() {
+        StateStore<String> store = store();
+        store.reset(items(4));
+        PendingEdits.Edit<String> removal = store.remove("k1");
+
+        assertTrue(store.rollback(removal));
+
+        assertEquals(items(4), new ArrayList<>(store.snapshot()));
+    }
+
+    @Test
+    public void rollbackKeepsALaterEdit() {
+        StateStore<String> store = store();
+        store.reset(items(3));
+        PendingEdits.Edit<String> first = store.put("k1:first");
+        store.put("k1:second");
+
+        assertFalse(store.rollback(first));
+
+        assertEquals("k1:second", store.get("k1"));
+    }
+
+    @Test
+    public void resetKeepsEditsInFlight() {
+        StateStore<String> store = store();
+        store.reset(items(3));
+        PendingEdits.Edit<String> edit = store.put("k1:edited");
+
+        store.reset(Arrays.asList("k0:fresh", "k1:fresh", "k2:fresh"));
+        assertEquals("k1:edited", store.get("k1"));
+
+        assertTrue(store.rollback(edit));
+        assertEquals("k1:fresh", store.get("k1"));
+    }
+
+    @Test
+    public void committedEditIsNotRolledBack() {
+        StateStore<String> store = store();
+        store.reset(items(2));
+        PendingEdits.Edit<String> edit = store.remove("k0");
+        store.commit(edit);
+
+        assertFalse(store.rollback(edit));
+        assertNull(store.get("k0"));
+    }
+
+    private static List<String> items(int count) {
+        List<String> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add("k" + i + ":v");
+        }
+        return items;
+    }
+
+    private static double log2(int n) {
+        return Math.log(n) / Math.log(2);
+    }
+}
@@ -0,0 +1,44 @@
+package com.taskshabitstracker.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.taskshabitstracker.domain.HabitHistory;
+import com.taskshabitstracker.utils.DateUtils;
+import org.junit.Test;
+
+public class HabitTest {
+
+    @Test
+    public void streakAndTodayComeFromTheHistory() {
+        int today = DateUtils.today();
+        Habit habit = new Habit("h", "Read", "", HabitHistory.ofStreak(today - 1, 3));
+
+        assertEquals(3, habit.getStreak());
+        assertFalse(habit.isCompletedToday());
+
+        Habit done = habit.toggledCompletedToday(today);
+        assertEquals(4, done.getStreak());
+        assertTrue(done.isCompletedToday());
+        assertEquals(habit, done.toggledCompletedToday(today));
+    }
+
+    @Test
+    public void aRunThatEndedBeforeYesterdayIsNoStreak() {
+        int today = DateUtils.today();
+        Habit habit = new Habit("h", "Read", "", HabitHistory.ofStreak(today - 2, 5));
+
+        assertEquals(0, habit.getStreak());
+        assertEquals(5, habit.getHistory().longestStreak());
+    }
+
+    @Test
+    public void legacyFlagsBecomeAHistory() {
+        Habit habit = new Habit("h", "Read", "", 4, true);
+
+        assertEquals(4, habit.getStreak());
+        assertTrue(habit.isCompletedToday());
+        assertTrue(habit.getHistory().isCompleted(DateUtils.today()));
+    }
+}